@@ -0,0 +1,142 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.dom.persistent.DefaultDocumentSet;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.MimeType;
+import org.exist.util.StringInputSource;
+import org.exist.xmldb.XmldbURI;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Optional;
+
+/**
+ * Embedded database holding a generated corpus, shared by the storage benchmarks.
+ *
+ * The corpus is a single document of {@link #items} item elements, each with a name,
+ * a price and a nested description. The price elements have a range index.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    public static final XmldbURI COLLECTION_URI = XmldbURI.create("/db/benchmark");
+    public static final XmldbURI DOCUMENT_URI = XmldbURI.create("corpus.xml");
+
+    private static final String COLLECTION_CONFIG =
+            "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+            "    <index>" +
+            "        <create qname=\"price\" type=\"xs:double\"/>" +
+            "    </index>" +
+            "</collection>";
+
+    private static final int LIST_ITEMS = 3;
+
+    @Param({"10000"})
+    public int items;
+
+    private ExistEmbeddedServer server;
+    private DocumentImpl document;
+    private DocumentSet documents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new ExistEmbeddedServer(true, true);
+        server.startDb();
+
+        final BrokerPool pool = server.getBrokerPool();
+        try (final DBBroker broker = openBroker();
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+            broker.saveCollection(transaction, collection);
+            pool.getConfigurationManager().addConfiguration(transaction, broker, collection, COLLECTION_CONFIG);
+
+            broker.storeDocument(transaction, DOCUMENT_URI, new StringInputSource(generateCorpus(items)), MimeType.XML_TYPE, collection);
+            transaction.commit();
+
+            document = collection.getDocument(broker, DOCUMENT_URI);
+        }
+
+        final DefaultDocumentSet docs = new DefaultDocumentSet();
+        docs.add(document);
+        documents = docs;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stopDb();
+    }
+
+    /**
+     * Opens a broker for the calling thread.
+     *
+     * @return a broker of the system subject
+     *
+     * @throws EXistException if no broker is available
+     */
+    public DBBroker openBroker() throws EXistException {
+        final BrokerPool pool = server.getBrokerPool();
+        return pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+    }
+
+    public BrokerPool getBrokerPool() {
+        return server.getBrokerPool();
+    }
+
+    public DocumentImpl getDocument() {
+        return document;
+    }
+
+    public DocumentSet getDocuments() {
+        return documents;
+    }
+
+    static String generateCorpus(final int items) {
+        final StringBuilder builder = new StringBuilder(items * 256);
+        builder.append("<site><items>");
+        for (int i = 0; i < items; i++) {
+            builder.append("<item id=\"item").append(i).append("\">");
+            builder.append("<name>Item ").append(i).append("</name>");
+            // spread the prices over the whole range, independent of the document order
+            builder.append("<price>").append((i * 7919L) % 100_000 / 100.0).append("</price>");
+            builder.append("<description><parlist>");
+            for (int j = 0; j < LIST_ITEMS; j++) {
+                builder.append("<listitem><text>Description ").append(j).append(" of item ").append(i)
+                        .append(" with <keyword>keyword ").append(i % 100).append("</keyword></text></listitem>");
+            }
+            builder.append("</parlist></description>");
+            builder.append("</item>");
+        }
+        builder.append("</items></site>");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import java.io.Writer;
+
+/**
+ * A writer which discards its output and only counts the characters written,
+ * so that benchmarks measure serialization rather than I/O.
+ */
+public class CountingWriter extends Writer {
+    private long count = 0;
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) {
+        count += len;
+    }
+
+    @Override
+    public void write(final int c) {
+        count++;
+    }
+
+    @Override
+    public void write(final String str, final int off, final int len) {
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
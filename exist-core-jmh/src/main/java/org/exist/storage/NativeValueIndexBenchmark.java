@@ -0,0 +1,85 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.TerminatedException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.XQueryWatchDog;
+import org.exist.xquery.value.DoubleValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Range queries on the {@link NativeValueIndex}.
+ *
+ * The prices of the corpus are spread evenly over [0, 1000), so a query
+ * for the prices greater than 1000 * (1 - selectivity / 100) returns
+ * about {@link #selectivity} percent of the items.
+ */
+@State(Scope.Thread)
+public class NativeValueIndexBenchmark {
+
+    private static final QName PRICE = new QName("price", "");
+
+    @Param({"1", "10"})
+    public int selectivity;
+
+    private DBBroker broker;
+    private DocumentSet documents;
+    private XQueryWatchDog watchDog;
+    private DoubleValue greaterThan;
+    private DoubleValue equalTo;
+
+    @Setup(Level.Trial)
+    public void setUp(final CorpusState corpus) throws EXistException {
+        broker = corpus.openBroker();
+        documents = corpus.getDocuments();
+        watchDog = new XQueryContext(corpus.getBrokerPool()).getWatchDog();
+        greaterThan = new DoubleValue(1000 * (1 - selectivity / 100.0));
+        equalTo = new DoubleValue(79.19);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.close();
+    }
+
+    @Benchmark
+    public NodeSet rangeQuery() throws TerminatedException {
+        return broker.getValueIndex().find(watchDog, Comparison.GT, documents, null, NodeSet.ANCESTOR, PRICE, greaterThan);
+    }
+
+    @Benchmark
+    public NodeSet equalityQuery() throws TerminatedException {
+        return broker.getValueIndex().find(watchDog, Comparison.EQ, documents, null, NodeSet.ANCESTOR, PRICE, equalTo);
+    }
+}
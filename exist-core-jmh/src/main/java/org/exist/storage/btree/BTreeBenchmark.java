@@ -0,0 +1,107 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.storage.BrokerPool;
+import org.exist.storage.CorpusState;
+import org.exist.util.FileUtils;
+import org.exist.xquery.TerminatedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Inserts into and range scans of a {@link BTree}.
+ *
+ * The tree is filled with the even keys up to twice {@link #keys}. The insert
+ * benchmark adds the odd keys in a scattered order; once all of them have been
+ * added, further inserts update existing keys.
+ */
+@State(Scope.Thread)
+public class BTreeBenchmark {
+
+    private static final byte FILE_ID = 0x7F;
+    private static final short FILE_VERSION = Short.MIN_VALUE;
+
+    /**
+     * Multiplier for visiting the keys in a scattered but repeatable order.
+     */
+    private static final long SCATTER = 7919;
+
+    @Param({"100000"})
+    public int keys;
+
+    @Param({"100"})
+    public int scanSize;
+
+    private Path dir;
+    private BTree btree;
+    private long inserts = 0;
+    private long scans = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(final CorpusState corpus) throws DBException, IOException {
+        final BrokerPool pool = corpus.getBrokerPool();
+        dir = Files.createTempDirectory("org.exist.storage.btree.BTreeBenchmark");
+        btree = new BTree(pool, FILE_ID, FILE_VERSION, false, pool.getCacheManager(), dir.resolve("benchmark.dbx"));
+        btree.create((short) -1);
+        for (long i = 0; i < keys; i++) {
+            btree.addValue(key(2 * i), i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws DBException {
+        btree.close();
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Benchmark
+    public long insert() throws IOException, BTreeException {
+        final long k = 2 * ((inserts++ * SCATTER) % keys) + 1;
+        return btree.addValue(key(k), k);
+    }
+
+    @Benchmark
+    public int rangeScan() throws IOException, BTreeException, TerminatedException {
+        final long from = 2 * ((scans++ * SCATTER) % (keys - scanSize));
+        final IndexQuery query = new IndexQuery(IndexQuery.BW, key(from), key(from + 2L * (scanSize - 1)));
+        final int[] count = new int[1];
+        btree.query(query, (value, pointer) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    private static Value key(final long k) {
+        return new Value(String.format("key%012d", k));
+    }
+}
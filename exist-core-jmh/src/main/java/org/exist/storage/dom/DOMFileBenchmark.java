@@ -0,0 +1,87 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.dom;
+
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.IStoredNode;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.numbering.NodeId;
+import org.exist.storage.CorpusState;
+import org.exist.storage.DBBroker;
+import org.exist.storage.ElementValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Lookups of nodes in the {@link DOMFile} by their {@link NodeId}.
+ *
+ * The name elements of the corpus are looked up in a shuffled order,
+ * so that consecutive lookups mostly hit different pages.
+ */
+@State(Scope.Thread)
+public class DOMFileBenchmark {
+
+    private static final QName NAME = new QName("name", "");
+
+    private DBBroker broker;
+    private DocumentImpl document;
+    private NodeId[] nodeIds;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(final CorpusState corpus) throws EXistException {
+        broker = corpus.openBroker();
+        document = corpus.getDocument();
+
+        final NodeSet names = broker.getStructuralIndex().findElementsByTagName(ElementValue.ELEMENT, corpus.getDocuments(), NAME, null);
+        nodeIds = new NodeId[names.getLength()];
+        int i = 0;
+        for (final NodeProxy name : names) {
+            nodeIds[i++] = name.getNodeId();
+        }
+        Collections.shuffle(Arrays.asList(nodeIds), new Random(42));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.close();
+    }
+
+    @Benchmark
+    public IStoredNode lookupByNodeId() {
+        if (next == nodeIds.length) {
+            next = 0;
+        }
+        return broker.objectWith(document, nodeIds[next++]);
+    }
+}
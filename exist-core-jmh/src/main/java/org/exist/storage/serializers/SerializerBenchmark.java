@@ -0,0 +1,68 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.serializers;
+
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.storage.CorpusState;
+import org.exist.storage.CountingWriter;
+import org.exist.storage.DBBroker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.SAXException;
+
+/**
+ * Serialization of the corpus document by the {@link Serializer}.
+ *
+ * The output is discarded, only the number of characters written is kept.
+ */
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    private DBBroker broker;
+    private Serializer serializer;
+    private DocumentImpl document;
+
+    @Setup(Level.Trial)
+    public void setUp(final CorpusState corpus) throws EXistException {
+        broker = corpus.openBroker();
+        serializer = broker.borrowSerializer();
+        document = corpus.getDocument();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.returnSerializer(serializer);
+        broker.close();
+    }
+
+    @Benchmark
+    public long serializeDocument() throws SAXException {
+        final CountingWriter writer = new CountingWriter();
+        serializer.serialize(document, writer);
+        return writer.getCount();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.structural;
+
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.indexing.StructuralIndex;
+import org.exist.storage.CorpusState;
+import org.exist.storage.DBBroker;
+import org.exist.storage.ElementValue;
+import org.exist.xquery.Constants;
+import org.exist.xquery.Expression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Ancestor and descendant joins on the structural index,
+ * between the item and keyword elements of the corpus.
+ */
+@State(Scope.Thread)
+public class StructuralIndexBenchmark {
+
+    private static final QName ITEM = new QName("item", "");
+    private static final QName KEYWORD = new QName("keyword", "");
+
+    private DBBroker broker;
+    private StructuralIndex index;
+    private DocumentSet documents;
+    private NodeSet items;
+    private NodeSet keywords;
+
+    @Setup(Level.Trial)
+    public void setUp(final CorpusState corpus) throws EXistException {
+        broker = corpus.openBroker();
+        index = broker.getStructuralIndex();
+        documents = corpus.getDocuments();
+        items = index.findElementsByTagName(ElementValue.ELEMENT, documents, ITEM, null);
+        keywords = index.findElementsByTagName(ElementValue.ELEMENT, documents, KEYWORD, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.close();
+    }
+
+    @Benchmark
+    public NodeSet elementsByTagName() {
+        return index.findElementsByTagName(ElementValue.ELEMENT, documents, KEYWORD, null);
+    }
+
+    @Benchmark
+    public NodeSet descendants() {
+        return index.findDescendantsByTagName(ElementValue.ELEMENT, KEYWORD, Constants.DESCENDANT_AXIS, documents, items, Expression.NO_CONTEXT_ID);
+    }
+
+    @Benchmark
+    public NodeSet ancestors() {
+        return index.findAncestorsByTagName(ElementValue.ELEMENT, ITEM, Constants.ANCESTOR_AXIS, documents, keywords, Expression.NO_CONTEXT_ID);
+    }
+}
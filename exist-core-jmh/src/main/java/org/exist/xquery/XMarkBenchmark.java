@@ -0,0 +1,246 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.CountingWriter;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.FileInputSource;
+import org.exist.util.FileUtils;
+import org.exist.util.MimeType;
+import org.exist.util.serializer.XQuerySerializer;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.value.Sequence;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end XQuery workload over a generated XMark-style document.
+ *
+ * Each benchmark compiles its query once per thread, then measures evaluating it and
+ * serializing the result. Both the throughput and the sampled latency of every query are
+ * reported, the latter with percentiles. The workload only uses the embedded database
+ * and public XQuery functions, so the results of different releases can be compared,
+ * e.g. by running:
+ *
+ * <pre>java -jar exist-core-jmh-benchmarks.jar XMarkBenchmark -p factor=0.1 -rf json -rff xmark.json</pre>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XMarkBenchmark {
+
+    enum Query {
+        EXACT_MATCH(
+                "/site/people/person[@id = 'person0']/name/text()"),
+
+        PATH_NAVIGATION(
+                "for $b in /site/open_auctions/open_auction " +
+                "return <increase>{ $b/bidder[1]/increase/text() }</increase>"),
+
+        DESCENDANTS(
+                "for $r in /site/regions/* return count($r//item)"),
+
+        VALUE_JOIN(
+                "for $p in /site/people/person " +
+                "let $a := /site/closed_auctions/closed_auction[buyer/@person = $p/@id] " +
+                "return <item person='{ $p/name }'>{ count($a) }</item>"),
+
+        GROUP_BY(
+                "for $i in /site/regions//item " +
+                "group by $location := $i/location " +
+                "order by $location " +
+                "return <location name='{ $location }' items='{ count($i) }'/>"),
+
+        FULL_TEXT(
+                "/site/regions//item[ft:query(description, 'gold AND antique')]/name/text()"),
+
+        RANGE_LOOKUP(
+                "/site/closed_auctions/closed_auction[price >= 900.0]/itemref/@item/string()");
+
+        private final String expression;
+
+        Query(final String expression) {
+            this.expression = expression;
+        }
+    }
+
+    /**
+     * Embedded database holding the generated document.
+     *
+     * The text elements have a full-text index, and the prices and references
+     * to people have a range index.
+     */
+    @State(Scope.Benchmark)
+    public static class XMarkDatabase {
+
+        private static final XmldbURI COLLECTION_URI = XmldbURI.create("/db/xmark");
+        private static final XmldbURI DOCUMENT_URI = XmldbURI.create("auction.xml");
+
+        private static final String COLLECTION_CONFIG =
+                "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+                "    <index>" +
+                "        <lucene>" +
+                "            <text qname=\"description\"/>" +
+                "        </lucene>" +
+                "        <range>" +
+                "            <create qname=\"price\" type=\"xs:double\"/>" +
+                "            <create qname=\"@id\" type=\"xs:string\"/>" +
+                "            <create qname=\"@person\" type=\"xs:string\"/>" +
+                "        </range>" +
+                "    </index>" +
+                "</collection>";
+
+        /**
+         * The scaling factor of the document, 1.0 is about 100MB.
+         */
+        @Param({"0.01"})
+        public double factor;
+
+        @Param({"42"})
+        public long seed;
+
+        private ExistEmbeddedServer server;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            server = new ExistEmbeddedServer(true, true);
+            server.startDb();
+
+            final Path file = Files.createTempFile("xmark", ".xml");
+            try {
+                try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    XMarkGenerator.generate(factor, seed, writer);
+                }
+
+                final BrokerPool pool = server.getBrokerPool();
+                try (final DBBroker broker = openBroker();
+                        final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                    final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+                    broker.saveCollection(transaction, collection);
+                    pool.getConfigurationManager().addConfiguration(transaction, broker, collection, COLLECTION_CONFIG);
+
+                    broker.storeDocument(transaction, DOCUMENT_URI, new FileInputSource(file), MimeType.XML_TYPE, collection);
+                    transaction.commit();
+                }
+            } finally {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stopDb();
+        }
+
+        DBBroker openBroker() throws Exception {
+            final BrokerPool pool = server.getBrokerPool();
+            return pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+        }
+    }
+
+    /**
+     * A broker and the compiled queries of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+
+        private DBBroker broker;
+        private XQuery xquery;
+        private final Map<Query, CompiledXQuery> compiled = new EnumMap<>(Query.class);
+
+        @Setup(Level.Trial)
+        public void setUp(final XMarkDatabase database) throws Exception {
+            broker = database.openBroker();
+            xquery = broker.getBrokerPool().getXQueryService();
+            for (final Query query : Query.values()) {
+                final XQueryContext context = new XQueryContext(broker.getBrokerPool());
+                context.setStaticallyKnownDocuments(new XmldbURI[] { XMarkDatabase.COLLECTION_URI });
+                compiled.put(query, xquery.compile(context, query.expression));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            for (final CompiledXQuery query : compiled.values()) {
+                query.getContext().runCleanupTasks();
+            }
+            broker.close();
+        }
+
+        long run(final Query query) throws XPathException, PermissionDeniedException, SAXException {
+            final Sequence result = xquery.execute(broker, compiled.get(query), null);
+            final CountingWriter writer = new CountingWriter();
+            new XQuerySerializer(broker, new Properties(), writer).serialize(result);
+            return writer.getCount();
+        }
+    }
+
+    @Benchmark
+    public long exactMatch(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.EXACT_MATCH);
+    }
+
+    @Benchmark
+    public long pathNavigation(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.PATH_NAVIGATION);
+    }
+
+    @Benchmark
+    public long descendants(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.DESCENDANTS);
+    }
+
+    @Benchmark
+    public long valueJoin(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.VALUE_JOIN);
+    }
+
+    @Benchmark
+    public long groupBy(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.GROUP_BY);
+    }
+
+    @Benchmark
+    public long fullText(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.FULL_TEXT);
+    }
+
+    @Benchmark
+    public long rangeLookup(final Session session) throws XPathException, PermissionDeniedException, SAXException {
+        return session.run(Query.RANGE_LOOKUP);
+    }
+}
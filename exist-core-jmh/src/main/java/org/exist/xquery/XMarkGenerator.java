@@ -0,0 +1,229 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates an auction site document with the structure of the XMark benchmark.
+ *
+ * The number of elements follows the proportions of the original xmlgen tool, where a
+ * factor of 1.0 yields about 100MB. The output is fully determined by the factor and the
+ * seed, so that the same corpus can be loaded into different releases of the database.
+ */
+final class XMarkGenerator {
+
+    private static final String[] REGIONS = { "africa", "asia", "australia", "europe", "namerica", "samerica" };
+
+    private static final String[] COUNTRIES = { "United States", "Germany", "France", "Japan", "Brazil",
+            "Kenya", "Australia", "Canada", "India", "Netherlands" };
+
+    private static final String[] WORDS = { "gold", "silver", "antique", "vintage", "rare", "mint", "condition",
+            "original", "box", "signed", "limited", "edition", "collector", "item", "shipping", "worldwide",
+            "auction", "bid", "reserve", "price", "quality", "handmade", "wooden", "leather", "ceramic",
+            "painting", "stamp", "coin", "watch", "book", "first", "print", "damaged", "restored", "pair" };
+
+    private static final int MAX_TEXT_WORDS = 40;
+    private static final int MAX_BIDDERS = 6;
+    private static final int MAX_INTERESTS = 4;
+
+    private final Random random;
+    private final Writer writer;
+
+    private final int items;
+    private final int categories;
+    private final int people;
+    private final int openAuctions;
+    private final int closedAuctions;
+
+    private XMarkGenerator(final double factor, final long seed, final Writer writer) {
+        this.random = new Random(seed);
+        this.writer = writer;
+        // the proportions of xmlgen
+        this.items = scale(21750, factor);
+        this.categories = scale(1000, factor);
+        this.people = scale(25500, factor);
+        this.openAuctions = scale(12000, factor);
+        this.closedAuctions = scale(9750, factor);
+    }
+
+    /**
+     * Writes a generated document.
+     *
+     * @param factor the scaling factor, 1.0 corresponds to the standard XMark document
+     * @param seed the seed of the generator
+     * @param writer the writer to write the document to
+     *
+     * @throws IOException if the document cannot be written
+     */
+    static void generate(final double factor, final long seed, final Writer writer) throws IOException {
+        new XMarkGenerator(factor, seed, writer).site();
+    }
+
+    private static int scale(final int count, final double factor) {
+        return Math.max(1, (int) Math.round(count * factor));
+    }
+
+    private void site() throws IOException {
+        writer.write("<site>");
+        regions();
+        categories();
+        people();
+        openAuctions();
+        closedAuctions();
+        writer.write("</site>");
+    }
+
+    private void regions() throws IOException {
+        writer.write("<regions>");
+        int item = 0;
+        for (int r = 0; r < REGIONS.length; r++) {
+            writer.write('<');
+            writer.write(REGIONS[r]);
+            writer.write('>');
+            final int end = items * (r + 1) / REGIONS.length;
+            for (; item < end; item++) {
+                item(item);
+            }
+            writer.write("</");
+            writer.write(REGIONS[r]);
+            writer.write('>');
+        }
+        writer.write("</regions>");
+    }
+
+    private void item(final int id) throws IOException {
+        writer.write("<item id=\"item" + id + "\">");
+        writer.write("<location>" + COUNTRIES[random.nextInt(COUNTRIES.length)] + "</location>");
+        writer.write("<quantity>" + (1 + random.nextInt(5)) + "</quantity>");
+        writer.write("<name>" + words(3) + "</name>");
+        writer.write("<payment>Creditcard, Cash</payment>");
+        writer.write("<description>");
+        text();
+        writer.write("</description>");
+        writer.write("<shipping>Will ship internationally</shipping>");
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            writer.write("<incategory category=\"category" + random.nextInt(categories) + "\"/>");
+        }
+        writer.write("</item>");
+    }
+
+    private void categories() throws IOException {
+        writer.write("<categories>");
+        for (int i = 0; i < categories; i++) {
+            writer.write("<category id=\"category" + i + "\">");
+            writer.write("<name>" + words(2) + "</name>");
+            writer.write("<description>");
+            text();
+            writer.write("</description>");
+            writer.write("</category>");
+        }
+        writer.write("</categories>");
+    }
+
+    private void people() throws IOException {
+        writer.write("<people>");
+        for (int i = 0; i < people; i++) {
+            writer.write("<person id=\"person" + i + "\">");
+            writer.write("<name>Person " + i + "</name>");
+            writer.write("<emailaddress>mailto:person" + i + "@example.com</emailaddress>");
+            if (random.nextBoolean()) {
+                writer.write("<profile income=\"" + money(100_000) + "\">");
+                for (int j = random.nextInt(MAX_INTERESTS); j > 0; j--) {
+                    writer.write("<interest category=\"category" + random.nextInt(categories) + "\"/>");
+                }
+                writer.write("<age>" + (18 + random.nextInt(60)) + "</age>");
+                writer.write("</profile>");
+            }
+            writer.write("</person>");
+        }
+        writer.write("</people>");
+    }
+
+    private void openAuctions() throws IOException {
+        writer.write("<open_auctions>");
+        for (int i = 0; i < openAuctions; i++) {
+            final double initial = money(200);
+            double current = initial;
+            writer.write("<open_auction id=\"open_auction" + i + "\">");
+            writer.write("<initial>" + initial + "</initial>");
+            for (int j = random.nextInt(MAX_BIDDERS + 1); j > 0; j--) {
+                final double increase = money(50);
+                current += increase;
+                writer.write("<bidder><date>" + date() + "</date>");
+                writer.write("<personref person=\"person" + random.nextInt(people) + "\"/>");
+                writer.write("<increase>" + increase + "</increase></bidder>");
+            }
+            writer.write("<current>" + Math.round(current * 100) / 100.0 + "</current>");
+            writer.write("<itemref item=\"item" + random.nextInt(items) + "\"/>");
+            writer.write("<seller person=\"person" + random.nextInt(people) + "\"/>");
+            writer.write("<quantity>1</quantity><type>Regular</type>");
+            writer.write("</open_auction>");
+        }
+        writer.write("</open_auctions>");
+    }
+
+    private void closedAuctions() throws IOException {
+        writer.write("<closed_auctions>");
+        for (int i = 0; i < closedAuctions; i++) {
+            writer.write("<closed_auction>");
+            writer.write("<seller person=\"person" + random.nextInt(people) + "\"/>");
+            writer.write("<buyer person=\"person" + random.nextInt(people) + "\"/>");
+            writer.write("<itemref item=\"item" + random.nextInt(items) + "\"/>");
+            writer.write("<price>" + money(1000) + "</price>");
+            writer.write("<date>" + date() + "</date>");
+            writer.write("<quantity>1</quantity><type>Regular</type>");
+            writer.write("<annotation><description>");
+            text();
+            writer.write("</description></annotation>");
+            writer.write("</closed_auction>");
+        }
+        writer.write("</closed_auctions>");
+    }
+
+    private void text() throws IOException {
+        writer.write("<text>");
+        writer.write(words(1 + random.nextInt(MAX_TEXT_WORDS)));
+        writer.write("</text>");
+    }
+
+    private String words(final int count) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private double money(final int max) {
+        return random.nextInt(max * 100) / 100.0;
+    }
+
+    private String date() {
+        return String.format("%04d-%02d-%02d", 1998 + random.nextInt(4), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    }
+}
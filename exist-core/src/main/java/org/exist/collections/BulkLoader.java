@@ -0,0 +1,564 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.Namespaces;
+import org.exist.collections.triggers.TriggerException;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.Txn;
+import org.exist.util.LockException;
+import org.exist.util.MimeType;
+import org.exist.util.NamedThreadFactory;
+import org.exist.util.XMLReaderObjectFactory;
+import org.exist.util.XMLReaderObjectFactory.VALIDATION_SETTING;
+import org.exist.util.XMLReaderPool;
+import org.exist.util.sax.event.SAXEvent;
+import org.exist.util.sax.event.contenthandler.*;
+import org.exist.util.sax.event.lexicalhandler.*;
+import org.exist.xmldb.XmldbURI;
+import org.w3c.dom.Node;
+import org.xml.sax.*;
+import org.xml.sax.ext.LexicalHandler;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stores many documents into a collection, parsing the XML documents ahead on a pool of threads.
+ *
+ * Storing an XML document from an {@link InputSource} parses it twice on the calling thread,
+ * once to validate it and once to store it. The loader instead parses each XML document once
+ * on one of its threads, recording the SAX events, while the calling thread stores the documents
+ * which have already been parsed, in the order they were given, by replaying their events.
+ * Only the storage of the nodes and the updates of the indexes remain on the calling thread,
+ * as they require its broker.
+ *
+ * The number of documents which are held in memory, parsed but not yet stored, is bounded
+ * by twice the number of threads.
+ *
+ * All the documents are stored within the transaction of the caller, so that the journal
+ * is committed once for all of them rather than once per document.
+ *
+ * A loader either has threads of its own, or parses on the {@link BulkLoaderExecutor} of the
+ * database, which is shared by all the loaders created with {@link #BulkLoader(BrokerPool)}.
+ */
+@NotThreadSafe
+public class BulkLoader implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(BulkLoader.class);
+
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final BrokerPool pool;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int window;
+
+    /**
+     * Creates a loader which parses documents on the shared threads of the database.
+     *
+     * @param pool the database
+     */
+    public BulkLoader(final BrokerPool pool) {
+        this.pool = pool;
+        this.executor = pool.getBulkLoaderExecutor().getExecutor();
+        this.ownsExecutor = false;
+        this.window = BulkLoaderExecutor.THREADS * 2;
+    }
+
+    /**
+     * @param pool the database
+     * @param threads the number of threads which parse documents
+     */
+    public BulkLoader(final BrokerPool pool, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.pool = pool;
+        this.executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory(pool.getThreadGroup(), pool.getId(), "bulk-load.parser"));
+        this.ownsExecutor = true;
+        this.window = threads * 2;
+    }
+
+    /**
+     * A document to store.
+     *
+     * An XML document is read either from its {@code source}, or from its {@code node}
+     * if the caller has already parsed it. When a {@code reader} is given, the source
+     * is parsed with that reader by the calling thread instead of by the loader.
+     *
+     * @param name the name of the document within the collection
+     * @param mimeType the mime type of the document
+     * @param source the content of the document, or null if a node is given
+     * @param node the content of an XML document, or null if a source is given
+     * @param reader the reader to parse the source with, or null to use the default
+     * @param created the creation date of the document, or null for now
+     * @param modified the modification date of the document, or null for the creation date
+     */
+    public record Entry(XmldbURI name, MimeType mimeType, @Nullable InputSource source, @Nullable Node node,
+            @Nullable XMLReader reader, @Nullable Date created, @Nullable Date modified) {
+
+        public Entry(final XmldbURI name, final MimeType mimeType, final InputSource source) {
+            this(name, mimeType, source, null, null, null, null);
+        }
+    }
+
+    /**
+     * Receives the documents which could not be stored.
+     */
+    @FunctionalInterface
+    public interface FailureHandler {
+
+        /**
+         * @param entry the document which was skipped
+         * @param e the reason why it could not be stored
+         */
+        void failed(Entry entry, Exception e);
+    }
+
+    /**
+     * Stores the documents into the collection.
+     *
+     * The first document that cannot be parsed or stored stops the load, the documents
+     * before it remain stored.
+     *
+     * @param transaction the transaction to store the documents in
+     * @param broker the broker of the calling thread
+     * @param collection the collection, which must be locked for writing
+     * @param entries the documents to store
+     *
+     * @throws EXistException if a document cannot be stored
+     * @throws PermissionDeniedException if the caller may not store a document
+     * @throws SAXException if a document cannot be parsed
+     * @throws LockException if a document cannot be locked
+     * @throws IOException if a document cannot be read
+     */
+    public void store(final Txn transaction, final DBBroker broker, final Collection collection, final List<Entry> entries)
+            throws EXistException, PermissionDeniedException, SAXException, LockException, IOException {
+        store(transaction, broker, collection, entries, null);
+    }
+
+    /**
+     * Stores the documents into the collection.
+     *
+     * A document that cannot be parsed, or a new document that cannot be stored, is passed to
+     * the failure handler and skipped; whatever part of a new document was stored is removed again,
+     * so that no incomplete document is left in the transaction. A document which replaces an
+     * existing one and fails while being stored stops the load, as the old document cannot be
+     * restored; the caller should then abort the transaction. Without a failure handler,
+     * the first document that fails stops the load, the documents before it remain stored.
+     *
+     * @param transaction the transaction to store the documents in
+     * @param broker the broker of the calling thread
+     * @param collection the collection, which must be locked for writing
+     * @param entries the documents to store
+     * @param failureHandler receives the documents which are skipped, or null to stop at the first of them
+     *
+     * @throws EXistException if a document cannot be stored
+     * @throws PermissionDeniedException if the caller may not store a document
+     * @throws SAXException if a document cannot be parsed
+     * @throws LockException if a document cannot be locked
+     * @throws IOException if a document cannot be read
+     */
+    public void store(final Txn transaction, final DBBroker broker, final Collection collection, final List<Entry> entries,
+            @Nullable final FailureHandler failureHandler)
+            throws EXistException, PermissionDeniedException, SAXException, LockException, IOException {
+        final CollectionConfiguration config = collection.getConfiguration(broker);
+        final VALIDATION_SETTING validationMode = config != null ? config.getValidationMode() : null;
+
+        final Deque<Future<List<SAXEvent>>> parsing = new ArrayDeque<>(window);
+        final Iterator<Entry> ahead = entries.iterator();
+        try {
+            for (final Entry entry : entries) {
+                while (parsing.size() < window && ahead.hasNext()) {
+                    parsing.add(parse(ahead.next(), validationMode));
+                }
+
+                final Future<List<SAXEvent>> parsed = parsing.remove();
+                if (failureHandler == null) {
+                    store(transaction, broker, collection, entry, await(parsed));
+                    continue;
+                }
+
+                final List<SAXEvent> events;
+                try {
+                    events = await(parsed);
+                } catch (final EXistException | SAXException | IOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    // nothing has been written yet, so an existing document is left as it was
+                    failureHandler.failed(entry, e);
+                    continue;
+                }
+
+                if (collection.hasDocument(broker, entry.name())) {
+                    // a replacement which fails half way cannot be undone, so it aborts the load
+                    store(transaction, broker, collection, entry, events);
+                    continue;
+                }
+
+                try {
+                    store(transaction, broker, collection, entry, events);
+                } catch (final EXistException | PermissionDeniedException | SAXException | LockException | IOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    removeIncomplete(transaction, broker, collection, entry.name());
+                    failureHandler.failed(entry, e);
+                }
+            }
+        } finally {
+            for (final Future<List<SAXEvent>> future : parsing) {
+                future.cancel(true);
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Stored {} documents into {}", entries.size(), collection.getURI());
+        }
+    }
+
+    private static void store(final Txn transaction, final DBBroker broker, final Collection collection, final Entry entry,
+            @Nullable final List<SAXEvent> events) throws EXistException, PermissionDeniedException, SAXException, LockException, IOException {
+        if (events != null) {
+            collection.storeDocument(transaction, broker, entry.name(), entry.source(), entry.mimeType(),
+                    entry.created(), entry.modified(), null, null, new ReplayingXMLReader(events));
+        } else if (entry.node() != null) {
+            collection.storeDocument(transaction, broker, entry.name(), entry.node(), entry.mimeType(),
+                    entry.created(), entry.modified(), null, null, null);
+        } else {
+            collection.storeDocument(transaction, broker, entry.name(), entry.source(), entry.mimeType(),
+                    entry.created(), entry.modified(), null, null, entry.reader());
+        }
+    }
+
+    /**
+     * Removes what was stored of a document which failed to store.
+     */
+    private static void removeIncomplete(final Txn transaction, final DBBroker broker, final Collection collection, final XmldbURI name) {
+        try {
+            final DocumentImpl doc = collection.getDocument(broker, name);
+            if (doc != null) {
+                collection.removeResource(transaction, broker, doc);
+            }
+        } catch (final PermissionDeniedException | LockException | IOException | TriggerException e) {
+            LOG.error("Unable to remove incompletely stored document {}: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts parsing the XML document of an entry.
+     *
+     * @return the future events of the document, or null for entries which are not parsed by the loader
+     */
+    private Future<List<SAXEvent>> parse(final Entry entry, @Nullable final VALIDATION_SETTING validationMode) {
+        if (!entry.mimeType().isXMLType() || entry.node() != null || entry.reader() != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            final XMLReaderPool readerPool = pool.getXmlReaderPool();
+            final XMLReader reader = readerPool.borrowXMLReader();
+            try {
+                if (validationMode != null) {
+                    XMLReaderObjectFactory.setReaderValidationMode(validationMode, reader);
+                }
+                final Recorder recorder = new Recorder();
+                reader.setContentHandler(recorder);
+                reader.setProperty(Namespaces.SAX_LEXICAL_HANDLER, recorder);
+                reader.setErrorHandler(recorder);
+                reader.parse(entry.source());
+                return recorder.events;
+            } catch (final SAXException e) {
+                throw new CompletionException(new SAXException("The XML parser reported a problem: " + e.getMessage(), e));
+            } catch (final IOException e) {
+                throw new CompletionException(e);
+            } finally {
+                if (validationMode != null) {
+                    final String defaultMode = (String) pool.getConfiguration().getProperty(XMLReaderObjectFactory.PROPERTY_VALIDATION_MODE);
+                    XMLReaderObjectFactory.setReaderValidationMode(VALIDATION_SETTING.fromOption(defaultMode), reader);
+                }
+                readerPool.returnXMLReader(reader);
+            }
+        }, executor);
+    }
+
+    private static List<SAXEvent> await(final Future<List<SAXEvent>> future) throws SAXException, IOException, EXistException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EXistException("Interrupted whilst waiting for a document to be parsed", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof SAXException saxException) {
+                throw saxException;
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new EXistException(cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Records the events of a document, reporting parser errors like the {@link org.exist.Indexer}.
+     */
+    private static class Recorder implements ContentHandler, LexicalHandler, ErrorHandler {
+        private final List<SAXEvent> events = new ArrayList<>();
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            // the locator belongs to the parser, which is reused once the document is parsed
+        }
+
+        @Override
+        public void startDocument() {
+            events.add(StartDocument.INSTANCE);
+        }
+
+        @Override
+        public void endDocument() {
+            events.add(EndDocument.INSTANCE);
+        }
+
+        @Override
+        public void startPrefixMapping(final String prefix, final String uri) {
+            events.add(new StartPrefixMapping(prefix, uri));
+        }
+
+        @Override
+        public void endPrefixMapping(final String prefix) {
+            events.add(new EndPrefixMapping(prefix));
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts) {
+            events.add(new StartElement(uri, localName, qName, atts));
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) {
+            events.add(new EndElement(uri, localName, qName));
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) {
+            events.add(new Characters(ch, start, length));
+        }
+
+        @Override
+        public void ignorableWhitespace(final char[] ch, final int start, final int length) {
+            events.add(new IgnorableWhitespace(ch, start, length));
+        }
+
+        @Override
+        public void processingInstruction(final String target, final String data) {
+            events.add(new ProcessingInstruction(target, data));
+        }
+
+        @Override
+        public void skippedEntity(final String name) {
+            events.add(new SkippedEntity(name));
+        }
+
+        @Override
+        public void startDTD(final String name, final String publicId, final String systemId) {
+            events.add(new StartDTD(name, publicId, systemId));
+        }
+
+        @Override
+        public void endDTD() {
+            events.add(EndDTD.INSTANCE);
+        }
+
+        @Override
+        public void startEntity(final String name) {
+            events.add(new StartEntity(name));
+        }
+
+        @Override
+        public void endEntity(final String name) {
+            events.add(new EndEntity(name));
+        }
+
+        @Override
+        public void startCDATA() {
+            events.add(StartCDATA.INSTANCE);
+        }
+
+        @Override
+        public void endCDATA() {
+            events.add(EndCDATA.INSTANCE);
+        }
+
+        @Override
+        public void comment(final char[] ch, final int start, final int length) {
+            events.add(new Comment(ch, start, length));
+        }
+
+        @Override
+        public void warning(final SAXParseException e) throws SAXException {
+            throw new SAXException("warning at (" + e.getLineNumber() + "," + e.getColumnNumber() + ") : " + e.getMessage(), e);
+        }
+
+        @Override
+        public void error(final SAXParseException e) throws SAXException {
+            throw new SAXException("error at (" + e.getLineNumber() + "," + e.getColumnNumber() + ") : " + e.getMessage(), e);
+        }
+
+        @Override
+        public void fatalError(final SAXParseException e) throws SAXException {
+            throw new SAXException("fatal error at (" + e.getLineNumber() + "," + e.getColumnNumber() + ") : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A reader which replays the recorded events of a document, for each time it is parsed.
+     */
+    private static class ReplayingXMLReader implements XMLReader {
+        private final List<SAXEvent> events;
+        private ContentHandler contentHandler;
+        private LexicalHandler lexicalHandler;
+        private ErrorHandler errorHandler;
+        private EntityResolver entityResolver;
+        private DTDHandler dtdHandler;
+
+        ReplayingXMLReader(final List<SAXEvent> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void parse(final InputSource input) throws SAXException {
+            replay();
+        }
+
+        @Override
+        public void parse(final String systemId) throws SAXException {
+            replay();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void replay() throws SAXException {
+            for (final SAXEvent event : events) {
+                if (event instanceof ContentHandlerEvent) {
+                    event.apply(contentHandler);
+                } else if (lexicalHandler != null) {
+                    event.apply(lexicalHandler);
+                }
+            }
+        }
+
+        @Override
+        public boolean getFeature(final String name) throws SAXNotRecognizedException {
+            throw new SAXNotRecognizedException(name);
+        }
+
+        @Override
+        public void setFeature(final String name, final boolean value) throws SAXNotRecognizedException {
+            throw new SAXNotRecognizedException(name);
+        }
+
+        @Override
+        public Object getProperty(final String name) throws SAXNotRecognizedException {
+            if (Namespaces.SAX_LEXICAL_HANDLER.equals(name)) {
+                return lexicalHandler;
+            }
+            throw new SAXNotRecognizedException(name);
+        }
+
+        @Override
+        public void setProperty(final String name, final Object value) throws SAXNotRecognizedException {
+            if (Namespaces.SAX_LEXICAL_HANDLER.equals(name)) {
+                lexicalHandler = (LexicalHandler) value;
+            } else {
+                throw new SAXNotRecognizedException(name);
+            }
+        }
+
+        @Override
+        public void setEntityResolver(final EntityResolver resolver) {
+            this.entityResolver = resolver;
+        }
+
+        @Override
+        public EntityResolver getEntityResolver() {
+            return entityResolver;
+        }
+
+        @Override
+        public void setDTDHandler(final DTDHandler handler) {
+            this.dtdHandler = handler;
+        }
+
+        @Override
+        public DTDHandler getDTDHandler() {
+            return dtdHandler;
+        }
+
+        @Override
+        public void setContentHandler(final ContentHandler handler) {
+            this.contentHandler = handler;
+        }
+
+        @Override
+        public ContentHandler getContentHandler() {
+            return contentHandler;
+        }
+
+        @Override
+        public void setErrorHandler(final ErrorHandler handler) {
+            this.errorHandler = handler;
+        }
+
+        @Override
+        public ErrorHandler getErrorHandler() {
+            return errorHandler;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections;
+
+import net.jcip.annotations.ThreadSafe;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.BrokerPoolService;
+import org.exist.util.NamedThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The threads on which {@link BulkLoader}s parse documents, shared by all
+ * the loaders of a database, so that storing many batches of documents does
+ * not start new threads for each batch.
+ */
+@ThreadSafe
+public class BulkLoaderExecutor implements BrokerPoolService {
+
+    public static final int THREADS = BulkLoader.DEFAULT_THREADS;
+
+    private ThreadPoolExecutor executor;
+
+    @Override
+    public void prepare(final BrokerPool brokerPool) {
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(brokerPool.getThreadGroup(), brokerPool.getId(), "bulk-load.parser"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
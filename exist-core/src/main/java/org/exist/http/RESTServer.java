@@ -86,6 +86,7 @@ import org.xml.sax.helpers.XMLFilterImpl;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
@@ -774,7 +775,7 @@ public class RESTServer {
                     if (Query.xmlKey().equals(root.getLocalName())) {
                         // process <query>xpathQuery</query>
                         String option = root.getAttribute(Start.xmlKey());
-                        if (option.isEmpty()) {
+                        if (!option.isEmpty()) {
                             try {
                                 start = Integer.parseInt(option);
                             } catch (final NumberFormatException e) {
@@ -783,7 +784,7 @@ public class RESTServer {
                         }
 
                         option = root.getAttribute(Max.xmlKey());
-                        if (option.isEmpty()) {
+                        if (!option.isEmpty()) {
                             try {
                                 howmany = Integer.parseInt(option);
                             } catch (final NumberFormatException e) {
@@ -2216,6 +2217,13 @@ public class RESTServer {
         outputProperties.setProperty(Serializer.GENERATE_DOC_EVENTS, "false");
         try {
             serializer.setProperties(outputProperties);
+
+            // the items are serialized one at a time whilst writing the response
+            final StreamingResults data = new StreamingResults("data", serializer, results, start - 1, howmany,
+                    "json".equals(outputProperties.getProperty("method", "xml")));
+            // an error in the first item can still be reported with an error status
+            data.serializeFirst();
+
             try (Writer writer = new OutputStreamWriter(response.getOutputStream(), getEncoding(outputProperties))) {
                 final JSONObject root = new JSONObject();
                 root.addObject(new JSONSimpleProperty("start", Integer.toString(start), true));
@@ -2228,30 +2236,9 @@ public class RESTServer {
                 root.addObject(new JSONSimpleProperty("compilationTime", Long.toString(compilationTime), true));
                 root.addObject(new JSONSimpleProperty("executionTime", Long.toString(executionTime), true));
 
-                final JSONObject data = new JSONObject("data");
+                // must be the last property, see StreamingResults
                 root.addObject(data);
 
-                Item item;
-                for (int i = --start; i < start + howmany; i++) {
-                    item = results.itemAt(i);
-                    if (Type.subTypeOf(item.getType(), Type.NODE)) {
-                        final NodeValue value = (NodeValue) item;
-                        JSONValue json;
-                        if ("json".equals(outputProperties.getProperty("method", "xml"))) {
-                            json = new JSONValue(serializer.serialize(value), false);
-                            json.setSerializationDataType(JSONNode.SerializationDataType.AS_LITERAL);
-                        } else {
-                            json = new JSONValue(serializer.serialize(value));
-                            json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
-                        }
-                        data.addObject(json);
-                    } else {
-                        final JSONValue json = new JSONValue(item.getStringValue());
-                        json.setSerializationType(JSONNode.SerializationType.AS_ARRAY);
-                        data.addObject(json);
-                    }
-                }
-
                 root.serialize(writer, true);
 
                 writer.flush();
@@ -2263,6 +2250,103 @@ public class RESTServer {
         }
     }
 
+    /**
+     * JSON property holding a range of query results.
+     *
+     * Each item is serialized when the property is written, so only a
+     * single serialized item is held in memory at any time. The first item
+     * is serialized before the response is written, so that an error in it
+     * can be reported with an error status. As the response has already been
+     * sent by the time a later item fails, the items written so far are
+     * followed by an "error" property with the message instead, which is why
+     * this must be the last property of its object.
+     */
+    static class StreamingResults extends JSONNode {
+        private final Serializer serializer;
+        private final Sequence results;
+        private final int offset;
+        private final int count;
+        private final boolean nodesAsLiteral;
+        @Nullable private JSONValue first = null;
+
+        StreamingResults(final String name, final Serializer serializer, final Sequence results, final int offset,
+                final int count, final boolean nodesAsLiteral) {
+            super(Type.OBJECT_TYPE, name);
+            this.serializer = serializer;
+            this.results = results;
+            this.offset = offset;
+            this.count = count;
+            this.nodesAsLiteral = nodesAsLiteral;
+        }
+
+        void serializeFirst() throws SAXException, XPathException {
+            if (count > 0) {
+                first = toJSONValue(results.itemAt(offset));
+            }
+        }
+
+        @Override
+        public void serialize(final Writer writer, final boolean isRoot) throws IOException {
+            if (!isRoot) {
+                writer.write('"');
+                writer.write(getName());
+                writer.write("\":");
+            }
+            serializeContent(writer);
+        }
+
+        @Override
+        public void serializeContent(final Writer writer) throws IOException {
+            if (count == 0) {
+                writer.write("null");
+                return;
+            }
+
+            if (count > 1) {
+                writer.write('[');
+            }
+            try {
+                for (int i = offset; i < offset + count; i++) {
+                    final JSONValue value;
+                    if (i == offset && first != null) {
+                        value = first;
+                        first = null;
+                    } else {
+                        value = toJSONValue(results.itemAt(i));
+                    }
+                    if (i > offset) {
+                        writer.write(',');
+                    }
+                    value.serializeContent(writer);
+                }
+            } catch (final SAXException | XPathException e) {
+                LOG.error("Error while serializing item of query results: {}", e.getMessage(), e);
+                if (count > 1) {
+                    writer.write(']');
+                }
+                writer.write(",\"error\":");
+                new JSONValue(e.getMessage() != null ? e.getMessage() : e.toString()).serializeContent(writer);
+                return;
+            }
+            if (count > 1) {
+                writer.write(']');
+            }
+        }
+
+        private JSONValue toJSONValue(final Item item) throws SAXException, XPathException {
+            if (org.exist.xquery.value.Type.subTypeOf(item.getType(), org.exist.xquery.value.Type.NODE)) {
+                final String serialized = serializer.serialize((NodeValue) item);
+                if (nodesAsLiteral) {
+                    final JSONValue json = new JSONValue(serialized, false);
+                    json.setSerializationDataType(JSONNode.SerializationDataType.AS_LITERAL);
+                    return json;
+                }
+                return new JSONValue(serialized);
+            }
+            return new JSONValue(item.getStringValue());
+        }
+    }
+
     private boolean isExecutableType(final DocumentImpl resource) {
         return (
             resource != null
@@ -28,6 +28,7 @@ import org.exist.dom.QName;
 import org.exist.xquery.Expression;
 import org.exist.xquery.NodeSelector;
 import org.exist.xquery.NodeTest;
+import org.exist.xquery.TerminatedException;
 
 /**
  * Core interface for structural indexes. The structural index provides access to elements and attributes
@@ -48,6 +49,24 @@ public interface StructuralIndex {
 
     public NodeSet findElementsByTagName(byte type, DocumentSet docs, QName qname, NodeSelector selector, Expression parent);
 
+    /**
+     * Count the elements or attributes with the given name in the document set, without
+     * materializing the matching nodes. The scan stops as soon as <code>max</code> matches
+     * have been seen, so callers only interested in whether a name occurs at all should
+     * pass 1.
+     *
+     * @param type the type of node to count
+     * @param docs the documents to scan
+     * @param qname the node name
+     * @param max the maximum number of matches to count
+     * @param parent the expression on whose behalf the index is scanned, may be null
+     * @return the number of matching nodes, at most <code>max</code>
+     *
+     * @throws TerminatedException if the query was terminated while scanning
+     */
+    public long countElementsByTagName(byte type, DocumentSet docs, QName qname, long max, Expression parent)
+            throws TerminatedException;
+
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis,
         DocumentSet docs, NodeSet contextSet,  int contextId);
 
@@ -50,6 +50,7 @@ import org.apache.logging.log4j.Logger;
 import org.exist.dom.QName;
 import org.exist.management.Cache;
 import org.exist.management.CacheManager;
+import org.exist.management.OffHeapPageCache;
 import org.exist.management.impl.*;
 import org.exist.dom.memtree.MemTreeBuilder;
 import org.exist.start.CompatibleJavaVersionCheck;
@@ -98,10 +99,14 @@ public class JMXtoXML {
         putCategory("instances", Database.getAllInstancesQuery());
         putCategory("locking", LockTable.getAllInstancesQuery());
         putCategory("disk", DiskUsage.getAllInstancesQuery());
+        putCategory("journal", Journal.getAllInstancesQuery());
         putCategory("collectioncaches", CollectionCache.getAllInstancesQuery());
+        putCategory("xquerypools", XQueryPool.getAllInstancesQuery());
+        putCategory("queryresultcaches", QueryResultCache.getAllInstancesQuery());
         putCategory("caches",
                 CacheManager.getAllInstancesQuery(),
-                Cache.getAllInstancesQuery()
+                Cache.getAllInstancesQuery(),
+                OffHeapPageCache.getAllInstancesQuery()
         );
         putCategory("binarystreamcaches", BinaryValues.getAllInstancesQuery());
         putCategory("processes", ProcessReport.getAllInstancesQuery());
@@ -0,0 +1,111 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+import org.exist.storage.BrokerPool;
+import org.exist.storage.journal.GroupCommitter;
+import org.exist.storage.journal.JournalManager;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+/**
+ * JMX MXBean for examining the group commits of the Journal
+ */
+public class Journal implements JournalMXBean {
+
+    private final BrokerPool pool;
+
+    public Journal(final BrokerPool brokerPool) {
+        this.pool = brokerPool;
+    }
+
+    public static String getAllInstancesQuery() {
+        return getName("*");
+    }
+
+    private static String getName(final String instanceId) {
+        return "org.exist.management." + instanceId + ":type=Journal";
+    }
+
+    @Override
+    public ObjectName getName() throws MalformedObjectNameException {
+        return new ObjectName(getName(pool.getId()));
+    }
+
+    @Override
+    public String getInstanceId() {
+        return pool.getId();
+    }
+
+    private Optional<GroupCommitter> getGroupCommitter() {
+        return pool.getJournalManager().map(JournalManager::getGroupCommitter);
+    }
+
+    private long getGroupCommitValue(final ToLongFunction<GroupCommitter> getter) {
+        return getGroupCommitter().map(getter::applyAsLong).orElse(0L);
+    }
+
+    @Override
+    public boolean isGroupCommitEnabled() {
+        return getGroupCommitter().isPresent();
+    }
+
+    @Override
+    public long getGroupCommitWindow() {
+        return getGroupCommitValue(GroupCommitter::getWindow);
+    }
+
+    @Override
+    public int getGroupCommitMaxSize() {
+        return (int) getGroupCommitValue(GroupCommitter::getMaxSize);
+    }
+
+    @Override
+    public long getGroupCommits() {
+        return getGroupCommitValue(GroupCommitter::getCommits);
+    }
+
+    @Override
+    public long getGroupCommitSyncs() {
+        return getGroupCommitValue(GroupCommitter::getSyncs);
+    }
+
+    @Override
+    public long getGroupCommitMaxGroupSize() {
+        return getGroupCommitValue(GroupCommitter::getMaxGroupSize);
+    }
+
+    @Override
+    public double getGroupCommitAverageGroupSize() {
+        final long syncs = getGroupCommitSyncs();
+        return syncs == 0 ? 0 : getGroupCommits() / (double) syncs;
+    }
+
+    @Override
+    public long getGroupCommitAverageSyncTime() {
+        final long syncs = getGroupCommitSyncs();
+        return syncs == 0 ? 0 : getGroupCommitValue(GroupCommitter::getSyncTime) / syncs / 1000;
+    }
+}
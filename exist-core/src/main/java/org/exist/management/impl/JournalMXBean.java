@@ -0,0 +1,55 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+/**
+ * Provides access to the group commit statistics
+ * of the journal.
+ */
+public interface JournalMXBean extends PerInstanceMBean {
+
+    boolean isGroupCommitEnabled();
+
+    long getGroupCommitWindow();
+
+    int getGroupCommitMaxSize();
+
+    long getGroupCommits();
+
+    long getGroupCommitSyncs();
+
+    long getGroupCommitMaxGroupSize();
+
+    /**
+     * Get the average number of commits per sync of the journal.
+     *
+     * @return the average number of commits per sync
+     */
+    double getGroupCommitAverageGroupSize();
+
+    /**
+     * Get the average time taken by a sync of the journal.
+     *
+     * @return the average sync time in microseconds
+     */
+    long getGroupCommitAverageSyncTime();
+}
@@ -29,6 +29,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.Database;
 import org.exist.EXistException;
+import org.exist.collections.BulkLoaderExecutor;
 import org.exist.collections.Collection;
 import org.exist.collections.CollectionCache;
 import org.exist.collections.CollectionConfiguration;
@@ -332,6 +333,21 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     private XQueryPool xQueryPool;
 
+    /**
+     * The executor for the parts of queries which are evaluated in parallel
+     */
+    private ParallelQueryExecutor parallelQueryExecutor;
+
+    /**
+     * The threads on which documents are parsed when they are stored in bulk
+     */
+    private BulkLoaderExecutor bulkLoaderExecutor;
+
+    /**
+     * The cache in which the <strong>results</strong> of XQueries are stored.
+     */
+    private QueryResultCache queryResultCache;
+
     /**
      * The monitor in which the database instance's strong>running</strong> XQueries are managed.
      */
@@ -474,6 +490,8 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
         this.cacheManager = servicesManager.register(new DefaultCacheManager(this));
         this.xQueryPool = servicesManager.register(new XQueryPool());
+        this.parallelQueryExecutor = servicesManager.register(new ParallelQueryExecutor());
+        this.bulkLoaderExecutor = servicesManager.register(new BulkLoaderExecutor());
         this.processMonitor = servicesManager.register(new ProcessMonitor());
         this.xqueryStats = servicesManager.register(new PerformanceStatsService());
         final XMLReaderObjectFactory xmlReaderObjectFactory = servicesManager.register(new XMLReaderObjectFactory());
@@ -483,6 +501,7 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
                 .orElse(DEFAULT_COLLECTION_BUFFER_SIZE);
         this.collectionCache = servicesManager.register(new CollectionCache());
         this.notificationService = servicesManager.register(new NotificationService());
+        this.queryResultCache = servicesManager.register(new QueryResultCache());
 
         this.journalManager = recoveryEnabled ? Optional.of(new JournalManager()) : Optional.empty();
         journalManager.ifPresent(servicesManager::register);
@@ -785,11 +804,12 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     public boolean runRecovery(final DBBroker broker) throws EXistException {
         final boolean forceRestart = conf.getProperty(PROPERTY_RECOVERY_FORCE_RESTART, false);
+        final int redoThreads = conf.getProperty(PROPERTY_RECOVERY_REDO_THREADS, DEFAULT_RECOVERY_REDO_THREADS);
         if(LOG.isDebugEnabled()) {
             LOG.debug("ForceRestart = {}", forceRestart);
         }
         if(journalManager.isPresent()) {
-            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart);
+            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart, redoThreads);
             return recovery.recover();
         } else {
             throw new IllegalStateException("Cannot run recovery without a JournalManager");
@@ -1044,6 +1064,33 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         return xQueryPool;
     }
 
+    /**
+     * Returns the executor for the parts of queries which are evaluated in parallel.
+     *
+     * @return The executor
+     */
+    public ParallelQueryExecutor getParallelQueryExecutor() {
+        return parallelQueryExecutor;
+    }
+
+    /**
+     * Returns the threads on which documents are parsed when they are stored in bulk.
+     *
+     * @return The executor
+     */
+    public BulkLoaderExecutor getBulkLoaderExecutor() {
+        return bulkLoaderExecutor;
+    }
+
+    /**
+     * Returns the cache in which the <strong>results</strong> of XQueries are stored.
+     *
+     * @return The cache
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
     /**
      * Retuns the XQuery Service
      *
@@ -86,6 +86,8 @@ public interface BrokerPoolConstants {
     String RECOVERY_GROUP_COMMIT_ATTRIBUTE = "group-commit";
     String PROPERTY_RECOVERY_FORCE_RESTART = "db-connection.recovery.force-restart";
     String RECOVERY_FORCE_RESTART_ATTRIBUTE = "force-restart";
+    String PROPERTY_RECOVERY_REDO_THREADS = "db-connection.recovery.redo-threads";
+    String RECOVERY_REDO_THREADS_ATTRIBUTE = "redo-threads";
 
     String PROPERTY_PAGE_SIZE = "db-connection.page-size";
 
@@ -98,4 +100,5 @@ public interface BrokerPoolConstants {
     int DEFAULT_COLLECTION_BUFFER_SIZE = 64;
     int DEFAULT_PAGE_SIZE = 4096;
     short DEFAULT_DISK_SPACE_MIN = 64; // 64 MB
+    int DEFAULT_RECOVERY_REDO_THREADS = 1;
 }
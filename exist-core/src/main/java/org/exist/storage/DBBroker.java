@@ -456,6 +456,20 @@ public interface DBBroker extends AutoCloseable {
      */
     String getNodeValue(IStoredNode node, boolean addWhitespace);
 
+    /**
+     * Get the string values of several nodes at once.
+     *
+     * The nodes are read in the order in which they are stored rather than
+     * in the order given, so that the pages of the DOM file are visited
+     * sequentially instead of jumping back and forth between them.
+     *
+     * @param nodes the nodes, may contain null entries
+     * @param addWhitespace to add whitespace or not, see {@link #getNodeValue(IStoredNode, boolean)}
+     *
+     * @return the node values, in the order of the given nodes, null for null entries
+     */
+    String[] getNodeValues(IStoredNode[] nodes, boolean addWhitespace);
+
     /**
      * Get an instance of the Serializer used for converting nodes back to XML
      * from the pool.
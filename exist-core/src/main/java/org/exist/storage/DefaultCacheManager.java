@@ -27,6 +27,7 @@ import org.apache.logging.log4j.Logger;
 import org.exist.management.Agent;
 import org.exist.management.AgentFactory;
 import org.exist.storage.cache.Cache;
+import org.exist.storage.cache.OffHeapPageCache;
 import org.exist.util.Configuration;
 import org.exist.util.DatabaseConfigurationException;
 
@@ -35,6 +36,7 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import javax.annotation.Nullable;
 
 
 /**
@@ -77,6 +79,9 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
     public static final String  SHRINK_THRESHOLD_ATTRIBUTE     		 	= "cacheShrinkThreshold";
     public static final String  SHRINK_THRESHOLD_PROPERTY      			= "db-connection.cache-shrink-threshold";
 
+    public static final String  OFF_HEAP_CACHE_SIZE_ATTRIBUTE           = "offHeapCacheSize";
+    public static final String  PROPERTY_OFF_HEAP_CACHE_SIZE            = "db-connection.off-heap-cache-size";
+
     /** Caches maintained by this class. */
     private List<Cache>         caches                          = new ArrayList<>();
 
@@ -108,6 +113,9 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
 
     private String              instanceName;
 
+    /** The off-heap page cache shared by all database files, or null if disabled. */
+    private final @Nullable OffHeapPageCache offHeapPageCache;
+
     public DefaultCacheManager( BrokerPool pool )
     {
         this.instanceName = pool.getId();
@@ -151,9 +159,29 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
 
         LOG.info("Cache settings: {}k; totalPages: {}; maxCacheSize: {}; cacheShrinkThreshold: {}", nf.format(totalMem / 1024L), nf.format(totalPageCount), nf.format(maxCacheSize), nf.format(shrinkThreshold));
 
+        // the off-heap cache is budgeted separately, it is not limited by the Java heap
+        final int offHeapCacheSize = configuration.getInteger( PROPERTY_OFF_HEAP_CACHE_SIZE );
+        if( offHeapCacheSize > 0 ) {
+            final long offHeapMem = offHeapCacheSize * 1024L * 1024L;
+            this.offHeapPageCache = new OffHeapPageCache( "off-heap", offHeapMem, pageSize );
+            LOG.info("Off-heap page cache settings: {}k; totalPages: {}", nf.format(offHeapMem / 1024L), nf.format(offHeapPageCache.getCapacity()));
+        } else {
+            this.offHeapPageCache = null;
+        }
+
         registerMBean();
     }
 
+    /**
+     * Get the off-heap page cache.
+     *
+     * @return the off-heap page cache, or null if no offHeapCacheSize is configured
+     */
+    public @Nullable OffHeapPageCache getOffHeapPageCache()
+    {
+        return( offHeapPageCache );
+    }
+
     @Override
     public void registerCache( Cache cache )
     {
@@ -346,6 +374,9 @@ public class DefaultCacheManager implements CacheManager, BrokerPoolService
         final Agent agent = AgentFactory.getInstance();
         try {
             agent.addMBean(new org.exist.management.CacheManager(instanceName,this));
+            if (offHeapPageCache != null) {
+                agent.addMBean(new org.exist.management.OffHeapPageCache(instanceName, offHeapPageCache));
+            }
         } catch (final DatabaseConfigurationException e) {
             LOG.warn("Exception while registering JMX CacheManager MBean.", e);
         }
@@ -1899,6 +1899,8 @@ public class NativeBroker implements DBBroker {
 
             docTrigger.afterDeleteDocument(this, transaction, doc.getURI());
 
+            pool.getNotificationService().notifyUpdate(doc, UpdateListener.REMOVE);
+
             //Make doc's id available again
             collectionsDb.freeResourceId(doc.getDocId());
         }
@@ -2720,6 +2722,7 @@ public class NativeBroker implements DBBroker {
             targetCollection.addDocument(transaction, this, newDocument);
 
             // NOTE: copied document is now live!
+            pool.getNotificationService().notifyUpdate(newDocument, oldDoc != null ? UpdateListener.UPDATE : UpdateListener.ADD);
 
 
             // TODO (AR) this could be done asynchronously in future perhaps?
@@ -2914,6 +2917,8 @@ public class NativeBroker implements DBBroker {
             }
         }
 
+        pool.getNotificationService().notifyUpdate(sourceDocument, UpdateListener.REMOVE);
+
         sourceCollection.unlinkDocument(this, sourceDocument);
         if(!renameOnly) {
             saveCollection(transaction, sourceCollection);
@@ -2938,6 +2943,8 @@ public class NativeBroker implements DBBroker {
         saveCollection(transaction, targetCollection);
 
         trigger.afterMoveDocument(this, transaction, sourceDocument, sourceDocumentUri);
+
+        pool.getNotificationService().notifyUpdate(sourceDocument, UpdateListener.ADD);
     }
 
     @Override
@@ -3740,6 +3747,30 @@ public class NativeBroker implements DBBroker {
         }.run();
     }
 
+    @Override
+    public String[] getNodeValues(final IStoredNode[] nodes, final boolean addWhitespace) {
+        final Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            order[i] = i;
+        }
+        // storage addresses start with the page number, so this visits each page once
+        Arrays.sort(order, Comparator.comparingLong(i -> nodes[i] == null ? Long.MAX_VALUE : nodes[i].getInternalAddress()));
+
+        final String[] values = new String[nodes.length];
+        new DOMTransaction<Void>(this, domDb, () -> lockManager.acquireBtreeReadLock(domDb.getLockName())) {
+            @Override
+            public Void start() {
+                for (final int i : order) {
+                    if (nodes[i] != null) {
+                        values[i] = domDb.getNodeValue(NativeBroker.this, nodes[i], addWhitespace);
+                    }
+                }
+                return null;
+            }
+        }.run();
+        return values;
+    }
+
     @Override
     public IStoredNode objectWith(final Document doc, final NodeId nodeId) {
         return new DOMTransaction<IStoredNode<?>>(this, domDb, () -> lockManager.acquireBtreeReadLock(domDb.getLockName())) {
@@ -65,6 +65,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -124,6 +125,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
     public static final String FILE_NAME = "values.dbx";
     public static final short FILE_FORMAT_VERSION_ID = 15;
     public static final String FILE_KEY_IN_CONFIG = "db-connection.values";
+    private static final String TRIGRAMS_CHECKED_KEY_IN_CONFIG = "db-connection.values.trigrams-checked";
 
     private static final double DEFAULT_VALUE_CACHE_GROWTH = 1.25;
     private static final double DEFAULT_VALUE_VALUE_THRESHOLD = 0.04;
@@ -138,6 +140,9 @@ public class NativeValueIndex implements ContentLoadingObserver {
     public final static String INDEX_CASE_SENSITIVE_ATTRIBUTE = "caseSensitive";
     public final static String PROPERTY_INDEX_CASE_SENSITIVE = "indexer.case-sensitive";
 
+    public final static String INDEX_REGEX_TRIGRAMS_ATTRIBUTE = "regex-trigrams";
+    public final static String PROPERTY_INDEX_REGEX_TRIGRAMS = "indexer.regex-trigrams";
+
     /**
      * The broker that is using this value index.
      */
@@ -173,6 +178,18 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     private final boolean caseSensitive;
 
+    /**
+     * Whether the trigrams of string keys are indexed, to look up regular expressions
+     * and substrings without scanning all keys.
+     */
+    private final boolean regexTrigrams;
+
+    /**
+     * Whether the trigram entries were checked against the configuration since the
+     * database was started, shared by the instances of all brokers.
+     */
+    private final AtomicBoolean trigramsChecked;
+
     public NativeValueIndex(final DBBroker broker, final byte id, final Path dataDir, final Configuration config) throws DBException {
         this.broker = broker;
         this.lockManager = broker.getBrokerPool().getLockManager();
@@ -188,9 +205,12 @@ public class NativeValueIndex implements ContentLoadingObserver {
                     broker.getBrokerPool().getCacheManager(), cacheGrowth,
                     cacheValueThresHold);
             config.setProperty(getConfigKeyForFile(), nativeFile);
+            config.setProperty(TRIGRAMS_CHECKED_KEY_IN_CONFIG, new AtomicBoolean());
         }
         this.dbValues = nativeFile;
+        this.trigramsChecked = (AtomicBoolean) config.getProperty(TRIGRAMS_CHECKED_KEY_IN_CONFIG);
         this.caseSensitive = Optional.ofNullable((Boolean) config.getProperty(NativeValueIndex.PROPERTY_INDEX_CASE_SENSITIVE)).orElse(false);
+        this.regexTrigrams = Optional.ofNullable((Boolean) config.getProperty(NativeValueIndex.PROPERTY_INDEX_REGEX_TRIGRAMS)).orElse(false);
 
         broker.addContentLoadingObserver(getInstance());
     }
@@ -364,12 +384,13 @@ public class NativeValueIndex implements ContentLoadingObserver {
             return;
         }
         final int collectionId = this.doc.getCollection().getId();
+        final boolean indexTrigrams = checkTrigrams(collectionId);
 
-        flush(pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key));
-        flush(pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()));
+        flush(pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key), indexTrigrams);
+        flush(pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()), indexTrigrams);
     }
 
-    private <T> void flush(final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn) {
+    private <T> void flush(final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn, final boolean indexTrigrams) {
         final VariableByteOutputStream nodeIdOs = new VariableByteOutputStream();
 
         for (final Map.Entry<T, List<NodeId>> entry : pending.changes.entrySet()) {
@@ -409,12 +430,15 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
             try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
                 final Value v = dbKeyFn.apply(key);
+                final boolean newKey = indexTrigrams && !dbValues.containsKey(v);
 
                 if (dbValues.append(v, os.data()) == BFile.UNKNOWN_ADDRESS) {
                     LOG.warn("Could not append index data for key '{}'", key);
                     //TODO : throw exception ?
+                } else if (newKey) {
+                    addTrigrams(v);
                 }
-            } catch (final EXistException | IOException e) {
+            } catch (final EXistException | IOException | BTreeException e) {
                 LOG.error(e.getMessage(), e);
             } catch (final LockException e) {
                 LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
@@ -438,12 +462,13 @@ public class NativeValueIndex implements ContentLoadingObserver {
         }
 
         final int collectionId = this.doc.getCollection().getId();
+        final boolean indexTrigrams = checkTrigrams(collectionId);
 
-        remove(pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key));
-        remove(pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()));
+        remove(pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key), indexTrigrams);
+        remove(pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()), indexTrigrams);
     }
 
-    private <T> void remove(final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn) {
+    private <T> void remove(final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn, final boolean indexTrigrams) {
         final VariableByteOutputStream nodeIdOs = new VariableByteOutputStream();
         for (final Map.Entry<T, List<NodeId>> entry : pending.changes.entrySet()) {
             final T key = entry.getKey();
@@ -538,9 +563,11 @@ public class NativeValueIndex implements ContentLoadingObserver {
                     if (dbValues.put(searchKey, os.data()) == BFile.UNKNOWN_ADDRESS) {
                         LOG.error("Could not put index data for value '{}'", searchKey);
                         //TODO : throw exception ?
+                    } else if (indexTrigrams) {
+                        addTrigrams(searchKey);
                     }
                 }
-            } catch (final EXistException | IOException e) {
+            } catch (final EXistException | IOException | BTreeException e) {
                 LOG.error(e.getMessage(), e);
             } catch (final LockException e) {
                 LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
@@ -556,11 +583,187 @@ public class NativeValueIndex implements ContentLoadingObserver {
         return list.stream().anyMatch(nodeId::equals);
     }
 
+    /**
+     * Check whether the trigrams of all keys in a collection are indexed. This is the case
+     * if the collection was empty, or was reindexed, while trigrams were enabled.
+     *
+     * @param collectionId the id of the collection
+     * @return true if the trigrams of new keys have to be indexed
+     */
+    private boolean checkTrigrams(final int collectionId) {
+        checkTrigramsConfiguration();
+        if (!regexTrigrams) {
+            return false;
+        }
+
+        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            final Value marker = new TrigramValue(collectionId);
+            if (dbValues.findValue(marker) != BFile.KEY_NOT_FOUND) {
+                return true;
+            }
+            if (hasKeys(collectionId)) {
+                return false;
+            }
+            dbValues.addValue(marker, 0);
+            return true;
+        } catch (final LockException e) {
+            LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
+        } catch (final IOException | BTreeException e) {
+            LOG.error(e.getMessage(), e);
+        }
+        // the collection may be marked, so keep its trigrams up to date
+        return true;
+    }
+
+    /**
+     * Check the trigram entries against the configuration, once after the database was started.
+     * If trigrams are disabled, all trigram entries are removed, as they will not be kept up to
+     * date anymore. If they are enabled, the entries are only kept if trigrams were not disabled
+     * since they were written, so collections which were changed in between are scanned until
+     * they are reindexed.
+     */
+    private void checkTrigramsConfiguration() {
+        if (trigramsChecked.get()) {
+            return;
+        }
+
+        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            if (trigramsChecked.get()) {
+                return;
+            }
+            final Value enabled = new TrigramValue();
+            final boolean wasEnabled = dbValues.findValue(enabled) != BFile.KEY_NOT_FOUND;
+            if (regexTrigrams != wasEnabled) {
+                dbValues.remove(null, new IndexQuery(IndexQuery.TRUNC_RIGHT, enabled), null);
+                if (regexTrigrams) {
+                    dbValues.addValue(enabled, 0);
+                }
+            }
+            trigramsChecked.set(true);
+        } catch (final LockException e) {
+            LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
+        } catch (final IOException | BTreeException | TerminatedException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    @GuardedBy("dbValues#getLock()")
+    private boolean hasKeys(final int collectionId) throws IOException, BTreeException {
+        for (final Value ref : new Value[] { new SimpleValue(collectionId), new QNameValue(collectionId) }) {
+            try {
+                dbValues.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, ref), (value, pointer) -> {
+                    throw new KeyFoundException();
+                });
+            } catch (final TerminatedException e) {
+                // the scan is stopped at the first key
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index the trigrams of a new key of the generic or qname index. The key is given
+     * an id, and each trigram entry only holds the id of the key.
+     *
+     * @param key a key of the generic or qname index
+     */
+    @GuardedBy("dbValues#getLock()")
+    private void addTrigrams(final Value key) throws IOException, BTreeException {
+        final String str = stringValue(key);
+        if (str == null) {
+            return;
+        }
+
+        final int collectionId = ByteConversion.byteToInt(key.data(), key.start() + SimpleValue.OFFSET_COLLECTION_ID);
+        final byte[] head = TrigramValue.head(key);
+        final Value value = TrigramValue.value(key);
+        final Value keyId = TrigramValue.keyId(collectionId, head, value);
+        if (dbValues.findValue(keyId) != BFile.KEY_NOT_FOUND) {
+            return;
+        }
+
+        // the marker of the collection holds the next id
+        final Value marker = new TrigramValue(collectionId);
+        final long id = dbValues.findValue(marker);
+        if (id == BFile.KEY_NOT_FOUND) {
+            return;
+        }
+        if (id >= Integer.MAX_VALUE) {
+            // out of ids, the keys of the collection are scanned until it is reindexed
+            dbValues.removeValue(marker);
+            return;
+        }
+        dbValues.addValue(marker, id + 1);
+
+        dbValues.addValue(keyId, id);
+        dbValues.addValue(TrigramValue.idKey(collectionId, head, (int) id, value), 0);
+        for (final Value trigramKey : trigramKeys(collectionId, head, str, (int) id)) {
+            dbValues.addValue(trigramKey, 0);
+        }
+    }
+
+    @GuardedBy("dbValues#getLock()")
+    private void removeTrigrams(final Value key) throws IOException, BTreeException {
+        final String str = stringValue(key);
+        if (str == null) {
+            return;
+        }
+
+        final int collectionId = ByteConversion.byteToInt(key.data(), key.start() + SimpleValue.OFFSET_COLLECTION_ID);
+        final byte[] head = TrigramValue.head(key);
+        final Value value = TrigramValue.value(key);
+        final long id = dbValues.removeValue(TrigramValue.keyId(collectionId, head, value));
+        if (id == BFile.KEY_NOT_FOUND) {
+            return;
+        }
+
+        dbValues.removeValue(TrigramValue.idKey(collectionId, head, (int) id, value));
+        for (final Value trigramKey : trigramKeys(collectionId, head, str, (int) id)) {
+            dbValues.removeValue(trigramKey);
+        }
+    }
+
+    /**
+     * Get the string value of a key of the generic or qname index.
+     *
+     * @param key a key of the generic or qname index
+     * @return the string, or null if the key is not a string
+     */
+    private static @Nullable String stringValue(final Value key) {
+        final byte[] data = key.data();
+        final int valueOffset = TrigramValue.valueOffset(data[key.start()]);
+        if (key.getLength() <= valueOffset || data[key.start() + valueOffset] != (byte) Type.STRING) {
+            return null;
+        }
+        return UTF8.decode(data, key.start() + valueOffset + LENGTH_VALUE_TYPE, key.getLength() - valueOffset - LENGTH_VALUE_TYPE).toString();
+    }
+
+    /**
+     * Get the trigram entries of a string key of the index.
+     *
+     * @param collectionId the id of the collection
+     * @param head the index type and qname of the key
+     * @param str the string value of the key
+     * @param id the id of the key
+     * @return the keys of the trigram entries, empty if the key is too short to contain a trigram
+     */
+    private static List<Value> trigramKeys(final int collectionId, final byte[] head, final String str, final int id) {
+        if (str.codePointCount(0, str.length()) > Trigrams.MAX_KEY_LENGTH) {
+            return Collections.singletonList(TrigramValue.trigram(collectionId, head, null, id));
+        }
+
+        final List<Value> trigramKeys = new ArrayList<>();
+        Trigrams.forEach(str, trigram -> trigramKeys.add(TrigramValue.trigram(collectionId, head, UTF8.encode(trigram), id)));
+        return trigramKeys;
+    }
+
     @Override
     public void dropIndex(final Collection collection) {
         try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
 
             flush();
+            checkTrigramsConfiguration();
 
             // remove generic index
             Value ref = new SimpleValue(collection.getId());
@@ -569,9 +772,17 @@ public class NativeValueIndex implements ContentLoadingObserver {
             // remove QName index
             ref = new QNameValue(collection.getId());
             dbValues.removeAll(null, new IndexQuery(IndexQuery.TRUNC_RIGHT, ref));
+
+            // remove trigrams and key ids, they only exist in the b-tree
+            ref = new TrigramValue(collection.getId());
+            dbValues.remove(null, new IndexQuery(IndexQuery.TRUNC_RIGHT, ref), null);
+            if (regexTrigrams) {
+                // the collection is empty now, so the trigrams of all its keys will be indexed
+                dbValues.addValue(ref, 0);
+            }
         } catch (final LockException e) {
             LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
-        } catch (final BTreeException | IOException e) {
+        } catch (final BTreeException | IOException | TerminatedException e) {
             LOG.error(e.getMessage(), e);
         }
     }
@@ -584,7 +795,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
             dropIndex(document.getDocId(), pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()));
         } catch (final LockException e) {
             LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
-        } catch (final IOException e) {
+        } catch (final IOException | BTreeException e) {
             LOG.error(e.getMessage(), e);
         } catch (final EXistException e) {
             LOG.warn("Exception while removing range index: {}", e.getMessage(), e);
@@ -593,7 +804,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
         }
     }
 
-    private <T> void dropIndex(final int docId, final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn) throws EXistException, IOException {
+    private <T> void dropIndex(final int docId, final PendingChanges<T> pending, final FunctionE<T, Value, EXistException> dbKeyFn) throws EXistException, IOException, BTreeException {
         for (final Map.Entry<T, List<NodeId>> entry : pending.changes.entrySet()) {
             final T key = entry.getKey();
 
@@ -639,6 +850,9 @@ public class NativeValueIndex implements ContentLoadingObserver {
                     // nothing to store:
                     // remove the existing key/value pair
                     dbValues.remove(v);
+                    if (regexTrigrams) {
+                        removeTrigrams(v);
+                    }
                 } else {
 
                     // still something to store:
@@ -839,12 +1053,24 @@ public class NativeValueIndex implements ContentLoadingObserver {
             matcher = new CollatorMatcher(expr, truncation, collator);
         }
 
+        // if the keys have to contain some literal strings, only the keys containing
+        // all their trigrams have to be checked
+        final List<String> trigrams;
+        if (regexTrigrams && collator == null && startTerm == null) {
+            trigrams = Trigrams.required(expr, type, flags);
+        } else {
+            trigrams = Collections.emptyList();
+        }
+
         final MatcherCallback cb = new MatcherCallback(docs, contextSet, result, matcher, axis == NodeSet.ANCESTOR);
 
         for (final Iterator<Collection> iter = docs.getCollectionIterator(); iter.hasNext(); ) {
             final int collectionId = iter.next().getId();
 
             watchDog.proceed(null);
+            if (!trigrams.isEmpty() && matchTrigrams(collectionId, qnames, trigrams, cb)) {
+                continue;
+            }
             if (qnames == null) {
                 try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
@@ -887,6 +1113,85 @@ public class NativeValueIndex implements ContentLoadingObserver {
         return result;
     }
 
+    /**
+     * Pass the keys of a collection which contain all of the given trigrams to the callback.
+     *
+     * @param collectionId the id of the collection
+     * @param qnames the qnames of the keys, or null for the generic index
+     * @param trigrams the trigrams
+     * @param cb the callback, which checks the keys against the match expression
+     * @return false if the trigrams of the collection are not indexed, so all of its
+     *     keys have to be scanned
+     * @throws TerminatedException if the callback is terminated
+     */
+    private boolean matchTrigrams(final int collectionId, @Nullable final List<QName> qnames, final List<String> trigrams, final BTreeCallback cb) throws TerminatedException {
+        final List<Value> prefixes = new ArrayList<>();
+        if (qnames == null) {
+            prefixes.add(new SimplePrefixValue(collectionId, Type.STRING));
+        } else {
+            for (final QName qname : qnames) {
+                prefixes.add(new QNamePrefixValue(collectionId, qname, Type.STRING, broker.getBrokerPool().getSymbols()));
+            }
+        }
+
+        checkTrigramsConfiguration();
+
+        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+            if (dbValues.findValue(new TrigramValue(collectionId)) == BFile.KEY_NOT_FOUND) {
+                return false;
+            }
+
+            for (final Value prefix : prefixes) {
+                final byte[] head = TrigramValue.head(prefix);
+
+                // intersect the ids of the keys containing each trigram
+                CompressedBitmap candidates = null;
+                for (final String trigram : trigrams) {
+                    final CompressedBitmap ids = trigramIds(TrigramValue.trigram(collectionId, head, UTF8.encode(trigram), -1));
+                    candidates = candidates == null ? ids : candidates.and(ids);
+                    if (candidates.isEmpty()) {
+                        break;
+                    }
+                }
+
+                // keys too long to be split into trigrams always have to be checked
+                final CompressedBitmap ids = candidates.or(trigramIds(TrigramValue.trigram(collectionId, head, null, -1)));
+
+                final Value[] value = new Value[1];
+                for (int id = ids.next(0); id != -1; id = ids.next(id + 1)) {
+                    value[0] = null;
+                    dbValues.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, TrigramValue.idKey(collectionId, head, id, null)), (idKey, pointer) -> {
+                        value[0] = TrigramValue.value(idKey);
+                        return false;
+                    });
+                    if (value[0] == null) {
+                        continue;
+                    }
+                    final Value key = TrigramValue.key(collectionId, head, value[0]);
+                    final long pointer = dbValues.findValue(key);
+                    if (pointer != BFile.KEY_NOT_FOUND) {
+                        cb.indexInfo(key, pointer);
+                    }
+                }
+            }
+        } catch (final IOException | BTreeException e) {
+            LOG.error(e.getMessage(), e);
+        } catch (final LockException e) {
+            LOG.warn("Failed to acquire lock for '{}'", FileUtils.fileName(dbValues.getFile()), e);
+        }
+        return true;
+    }
+
+    @GuardedBy("dbValues#getLock()")
+    private CompressedBitmap trigramIds(final Value trigramPrefix) throws IOException, BTreeException, TerminatedException {
+        final CompressedBitmap ids = new CompressedBitmap();
+        dbValues.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, trigramPrefix), (trigramKey, pointer) -> {
+            ids.add(TrigramValue.id(trigramKey));
+            return true;
+        });
+        return ids;
+    }
+
     public ValueOccurrences[] scanIndexKeys(final DocumentSet docs, final NodeSet contextSet, final Indexable start) {
         final int type = start.getType();
         final boolean stringType = Type.subTypeOf(type, Type.STRING);
@@ -1485,6 +1790,169 @@ public class NativeValueIndex implements ContentLoadingObserver {
         }
     }
 
+    /**
+     * Keys of the trigram entries, which only exist in the b-tree. All of them start with the
+     * collection id, followed by the index type and qname of the indexed key:
+     * <ul>
+     *     <li>[collection] marks a collection in which the trigrams of all keys are indexed,
+     *     the pointer is the next key id</li>
+     *     <li>[collection][head][trigram length][trigram][key id] for each trigram of a key,
+     *     with an empty trigram for keys too long to be split into trigrams</li>
+     *     <li>[collection][head][KEY_ID][value] maps a key to its id, which is the pointer</li>
+     *     <li>[collection][head][ID_KEY][key id][0][value] maps an id back to the key</li>
+     * </ul>
+     * The entry without a collection id is present while trigrams are enabled.
+     */
+    private static class TrigramValue extends Value {
+        static final int LENGTH_IDX_TYPE = 1; //sizeof byte
+        static final int LENGTH_KIND = 1; //sizeof byte
+        static final int LENGTH_KEY_ID = 4; //sizeof int
+        static final int LENGTH_QNAME = QNameValue.OFFSET_VALUE - QNameValue.OFFSET_QNAME_TYPE; //5
+
+        static final int OFFSET_IDX_TYPE = 0;
+        static final int OFFSET_COLLECTION_ID = OFFSET_IDX_TYPE + LENGTH_IDX_TYPE; //1
+        static final int OFFSET_HEAD = OFFSET_COLLECTION_ID + Collection.LENGTH_COLLECTION_ID; //5
+
+        // a trigram takes at most 12 bytes, so its length never clashes with these
+        static final byte KEY_ID = (byte) 0xFE;
+        static final byte ID_KEY = (byte) 0xFF;
+
+        TrigramValue() {
+            len = LENGTH_IDX_TYPE;
+            data = new byte[] { IndexType.TRIGRAM.val };
+            pos = OFFSET_IDX_TYPE;
+        }
+
+        TrigramValue(final int collectionId) {
+            len = LENGTH_IDX_TYPE + Collection.LENGTH_COLLECTION_ID;
+            data = new byte[len];
+            data[OFFSET_IDX_TYPE] = IndexType.TRIGRAM.val;
+            ByteConversion.intToByte(collectionId, data, OFFSET_COLLECTION_ID);
+            pos = OFFSET_IDX_TYPE;
+        }
+
+        private TrigramValue(final int collectionId, final byte[] head, final int length) {
+            len = OFFSET_HEAD + head.length + length;
+            data = new byte[len];
+            data[OFFSET_IDX_TYPE] = IndexType.TRIGRAM.val;
+            ByteConversion.intToByte(collectionId, data, OFFSET_COLLECTION_ID);
+            System.arraycopy(head, 0, data, OFFSET_HEAD, head.length);
+            pos = OFFSET_IDX_TYPE;
+        }
+
+        /**
+         * @param collectionId the id of the collection
+         * @param head the index type and qname of the indexed key, see {@link #head(Value)}
+         * @param trigram the UTF-8 encoded trigram, or null for a key too long to be split into trigrams
+         * @param id the id of the indexed key, or -1 for a prefix
+         */
+        static TrigramValue trigram(final int collectionId, final byte[] head, @Nullable final byte[] trigram, final int id) {
+            final int trigramLength = trigram == null ? 0 : trigram.length;
+            final TrigramValue key = new TrigramValue(collectionId, head, LENGTH_KIND + trigramLength + (id < 0 ? 0 : LENGTH_KEY_ID));
+            int offset = OFFSET_HEAD + head.length;
+            key.data[offset++] = (byte) trigramLength;
+            if (trigram != null) {
+                System.arraycopy(trigram, 0, key.data, offset, trigramLength);
+                offset += trigramLength;
+            }
+            if (id >= 0) {
+                ByteConversion.intToByte(id, key.data, offset);
+            }
+            return key;
+        }
+
+        static TrigramValue keyId(final int collectionId, final byte[] head, final Value value) {
+            final TrigramValue key = new TrigramValue(collectionId, head, LENGTH_KIND + value.getLength());
+            final int offset = OFFSET_HEAD + head.length;
+            key.data[offset] = KEY_ID;
+            System.arraycopy(value.data(), value.start(), key.data, offset + LENGTH_KIND, value.getLength());
+            return key;
+        }
+
+        /**
+         * @param collectionId the id of the collection
+         * @param head the index type and qname of the indexed key
+         * @param id the id of the indexed key
+         * @param value the value of the indexed key, or null for a prefix
+         */
+        static TrigramValue idKey(final int collectionId, final byte[] head, final int id, @Nullable final Value value) {
+            // the separator after the id keeps the last byte of a prefix below 0xFF
+            final TrigramValue key = new TrigramValue(collectionId, head, LENGTH_KIND + LENGTH_KEY_ID + 1 + (value == null ? 0 : value.getLength()));
+            int offset = OFFSET_HEAD + head.length;
+            key.data[offset++] = ID_KEY;
+            ByteConversion.intToByte(id, key.data, offset);
+            offset += LENGTH_KEY_ID;
+            key.data[offset++] = 0;
+            if (value != null) {
+                System.arraycopy(value.data(), value.start(), key.data, offset, value.getLength());
+            }
+            return key;
+        }
+
+        static int valueOffset(final byte indexType) {
+            return indexType == IndexType.QNAME.val ? QNameValue.OFFSET_VALUE : SimpleValue.OFFSET_VALUE;
+        }
+
+        /**
+         * Get the index type and qname of a key of the generic or qname index.
+         */
+        static byte[] head(final Value key) {
+            final byte indexType = key.data()[key.start()];
+            if (indexType != IndexType.QNAME.val) {
+                return new byte[] { indexType };
+            }
+            final byte[] head = new byte[LENGTH_IDX_TYPE + LENGTH_QNAME];
+            head[0] = indexType;
+            System.arraycopy(key.data(), key.start() + QNameValue.OFFSET_QNAME_TYPE, head, LENGTH_IDX_TYPE, LENGTH_QNAME);
+            return head;
+        }
+
+        /**
+         * Get the value of a key of the generic or qname index, or of the entry mapping
+         * an id back to the key.
+         */
+        static Value value(final Value key) {
+            final byte[] data = key.data();
+            final int offset;
+            if (data[key.start()] == IndexType.TRIGRAM.val) {
+                offset = key.start() + OFFSET_HEAD + (data[key.start() + OFFSET_HEAD] == IndexType.QNAME.val ? LENGTH_IDX_TYPE + LENGTH_QNAME : LENGTH_IDX_TYPE)
+                        + LENGTH_KIND + LENGTH_KEY_ID + 1;
+            } else {
+                offset = key.start() + valueOffset(data[key.start()]);
+            }
+            // copy the value, the b-tree may reuse the key
+            return new Value(Arrays.copyOfRange(data, offset, key.start() + key.getLength()));
+        }
+
+        /**
+         * Get the id of the indexed key from the key of a trigram entry.
+         */
+        static int id(final Value trigramKey) {
+            return ByteConversion.byteToInt(trigramKey.data(), trigramKey.start() + trigramKey.getLength() - LENGTH_KEY_ID);
+        }
+
+        /**
+         * Get the key of the generic or qname index which a trigram entry was created for.
+         */
+        static Value key(final int collectionId, final byte[] head, final Value value) {
+            final int valueOffset = valueOffset(head[0]);
+            final byte[] data = new byte[valueOffset + value.getLength()];
+            data[SimpleValue.OFFSET_IDX_TYPE] = head[0];
+            ByteConversion.intToByte(collectionId, data, SimpleValue.OFFSET_COLLECTION_ID);
+            System.arraycopy(head, LENGTH_IDX_TYPE, data, QNameValue.OFFSET_QNAME_TYPE, head.length - LENGTH_IDX_TYPE);
+            System.arraycopy(value.data(), value.start(), data, valueOffset, value.getLength());
+            return new Value(data);
+        }
+    }
+
+    private static final class KeyFoundException extends TerminatedException {
+        private static final long serialVersionUID = 4417960342846358741L;
+
+        KeyFoundException() {
+            super("value index key found");
+        }
+    }
+
     private class ValueIndexStreamListener extends AbstractStreamListener {
         private Deque<XMLString> contentStack = null;
 
@@ -1580,7 +2048,8 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     public enum IndexType {
         GENERIC((byte)0x0),
-        QNAME((byte)0x1);
+        QNAME((byte)0x1),
+        TRIGRAM((byte)0x2);
         final byte val;
 
         IndexType(final byte val) {
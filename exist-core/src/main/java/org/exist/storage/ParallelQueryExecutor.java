@@ -0,0 +1,116 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import net.jcip.annotations.ThreadSafe;
+import org.exist.util.NamedThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the parts of queries which are evaluated in parallel, see
+ * {@link org.exist.xquery.pragmas.ParallelPragma}.
+ *
+ * Each part needs a broker of its own. At most half of the brokers of the
+ * pool may be reserved for parallel evaluation, so that the threads waiting
+ * for their parts, which hold a broker each, can not take the brokers needed
+ * to evaluate the parts. The executor has a thread for each of these brokers,
+ * so a part never waits for a thread.
+ */
+@ThreadSafe
+public class ParallelQueryExecutor implements BrokerPoolService {
+
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+    private Semaphore brokers;
+    private ThreadPoolExecutor executor;
+
+    @Override
+    public void prepare(final BrokerPool brokerPool) {
+        final int maxBrokers = Math.max(1, brokerPool.getMax() / 2);
+        this.brokers = new Semaphore(maxBrokers);
+        this.executor = new ThreadPoolExecutor(maxBrokers, maxBrokers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(brokerPool.getThreadGroup(), brokerPool.getId(), "xquery.parallel"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reserve brokers for the parts of a query, without waiting for them.
+     *
+     * @param count the number of brokers wanted
+     *
+     * @return the number of brokers reserved, which may be less than requested, or 0
+     *     if called from a part which is itself evaluated in parallel
+     */
+    public int reserve(final int count) {
+        if (WORKER.get()) {
+            return 0;
+        }
+        int reserved = Math.min(count, brokers.availablePermits());
+        while (reserved > 0 && !brokers.tryAcquire(reserved)) {
+            reserved = Math.min(reserved - 1, brokers.availablePermits());
+        }
+        return Math.max(reserved, 0);
+    }
+
+    /**
+     * Release brokers which were reserved by {@link #reserve(int)}.
+     *
+     * @param count the number of brokers reserved
+     */
+    public void release(final int count) {
+        if (count > 0) {
+            brokers.release(count);
+        }
+    }
+
+    /**
+     * Evaluate a part of a query. The caller must have reserved a broker for it.
+     *
+     * @param <T> the type of the result
+     * @param task the evaluation of the part
+     *
+     * @return the result of the part
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        return executor.submit(() -> {
+            WORKER.set(true);
+            try {
+                return task.call();
+            } finally {
+                WORKER.set(false);
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
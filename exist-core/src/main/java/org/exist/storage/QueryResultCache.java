@@ -0,0 +1,531 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import java.beans.ConstructorProperties;
+import java.net.URISyntaxException;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NodeHandle;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.numbering.NodeId;
+import org.exist.source.Source;
+import org.exist.util.Configuration;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.Option;
+import org.exist.xquery.Variable;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.value.BinaryValue;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.Type;
+import org.exist.xquery.value.ValueSequence;
+
+import javax.annotation.Nullable;
+
+/**
+ * Global cache for the results of XQueries which opt in via
+ * <code>declare option exist:result-cache "..."</code>.
+ *
+ * Results are stored by the source of the query, the effective user, the values
+ * of the external variables and the statically known documents. Only results made
+ * up of atomic values and stored nodes are cached.
+ *
+ * Entries are invalidated through the {@link NotificationService} when a document
+ * is added, updated, removed or moved. By default, any change in the database
+ * invalidates an entry; the option's <code>collections</code> parameter limits this
+ * to changes within the listed collections and the documents of the result.
+ * The option's <code>max-age</code> parameter limits the age of an entry in seconds.
+ *
+ * The size of the cache is bounded by the total number of items of all cached
+ * results.
+ */
+@ThreadSafe
+public class QueryResultCache implements BrokerPoolService, UpdateListener {
+
+    private static final Logger LOG = LogManager.getLogger(QueryResultCache.class);
+
+    public static final String CONFIGURATION_ELEMENT_NAME = "query-result-cache";
+    public static final String MAX_ITEMS_ATTRIBUTE = "max-items";
+
+    public static final String PROPERTY_MAX_ITEMS = "db-connection.query-result-cache.max-items";
+
+    private static final long DEFAULT_MAX_ITEMS = 100_000;
+
+    private static final String COLLECTIONS_PARAM = "collections";
+    private static final String MAX_AGE_PARAM = "max-age";
+
+    private long maxItems = DEFAULT_MAX_ITEMS;
+
+    private Cache<Key, Entry> cache;
+
+    @Nullable private NotificationService notificationService;
+
+    /**
+     * Incremented on every change in the database, so that results of queries
+     * which ran concurrently with a change are not stored.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    @Override
+    public void configure(final Configuration configuration) {
+        final Integer maxItms = (Integer) configuration.getProperty(PROPERTY_MAX_ITEMS);
+        this.maxItems = maxItms == null ? DEFAULT_MAX_ITEMS : maxItms;
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .<Key, Entry>weigher((key, entry) -> Math.max(1, entry.items.length))
+                .<Key, Entry>evictionListener((key, entry, cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictionCount.increment();
+                    }
+                })
+                .build();
+
+        LOG.info("QueryResultCache: maxItems = {}", NumberFormat.getNumberInstance().format(maxItems));
+    }
+
+    @Override
+    public void prepare(final BrokerPool brokerPool) {
+        this.notificationService = brokerPool.getNotificationService();
+        notificationService.subscribe(this);
+    }
+
+    @Override
+    public void shutdown() {
+        if (notificationService != null) {
+            notificationService.unsubscribe(this);
+            notificationService = null;
+        }
+    }
+
+    /**
+     * Returns the caching policy declared by a query, or null if the
+     * query does not opt in to result caching.
+     *
+     * @param context the context of the compiled query
+     * @return the caching policy, or null
+     * @throws XPathException if the option cannot be parsed
+     */
+    public static @Nullable Policy getPolicy(final XQueryContext context) throws XPathException {
+        final Option option = context.getOption(Option.RESULT_CACHE_QNAME);
+        if (option == null) {
+            return null;
+        }
+
+        List<XmldbURI> collections = null;
+        long maxAge = -1;
+        for (final String param : option.tokenizeContents()) {
+            final String[] kv = Option.parseKeyValuePair(param);
+            if (kv == null) {
+                throw new XPathException(context.getRootExpression(), "Invalid parameter '" + param + "' in option " + option.getQName().getStringValue());
+            }
+            switch (kv[0]) {
+                case COLLECTIONS_PARAM -> {
+                    collections = new ArrayList<>();
+                    for (final String collection : kv[1].split(",")) {
+                        try {
+                            collections.add(XmldbURI.xmldbUriFor(collection.trim()));
+                        } catch (final URISyntaxException e) {
+                            throw new XPathException(context.getRootExpression(), "Invalid collection '" + collection + "' in option " + option.getQName().getStringValue());
+                        }
+                    }
+                }
+                case MAX_AGE_PARAM -> {
+                    try {
+                        maxAge = TimeUnit.SECONDS.toNanos(Long.parseLong(kv[1]));
+                    } catch (final NumberFormatException e) {
+                        throw new XPathException(context.getRootExpression(), "Error parsing max-age value in option " + option.getQName().getStringValue());
+                    }
+                }
+                default -> throw new XPathException(context.getRootExpression(), "Unknown parameter '" + kv[0] + "' in option " + option.getQName().getStringValue());
+            }
+        }
+        return new Policy(collections, maxAge);
+    }
+
+    /**
+     * Creates the key of a query's result, before the query is executed.
+     *
+     * @param context the context of the compiled query
+     * @param user the name of the effective user
+     * @return the key, or null if the external variables hold values which cannot be compared
+     * @throws XPathException if the external variables cannot be read
+     */
+    public static @Nullable Key getKey(final XQueryContext context, final String user) throws XPathException {
+        final Source source = context.getSource();
+        if (source == null) {
+            return null;
+        }
+
+        final StringBuilder variables = new StringBuilder();
+        for (final Map.Entry<QName, Variable> variable : context.getGlobalVariables().entrySet()) {
+            variables.append(variable.getKey().getStringValue()).append('=');
+            final Sequence value = variable.getValue().getValue();
+            if (value != null) {
+                for (final SequenceIterator i = value.iterate(); i.hasNext(); ) {
+                    final Item item = i.nextItem();
+                    if (!Type.subTypeOf(item.getType(), Type.ANY_ATOMIC_TYPE) || item instanceof BinaryValue) {
+                        return null;
+                    }
+                    variables.append(Type.getTypeName(item.getType())).append('(').append(item.getStringValue()).append(')');
+                }
+            }
+            variables.append('\n');
+        }
+
+        final StringBuilder staticDocuments = new StringBuilder();
+        final XmldbURI[] staticDocumentPaths = context.getStaticallyKnownDocumentPaths();
+        if (staticDocumentPaths != null) {
+            staticDocuments.append(Arrays.toString(staticDocumentPaths));
+        }
+        final DocumentSet staticDocs = context.getStaticDocs();
+        if (staticDocs != null) {
+            for (final Iterator<DocumentImpl> i = staticDocs.getDocumentIterator(); i.hasNext(); ) {
+                staticDocuments.append(i.next().getURI()).append('\n');
+            }
+        }
+
+        return new Key(source.getKey(), user, variables.toString(), staticDocuments.toString());
+    }
+
+    /**
+     * Returns the generation of the cache, to be passed to
+     * {@link #put(Key, Source, Policy, Sequence, long)} once the query has been executed.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Looks up the cached result of a query.
+     *
+     * @param key the key of the query's result
+     * @return a copy of the cached result, or null if there is no valid cached result
+     */
+    public @Nullable Sequence get(final Key key) {
+        final Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+
+        if (entry.isExpired() || entry.source.isValid() == Source.Validity.INVALID) {
+            cache.asMap().remove(key, entry);
+            invalidationCount.increment();
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        return entry.toSequence();
+    }
+
+    /**
+     * Stores the result of a query, unless it holds items which cannot be cached,
+     * is too large, or the database changed while the query was executed.
+     *
+     * @param key the key of the query's result
+     * @param source the source of the query
+     * @param policy the caching policy declared by the query
+     * @param result the result of the query
+     * @param generation the generation of the cache before the query was executed
+     * @throws XPathException if the result cannot be read
+     */
+    public void put(final Key key, final Source source, final Policy policy, final Sequence result, final long generation) throws XPathException {
+        if (result.getItemCountLong() > maxItems) {
+            return;
+        }
+
+        final Item[] items = new Item[result.getItemCount()];
+        final Set<XmldbURI> documents = new HashSet<>();
+        int i = 0;
+        for (final SequenceIterator it = result.iterate(); it.hasNext(); i++) {
+            final Item item = it.nextItem();
+            if (item instanceof NodeProxy proxy) {
+                items[i] = new NodeProxy(null, proxy.getOwnerDocument(), proxy.getNodeId(), proxy.getNodeType(), proxy.getInternalAddress());
+                documents.add(proxy.getOwnerDocument().getURI());
+            } else if (Type.subTypeOf(item.getType(), Type.ANY_ATOMIC_TYPE) && !(item instanceof BinaryValue)) {
+                items[i] = item;
+            } else {
+                return;
+            }
+        }
+
+        final long expires = policy.maxAge < 0 ? Long.MAX_VALUE : System.nanoTime() + policy.maxAge;
+        final Entry entry = new Entry(source, items, policy.collections, documents, expires);
+        if (this.generation.get() == generation) {
+            cache.put(key, entry);
+            // re-check, an update may have been processed while storing the entry
+            if (this.generation.get() != generation) {
+                cache.asMap().remove(key, entry);
+            }
+        }
+    }
+
+    @Override
+    public void documentUpdated(final DocumentImpl document, final int event) {
+        invalidate(document.getURI());
+    }
+
+    @Override
+    public void nodeMoved(final NodeId oldNodeId, final NodeHandle newNode) {
+        invalidate(newNode.getOwnerDocument().getURI());
+    }
+
+    private void invalidate(final XmldbURI documentUri) {
+        generation.incrementAndGet();
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().values().removeIf(entry -> {
+            if (entry.dependsOn(documentUri)) {
+                invalidationCount.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void unsubscribe() {
+        clear();
+    }
+
+    @Override
+    public void debug() {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("QueryResultCache: {} cached results", cache.estimatedSize());
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Get a Snapshot of the Query Result Cache Statistics
+     *
+     * @return The Query Result Cache statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(
+                cache.estimatedSize(),
+                cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L),
+                hitCount.sum(),
+                missCount.sum(),
+                invalidationCount.sum(),
+                evictionCount.sum()
+        );
+    }
+
+    /**
+     * The caching policy declared by a query.
+     *
+     * @param collections the collections whose changes invalidate the result,
+     *     or null if any change in the database invalidates it
+     * @param maxAge the maximum age of the result in nanoseconds, or -1 for no limit
+     */
+    public record Policy(@Nullable List<XmldbURI> collections, long maxAge) {
+    }
+
+    /**
+     * The key of a query's result.
+     *
+     * @param source the key of the query's source
+     * @param user the name of the effective user
+     * @param variables the values of the external variables
+     * @param staticDocuments the statically known documents
+     */
+    public record Key(long source, String user, String variables, String staticDocuments) {
+    }
+
+    private static class Entry {
+        private final Source source;
+        private final Item[] items;
+        @Nullable private final List<XmldbURI> collections;
+        private final Set<XmldbURI> documents;
+        private final long expires;
+
+        private Entry(final Source source, final Item[] items, @Nullable final List<XmldbURI> collections,
+                final Set<XmldbURI> documents, final long expires) {
+            this.source = source;
+            this.items = items;
+            this.collections = collections;
+            this.documents = documents;
+            this.expires = expires;
+        }
+
+        private boolean isExpired() {
+            return expires != Long.MAX_VALUE && System.nanoTime() - expires > 0;
+        }
+
+        private boolean dependsOn(final XmldbURI documentUri) {
+            if (collections == null || documents.contains(documentUri)) {
+                return true;
+            }
+            for (final XmldbURI collection : collections) {
+                if (documentUri.startsWith(collection)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Sequence toSequence() {
+            final ValueSequence result = new ValueSequence(items.length);
+            for (final Item item : items) {
+                if (item instanceof NodeProxy proxy) {
+                    result.add(new NodeProxy(null, proxy.getOwnerDocument(), proxy.getNodeId(), proxy.getNodeType(), proxy.getInternalAddress()));
+                } else {
+                    result.add(item);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class Statistics {
+        private final long size;
+        private final long itemCount;
+        private final long hitCount;
+        private final long missCount;
+        private final long invalidationCount;
+        private final long evictionCount;
+
+        /**
+         * @param size the approximate number of cached results
+         * @param itemCount the approximate number of items in all cached results
+         * @param hitCount the number of queries answered from the cache
+         * @param missCount the number of queries for which the cache had no valid result
+         * @param invalidationCount the number of results removed because the database changed or they expired
+         * @param evictionCount the number of results discarded because the cache was full
+         */
+        @ConstructorProperties({"size", "itemCount", "hitCount", "missCount", "invalidationCount", "evictionCount"})
+        public Statistics(final long size, final long itemCount, final long hitCount, final long missCount, final long invalidationCount, final long evictionCount) {
+            this.size = size;
+            this.itemCount = itemCount;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.invalidationCount = invalidationCount;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * Returns the approximate number of cached results.
+         *
+         * @return the number of cached results
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the approximate number of items in all cached results.
+         *
+         * @return the number of cached items
+         */
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Returns the number of queries answered from the cache.
+         *
+         * @return the number of hits
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of queries for which the cache had no valid result.
+         *
+         * @return the number of misses
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Returns the ratio of lookups which were hits, or {@code 1.0} when
+         * there have been no lookups.
+         *
+         * @return the ratio of lookups which were hits
+         */
+        public double getHitRate() {
+            final long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+
+        /**
+         * Returns the number of results removed because the database
+         * changed or they expired.
+         *
+         * @return the number of invalidations
+         */
+        public long getInvalidationCount() {
+            return invalidationCount;
+        }
+
+        /**
+         * Returns the number of results discarded because the cache was full.
+         *
+         * @return the number of evictions
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+    }
+}
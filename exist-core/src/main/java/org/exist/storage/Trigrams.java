@@ -0,0 +1,336 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Trigrams used by {@link NativeValueIndex} to find the keys which may match a
+ * regular expression without scanning all keys.
+ *
+ * The index stores the trigrams of every string key. To look up a regular
+ * expression, the literal strings every match has to contain are extracted
+ * from it, and only keys containing all of their trigrams are checked
+ * against the expression.
+ */
+final class Trigrams {
+
+    /**
+     * Keys longer than this (in code points) are not split into trigrams,
+     * but are always checked against the expression.
+     */
+    static final int MAX_KEY_LENGTH = 256;
+
+    /**
+     * The maximum number of trigrams used to look up an expression. Each
+     * trigram is a separate index scan, so using all trigrams of a long
+     * literal would cost more than it saves.
+     */
+    static final int MAX_QUERY_TRIGRAMS = 8;
+
+    private Trigrams() {
+    }
+
+    /**
+     * Report all distinct trigrams of a string.
+     *
+     * @param s the string
+     * @param consumer receives each trigram
+     */
+    static void forEach(final CharSequence s, final Consumer<String> consumer) {
+        final String str = s.toString();
+        final Set<String> seen = new LinkedHashSet<>();
+        int start = 0;
+        while (start < str.length()) {
+            int end = start;
+            int i = 0;
+            for (; i < 3 && end < str.length(); i++) {
+                end += Character.charCount(str.codePointAt(end));
+            }
+            if (i < 3) {
+                break;
+            }
+            if (seen.add(str.substring(start, end))) {
+                consumer.accept(str.substring(start, end));
+            }
+            start += Character.charCount(str.codePointAt(start));
+        }
+    }
+
+    /**
+     * Get the trigrams which a string must contain to match the expression.
+     *
+     * @param expr the expression
+     * @param type the match type, one of the <code>DBBroker.MATCH_*</code> constants
+     * @param flags the flags of a regular expression
+     * @return the trigrams, at most {@link #MAX_QUERY_TRIGRAMS}, or an empty list
+     *     if the expression does not require any
+     */
+    static List<String> required(final String expr, final int type, final int flags) {
+        final List<String> literals = switch (type) {
+            case DBBroker.MATCH_CONTAINS, DBBroker.MATCH_ENDSWITH -> List.of(expr);
+            case DBBroker.MATCH_REGEXP -> requiredLiterals(expr, flags);
+            default -> Collections.emptyList();
+        };
+        final List<String> trigrams = new ArrayList<>();
+        for (final String literal : literals) {
+            forEach(literal, trigram -> {
+                if (trigrams.size() < MAX_QUERY_TRIGRAMS && !trigrams.contains(trigram)) {
+                    trigrams.add(trigram);
+                }
+            });
+        }
+        return trigrams;
+    }
+
+    /**
+     * Extract the literal strings which every match of a Java regular expression
+     * has to contain. The parser is conservative, if it meets a construct it does
+     * not understand, like an alternation, it does not return any literals.
+     *
+     * @param regex the regular expression
+     * @param flags the flags of the regular expression
+     * @return the literals, or an empty list
+     */
+    static List<String> requiredLiterals(final String regex, final int flags) {
+        if ((flags & (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+            return Collections.emptyList();
+        }
+        if ((flags & Pattern.LITERAL) != 0) {
+            return List.of(regex);
+        }
+
+        final List<String> literals = new ArrayList<>();
+        // for each open group, the number of literals found before it
+        final Deque<Integer> groups = new ArrayDeque<>();
+        final StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            switch (c) {
+                case '|':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    // alternation, or a quantifier without anything to repeat
+                    return Collections.emptyList();
+
+                case '\\': {
+                    if (i + 1 >= regex.length()) {
+                        return Collections.emptyList();
+                    }
+                    final char next = regex.charAt(i + 1);
+                    if (!Character.isLetterOrDigit(next)) {
+                        i = literal(regex, i + 2, next, run, literals);
+                    } else if ("dDsSwWhHvVbBAzZGR".indexOf(next) >= 0) {
+                        flush(run, literals);
+                        i = skipQuantifier(regex, i + 2);
+                    } else {
+                        // \p{..}, \x{..}, back references and others
+                        return Collections.emptyList();
+                    }
+                    break;
+                }
+
+                case '[': {
+                    flush(run, literals);
+                    final int end = skipClass(regex, i);
+                    if (end < 0) {
+                        return Collections.emptyList();
+                    }
+                    i = skipQuantifier(regex, end);
+                    break;
+                }
+
+                case '(': {
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+                        // only non-capturing and named groups, no lookarounds or inline flags
+                        if (i + 2 < regex.length() && regex.charAt(i + 2) == ':') {
+                            i += 3;
+                        } else if (i + 3 < regex.length() && regex.charAt(i + 2) == '<' && Character.isLetter(regex.charAt(i + 3))) {
+                            final int end = regex.indexOf('>', i + 3);
+                            if (end < 0) {
+                                return Collections.emptyList();
+                            }
+                            i = end + 1;
+                        } else {
+                            return Collections.emptyList();
+                        }
+                    } else {
+                        i++;
+                    }
+                    flush(run, literals);
+                    groups.push(literals.size());
+                    break;
+                }
+
+                case ')': {
+                    if (groups.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                    flush(run, literals);
+                    final int before = groups.pop();
+                    if (isOptional(regex, i + 1)) {
+                        // the group may not occur at all
+                        literals.subList(before, literals.size()).clear();
+                    }
+                    i = skipQuantifier(regex, i + 1);
+                    break;
+                }
+
+                case '.':
+                    flush(run, literals);
+                    i = skipQuantifier(regex, i + 1);
+                    break;
+
+                case '^':
+                case '$':
+                    flush(run, literals);
+                    i++;
+                    break;
+
+                default:
+                    if (Character.isSurrogate(c)) {
+                        flush(run, literals);
+                        i = skipQuantifier(regex, i + Character.charCount(regex.codePointAt(i)));
+                    } else {
+                        i = literal(regex, i + 1, c, run, literals);
+                    }
+                    break;
+            }
+        }
+        if (!groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    /**
+     * Add a literal character to the current run, taking a following quantifier into account.
+     *
+     * @return the position after the character and its quantifier
+     */
+    private static int literal(final String regex, final int next, final char c, final StringBuilder run, final List<String> literals) {
+        if (next < regex.length() && isQuantifier(regex.charAt(next))) {
+            if (isOptional(regex, next)) {
+                flush(run, literals);
+            } else {
+                // the character is repeated, so the run ends with its first occurrence and
+                // a new run starts with its last
+                run.append(c);
+                flush(run, literals);
+                run.append(c);
+            }
+            return skipQuantifier(regex, next);
+        }
+        run.append(c);
+        return next;
+    }
+
+    private static boolean isQuantifier(final char c) {
+        return c == '*' || c == '+' || c == '?' || c == '{';
+    }
+
+    private static boolean isOptional(final String regex, final int pos) {
+        if (pos >= regex.length()) {
+            return false;
+        }
+        final char c = regex.charAt(pos);
+        if (c == '*' || c == '?') {
+            return true;
+        }
+        if (c == '{') {
+            int i = pos + 1;
+            while (i < regex.length() && regex.charAt(i) == '0') {
+                i++;
+            }
+            // {0}, {0,n}, {00,}
+            return i > pos + 1 && i < regex.length() && !Character.isDigit(regex.charAt(i));
+        }
+        return false;
+    }
+
+    private static int skipQuantifier(final String regex, int pos) {
+        if (pos >= regex.length()) {
+            return pos;
+        }
+        final char c = regex.charAt(pos);
+        if (c == '*' || c == '+' || c == '?') {
+            pos++;
+        } else if (c == '{') {
+            final int end = regex.indexOf('}', pos);
+            pos = end < 0 ? regex.length() : end + 1;
+        } else {
+            return pos;
+        }
+        // lazy or possessive quantifier
+        if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the position after the character class starting at <code>start</code>, or -1
+     */
+    private static int skipClass(final String regex, final int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        int depth = 1;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static void flush(final StringBuilder run, final List<String> literals) {
+        if (run.codePointCount(0, run.length()) >= 3) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+}
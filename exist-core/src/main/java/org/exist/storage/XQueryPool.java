@@ -32,10 +32,12 @@
  */
 package org.exist.storage;
 
+import java.beans.ConstructorProperties;
 import java.text.NumberFormat;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -59,6 +61,8 @@ import org.exist.xquery.*;
  * For each XQuery, a maximum of {@link #DEFAULT_MAX_QUERY_STACK_SIZE} compiled
  * expressions are kept in the pool.
  *
+ * The pool records statistics about its use, see {@link #getStatistics()}.
+ *
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  */
 @ThreadSafe
@@ -84,6 +88,12 @@ public class XQueryPool implements BrokerPoolService {
      */
     private Cache<Source, Deque<CompiledXQuery>> cache;
 
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder compileCount = new LongAdder();
+    private final LongAdder totalCompileTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
     @Override
     public void configure(final Configuration configuration) {
         final Integer maxStSz = (Integer) configuration.getProperty(PROPERTY_MAX_STACK_SIZE);
@@ -96,6 +106,11 @@ public class XQueryPool implements BrokerPoolService {
 
         this.cache = Caffeine.newBuilder()
                 .maximumSize(maxPoolSize)
+                .<Source, Deque<CompiledXQuery>>evictionListener((source, deque, cause) -> {
+                    if (deque != null) {
+                        evictionCount.add(deque.size());
+                    }
+                })
                 .build();
 
         LOG.info("QueryPool: size = {}; maxQueryStackSize = {}", nf.format(maxPoolSize), nf.format(maxQueryStackSize));
@@ -114,11 +129,26 @@ public class XQueryPool implements BrokerPoolService {
 
         cache.asMap().compute(source, (key, value) -> {
             final Deque<CompiledXQuery> deque = Objects.requireNonNullElseGet(value, () -> new ArrayDeque<>(maxQueryStackSize));
-            deque.offerFirst(compiledXQuery);
+            if (deque.size() < maxQueryStackSize) {
+                deque.offerFirst(compiledXQuery);
+            } else {
+                // the stack for this query is full, discard the compiled query
+                evictionCount.increment();
+            }
             return deque;
         });
     }
 
+    /**
+     * Records the compilation of an XQuery.
+     *
+     * @param compileTime the time taken to compile the XQuery in nanoseconds.
+     */
+    public void recordCompilation(final long compileTime) {
+        compileCount.increment();
+        totalCompileTime.add(compileTime);
+    }
+
     /**
      * Borrows a compiled XQuery from the XQuery pool.
      *
@@ -165,8 +195,10 @@ public class XQueryPool implements BrokerPoolService {
         });
 
         if (deque == null) {
+            missCount.increment();
             return null;
         }
+        hitCount.increment();
 
         //check execution permission
         if (source instanceof DBSource) {
@@ -204,4 +236,122 @@ public class XQueryPool implements BrokerPoolService {
     public void clear() {
         cache.invalidateAll();
     }
+
+    /**
+     * Get a Snapshot of the XQuery Pool Statistics
+     *
+     * @return The XQuery Pool statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(
+                cache.estimatedSize(),
+                hitCount.sum(),
+                missCount.sum(),
+                compileCount.sum(),
+                totalCompileTime.sum(),
+                evictionCount.sum()
+        );
+    }
+
+    public static class Statistics {
+        private final long size;
+        private final long hitCount;
+        private final long missCount;
+        private final long compileCount;
+        private final long totalCompileTime;
+        private final long evictionCount;
+
+        /**
+         * @param size the approximate number of queries in the pool
+         * @param hitCount the number of compiled queries borrowed from the pool
+         * @param missCount the number of requests for which the pool had no valid compiled query
+         * @param compileCount the number of queries compiled
+         * @param totalCompileTime the total time taken to compile queries in nanoseconds
+         * @param evictionCount the number of compiled queries discarded because the pool was full
+         */
+        @ConstructorProperties({"size", "hitCount", "missCount", "compileCount", "totalCompileTime", "evictionCount"})
+        public Statistics(final long size, final long hitCount, final long missCount, final long compileCount, final long totalCompileTime, final long evictionCount) {
+            this.size = size;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.compileCount = compileCount;
+            this.totalCompileTime = totalCompileTime;
+            this.evictionCount = evictionCount;
+        }
+
+        /**
+         * Returns the approximate number of queries in the pool.
+         *
+         * @return the number of queries in the pool
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the number of compiled queries borrowed from the pool.
+         *
+         * @return the number of hits
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of requests for which the pool had no valid compiled query.
+         *
+         * @return the number of misses
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Returns the ratio of requests which were hits, or {@code 1.0} when
+         * there have been no requests.
+         *
+         * @return the ratio of requests which were hits
+         */
+        public double getHitRate() {
+            final long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+
+        /**
+         * Returns the number of queries compiled.
+         *
+         * @return the number of compilations
+         */
+        public long getCompileCount() {
+            return compileCount;
+        }
+
+        /**
+         * Returns the total time taken to compile queries.
+         *
+         * @return the total compile time in nanoseconds
+         */
+        public long getTotalCompileTime() {
+            return totalCompileTime;
+        }
+
+        /**
+         * Returns the average time taken to compile a query.
+         *
+         * @return the average compile time in nanoseconds
+         */
+        public double getAverageCompileTime() {
+            return compileCount == 0 ? 0.0 : (double) totalCompileTime / compileCount;
+        }
+
+        /**
+         * Returns the number of compiled queries discarded because
+         * the pool, or the stack for their query, was full.
+         *
+         * @return the number of evictions
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+    }
 }
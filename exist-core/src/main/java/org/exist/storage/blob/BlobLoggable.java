@@ -40,4 +40,15 @@ import org.exist.storage.journal.Loggable;
 public interface BlobLoggable extends Loggable {
     byte LOG_STORE_BLOB_FILE = 0x50;
     byte LOG_UPDATE_BLOB_REF_COUNT = 0x51;
+
+    /**
+     * Redo partition of the Blob Store, distinct from
+     * the partitions of the paged files which use the file id.
+     */
+    int BLOB_REDO_PARTITION = 0x100;
+
+    @Override
+    default int getRedoPartition() {
+        return BLOB_REDO_PARTITION;
+    }
 }
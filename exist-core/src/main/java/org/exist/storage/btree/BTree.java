@@ -94,6 +94,8 @@ import java.text.NumberFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 /**
  *  A general purpose B+-tree which stores binary keys as instances of
  *  {@link org.exist.storage.btree.Value}. The actual value data is not
@@ -161,12 +163,21 @@ public class BTree extends Paged implements Lockable {
 
     private double splitFactor = -1;
 
+    /** Number of latches used for loading nodes into the cache, must be a power of two */
+    private static final int PAGE_LATCHES = 64;
+
+    /** Striped latches taken while loading a node from its page */
+    private final Object[] pageLatches = new Object[PAGE_LATCHES];
+
     protected BTree(final BrokerPool pool, final byte fileId, final short fileVersion, final boolean recoveryEnabled,
             final DefaultCacheManager cacheManager) throws DBException {
         super(pool, fileVersion);
         this.pool = pool;
         this.cacheManager = cacheManager;
         this.fileId = fileId;
+        for (int i = 0; i < PAGE_LATCHES; i++) {
+            pageLatches[i] = new Object();
+        }
         this.fileHeader = (BTreeFileHeader) getFileHeader();
         fileHeader.setPageCount(0);
         fileHeader.setTotalCount(0);
@@ -443,27 +454,71 @@ public class BTree extends Paged implements Lockable {
 
     /**
      * Read a node from the given page.
+     *
+     * Lookups may be performed concurrently by threads holding the
+     * shared BTree lock, see {@link #findValue(Value)}.
      * 
      * @param pageNum the page number
      * @return The BTree node
      */
     private BTreeNode getBTreeNode(final long pageNum) {
         try {
-            BTreeNode node = cache.get(pageNum);
+            return loadBTreeNode(pageNum, false);
+        } catch (final IOException e) {
+            LOG.error("Failed to get BTree node on page {}", pageNum, e);
+            return null;
+        }
+    }
+
+    /**
+     * Get a node from the cache, or read it from its page.
+     *
+     * Access to the cache is serialized on the cache itself and is kept short;
+     * the page is read outside of it while holding the latch for the page, so
+     * that concurrent readers of different pages do not wait on each other and
+     * readers of the same page do not load it twice.
+     *
+     * @param pageNum the page number
+     * @param root true if the node is the root node
+     *
+     * @return The BTree node
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    private BTreeNode loadBTreeNode(final long pageNum, final boolean root) throws IOException {
+        BTreeNode node = getCachedBTreeNode(pageNum, root);
+        if (node != null) {
+            return node;
+        }
+
+        synchronized (pageLatches[(int) (pageNum & (PAGE_LATCHES - 1))]) {
+            node = getCachedBTreeNode(pageNum, root);
             if (node == null) {
                 final Page page = getPage(pageNum);
                 node = new BTreeNode(page, false);
                 node.read();
+                synchronized (cache) {
+                    cache.add(node, cacheIncrement(node, root));
+                }
+            }
+            return node;
+        }
+    }
+
+    private @Nullable BTreeNode getCachedBTreeNode(final long pageNum, final boolean root) {
+        synchronized (cache) {
+            final BTreeNode node = cache.get(pageNum);
+            if (node != null) {
+                cache.add(node, cacheIncrement(node, root));
             }
-            final int increment = node.pageHeader.getStatus() == BRANCH ? 2 : 1;
-            cache.add(node, increment);
             return node;
-        } catch (final IOException e) {
-            LOG.error("Failed to get BTree node on page {}", pageNum, e);
-            return null;
         }
     }
 
+    private static int cacheIncrement(final BTreeNode node, final boolean root) {
+        return root || node.pageHeader.getStatus() == BRANCH ? 2 : 1;
+    }
+
     /**
      * Set the root node of the tree.
      * 
@@ -494,14 +549,7 @@ public class BTree extends Paged implements Lockable {
      */
     protected BTreeNode getRootNode() {
         try {
-            BTreeNode node = cache.get(fileHeader.getRootPage());
-            if (node == null) {
-                final Page page = getPage(fileHeader.getRootPage());
-                node = new BTreeNode(page, false);
-                node.read();
-            }
-            cache.add(node, 2);
-            return node;
+            return loadBTreeNode(fileHeader.getRootPage(), true);
         } catch (final IOException e) {
             LOG.warn("Failed to get root btree node", e);
             return null;
@@ -0,0 +1,90 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Page I/O which uses positional reads and writes on a {@link FileChannel}.
+ *
+ * Concurrent readers do not contend on a shared file pointer.
+ * Note that a {@link FileChannel} is closed if a thread blocked in
+ * an I/O operation on it is interrupted, and so this mode should only be
+ * used where database threads are not interrupted.
+ */
+class ChannelPageIO implements PageIO {
+
+    private final RandomAccessFile raf;
+    protected final FileChannel channel;
+
+    ChannelPageIO(final RandomAccessFile raf) {
+        this.raf = raf;
+        this.channel = raf.getChannel();
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.CHANNEL;
+    }
+
+    @Override
+    public void read(final long position, final byte[] buf, final int off, final int len) throws IOException {
+        final ByteBuffer dst = ByteBuffer.wrap(buf, off, len);
+        while (dst.hasRemaining()) {
+            final int count = channel.read(dst, position + dst.position() - off);
+            if (count < 0) {
+                Arrays.fill(buf, dst.position(), off + len, (byte) 0);
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void write(final long position, final byte[] buf, final int off, final int len) throws IOException {
+        final ByteBuffer src = ByteBuffer.wrap(buf, off, len);
+        while (src.hasRemaining()) {
+            channel.write(src, position + src.position() - off);
+        }
+    }
+
+    @Override
+    public void transferTo(final OutputStream os) throws IOException {
+        final WritableByteChannel target = Channels.newChannel(os);
+        final long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            position += channel.transferTo(position, size - position, target);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
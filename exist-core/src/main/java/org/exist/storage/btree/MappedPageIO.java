@@ -0,0 +1,148 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Page I/O which serves reads from memory-mapped regions of the file.
+ *
+ * The file is mapped read-only in fixed size regions, a region is only
+ * mapped once the file has grown to cover it entirely, reads from the
+ * partial region at the end of the file fall back to positional reads on the
+ * {@link FileChannel}. Writes always go through the {@link FileChannel}; the
+ * operating systems we support share the page cache between the mapping and
+ * the channel, so written pages are visible through the mapping.
+ *
+ * Mapped regions are released by the garbage collector after the file is
+ * closed, on Windows the file cannot be deleted until then.
+ */
+class MappedPageIO extends ChannelPageIO {
+
+    static final int REGION_SHIFT = 26;
+    static final int REGION_SIZE = 1 << REGION_SHIFT;     // 64 MB
+
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    /**
+     * The size of the file as far as we know, all writes
+     * go through this object so we can track it without
+     * asking the channel on every read.
+     */
+    private volatile long fileSize;
+
+    MappedPageIO(final RandomAccessFile raf) throws IOException {
+        super(raf);
+        this.fileSize = channel.size();
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.MEMORY_MAPPED;
+    }
+
+    @Override
+    public void read(final long position, final byte[] buf, final int off, final int len) throws IOException {
+        long pos = position;
+        int bufOff = off;
+        int remaining = len;
+        while (remaining > 0) {
+            final int regionIdx = (int) (pos >>> REGION_SHIFT);
+            final MappedByteBuffer region = getRegion(regionIdx);
+            if (region == null) {
+                // not (yet) mapped, read the remainder from the channel
+                super.read(pos, buf, bufOff, remaining);
+                return;
+            }
+
+            final int regionOff = (int) (pos & (REGION_SIZE - 1));
+            final int count = Math.min(remaining, REGION_SIZE - regionOff);
+            region.get(regionOff, buf, bufOff, count);
+
+            pos += count;
+            bufOff += count;
+            remaining -= count;
+        }
+    }
+
+    @Override
+    public void write(final long position, final byte[] buf, final int off, final int len) throws IOException {
+        super.write(position, buf, off, len);
+        final long end = position + len;
+        if (end > fileSize) {
+            synchronized (this) {
+                if (end > fileSize) {
+                    fileSize = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a mapped region of the file, mapping it
+     * if the file is large enough to cover it.
+     *
+     * @param regionIdx the index of the region.
+     *
+     * @return the mapped region, or null if the file does not yet cover the region.
+     */
+    private MappedByteBuffer getRegion(final int regionIdx) throws IOException {
+        final MappedByteBuffer[] current = regions;
+        if (regionIdx < current.length && current[regionIdx] != null) {
+            return current[regionIdx];
+        }
+        if (fileSize < (((long) regionIdx) << REGION_SHIFT) + REGION_SIZE) {
+            return null;
+        }
+        return mapRegion(regionIdx);
+    }
+
+    private synchronized MappedByteBuffer mapRegion(final int regionIdx) throws IOException {
+        MappedByteBuffer[] current = regions;
+        if (regionIdx < current.length && current[regionIdx] != null) {
+            return current[regionIdx];
+        }
+
+        final long regionStart = ((long) regionIdx) << REGION_SHIFT;
+        final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, REGION_SIZE);
+        if (regionIdx >= current.length) {
+            current = Arrays.copyOf(current, regionIdx + 1);
+        } else {
+            current = current.clone();
+        }
+        current[regionIdx] = region;
+        regions = current;
+        return region;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            regions = new MappedByteBuffer[0];
+        }
+        super.close();
+    }
+}
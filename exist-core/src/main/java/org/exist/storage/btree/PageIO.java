@@ -0,0 +1,185 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.util.Configuration;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+/**
+ * Low-level page I/O for a {@link Paged} file.
+ *
+ * All access is positional, i.e. the caller always passes the absolute
+ * offset within the file. Reads beyond the end of the file yield zero bytes,
+ * which mirrors the behaviour that {@link Paged} has always relied upon when
+ * growing a file.
+ *
+ * The implementation used for a file is chosen by its {@link Mode}, which may
+ * be configured globally and per file in the <code>page-io</code> element of conf.xml.
+ */
+public interface PageIO extends Closeable {
+
+    String CONFIGURATION_ELEMENT_NAME = "page-io";
+    String CONFIGURATION_FILE_ELEMENT_NAME = "file";
+    String MODE_ATTRIBUTE = "mode";
+    String FILE_NAME_ATTRIBUTE = "name";
+
+    String PROPERTY_PAGE_IO_MODE = "db-connection.page-io.mode";
+    String PROPERTY_PAGE_IO_FILE_MODES = "db-connection.page-io.files";
+
+    enum Mode {
+        /**
+         * Seek and read/write on a {@link RandomAccessFile}; concurrent readers
+         * are serialized on the file pointer.
+         */
+        RANDOM_ACCESS("raf"),
+
+        /**
+         * Positional reads and writes on a {@link java.nio.channels.FileChannel};
+         * concurrent readers do not share a file pointer.
+         */
+        CHANNEL("channel"),
+
+        /**
+         * Reads are served from read-only memory-mapped regions of the file,
+         * writes go through the {@link java.nio.channels.FileChannel}.
+         */
+        MEMORY_MAPPED("mmap");
+
+        private final String configName;
+
+        Mode(final String configName) {
+            this.configName = configName;
+        }
+
+        public String getConfigName() {
+            return configName;
+        }
+
+        /**
+         * Get the mode from its name in conf.xml.
+         *
+         * @param configName the name of the mode, e.g. "raf", "channel" or "mmap".
+         *
+         * @return the mode, or null if the name is unknown.
+         */
+        public static @Nullable Mode fromConfigName(final String configName) {
+            for (final Mode mode : values()) {
+                if (mode.configName.equalsIgnoreCase(configName)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the mode configured for a database file.
+         *
+         * @param configuration the database configuration, may be null.
+         * @param fileName the name of the database file, e.g. "dom.dbx".
+         *
+         * @return the mode configured for the file, or the default mode
+         *     if no specific mode was configured for it.
+         */
+        @SuppressWarnings("unchecked")
+        public static Mode forFile(@Nullable final Configuration configuration, final String fileName) {
+            if (configuration == null) {
+                return RANDOM_ACCESS;
+            }
+
+            final Map<String, Mode> fileModes = (Map<String, Mode>) configuration.getProperty(PROPERTY_PAGE_IO_FILE_MODES);
+            if (fileModes != null) {
+                final Mode fileMode = fileModes.get(fileName);
+                if (fileMode != null) {
+                    return fileMode;
+                }
+            }
+
+            return configuration.getProperty(PROPERTY_PAGE_IO_MODE, RANDOM_ACCESS);
+        }
+    }
+
+    /**
+     * Create the page I/O for an opened file.
+     *
+     * @param mode the page I/O mode.
+     * @param raf the opened file, ownership passes to the returned page I/O.
+     *
+     * @return the page I/O.
+     *
+     * @throws IOException if the page I/O cannot be created
+     */
+    static PageIO create(final Mode mode, final RandomAccessFile raf) throws IOException {
+        return switch (mode) {
+            case CHANNEL -> new ChannelPageIO(raf);
+            case MEMORY_MAPPED -> new MappedPageIO(raf);
+            default -> new RandomAccessFilePageIO(raf);
+        };
+    }
+
+    /**
+     * Get the mode of this page I/O.
+     *
+     * @return the mode
+     */
+    Mode getMode();
+
+    /**
+     * Read bytes from the file. If the file ends before
+     * <code>len</code> bytes have been read, the remainder
+     * of the buffer range is zero filled.
+     *
+     * @param position the offset in the file to read from.
+     * @param buf the buffer to read into.
+     * @param off the offset in the buffer.
+     * @param len the number of bytes to read.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void read(long position, byte[] buf, int off, int len) throws IOException;
+
+    /**
+     * Write bytes to the file.
+     *
+     * @param position the offset in the file to write to.
+     * @param buf the buffer to write from.
+     * @param off the offset in the buffer.
+     * @param len the number of bytes to write.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void write(long position, byte[] buf, int off, int len) throws IOException;
+
+    /**
+     * Copy the entire contents of the file to a stream.
+     *
+     * @param os the output stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void transferTo(OutputStream os) throws IOException;
+}
@@ -75,11 +75,15 @@ package org.exist.storage.btree;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.storage.BrokerPool;
+import org.exist.storage.DefaultCacheManager;
+import org.exist.storage.cache.OffHeapPageCache;
 import org.exist.storage.journal.Lsn;
 import org.exist.util.ByteConversion;
+import org.exist.util.Configuration;
 import org.exist.util.FileUtils;
 import org.exist.xquery.Constants;
 
+import javax.annotation.Nullable;
 import java.lang.AutoCloseable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -129,12 +133,20 @@ public abstract class Paged implements AutoCloseable {
 
     protected static int PAGE_SIZE = 4096;
 
+    /**
+     * Holds the whole image of a page which is read from
+     * the file before it is added to the off-heap page cache.
+     */
+    private static final ThreadLocal<byte[]> PAGE_READ_BUFFER = ThreadLocal.withInitial(() -> new byte[PAGE_SIZE]);
+
     protected final short fileVersion;
     private final FileHeader fileHeader;
     private final byte[] tempPageData;
-    private final byte[] tempHeaderData;
+    private final Configuration configuration;
+    private final @Nullable OffHeapPageCache pageCache;
 
-    private RandomAccessFile raf;
+    private PageIO pageIO;
+    private int pageCacheFileId = -1;
     private Path file;
     private boolean readOnly = false;
     private boolean fileIsNew = false;
@@ -143,7 +155,9 @@ public abstract class Paged implements AutoCloseable {
         this.fileVersion = fileVersion;
         this.fileHeader = createFileHeader(pool.getPageSize());
         this.tempPageData = new byte[fileHeader.pageSize];
-        this.tempHeaderData = new byte[fileHeader.pageHeaderSize];
+        this.configuration = pool.getConfiguration();
+        final DefaultCacheManager cacheManager = pool.getCacheManager();
+        this.pageCache = cacheManager != null ? cacheManager.getOffHeapPageCache() : null;
     }
 
     public final static void setPageSize(final int pageSize) {
@@ -158,6 +172,15 @@ public abstract class Paged implements AutoCloseable {
         return readOnly;
     }
 
+    /**
+     * Get the mode of the page I/O used for the underlying file.
+     *
+     * @return the page I/O mode
+     */
+    public final PageIO.Mode getPageIOMode() {
+        return pageIO.getMode();
+    }
+
     /**
      * Close the underlying files.
      *
@@ -165,8 +188,11 @@ public abstract class Paged implements AutoCloseable {
      */
     @Override
     public void close() throws DBException {
+        if (pageCacheFileId != -1) {
+            pageCache.invalidateFile(pageCacheFileId);
+        }
         try {
-            raf.close();
+            pageIO.close();
         } catch (final IOException e) {
             throw new DBException("An error occurred whilst closing the database file '"
                     + file == null ? "null" : FileUtils.fileName(file) + "': " + e.getMessage());
@@ -242,12 +268,7 @@ public abstract class Paged implements AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     public void backupToStream(final OutputStream os) throws IOException {
-        raf.seek(0);
-        final byte[] buf = new byte[4096];
-        int len;
-        while ((len = raf.read(buf)) > 0) {
-            os.write(buf, 0, len);
-        }
+        pageIO.transferTo(os);
     }
 
     /**
@@ -397,6 +418,7 @@ public abstract class Paged implements AutoCloseable {
     protected final void setFile(final Path file) throws DBException {
         this.file = file;
         fileIsNew = !Files.exists(file);
+        RandomAccessFile raf = null;
         try {
             if ((!Files.exists(file)) || Files.isWritable(file)) {
                 try {
@@ -417,6 +439,15 @@ public abstract class Paged implements AutoCloseable {
                 readOnly = true;
                 raf = new RandomAccessFile(file.toFile(), "r");
             }
+
+            final PageIO.Mode pageIOMode = PageIO.Mode.forFile(configuration, FileUtils.fileName(file));
+            pageIO = PageIO.create(pageIOMode, raf);
+            if (pageCache != null && pageCache.getPageSize() == fileHeader.getPageSize()) {
+                pageCacheFileId = pageCache.registerFile();
+            }
+            if (pageIOMode != PageIO.Mode.RANDOM_ACCESS && LOG.isDebugEnabled()) {
+                LOG.debug("Using {} page I/O for database file {}", pageIOMode.getConfigName(), FileUtils.fileName(file));
+            }
         } catch (final IOException e) {
             LOG.warn("An exception occurred while opening database file {}: {}", file.toAbsolutePath().toString(), e.getMessage(), e);
         }
@@ -711,8 +742,7 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void read() throws IOException {
-            raf.seek(0);
-            raf.read(buf);
+            pageIO.read(0, buf, 0, buf.length);
             read(buf);
             calculateWorkSize();
             dirty = false;
@@ -848,9 +878,8 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void write() throws IOException {
-            raf.seek(0);
             write(buf);
-            raf.write(buf);
+            pageIO.write(0, buf, 0, buf.length);
             dirty = false;
         }
     }
@@ -944,16 +973,17 @@ public abstract class Paged implements AutoCloseable {
 
         public byte[] read() throws IOException {
             try {
-                if (raf.getFilePointer() != offset) {
-                    raf.seek(offset);
+                if (pageCacheFileId != -1) {
+                    return readViaPageCache();
                 }
-                Arrays.fill(tempHeaderData, (byte)0);
-                raf.read(tempHeaderData);
+
                 // Read in the header
-                header.read(tempHeaderData, 0);
+                final byte[] headerData = new byte[fileHeader.pageHeaderSize];
+                pageIO.read(offset, headerData, 0, headerData.length);
+                header.read(headerData, 0);
                 // Read the working data
                 final byte[] workData = new byte[header.dataLen];
-                raf.read(workData);
+                pageIO.read(offset + headerData.length, workData, 0, workData.length);
                 return workData;
             } catch(final Exception e) {
                 LOG.warn("error while reading page: {}", getPageInfo(), e);
@@ -961,6 +991,34 @@ public abstract class Paged implements AutoCloseable {
             }
         }
 
+        /**
+         * Reads the page image from the off-heap page cache, or
+         * from the file if it is not cached.
+         */
+        private byte[] readViaPageCache() throws IOException {
+            final byte[] cached = pageCache.read(pageCacheFileId, pageNum, (slab, pageOffset) -> {
+                final byte[] headerData = new byte[fileHeader.pageHeaderSize];
+                slab.get(pageOffset, headerData, 0, headerData.length);
+                header.read(headerData, 0);
+                final byte[] workData = new byte[header.dataLen];
+                slab.get(pageOffset + headerData.length, workData, 0, workData.length);
+                return workData;
+            });
+            if (cached != null) {
+                return cached;
+            }
+
+            byte[] pageData = PAGE_READ_BUFFER.get();
+            if (pageData.length < fileHeader.pageSize) {
+                pageData = new byte[fileHeader.pageSize];
+                PAGE_READ_BUFFER.set(pageData);
+            }
+            pageIO.read(offset, pageData, 0, fileHeader.pageSize);
+            pageCache.add(pageCacheFileId, pageNum, pageData);
+            header.read(pageData, 0);
+            return Arrays.copyOfRange(pageData, fileHeader.pageHeaderSize, fileHeader.pageHeaderSize + header.dataLen);
+        }
+
         public void setPageNum(final long pageNum) {
             this.pageNum = pageNum;
             offset = fileHeader.headerSize + (pageNum * fileHeader.pageSize);
@@ -971,25 +1029,36 @@ public abstract class Paged implements AutoCloseable {
         }
 
         private final void write(final byte[] data) throws IOException {
-            if(data == null) {
-                // Removed page: fill with 0
-                Arrays.fill(tempPageData, (byte)0);
-                header.setLsn(Lsn.LSN_INVALID);
-            }
-            // Write out the header
-            header.write(tempPageData, 0);
-            header.dirty = false;
-            if (data != null) {
-                if (data.length > fileHeader.workSize) {
-                    throw new IOException("page: " + getPageInfo() + ": data length too large: " + data.length);
-                } else {
-                    System.arraycopy(data, 0, tempPageData, fileHeader.pageHeaderSize, data.length);
+            // dirty pages may also be written back while evicting them
+            // from the cache of a BTree which is shared by concurrent readers
+            synchronized (tempPageData) {
+                if(data == null) {
+                    // Removed page: fill with 0
+                    Arrays.fill(tempPageData, (byte)0);
+                    header.setLsn(Lsn.LSN_INVALID);
+                }
+                // Write out the header
+                header.write(tempPageData, 0);
+                header.dirty = false;
+                if (data != null) {
+                    if (data.length > fileHeader.workSize) {
+                        throw new IOException("page: " + getPageInfo() + ": data length too large: " + data.length);
+                    } else {
+                        System.arraycopy(data, 0, tempPageData, fileHeader.pageHeaderSize, data.length);
+                    }
+                }
+                try {
+                    pageIO.write(offset, tempPageData, 0, tempPageData.length);
+                } catch (final IOException e) {
+                    if (pageCacheFileId != -1) {
+                        pageCache.invalidate(pageCacheFileId, pageNum);
+                    }
+                    throw e;
+                }
+                if (pageCacheFileId != -1) {
+                    pageCache.write(pageCacheFileId, pageNum, tempPageData);
                 }
             }
-            if (raf.getFilePointer() != offset) {
-                raf.seek(offset);
-            }
-            raf.write(tempPageData);
         }
 
         @Override
@@ -1009,11 +1078,8 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public void dumpPage() throws IOException {
-            if (raf.getFilePointer() != offset) {
-                raf.seek(offset);
-            }
             final byte[] data = new byte[fileHeader.pageSize];
-            raf.read(data);
+            pageIO.read(offset, data, 0, data.length);
             LOG.debug("Contents of page {}: {}", pageNum, hexDump(data));
         }
     }
@@ -0,0 +1,458 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.cache;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A second-level cache of raw page images which are held outside the Java heap.
+ *
+ * The on-heap page caches ({@link BTreeCache}, {@link LRUCache}, etc.) hold the
+ * decoded pages that are in use by the database files. When a page is evicted from
+ * those it has already been written to disk, so the next read of the page would
+ * have to go back to the file. This cache keeps a copy of every page image
+ * that {@link org.exist.storage.btree.Paged} reads or writes in direct
+ * {@link ByteBuffer} slabs, so that such reads can be served without an I/O system
+ * call, and without the cached bytes being traced by the garbage collector.
+ *
+ * The cache is split into segments, each with its own lock, index and
+ * slabs, pages are evicted from a segment using the CLOCK algorithm. Slabs are
+ * only allocated when they are first needed.
+ *
+ * Pages are addressed by a file id, obtained from {@link #registerFile()}, and
+ * the page number within that file.
+ */
+@ThreadSafe
+public class OffHeapPageCache {
+
+    private static final Logger LOG = LogManager.getLogger(OffHeapPageCache.class);
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MAX_SLAB_SIZE = 1 << 30;   // 1 GB
+
+    private final String name;
+    private final int pageSize;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final AtomicInteger nextFileId = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder fails = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Set if direct memory for a slab could not be allocated,
+     * after which no further pages are added to the cache.
+     */
+    private volatile boolean full = false;
+
+    /**
+     * @param name the name of the cache.
+     * @param capacity the maximum number of bytes to allocate outside the heap.
+     * @param pageSize the size of each page in bytes.
+     */
+    public OffHeapPageCache(final String name, final long capacity, final int pageSize) {
+        this.name = name;
+        this.pageSize = pageSize;
+
+        final long pages = capacity / pageSize;
+        int segmentCount = MAX_SEGMENTS;
+        while (segmentCount > 1 && pages / segmentCount < 1) {
+            segmentCount >>= 1;
+        }
+        final int pagesPerSegment = (int) Math.min(Integer.MAX_VALUE, Math.max(1, pages / segmentCount));
+
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(pagesPerSegment);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * Register a database file with the cache.
+     *
+     * @return the id to use for the file when accessing the cache.
+     */
+    public int registerFile() {
+        return nextFileId.getAndIncrement();
+    }
+
+    /**
+     * Read a page image from the cache.
+     *
+     * @param fileId the id of the file.
+     * @param pageNum the page number.
+     * @param buf the buffer to copy the page into, must be at least {@link #getPageSize()} bytes.
+     *
+     * @return true if the page was in the cache and was copied to the buffer, false otherwise.
+     */
+    public boolean read(final int fileId, final long pageNum, final byte[] buf) {
+        return read(fileId, pageNum, (slab, offset) -> {
+            slab.get(offset, buf, 0, pageSize);
+            return buf;
+        }) != null;
+    }
+
+    /**
+     * Read a page image from the cache without copying all of it first.
+     *
+     * @param fileId the id of the file.
+     * @param pageNum the page number.
+     * @param reader extracts what is needed from the page image.
+     *
+     * @param <E> the type of exception the reader may throw.
+     *
+     * @return the result of the reader, or null if the page was not in the cache.
+     *
+     * @throws E if the reader fails.
+     */
+    public @Nullable <E extends Exception> byte[] read(final int fileId, final long pageNum, final PageReader<E> reader) throws E {
+        final byte[] result = segment(fileId, pageNum).read(fileId, pageNum, reader);
+        if (result != null) {
+            hits.increment();
+        } else {
+            fails.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Store a page image that has just been written to the file in the cache,
+     * replacing any previous image of the page.
+     *
+     * @param fileId the id of the file.
+     * @param pageNum the page number.
+     * @param buf the page image, must be at least {@link #getPageSize()} bytes.
+     */
+    public void write(final int fileId, final long pageNum, final byte[] buf) {
+        put(fileId, pageNum, buf, true);
+    }
+
+    /**
+     * Store a page image that has just been read from the file in the cache,
+     * unless the cache already holds an image of the page. A concurrent
+     * {@link #write(int, long, byte[])} of the page therefore always wins.
+     *
+     * @param fileId the id of the file.
+     * @param pageNum the page number.
+     * @param buf the page image, must be at least {@link #getPageSize()} bytes.
+     */
+    public void add(final int fileId, final long pageNum, final byte[] buf) {
+        put(fileId, pageNum, buf, false);
+    }
+
+    private void put(final int fileId, final long pageNum, final byte[] buf, final boolean replace) {
+        final Segment segment = segment(fileId, pageNum);
+        if (full) {
+            // only update pages which are already cached
+            if (replace) {
+                segment.update(fileId, pageNum, buf);
+            }
+            return;
+        }
+        try {
+            segment.put(fileId, pageNum, buf, replace);
+        } catch (final OutOfMemoryError e) {
+            full = true;
+            LOG.warn("Unable to allocate direct memory for off-heap page cache {}, the cache will not grow any further. " +
+                    "Check that -XX:MaxDirectMemorySize is larger than offHeapCacheSize: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Remove a page image from the cache.
+     *
+     * @param fileId the id of the file.
+     * @param pageNum the page number.
+     */
+    public void invalidate(final int fileId, final long pageNum) {
+        segment(fileId, pageNum).invalidate(fileId, pageNum);
+    }
+
+    /**
+     * Remove all page images of a file from the cache.
+     *
+     * @param fileId the id of the file.
+     */
+    public void invalidateFile(final int fileId) {
+        for (final Segment segment : segments) {
+            segment.invalidateFile(fileId);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the maximum number of pages the cache can hold
+     */
+    public long getCapacity() {
+        long capacity = 0;
+        for (final Segment segment : segments) {
+            capacity += segment.pageNums.length;
+        }
+        return capacity;
+    }
+
+    /**
+     * @return the number of pages currently held in the cache
+     */
+    public long getUsed() {
+        long used = 0;
+        for (final Segment segment : segments) {
+            used += segment.getUsed();
+        }
+        return used;
+    }
+
+    /**
+     * @return the number of bytes currently allocated outside the heap
+     */
+    public long getAllocated() {
+        long allocated = 0;
+        for (final Segment segment : segments) {
+            allocated += segment.getAllocated();
+        }
+        return allocated;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getFails() {
+        return fails.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Segment segment(final int fileId, final long pageNum) {
+        long h = (pageNum + fileId * 0xC2B2AE3D27D4EB4FL) * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        return segments[((int) h) & segmentMask];
+    }
+
+    /**
+     * Extracts data from a cached page image, whilst the page is held
+     * by its segment. The slab must neither be modified nor retained.
+     */
+    @FunctionalInterface
+    public interface PageReader<E extends Exception> {
+
+        /**
+         * @param slab the buffer which holds the page image.
+         * @param offset the position of the page image within the slab.
+         *
+         * @return the data read from the page image.
+         *
+         * @throws E if the data cannot be read.
+         */
+        byte[] read(ByteBuffer slab, int offset) throws E;
+    }
+
+    private class Segment {
+        private static final int EMPTY = -1;
+
+        private final int slotsPerSlab;
+
+        /**
+         * Maps the page numbers of each file to their slots.
+         */
+        @GuardedBy("this") private final Int2ObjectOpenHashMap<Long2IntOpenHashMap> index;
+        @GuardedBy("this") private final int[] fileIds;
+        @GuardedBy("this") private final long[] pageNums;
+        @GuardedBy("this") private final boolean[] referenced;
+        @GuardedBy("this") private final ByteBuffer[] slabs;
+        @GuardedBy("this") private int clockHand = 0;
+        @GuardedBy("this") private int used = 0;
+
+        Segment(final int slots) {
+            this.slotsPerSlab = Math.max(1, MAX_SLAB_SIZE / pageSize);
+            this.index = new Int2ObjectOpenHashMap<>();
+            this.fileIds = new int[slots];
+            Arrays.fill(fileIds, EMPTY);
+            this.pageNums = new long[slots];
+            this.referenced = new boolean[slots];
+            this.slabs = new ByteBuffer[(slots + slotsPerSlab - 1) / slotsPerSlab];
+        }
+
+        synchronized @Nullable <E extends Exception> byte[] read(final int fileId, final long pageNum, final PageReader<E> reader) throws E {
+            final int slot = slot(fileId, pageNum);
+            if (slot < 0) {
+                return null;
+            }
+            referenced[slot] = true;
+            return reader.read(slab(slot), slabOffset(slot));
+        }
+
+        synchronized void put(final int fileId, final long pageNum, final byte[] buf, final boolean replace) {
+            int slot = slot(fileId, pageNum);
+            if (slot >= 0 && !replace) {
+                return;
+            }
+            if (slot < 0) {
+                slot = freeSlot();
+                try {
+                    slab(slot);
+                } catch (final OutOfMemoryError e) {
+                    // only a slot which was never used can lack a slab
+                    used--;
+                    throw e;
+                }
+                fileIds[slot] = fileId;
+                pageNums[slot] = pageNum;
+                index.computeIfAbsent(fileId, id -> {
+                    final Long2IntOpenHashMap pages = new Long2IntOpenHashMap();
+                    pages.defaultReturnValue(EMPTY);
+                    return pages;
+                }).put(pageNum, slot);
+            }
+            referenced[slot] = true;
+            slab(slot).put(slabOffset(slot), buf, 0, pageSize);
+        }
+
+        synchronized void update(final int fileId, final long pageNum, final byte[] buf) {
+            final int slot = slot(fileId, pageNum);
+            if (slot >= 0) {
+                slab(slot).put(slabOffset(slot), buf, 0, pageSize);
+            }
+        }
+
+        synchronized void invalidate(final int fileId, final long pageNum) {
+            final int slot = slot(fileId, pageNum);
+            if (slot >= 0) {
+                unmap(slot);
+                fileIds[slot] = EMPTY;
+                referenced[slot] = false;
+                used--;
+            }
+        }
+
+        synchronized void invalidateFile(final int fileId) {
+            final Long2IntOpenHashMap pages = index.remove(fileId);
+            if (pages == null) {
+                return;
+            }
+            for (final IntIterator it = pages.values().iterator(); it.hasNext(); ) {
+                final int slot = it.nextInt();
+                fileIds[slot] = EMPTY;
+                referenced[slot] = false;
+                used--;
+            }
+        }
+
+        synchronized int getUsed() {
+            return used;
+        }
+
+        synchronized long getAllocated() {
+            long allocated = 0;
+            for (final ByteBuffer slab : slabs) {
+                if (slab != null) {
+                    allocated += slab.capacity();
+                }
+            }
+            return allocated;
+        }
+
+        @GuardedBy("this")
+        private int slot(final int fileId, final long pageNum) {
+            final Long2IntOpenHashMap pages = index.get(fileId);
+            return pages != null ? pages.get(pageNum) : EMPTY;
+        }
+
+        /**
+         * Remove the page held by a slot from the index.
+         */
+        @GuardedBy("this")
+        private void unmap(final int slot) {
+            final Long2IntOpenHashMap pages = index.get(fileIds[slot]);
+            pages.remove(pageNums[slot]);
+            if (pages.isEmpty()) {
+                index.remove(fileIds[slot]);
+            }
+        }
+
+        /**
+         * Find a free slot, evicting a page if the segment is full.
+         */
+        @GuardedBy("this")
+        private int freeSlot() {
+            if (used < fileIds.length) {
+                // segment is not yet full, there must be an empty slot
+                while (fileIds[clockHand] != EMPTY) {
+                    clockHand = (clockHand + 1) % fileIds.length;
+                }
+                used++;
+                return clockHand;
+            }
+
+            // CLOCK: give referenced pages a second chance
+            while (referenced[clockHand]) {
+                referenced[clockHand] = false;
+                clockHand = (clockHand + 1) % fileIds.length;
+            }
+            final int slot = clockHand;
+            unmap(slot);
+            fileIds[slot] = EMPTY;
+            evictions.increment();
+            clockHand = (clockHand + 1) % fileIds.length;
+            return slot;
+        }
+
+        @GuardedBy("this")
+        private ByteBuffer slab(final int slot) {
+            final int slabIdx = slot / slotsPerSlab;
+            ByteBuffer slab = slabs[slabIdx];
+            if (slab == null) {
+                final int slabSlots = Math.min(slotsPerSlab, pageNums.length - (slabIdx * slotsPerSlab));
+                slab = ByteBuffer.allocateDirect(slabSlots * pageSize);
+                slabs[slabIdx] = slab;
+            }
+            return slab;
+        }
+
+        private int slabOffset(final int slot) {
+            return (slot % slotsPerSlab) * pageSize;
+        }
+    }
+}
@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class AddLinkLoggable extends AbstractLoggable {
+public class AddLinkLoggable extends AbstractLoggable implements DOMLoggable {
     protected long pageNum;
     protected short tid;
     protected long link;
@@ -29,7 +29,7 @@ import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
-public class AddValueLoggable extends AbstractLoggable {
+public class AddValueLoggable extends AbstractLoggable implements DOMLoggable {
     protected DOMFile domDb;
     protected long pageNum;
     protected short tid;
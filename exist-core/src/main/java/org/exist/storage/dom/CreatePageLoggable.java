@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class CreatePageLoggable extends AbstractLoggable {
+public class CreatePageLoggable extends AbstractLoggable implements DOMLoggable {
     protected long prevPage;
     protected long newPage;
     protected long nextPage;
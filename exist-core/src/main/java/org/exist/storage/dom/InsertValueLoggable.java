@@ -34,7 +34,7 @@ import org.exist.storage.txn.Txn;
  *
  * @author wolf
  */
-public class InsertValueLoggable extends AbstractLoggable {
+public class InsertValueLoggable extends AbstractLoggable implements DOMLoggable {
     private DOMFile domDb;
     protected byte isOverflow;
     protected long pageNum;
@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class RemoveEmptyPageLoggable extends AbstractLoggable {
+public class RemoveEmptyPageLoggable extends AbstractLoggable implements DOMLoggable {
     private DOMFile domDb;
     protected long pageNum;
     protected long prevPage;
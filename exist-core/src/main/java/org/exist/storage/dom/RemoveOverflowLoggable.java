@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class RemoveOverflowLoggable extends AbstractLoggable {
+public class RemoveOverflowLoggable extends AbstractLoggable implements DOMLoggable {
     private DOMFile domDb;
     protected long pageNum;
     protected long nextPage;
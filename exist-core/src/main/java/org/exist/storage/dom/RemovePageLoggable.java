@@ -33,7 +33,7 @@ import org.exist.storage.txn.Txn;
  * @author wolf
  *
  */
-public class RemovePageLoggable extends AbstractLoggable {
+public class RemovePageLoggable extends AbstractLoggable implements DOMLoggable {
     private DOMFile domDb;
     protected long pageNum;
     protected long prevPage;
@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class RemoveValueLoggable extends AbstractLoggable {
+public class RemoveValueLoggable extends AbstractLoggable implements DOMLoggable {
 
     private DOMFile domDb;
     protected long pageNum;
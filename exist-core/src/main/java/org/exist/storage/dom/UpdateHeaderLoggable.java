@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class UpdateHeaderLoggable extends AbstractLoggable {
+public class UpdateHeaderLoggable extends AbstractLoggable implements DOMLoggable {
     protected long pageNum;
     protected long nextPage;
     protected long prevPage;
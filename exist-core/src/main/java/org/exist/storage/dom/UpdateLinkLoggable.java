@@ -29,7 +29,7 @@ import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
-public class UpdateLinkLoggable extends AbstractLoggable {
+public class UpdateLinkLoggable extends AbstractLoggable implements DOMLoggable {
     protected long pageNum;
     protected int offset;
     protected long link;
@@ -32,7 +32,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class UpdateValueLoggable extends AbstractLoggable {
+public class UpdateValueLoggable extends AbstractLoggable implements DOMLoggable {
     protected DOMFile domDb;
     protected long pageNum;
     protected short tid;
@@ -33,7 +33,7 @@ import org.exist.storage.txn.Txn;
 /**
  * @author wolf
  */
-public class WriteOverflowPageLoggable extends AbstractLoggable {
+public class WriteOverflowPageLoggable extends AbstractLoggable implements DOMLoggable {
     protected long pageNum;
     protected long nextPage;
     protected Value value;
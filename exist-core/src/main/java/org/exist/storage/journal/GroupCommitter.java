@@ -0,0 +1,203 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.journal;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Gathers the commits of concurrent transactions so that they
+ * share a single sync of the journal file.
+ *
+ * The first committing thread becomes the leader of a group. It waits
+ * for up to {@link #getWindow()} milliseconds, or until {@link #getMaxSize()}
+ * commits have joined the group, and then syncs the journal. All followers whose
+ * commit record was written before the sync are released together; a follower whose
+ * record was written later becomes the leader of the next group.
+ */
+@ThreadSafe
+public class GroupCommitter {
+
+    /**
+     * Flushes and syncs the journal, returning the LSN up to which
+     * the journal is synced, or null if the sync failed.
+     */
+    private final Supplier<Lsn> sync;
+    private final long window;
+    private final int maxSize;
+
+    private final Object groupLock = new Object();
+    @GuardedBy("groupLock") private boolean leaderActive = false;
+    @GuardedBy("groupLock") private int waiting = 0;
+    @GuardedBy("groupLock") private Lsn syncedLsn = Lsn.LSN_INVALID;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder syncTime = new LongAdder();
+    private final AtomicLong maxGroupSize = new AtomicLong();
+
+    /**
+     * @param sync flushes and syncs the journal, returning the LSN up to which the journal is synced,
+     *     or null if the sync failed.
+     * @param window the maximum time in milliseconds that the leader waits for other commits.
+     * @param maxSize the number of commits after which the leader stops waiting.
+     */
+    public GroupCommitter(final Supplier<Lsn> sync, final long window, final int maxSize) {
+        this.sync = sync;
+        this.window = Math.max(0, window);
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * Waits until the journal has been synced up to the commit record.
+     *
+     * @param lsn the LSN of the commit record, which must already have been written to the journal
+     */
+    public void commit(final Lsn lsn) {
+        commits.increment();
+
+        boolean interrupted = false;
+        final int groupSize;
+        try {
+            synchronized (groupLock) {
+                waiting++;
+                try {
+                    if (waiting >= maxSize) {
+                        // wake the leader early
+                        groupLock.notifyAll();
+                    }
+
+                    while (leaderActive && lsn.compareTo(syncedLsn) > 0) {
+                        try {
+                            groupLock.wait();
+                        } catch (final InterruptedException e) {
+                            // the commit record is already written, we must not return before it is synced
+                            interrupted = true;
+                        }
+                    }
+                    if (lsn.compareTo(syncedLsn) <= 0) {
+                        return;
+                    }
+
+                    // become the leader of the group
+                    leaderActive = true;
+                    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window);
+                    long remaining = deadline - System.nanoTime();
+                    while (!interrupted && waiting < maxSize && remaining > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(groupLock, remaining);
+                        } catch (final InterruptedException e) {
+                            interrupted = true;
+                        }
+                        remaining = deadline - System.nanoTime();
+                    }
+                    groupSize = waiting;
+                } finally {
+                    waiting--;
+                }
+            }
+
+            maxGroupSize.accumulateAndGet(groupSize, Math::max);
+
+            // sync outside of the group lock so that further commits may join the next group
+            final long start = System.nanoTime();
+            Lsn synced = null;
+            try {
+                synced = sync.get();
+            } finally {
+                syncTime.add(System.nanoTime() - start);
+                syncs.increment();
+
+                synchronized (groupLock) {
+                    if (synced != null && synced.compareTo(syncedLsn) > 0) {
+                        syncedLsn = synced;
+                    }
+                    leaderActive = false;
+                    groupLock.notifyAll();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Get the maximum time that the leader of a group waits for other commits.
+     *
+     * @return the window in milliseconds
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Get the number of commits after which the leader of a group stops waiting.
+     *
+     * @return the maximum size of a group
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of commits that have waited for a sync.
+     *
+     * @return the number of commits
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * Get the number of syncs of the journal made for groups of commits.
+     *
+     * @return the number of syncs
+     */
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    /**
+     * Get the largest number of commits that were waiting on a single sync.
+     *
+     * @return the largest group size
+     */
+    public long getMaxGroupSize() {
+        return maxGroupSize.get();
+    }
+
+    /**
+     * Get the total time spent in syncs of the journal.
+     *
+     * @return the sync time in nanoseconds
+     */
+    public long getSyncTime() {
+        return syncTime.sum();
+    }
+}
@@ -122,11 +122,15 @@ public final class Journal implements Closeable {
     public static final String RECOVERY_SYNC_ON_COMMIT_ATTRIBUTE = "sync-on-commit";
     public static final String RECOVERY_JOURNAL_DIR_ATTRIBUTE = "journal-dir";
     public static final String RECOVERY_SIZE_LIMIT_ATTRIBUTE = "size";
+    public static final String RECOVERY_GROUP_COMMIT_WINDOW_ATTRIBUTE = "group-commit-window";
+    public static final String RECOVERY_GROUP_COMMIT_SIZE_ATTRIBUTE = "group-commit-size";
 
     public static final String PROPERTY_RECOVERY_SIZE_MIN = "db-connection.recovery.size-min";
     public static final String PROPERTY_RECOVERY_SIZE_LIMIT = "db-connection.recovery.size-limit";
     public static final String PROPERTY_RECOVERY_JOURNAL_DIR = "db-connection.recovery.journal-dir";
     public static final String PROPERTY_RECOVERY_SYNC_ON_COMMIT = "db-connection.recovery.sync-on-commit";
+    public static final String PROPERTY_RECOVERY_GROUP_COMMIT_WINDOW = "db-connection.recovery.group-commit-window";
+    public static final String PROPERTY_RECOVERY_GROUP_COMMIT_SIZE = "db-connection.recovery.group-commit-size";
 
     public static final String LOG_FILE_SUFFIX = "log";
     public static final String BAK_FILE_SUFFIX = ".bak";
@@ -158,6 +162,16 @@ public final class Journal implements Closeable {
      */
     final static boolean DEFAULT_SYNC_ON_COMMIT = true;
 
+    /**
+     * default group commit window: 0 ms, i.e. group commits are disabled
+     */
+    static final int DEFAULT_GROUP_COMMIT_WINDOW = 0;  // ms
+
+    /**
+     * default maximum number of commits gathered into one sync
+     */
+    static final int DEFAULT_GROUP_COMMIT_SIZE = 32;
+
     /**
      * default maximum journal size: 100 MB
      */
@@ -385,6 +399,15 @@ public final class Journal implements Closeable {
         }
     }
 
+    /**
+     * Returns true if the journal file is synced after every commit.
+     *
+     * @return true if sync-on-commit is enabled
+     */
+    boolean isSyncOnCommit() {
+        return syncOnCommit;
+    }
+
     /**
      * Returns the last LSN physically written to the journal.
      *
@@ -419,7 +442,8 @@ public final class Journal implements Closeable {
         flushBuffer();
 
         try {
-            if (forceSync || (fsync && syncOnCommit && currentLsn.compareTo(lastSyncLsn) > 0)) {
+            // NOTE: there is no channel until the first journal file has been opened
+            if (channel != null && (forceSync || (fsync && syncOnCommit && currentLsn.compareTo(lastSyncLsn) > 0))) {
                 sync();
                 lastSyncLsn = currentLsn;
             }
@@ -436,6 +460,17 @@ public final class Journal implements Closeable {
         }
     }
 
+    /**
+     * Flush the current buffer to disk and sync the file on behalf
+     * of a group of commits, see {@link GroupCommitter}.
+     *
+     * @return the LSN up to which the journal file has been synced.
+     */
+    synchronized Lsn syncForGroupCommit() {
+        flushToLog(true);
+        return lastSyncLsn;
+    }
+
     private void sync() throws IOException {
         channel.force(true);
     }
@@ -44,6 +44,7 @@ import org.exist.storage.recovery.RecoveryManager;
 import org.exist.util.Configuration;
 import org.exist.util.ReadOnlyException;
 
+import javax.annotation.Nullable;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
@@ -61,6 +62,9 @@ public class JournalManager implements BrokerPoolService {
 
     @GuardedBy("this") private Path journalDir;
     @GuardedBy("this") private boolean groupCommits;
+    @GuardedBy("this") private int groupCommitWindow;
+    @GuardedBy("this") private int groupCommitSize;
+    @GuardedBy("this") private @Nullable GroupCommitter groupCommitter;
     // package-private accessibility for testing
     @GuardedBy("this") Journal journal;
     @GuardedBy("this") private boolean journallingDisabled = false;
@@ -73,8 +77,10 @@ public class JournalManager implements BrokerPoolService {
         this.journalDir = (Path) Optional.ofNullable(configuration.getProperty(Journal.PROPERTY_RECOVERY_JOURNAL_DIR))
                 .orElse(configuration.getProperty(BrokerPool.PROPERTY_DATA_DIR));
         this.groupCommits = configuration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, false);
+        this.groupCommitWindow = configuration.getProperty(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_WINDOW, Journal.DEFAULT_GROUP_COMMIT_WINDOW);
+        this.groupCommitSize = configuration.getProperty(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_SIZE, Journal.DEFAULT_GROUP_COMMIT_SIZE);
         if (LOG.isDebugEnabled()) {
-            LOG.debug("GroupCommits = {}", groupCommits);
+            LOG.debug("GroupCommits = {}, GroupCommitWindow = {}ms, GroupCommitSize = {}", groupCommits, groupCommitWindow, groupCommitSize);
         }
     }
 
@@ -84,6 +90,15 @@ public class JournalManager implements BrokerPoolService {
             try {
                 this.journal = new Journal(pool, journalDir);
                 this.journal.initialize();
+                if (groupCommitWindow > 0) {
+                    if (groupCommits) {
+                        LOG.warn("group-commit is enabled, commits are not synced, ignoring group-commit-window");
+                    } else if (!journal.isSyncOnCommit()) {
+                        LOG.warn("sync-on-commit is disabled, commits are not synced, ignoring group-commit-window");
+                    } else {
+                        this.groupCommitter = new GroupCommitter(journal::syncForGroupCommit, groupCommitWindow, groupCommitSize);
+                    }
+                }
                 this.initialized = true;
             } catch(final EXistException | ReadOnlyException e) {
                 throw new BrokerPoolServiceException(e);
@@ -113,6 +128,11 @@ public class JournalManager implements BrokerPoolService {
     /**
      * Write a group of entrys to the journal
      *
+     * If group commits are configured, the caller waits
+     * for the sync of the journal without holding the
+     * lock on the journal, so that the commits of concurrent
+     * transactions may share a single sync, see {@link GroupCommitter}.
+     *
      * @see Journal#writeToLog(Loggable)
      * @see Journal#flushToLog(boolean)
      *
@@ -120,13 +140,35 @@ public class JournalManager implements BrokerPoolService {
      *
      * @throws JournalException of the journal group cannot be written
      */
-    public synchronized void journalGroup(final Loggable loggable) throws JournalException {
-        if (!journallingDisabled) {
+    public void journalGroup(final Loggable loggable) throws JournalException {
+        final GroupCommitter committer;
+        synchronized (this) {
+            if (journallingDisabled) {
+                return;
+            }
+
             journal.writeToLog(loggable);
-            if (!groupCommits) {
+            if (groupCommits) {
+                return;
+            }
+
+            if (groupCommitter == null) {
                 journal.flushToLog(true);
+                return;
             }
+            committer = groupCommitter;
         }
+
+        committer.commit(loggable.getLsn());
+    }
+
+    /**
+     * Get the group committer of the journal.
+     *
+     * @return the group committer, or null if group commits are not configured.
+     */
+    public synchronized @Nullable GroupCommitter getGroupCommitter() {
+        return groupCommitter;
     }
 
     /**
@@ -30,6 +30,18 @@ import java.nio.ByteBuffer;
  * @author wolf
  */
 public interface Loggable {
+
+    /**
+     * Redo partition of entries which must be redone on their own,
+     * after all preceding entries have been redone.
+     */
+    int REDO_SERIAL = -1;
+
+    /**
+     * Redo partition of entries which have nothing to redo,
+     * e.g. transaction start and commit records.
+     */
+    int REDO_NONE = -2;
     
 	/**
 	 * Returns the type id of the log entry. This is the type registered
@@ -92,6 +104,18 @@ public interface Loggable {
      * @throws LogException if the operation cannot be redone
      */
     void redo() throws LogException;
+
+    /**
+     * Returns the partition in which this entry is redone during recovery.
+     * Entries of the same partition are redone in journal order, entries of
+     * different partitions may be redone concurrently. Implementations
+     * typically return the id of the file they modify.
+     *
+     * @return a non-negative partition, {@link #REDO_SERIAL} or {@link #REDO_NONE}
+     */
+    default int getRedoPartition() {
+        return REDO_SERIAL;
+    }
     
     /**
      * Undo, i.e. roll back, the underlying operation. The method
@@ -42,6 +42,7 @@ import org.exist.xmldb.XmldbURI;
 import uk.ac.ic.doc.slurp.multilock.MultiLock;
 
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 /**
@@ -115,6 +116,7 @@ public class LockManager {
     private final WeakLazyStripes<String, MultiLock> pathLocks;
     private final WeakLazyStripes<String, MultiLock> documentLocks;
     private final WeakLazyStripes<String, ReentrantLock> btreeLocks;
+    private final WeakLazyStripes<String, ReentrantReadWriteLock> btreeLatches;
 
     /**
      * @param configuration database configuration
@@ -135,6 +137,7 @@ public class LockManager {
             this.documentLocks = null;
         }
         this.btreeLocks = new WeakLazyStripes<>(concurrencyLevel, LockManager::createBtreeLock);
+        this.btreeLatches = new WeakLazyStripes<>(concurrencyLevel, LockManager::createBtreeLatch);
 
         LOG.info("Configured LockManager with concurrencyLevel={} use-path-locks-for-documents={} paths-multi-writer={}", concurrencyLevel, usePathLocksForDocuments, pathsMultiWriter);
     }
@@ -189,6 +192,18 @@ public class LockManager {
         return new ReentrantLock();
     }
 
+    /**
+     * Creates a new latch for a {@link org.exist.storage.btree.BTree}
+     * will be Striped by the btreeFileName.
+     *
+     * The latch separates the shared readers obtained through
+     * {@link #acquireBtreeSharedReadLock(String)} from the holders
+     * of the exclusive BTree lock.
+     */
+    private static ReentrantReadWriteLock createBtreeLatch(final String btreeFileName) {
+        return new ReentrantReadWriteLock();
+    }
+
     /**
      * Retrieves a lock for a Path
      *
@@ -628,7 +643,22 @@ public class LockManager {
     }
 
     /**
-     * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
+     * Retrieves the latch for a {@link org.exist.storage.btree.BTree}
+     *
+     * @param btreeFileName The filename of the BTree
+     *
+     * @return A latch for the BTree
+     */
+    ReentrantReadWriteLock getBTreeLatch(final String btreeFileName) {
+        return btreeLatches.get(btreeFileName);
+    }
+
+    /**
+     * Acquire a READ_LOCK on a {@link org.exist.storage.btree.BTree}
+     *
+     * The lock is exclusive, as most callers also read data pages
+     * and caches which are not safe for concurrent use.
+     * See {@link #acquireBtreeSharedReadLock(String)} for pure BTree lookups.
      *
      * @param btreeFileName the filename of the BTree
      *
@@ -637,28 +667,64 @@ public class LockManager {
      * @throws LockException if the lock could not be acquired
      */
     public ManagedLock<ReentrantLock> acquireBtreeReadLock(final String btreeFileName) throws LockException {
+        return acquireBtreeExclusiveLock(btreeFileName, Lock.LockMode.READ_LOCK);
+    }
+
+    /**
+     * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
+     *
+     * @param btreeFileName the filename of the BTree
+     *
+     * @return the lock for the BTree
+     *
+     * @throws LockException if the lock could not be acquired
+     */
+    public ManagedLock<ReentrantLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
+        return acquireBtreeExclusiveLock(btreeFileName, Lock.LockMode.WRITE_LOCK);
+    }
+
+    private ManagedLock<ReentrantLock> acquireBtreeExclusiveLock(final String btreeFileName, final Lock.LockMode lockMode) throws LockException {
         final long groupId = System.nanoTime();
 
         final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock latch = getBTreeLatch(btreeFileName);
         try {
-            lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
+            lockTable.attempt(groupId, btreeFileName, LockType.BTREE, lockMode);
 
             lock.lockInterruptibly();
+            try {
+                latch.writeLock().lockInterruptibly();
+            } catch (final InterruptedException e) {
+                lock.unlock();
+                throw e;
+            }
 
-            lockTable.acquired(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
+            lockTable.acquired(groupId, btreeFileName, LockType.BTREE, lockMode);
         } catch(final InterruptedException e) {
-            lockTable.attemptFailed(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
-            throw new LockException("Unable to acquire READ_LOCK for: " + btreeFileName, e);
+            lockTable.attemptFailed(groupId, btreeFileName, LockType.BTREE, lockMode);
+            throw new LockException("Unable to acquire " + lockMode + " for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
+        return new ManagedLock<>(lock, () -> {
+            latch.writeLock().unlock();
             lock.unlock();
-            lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
+            lockTable.released(groupId, btreeFileName, LockType.BTREE, lockMode);
         });
     }
 
     /**
-     * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
+     * Acquire a shared READ_LOCK on a {@link org.exist.storage.btree.BTree}
+     *
+     * Any number of threads may hold the shared lock at the same time, they
+     * only exclude the holders of {@link #acquireBtreeReadLock(String)} and
+     * {@link #acquireBtreeWriteLock(String)}. It must only be used around
+     * {@link org.exist.storage.btree.BTree#findValue(org.exist.storage.btree.Value)} and
+     * {@link org.exist.storage.btree.BTree#query(org.exist.storage.btree.IndexQuery, org.exist.storage.btree.BTreeCallback)}
+     * on a plain BTree, i.e. not on a {@link org.exist.storage.dom.DOMFile} or
+     * {@link org.exist.storage.index.BFile} whose data pages are not safe for concurrent readers.
+     *
+     * The shared lock cannot be upgraded, a thread holding it must not try to
+     * acquire the exclusive lock of the same BTree.
      *
      * @param btreeFileName the filename of the BTree
      *
@@ -666,24 +732,24 @@ public class LockManager {
      *
      * @throws LockException if the lock could not be acquired
      */
-    public ManagedLock<ReentrantLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
+    public ManagedLock<ReentrantReadWriteLock> acquireBtreeSharedReadLock(final String btreeFileName) throws LockException {
         final long groupId = System.nanoTime();
 
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock latch = getBTreeLatch(btreeFileName);
         try {
-            lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
+            lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
 
-            lock.lockInterruptibly();
+            latch.readLock().lockInterruptibly();
 
-            lockTable.acquired(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
+            lockTable.acquired(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
         } catch(final InterruptedException e) {
-            lockTable.attemptFailed(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
-            throw new LockException("Unable to acquire WRITE_LOCK for: " + btreeFileName, e);
+            lockTable.attemptFailed(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
+            throw new LockException("Unable to acquire shared READ_LOCK for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
-            lock.unlock();
-            lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
+        return new ManagedLock<>(latch, () -> {
+            latch.readLock().unlock();
+            lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
         });
     }
 
@@ -699,7 +765,7 @@ public class LockManager {
     @Deprecated
     public boolean isBtreeLocked(final String btreeFileName) {
         final ReentrantLock lock = getBTreeLock(btreeFileName);
-        return lock.isLocked();
+        return lock.isLocked() || getBTreeLatch(btreeFileName).getReadLockCount() > 0;
     }
 
     /**
@@ -710,7 +776,7 @@ public class LockManager {
      * @return true if the Btree is locked for writes.
      */
     public boolean isBtreeLockedForWrite(final String btreeFileName) {
-        return isBtreeLocked(btreeFileName);
+        return getBTreeLock(btreeFileName).isLocked();
     }
 
     /**
@@ -0,0 +1,182 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.recovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import net.jcip.annotations.NotThreadSafe;
+import org.exist.Database;
+import org.exist.storage.journal.LogException;
+import org.exist.storage.journal.Loggable;
+
+import javax.annotation.Nullable;
+
+import static org.exist.util.ThreadUtils.nameInstanceThread;
+
+/**
+ * Redoes journal entries during recovery, using several threads.
+ *
+ * Entries are collected in batches and grouped by their
+ * {@link Loggable#getRedoPartition() redo partition}, i.e. by the file they
+ * modify. Within a batch the groups are redone concurrently, each group in
+ * journal order. Entries of the {@link Loggable#REDO_SERIAL} partition act as
+ * a barrier: the current batch is completed before they are redone.
+ *
+ * With a single thread, all entries are redone directly by the calling thread.
+ */
+@NotThreadSafe
+class ParallelRedo implements AutoCloseable {
+
+    static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private final int batchSize;
+    @Nullable private final ForkJoinPool pool;
+    private final Int2ObjectMap<List<Loggable>> batch = new Int2ObjectLinkedOpenHashMap<>();
+    private int batched = 0;
+    private long redone = 0;
+
+    /**
+     * @param database the database instance, used for naming the threads
+     * @param threads the maximum number of threads used for redo
+     * @param batchSize the number of entries collected before they are redone
+     */
+    ParallelRedo(final Database database, final int threads, final int batchSize) {
+        this.batchSize = batchSize;
+        if (threads > 1) {
+            this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                thread.setName(nameInstanceThread(database, "recovery.redo-" + thread.getPoolIndex()));
+                return thread;
+            }, null, false);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Schedules the redo of a journal entry.
+     *
+     * @param loggable the journal entry
+     *
+     * @throws LogException if the entry, or a previously scheduled entry, could not be redone
+     */
+    void redo(final Loggable loggable) throws LogException {
+        final int partition = loggable.getRedoPartition();
+        if (partition == Loggable.REDO_NONE) {
+            loggable.redo();
+        } else if (pool == null || partition == Loggable.REDO_SERIAL) {
+            flush();
+            redoEntry(loggable);
+            redone++;
+        } else {
+            batch.computeIfAbsent(partition, k -> new ArrayList<>()).add(loggable);
+            if (++batched >= batchSize) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Redoes all scheduled journal entries and waits for their completion.
+     *
+     * @throws LogException if an entry could not be redone
+     */
+    void flush() throws LogException {
+        if (batched == 0) {
+            return;
+        }
+
+        try {
+            if (batch.size() == 1) {
+                redoEntries(batch.values().iterator().next());
+            } else {
+                final List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+                for (final List<Loggable> entries : batch.values()) {
+                    tasks.add(() -> {
+                        redoEntries(entries);
+                        return null;
+                    });
+                }
+
+                // invokeAll waits for all tasks, so no partition is still being redone if one fails
+                LogException failure = null;
+                for (final Future<Void> result : pool.invokeAll(tasks)) {
+                    try {
+                        result.get();
+                    } catch (final ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause() instanceof LogException logException ? logException : new LogException(e.getCause().getMessage(), e.getCause());
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            redone += batched;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LogException("Interrupted whilst redoing journal entries", e);
+        } finally {
+            batch.clear();
+            batched = 0;
+        }
+    }
+
+    /**
+     * Returns the number of journal entries redone so far.
+     *
+     * @return the number of redone entries
+     */
+    long getRedone() {
+        return redone;
+    }
+
+    private static void redoEntries(final List<Loggable> entries) throws LogException {
+        for (final Loggable entry : entries) {
+            redoEntry(entry);
+        }
+    }
+
+    private static void redoEntry(final Loggable entry) throws LogException {
+        try {
+            entry.redo();
+        } catch (final LogException | RuntimeException e) {
+            throw new LogException("Failed to redo log entry: " + entry.dump() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
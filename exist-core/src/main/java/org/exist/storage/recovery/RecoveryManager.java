@@ -61,12 +61,24 @@ public class RecoveryManager {
     private final DBBroker broker;
     private final JournalRecoveryAccessor journalRecovery;
     private final boolean restartOnError;
+    private final int redoThreads;
     private final boolean hideProgressBar;
 
     public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError) {
+        this(broker, journalManager, restartOnError, 1);
+    }
+
+    /**
+     * @param broker the database broker
+     * @param journalManager the journal manager
+     * @param restartOnError true if the database should start up even if recovery fails
+     * @param redoThreads the number of threads used for redoing the journal, 1 redoes sequentially
+     */
+    public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError, final int redoThreads) {
         this.broker = broker;
         this.journalRecovery = journalManager.getRecoveryAccessor(this);
         this.restartOnError = restartOnError;
+        this.redoThreads = Math.max(1, redoThreads);
         this.hideProgressBar = Boolean.getBoolean("exist.recovery.progressbar.hide");
 	}
 
@@ -261,12 +273,14 @@ public class RecoveryManager {
             // ------- REDO ---------
             if (LOG.isInfoEnabled())
                 {
-                    LOG.info("First pass: redoing {} transactions...", txnCount);}
+                    LOG.info("First pass: redoing {} transactions using {} thread(s)...", txnCount, redoThreads);}
             Loggable next = null;
             int redoCnt = 0;
-            try {
+            final long redoStart = System.currentTimeMillis();
+            try (final ParallelRedo redo = new ParallelRedo(broker.getBrokerPool(), redoThreads, ParallelRedo.DEFAULT_BATCH_SIZE)) {
                 final long lastSize = FileUtils.sizeQuietly(last);
                 @Nullable final ProgressBar redoProgressBar = hideProgressBar ? null : new ProgressBar("Redo ", lastSize);
+                int lastReportedPercent = 0;
                 while ((next = reader.nextEntry()) != null) {
                     SanityCheck.ASSERT(next.getLogType() != LogEntryTypes.CHECKPOINT,
                             "Found a checkpoint during recovery run! This should not ever happen.");
@@ -282,28 +296,44 @@ public class RecoveryManager {
                         runningTxns.remove(next.getTransactionId());
                     }
         //            LOG.debug("Redo: " + next.dump());
-                    // redo the log entry
-                    next.redo();
+                    // redo the log entry, possibly concurrently with entries of other files
+                    redo.redo(next);
 
                     if (redoProgressBar != null) {
                         redoProgressBar.set(next.getLsn().getOffset());
                     }
 
+                    if (lastSize > 0) {
+                        final int percent = (int) (next.getLsn().getOffset() * 100 / lastSize);
+                        if (percent >= lastReportedPercent + 10) {
+                            lastReportedPercent = percent;
+                            broker.getBrokerPool().reportStatus("Running recovery: redo " + percent + "%");
+                        }
+                    }
+
                     if (next.getLsn().equals(lastLsn)) {
                         // last readable entry reached. Stop here.
                         break;
                     }
                 }
 
+                redo.flush();
+
                 if (redoProgressBar != null) {
                     redoProgressBar.set(lastSize);  // 100% done
                 }
+
+                if (LOG.isInfoEnabled()) {
+                    final long redoTime = System.currentTimeMillis() - redoStart;
+                    LOG.info("Redo of {} log entries took {} ms ({} entries/s).", redo.getRedone(), redoTime,
+                            redoTime == 0 ? redo.getRedone() : redo.getRedone() * 1000 / redoTime);
+                }
             } catch (final Exception e) {
                 LOG.error("Exception caught while redoing transactions. Aborting recovery to avoid possible damage. " +
                     "Before starting again, make sure to run a check via the emergency export tool.", e);
                 if (next != null)
                     {
-                        LOG.info("Log entry that caused the exception: {}", next.dump());}
+                        LOG.info("Last log entry read before the exception: {}", next.dump());}
                 throw new LogException("Recovery aborted. ");
             } finally {
                 LOG.info("Redo processed {} out of {} transactions.", redoCnt, txnCount);
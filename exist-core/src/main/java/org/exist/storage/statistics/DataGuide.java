@@ -116,6 +116,17 @@ public class DataGuide {
         return temp.getMaxDepth();
     }
 
+    /**
+     * Returns the number of elements with the given name, summed up over
+     * all paths on which the name occurs.
+     *
+     * @param qname the element name
+     * @return the number of elements in the data guide, 0 if the name is unknown
+     */
+    public long getNodeCount(QName qname) {
+        return root.getNodeCount(qname);
+    }
+
     public String toString() {
         final List<StringBuilder> paths = new ArrayList<>();
         root.dump(new StringBuilder(), paths);
@@ -70,6 +70,14 @@ public class IndexStatistics extends AbstractIndex implements RawBackupSupport {
         return dataGuide.getMaxParentDepth(qname);
     }
 
+    public long getNodeCount(QName qname) {
+        return dataGuide.getNodeCount(qname);
+    }
+
+    public boolean isEmpty() {
+        return dataGuide.getSize() == 0;
+    }
+
     protected void mergeStats(DataGuide other) {
         dataGuide = other.mergeInto(dataGuide);
     }
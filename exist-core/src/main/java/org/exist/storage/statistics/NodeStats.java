@@ -137,6 +137,20 @@ class NodeStats {
         }
     }
 
+    protected long getNodeCount(QName name) {
+        long count = qname != null && qname.equals(name) ? nodeCount : 0;
+        // the array may be replaced concurrently while statistics are merged
+        final NodeStats[] current = children;
+        if (current != null) {
+            for (final NodeStats child : current) {
+                if (child != null) {
+                    count += child.getNodeCount(name);
+                }
+            }
+        }
+        return count;
+    }
+
     protected void write(ByteBuffer buffer, SymbolTable symbols) {
         buffer.putShort(symbols.getNSSymbol(qname.getNamespaceURI()));
         buffer.putShort(symbols.getSymbol(qname.getLocalPart()));
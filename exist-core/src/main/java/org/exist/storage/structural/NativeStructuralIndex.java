@@ -26,6 +26,9 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.concurrent.locks.ReentrantLock;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.jcip.annotations.GuardedBy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.backup.RawDataBackup;
@@ -36,14 +39,20 @@ import org.exist.indexing.RawBackupSupport;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.DBBroker;
 import org.exist.storage.btree.DBException;
+import org.exist.storage.btree.IndexQuery;
+import org.exist.storage.btree.Value;
 import org.exist.storage.index.BTreeStore;
 import org.exist.storage.lock.LockManager;
 import org.exist.storage.lock.ManagedLock;
+import org.exist.util.ByteConversion;
+import org.exist.util.CompressedBitmap;
 import org.exist.util.DatabaseConfigurationException;
 import org.exist.util.FileUtils;
 import org.exist.util.LockException;
 import org.w3c.dom.Element;
 
+import javax.annotation.Nullable;
+
 public class NativeStructuralIndex extends AbstractIndex implements RawBackupSupport {
 
     protected static final Logger LOG = LogManager.getLogger(NativeStructuralIndex.class);
@@ -54,9 +63,20 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
 
     public static final byte STRUCTURAL_INDEX_ID = 1;
 
+    /** The first byte of the keys listing the names in a document: [2, documentId, type, qname] */
+    static final byte DOC_KEY_TYPE = 2;
+
     /** The datastore for this node index */
     protected BTreeStore btree;
 
+    /**
+     * For each node type and name, the ids of the documents containing such nodes. The map
+     * is built from the document keys of the btree when it is first needed, and updated
+     * together with the btree. It may contain documents which no longer contain the name.
+     */
+    @GuardedBy("btree#getLockName()")
+    private volatile Long2ObjectMap<CompressedBitmap> documentsByName = null;
+
     protected LockManager lockManager;
     protected SymbolTable symbols;
 
@@ -88,6 +108,7 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
     public void close() throws DBException {
         btree.close();
         btree = null;
+        documentsByName = null;
     }
 
     @Override
@@ -109,6 +130,94 @@ public class NativeStructuralIndex extends AbstractIndex implements RawBackupSup
     @Override
     public void remove() throws DBException {
         btree.closeAndRemove();
+        documentsByName = null;
+    }
+
+    /**
+     * Get a key for a node type and name, as used by {@link #getDocuments(long)}.
+     *
+     * @param key a btree key containing the type, followed by the local name and namespace symbols
+     * @param offset the offset of the type in the key
+     * @return the key of the name
+     */
+    static long nameKey(final byte[] key, final int offset) {
+        return ((long) (key[offset] & 0xFF) << 32) | (ByteConversion.byteToIntH(key, offset + 1) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the ids of the documents containing nodes of a type and name. Must be called while
+     * holding a lock on the btree.
+     *
+     * @param name the type and name, see {@link #nameKey(byte[], int)}
+     * @return the document ids, or null if they could not be read from the btree
+     */
+    @Nullable CompressedBitmap getDocuments(final long name) {
+        Long2ObjectMap<CompressedBitmap> documents = documentsByName;
+        if (documents == null) {
+            synchronized (this) {
+                documents = documentsByName;
+                if (documents == null) {
+                    documents = readDocuments();
+                    if (documents == null) {
+                        return null;
+                    }
+                    documentsByName = documents;
+                }
+            }
+        }
+        final CompressedBitmap bitmap = documents.get(name);
+        return bitmap == null ? new CompressedBitmap() : bitmap;
+    }
+
+    private @Nullable Long2ObjectMap<CompressedBitmap> readDocuments() {
+        final Long2ObjectMap<CompressedBitmap> documents = new Long2ObjectOpenHashMap<>();
+        final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(new byte[] { DOC_KEY_TYPE }));
+        try {
+            btree.query(query, (value, pointer) -> {
+                final byte[] key = value.getData();
+                documents.computeIfAbsent(nameKey(key, 5), name -> new CompressedBitmap()).add(ByteConversion.byteToIntH(key, 1));
+                return true;
+            });
+        } catch (final Exception e) {
+            LOG.error("Failed to read the documents of the structural index: {}", e.getMessage(), e);
+            return null;
+        }
+        LOG.debug("Read the documents of {} names from the structural index", documents.size());
+        return documents;
+    }
+
+    /**
+     * Record that a document contains nodes of a type and name. Must be called while holding
+     * the write lock on the btree.
+     *
+     * @param name the type and name, see {@link #nameKey(byte[], int)}
+     * @param documentId the id of the document
+     */
+    void addDocument(final long name, final int documentId) {
+        final Long2ObjectMap<CompressedBitmap> documents = documentsByName;
+        if (documents != null) {
+            documents.computeIfAbsent(name, key -> new CompressedBitmap()).add(documentId);
+        }
+    }
+
+    /**
+     * Record that a document no longer contains nodes of a type and name. Must be called while
+     * holding the write lock on the btree.
+     *
+     * @param name the type and name, see {@link #nameKey(byte[], int)}
+     * @param documentId the id of the document
+     */
+    void removeDocument(final long name, final int documentId) {
+        final Long2ObjectMap<CompressedBitmap> documents = documentsByName;
+        if (documents != null) {
+            final CompressedBitmap bitmap = documents.get(name);
+            if (bitmap != null) {
+                bitmap.remove(documentId);
+                if (bitmap.isEmpty()) {
+                    documents.remove(name);
+                }
+            }
+        }
     }
 
     @Override
@@ -48,6 +48,7 @@ import org.exist.storage.btree.Value;
 import org.exist.storage.lock.ManagedLock;
 import org.exist.storage.txn.Txn;
 import org.exist.util.ByteConversion;
+import org.exist.util.CompressedBitmap;
 import org.exist.util.DatabaseConfigurationException;
 import org.exist.util.LockException;
 import org.exist.util.Occurrences;
@@ -57,6 +58,7 @@ import org.w3c.dom.NodeList;
 
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.exist.security.PermissionDeniedException;
 
@@ -112,12 +114,12 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final FindElementsCallback callback = new FindElementsCallback(type, qname, result, docs, selector, parent);
 
         // for each document id range, scan the index to find matches
-        for (final Range range : getDocIdRanges(docs)) {
+        for (final Range range : getDocIdRanges(type, qname, docs)) {
             final byte[] fromKey = computeKey(type, qname, range.start);
             final byte[] toKey = computeKey(type, qname, range.end + 1);
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
                 index.btree.query(query, callback);
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: {}", e.getMessage(), e);
@@ -130,6 +132,31 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         return result;
     }
 
+    @Override
+    public long countElementsByTagName(final byte type, final DocumentSet docs, final QName qname, final long max,
+            final Expression parent) throws TerminatedException {
+        final CountElementsCallback callback = new CountElementsCallback(docs, max, parent);
+
+        for (final Range range : getDocIdRanges(type, qname, docs)) {
+            final byte[] fromKey = computeKey(type, qname, range.start);
+            final byte[] toKey = computeKey(type, qname, range.end + 1);
+            final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
+
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
+                index.btree.query(query, callback);
+            } catch (final LimitReachedException e) {
+                break;
+            } catch (final LockException e) {
+                NativeStructuralIndex.LOG.warn("Lock problem while counting structural index entries: {}", e.getMessage(), e);
+            } catch (final TerminatedException e) {
+                throw e;
+            } catch (final Exception e) {
+                NativeStructuralIndex.LOG.error("Error while counting structural index entries: {}", e.getMessage(), e);
+            }
+        }
+        return callback.count;
+    }
+
     /**
      * Scan the document set to find document id ranges to query
      *
@@ -157,6 +184,61 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         return ranges;
     }
 
+    /**
+     * Find the document id ranges to query for nodes of a type and name. Only the documents
+     * containing such nodes are queried, so a range may span documents which are not in the
+     * document set, as long as they do not contain the name.
+     *
+     * @param type the type of the nodes
+     * @param qname the name of the nodes
+     * @param docs the document set
+     * @return List of document id ranges, in ascending order
+     */
+    private List<Range> getDocIdRanges(final byte type, final QName qname, final DocumentSet docs) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
+            final CompressedBitmap named = index.getDocuments(nameKey(type, qname));
+            if (named != null) {
+                return getDocIdRanges(docs, named);
+            }
+        } catch (final LockException e) {
+            NativeStructuralIndex.LOG.warn("Lock problem while reading structural index: {}", e.getMessage(), e);
+        }
+        return getDocIdRanges(docs);
+    }
+
+    /**
+     * Intersect the document set with the documents containing a name, and find the
+     * ranges of document ids to query.
+     *
+     * @param docs the document set
+     * @param named the ids of the documents containing the name
+     * @return List of document id ranges, in ascending order
+     */
+    List<Range> getDocIdRanges(final DocumentSet docs, final CompressedBitmap named) {
+        final CompressedBitmap docIds = new CompressedBitmap();
+        for (final Iterator<DocumentImpl> i = docs.getDocumentIterator(); i.hasNext(); ) {
+            docIds.add(i.next().getDocId());
+        }
+
+        final List<Range> ranges = new ArrayList<>();
+        final Range[] next = new Range[1];
+        docIds.and(named).forEach(docId -> {
+            // extend the range if no other document containing the name lies in between
+            if (next[0] != null && named.next(next[0].end + 1) == docId) {
+                next[0].end = docId;
+            } else {
+                if (next[0] != null) {
+                    ranges.add(next[0]);
+                }
+                next[0] = new Range(docId);
+            }
+        });
+        if (next[0] != null) {
+            ranges.add(next[0]);
+        }
+        return ranges;
+    }
+
     /**
      * Internal helper class used by
      * {@link NativeStructuralIndexWorker#findElementsByTagName(byte, org.exist.dom.persistent.DocumentSet, org.exist.dom.QName, org.exist.xquery.NodeSelector)}.
@@ -194,9 +276,14 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet, int contextId, Expression parent) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
         final FindDescendantsCallback callback = new FindDescendantsCallback(type, axis, qname, contextId, result, parent);
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
+            final CompressedBitmap named = index.getDocuments(nameKey(type, qname));
             for (final NodeProxy ancestor : contextSet) {
                 final DocumentImpl doc = ancestor.getOwnerDocument();
+                if (named != null && !named.contains(doc.getDocId())) {
+                    // the document does not contain the name
+                    continue;
+                }
                 final NodeId ancestorId = ancestor.getNodeId();
                 callback.setAncestor(doc, ancestor);
                 final byte[] fromKey;
@@ -225,7 +312,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findAncestorsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet,
                                           int contextId) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
             for (final NodeProxy descendant : contextSet) {
                 NodeId parentId;
                 if (axis == Constants.ANCESTOR_SELF_AXIS || axis == Constants.SELF_AXIS)
@@ -271,7 +358,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final DocumentImpl doc = ancestor.getOwnerDocument();
             final NodeId ancestorId = ancestor.getNodeId();
             final List<QName> qnames = getQNamesForDoc(doc);
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
 	            for (final QName qname : qnames) {
 	            	if (test.getName() == null || test.matches(qname)) {
 	            		callback.setAncestor(doc, ancestor);
@@ -351,6 +438,43 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         }
     }
 
+    /**
+     * Counts index entries instead of collecting them. The btree does not stop
+     * when a callback returns false, so the scan is unwound with
+     * {@link LimitReachedException} once enough entries have been seen.
+     */
+    private class CountElementsCallback implements BTreeCallback {
+        final DocumentSet docs;
+        final long max;
+        final Expression parent;
+        long count = 0;
+
+        CountElementsCallback(final DocumentSet docs, final long max, final Expression parent) {
+            this.docs = docs;
+            this.max = max;
+            this.parent = parent;
+        }
+
+        @Override
+        public boolean indexInfo(final Value value, final long pointer) throws TerminatedException {
+            if (parent != null) {
+                parent.getContext().proceed(parent);
+            }
+            if (docs.getDoc(readDocId(value.getData())) != null && ++count >= max) {
+                throw new LimitReachedException();
+            }
+            return true;
+        }
+    }
+
+    private static final class LimitReachedException extends TerminatedException {
+        private static final long serialVersionUID = -2740367457466473342L;
+
+        LimitReachedException() {
+            super("structural index count limit reached");
+        }
+    }
+
     private class FindDescendantsCallback implements BTreeCallback {
         int axis;
         byte type;
@@ -520,6 +644,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
             try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                 index.btree.remove(query, null);
+                index.removeDocument(NativeStructuralIndex.nameKey(fromKey, 0), docToRemove.getDocId());
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Failed to lock structural index: {}", e.getMessage(), e);
             } catch (final Exception e) {
@@ -549,7 +674,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final byte[] fromKey = computeDocKey(doc.getDocId());
         final byte[] toKey = computeDocKey(doc.getDocId() + 1);
         final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
             index.btree.query(query, (value, pointer) -> {
                 final QName qname = readQName(value.getData());
                 qnames.add(qname);
@@ -605,7 +730,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
                 final byte[] toKey = computeKey(qname.getNameType(), qname, doc.getDocId() + 1);
                 final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
                     index.btree.query(query, (value, pointer) -> {
                         Occurrences oc = occurrences.get(name);
                         if (oc == null) {
@@ -675,6 +800,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
                     final Value docKey = new Value(computeDocKey(qname.getNameType(), document.getDocId(), qname));
                     if (index.btree.findValue(docKey) == -1) {
                         index.btree.addValue(docKey, 0);
+                        index.addDocument(NativeStructuralIndex.nameKey(docKey.getData(), 5), document.getDocId());
                     }
                 } catch (final LockException e) {
                     NativeStructuralIndex.LOG.warn("Failed to lock structural index: {}", e.getMessage(), e);
@@ -724,13 +850,17 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         return data;
     }
     
+    private long nameKey(byte type, QName qname) {
+        return NativeStructuralIndex.nameKey(computeKey(type, qname, 0), 0);
+    }
+
     private byte[] computeDocKey(byte type, int documentId, QName qname) {
         final SymbolTable symbols = index.getBrokerPool().getSymbols();
         final short sym = symbols.getSymbol(qname.getLocalPart());
         final short nsSym = symbols.getNSSymbol(qname.getNamespaceURI());
         final byte[] data = new byte[10];
 
-        data[0] = 2;
+        data[0] = NativeStructuralIndex.DOC_KEY_TYPE;
         ByteConversion.intToByteH(documentId, data, 1);
         data[5] = type;
         ByteConversion.shortToByteH(sym, data, 6);
@@ -741,7 +871,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     private byte[] computeDocKey(int documentId) {
         final byte[] data = new byte[5];
 
-        data[0] = 2;
+        data[0] = NativeStructuralIndex.DOC_KEY_TYPE;
         ByteConversion.intToByteH(documentId, data, 1);
         return data;
     }
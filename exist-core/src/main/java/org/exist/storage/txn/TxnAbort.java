@@ -50,6 +50,11 @@ public class TxnAbort extends AbstractLoggable {
         return 0;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return REDO_NONE;
+    }
+
     @Override
     public String dump() {
         return super.dump() + " - transaction " + transactionId + " aborted.";
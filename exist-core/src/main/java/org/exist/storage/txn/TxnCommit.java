@@ -53,6 +53,11 @@ public class TxnCommit extends AbstractLoggable {
         return 0;
     }
 
+    @Override
+    public int getRedoPartition() {
+        return REDO_NONE;
+    }
+
     @Override
     public String dump() {
         return super.dump() + " - transaction " + transactionId + " committed.";
@@ -88,6 +88,17 @@ public class ExistXmldbEmbeddedServer extends ExternalResource {
         this.asGuest = asGuest;
     }
 
+    /**
+     * @param asGuest Use the guest account, default is the admin account
+     * @param disableAutoDeploy Whether auto-deployment of XARs should be disabled
+     * @param useTemporaryStorage Whether the data and journal folder should use temporary storage
+     * @param configProperties Properties which override those of eXist-db's configuration
+     */
+    public ExistXmldbEmbeddedServer(final boolean asGuest, final boolean disableAutoDeploy, final boolean useTemporaryStorage, final Properties configProperties) {
+        this.existEmbeddedServer = new ExistEmbeddedServer(configProperties, disableAutoDeploy, useTemporaryStorage);
+        this.asGuest = asGuest;
+    }
+
     /**
      * @param asGuest Use the guest account, default is the admin account
      * @param disableAutoDeploy Whether auto-deployment of XARs should be disabled
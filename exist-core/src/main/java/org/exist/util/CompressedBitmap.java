@@ -0,0 +1,489 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed bitmap of non-negative ints, e.g. document ids, following the
+ * design of Roaring bitmaps: the values are grouped by their high 16 bits, and
+ * the low 16 bits of each group are stored either as a sorted array, if the
+ * group is sparse, or as a plain bitmap of 65536 bits, if it is dense. A group
+ * thus never takes more than 8 KB, and bitwise operations work on whole groups.
+ *
+ * The class is not thread safe.
+ */
+public class CompressedBitmap {
+
+    /**
+     * Groups with more values are stored as a bitmap.
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size = 0;
+
+    public CompressedBitmap() {
+    }
+
+    private CompressedBitmap(final int capacity) {
+        this.keys = new char[Math.max(capacity, 1)];
+        this.containers = new Container[Math.max(capacity, 1)];
+    }
+
+    public void add(final int value) {
+        final char high = (char) (value >>> 16);
+        final int i = Arrays.binarySearch(keys, 0, size, high);
+        if (i >= 0) {
+            containers[i] = containers[i].add((char) value);
+        } else {
+            insert(-(i + 1), high, new ArrayContainer().add((char) value));
+        }
+    }
+
+    public void remove(final int value) {
+        final int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (i >= 0) {
+            final Container container = containers[i].remove((char) value);
+            if (container == null) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+                containers[--size] = null;
+            } else {
+                containers[i] = container;
+            }
+        }
+    }
+
+    public boolean contains(final int value) {
+        final int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * Get the smallest value of the bitmap which is greater than or equal to <code>from</code>.
+     *
+     * @param from the value to start from
+     * @return the value, or -1 if there is none
+     */
+    public int next(final int from) {
+        if (from < 0) {
+            return size == 0 ? -1 : first(0);
+        }
+        int i = Arrays.binarySearch(keys, 0, size, (char) (from >>> 16));
+        if (i >= 0) {
+            final int low = containers[i].next(from & 0xFFFF);
+            if (low >= 0) {
+                return (keys[i] << 16) | low;
+            }
+            i++;
+        } else {
+            i = -(i + 1);
+        }
+        return i < size ? first(i) : -1;
+    }
+
+    private int first(final int i) {
+        return (keys[i] << 16) | containers[i].next(0);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Report all values of the bitmap in ascending order.
+     *
+     * @param consumer receives the values
+     */
+    public void forEach(final IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    /**
+     * Intersect this bitmap with another one.
+     *
+     * @param other the other bitmap
+     * @return a new bitmap with the values contained in both bitmaps
+     */
+    public CompressedBitmap and(final CompressedBitmap other) {
+        final CompressedBitmap result = new CompressedBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                final Container container = containers[i].and(other.containers[j]);
+                if (container != null) {
+                    result.insert(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Unite this bitmap with another one.
+     *
+     * @param other the other bitmap
+     * @return a new bitmap with the values contained in either bitmap
+     */
+    public CompressedBitmap or(final CompressedBitmap other) {
+        final CompressedBitmap result = new CompressedBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insert(result.size, keys[i], containers[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.insert(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.insert(result.size, keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private void insert(final int i, final char key, final Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    /**
+     * The low 16 bits of a group of values. Operations which change the
+     * representation return the new container, {@link #remove(char)} returns
+     * null if the container is empty afterwards.
+     */
+    private abstract static class Container {
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        /**
+         * @return the smallest value &gt;= from, or -1
+         */
+        abstract int next(int from);
+
+        abstract int cardinality();
+
+        /**
+         * @return the intersection, or null if it is empty
+         */
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract void forEach(int high, IntConsumer consumer);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(final char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+            i = -(i + 1);
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), MAX_ARRAY_SIZE));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return cardinality == 0 ? null : this;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int next(final int from) {
+            int i = Arrays.binarySearch(values, 0, cardinality, (char) from);
+            if (i < 0) {
+                i = -(i + 1);
+            }
+            return i < cardinality ? values[i] : -1;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(final Container other) {
+            final char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (!(other instanceof ArrayContainer array)) {
+                return other.or(this);
+            }
+            final char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            final ArrayContainer union = new ArrayContainer(result, count);
+            return count > MAX_ARRAY_SIZE ? union.toBitmap() : union;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        void forEach(final int high, final IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(final char value) {
+            final long word = words[value >>> 6];
+            final long bit = 1L << value;
+            if ((word & bit) == 0) {
+                words[value >>> 6] = word | bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final long word = words[value >>> 6];
+            final long bit = 1L << value;
+            if ((word & bit) != 0) {
+                words[value >>> 6] = word & ~bit;
+                cardinality--;
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            return cardinality <= MAX_ARRAY_SIZE ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int next(final int from) {
+            int i = from >>> 6;
+            long word = words[i] & (-1L << from);
+            while (word == 0) {
+                if (++i == words.length) {
+                    return -1;
+                }
+                word = words[i];
+            }
+            return (i << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(final Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            final long[] otherWords = ((BitmapContainer) other).words;
+            final long[] result = new long[words.length];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            if (count == 0) {
+                return null;
+            }
+            final BitmapContainer intersection = new BitmapContainer(result, count);
+            return count <= MAX_ARRAY_SIZE ? intersection.toArray() : intersection;
+        }
+
+        @Override
+        Container or(final Container other) {
+            final BitmapContainer union = (BitmapContainer) copy();
+            if (other instanceof BitmapContainer bitmap) {
+                int count = 0;
+                for (int i = 0; i < words.length; i++) {
+                    union.words[i] |= bitmap.words[i];
+                    count += Long.bitCount(union.words[i]);
+                }
+                union.cardinality = count;
+            } else {
+                other.forEach(0, value -> union.add((char) value));
+            }
+            return union;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        void forEach(final int high, final IntConsumer consumer) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | ((i << 6) + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray() {
+            final char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
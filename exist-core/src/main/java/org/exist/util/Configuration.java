@@ -58,7 +58,9 @@ import org.exist.storage.DBBroker;
 import org.exist.storage.DefaultCacheManager;
 import org.exist.storage.IndexSpec;
 import org.exist.storage.NativeBroker;
+import org.exist.storage.QueryResultCache;
 import org.exist.storage.XQueryPool;
+import org.exist.storage.btree.PageIO;
 import org.exist.storage.serializers.CustomMatchListenerFactory;
 import org.exist.storage.serializers.Serializer;
 import org.exist.validation.GrammarPool;
@@ -134,6 +136,8 @@ import static org.exist.storage.BrokerPoolConstants.PROPERTY_STARTUP_TRIGGERS;
 import static org.exist.storage.BrokerPoolConstants.PROPERTY_SYNC_PERIOD;
 import static org.exist.storage.BrokerPoolConstants.RECOVERY_ENABLED_ATTRIBUTE;
 import static org.exist.storage.BrokerPoolConstants.RECOVERY_FORCE_RESTART_ATTRIBUTE;
+import static org.exist.storage.BrokerPoolConstants.PROPERTY_RECOVERY_REDO_THREADS;
+import static org.exist.storage.BrokerPoolConstants.RECOVERY_REDO_THREADS_ATTRIBUTE;
 import static org.exist.storage.BrokerPoolConstants.RECOVERY_GROUP_COMMIT_ATTRIBUTE;
 import static org.exist.storage.BrokerPoolConstants.RECOVERY_POST_RECOVERY_CHECK;
 import static org.exist.storage.BrokerPoolConstants.SHUTDOWN_DELAY_ATTRIBUTE;
@@ -150,20 +154,28 @@ import static org.exist.storage.DBBroker.XUPDATE_FRAGMENTATION_FACTOR_ATTRIBUTE;
 import static org.exist.storage.DefaultCacheManager.CACHE_CHECK_MAX_SIZE_ATTRIBUTE;
 import static org.exist.storage.DefaultCacheManager.CACHE_SIZE_ATTRIBUTE;
 import static org.exist.storage.DefaultCacheManager.DEFAULT_CACHE_CHECK_MAX_SIZE_STRING;
+import static org.exist.storage.DefaultCacheManager.OFF_HEAP_CACHE_SIZE_ATTRIBUTE;
 import static org.exist.storage.DefaultCacheManager.PROPERTY_CACHE_CHECK_MAX_SIZE;
 import static org.exist.storage.DefaultCacheManager.PROPERTY_CACHE_SIZE;
+import static org.exist.storage.DefaultCacheManager.PROPERTY_OFF_HEAP_CACHE_SIZE;
 import static org.exist.storage.DefaultCacheManager.SHRINK_THRESHOLD_ATTRIBUTE;
 import static org.exist.storage.DefaultCacheManager.SHRINK_THRESHOLD_PROPERTY;
 import static org.exist.storage.NativeBroker.INDEX_DEPTH_ATTRIBUTE;
 import static org.exist.storage.NativeBroker.PROPERTY_INDEX_DEPTH;
 import static org.exist.storage.NativeValueIndex.INDEX_CASE_SENSITIVE_ATTRIBUTE;
 import static org.exist.storage.NativeValueIndex.PROPERTY_INDEX_CASE_SENSITIVE;
+import static org.exist.storage.NativeValueIndex.INDEX_REGEX_TRIGRAMS_ATTRIBUTE;
+import static org.exist.storage.NativeValueIndex.PROPERTY_INDEX_REGEX_TRIGRAMS;
 import static org.exist.storage.XQueryPool.MAX_STACK_SIZE_ATTRIBUTE;
 import static org.exist.storage.XQueryPool.POOL_SIZE_ATTTRIBUTE;
 import static org.exist.storage.XQueryPool.PROPERTY_MAX_STACK_SIZE;
+import static org.exist.storage.journal.Journal.PROPERTY_RECOVERY_GROUP_COMMIT_SIZE;
+import static org.exist.storage.journal.Journal.PROPERTY_RECOVERY_GROUP_COMMIT_WINDOW;
 import static org.exist.storage.journal.Journal.PROPERTY_RECOVERY_JOURNAL_DIR;
 import static org.exist.storage.journal.Journal.PROPERTY_RECOVERY_SIZE_LIMIT;
 import static org.exist.storage.journal.Journal.PROPERTY_RECOVERY_SYNC_ON_COMMIT;
+import static org.exist.storage.journal.Journal.RECOVERY_GROUP_COMMIT_SIZE_ATTRIBUTE;
+import static org.exist.storage.journal.Journal.RECOVERY_GROUP_COMMIT_WINDOW_ATTRIBUTE;
 import static org.exist.storage.journal.Journal.RECOVERY_JOURNAL_DIR_ATTRIBUTE;
 import static org.exist.storage.journal.Journal.RECOVERY_SIZE_LIMIT_ATTRIBUTE;
 import static org.exist.storage.journal.Journal.RECOVERY_SYNC_ON_COMMIT_ATTRIBUTE;
@@ -215,9 +227,12 @@ import static org.exist.xquery.XQueryContext.PROPERTY_BUILT_IN_MODULES;
 import static org.exist.xquery.XQueryContext.PROPERTY_ENABLE_QUERY_REWRITING;
 import static org.exist.xquery.XQueryContext.PROPERTY_ENFORCE_INDEX_USE;
 import static org.exist.xquery.XQueryContext.PROPERTY_MODULE_PARAMETERS;
+import static org.exist.xquery.XQueryContext.PROPERTY_SPILL_THRESHOLD;
 import static org.exist.xquery.XQueryContext.PROPERTY_STATIC_MODULE_MAP;
 import static org.exist.xquery.XQueryContext.PROPERTY_XQUERY_BACKWARD_COMPATIBLE;
 import static org.exist.xquery.XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL;
+import static org.exist.xquery.XQueryContext.SPILL_THRESHOLD_ATTRIBUTE;
+import static org.exist.xquery.XQueryContext.SPILL_THRESHOLD_DEFAULT;
 import static org.exist.xquery.XQueryContext.XQUERY_BACKWARD_COMPATIBLE_ATTRIBUTE;
 import static org.exist.xquery.XQueryContext.XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_ATTRIBUTE;
 import static org.exist.xquery.XQueryContext.XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT;
@@ -525,6 +540,7 @@ public class Configuration implements ErrorHandler {
         configureProperty(xquery, ENFORCE_INDEX_USE_ATTRIBUTE, PROPERTY_ENFORCE_INDEX_USE);
         configureProperty(xquery, XQUERY_BACKWARD_COMPATIBLE_ATTRIBUTE, PROPERTY_XQUERY_BACKWARD_COMPATIBLE);
         configureProperty(xquery, XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_ATTRIBUTE, PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL, Configuration::asBoolean, XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT);
+        configureProperty(xquery, SPILL_THRESHOLD_ATTRIBUTE, PROPERTY_SPILL_THRESHOLD, Configuration::asInteger, SPILL_THRESHOLD_DEFAULT);
         configureProperty(xquery, PerformanceStats.CONFIG_ATTR_TRACE, PerformanceStats.CONFIG_PROPERTY_TRACE);
 
         // built-in-modules
@@ -921,6 +937,21 @@ public class Configuration implements ErrorHandler {
             }
         }
 
+        String offHeapCacheMem = getConfigAttributeValue(con, OFF_HEAP_CACHE_SIZE_ATTRIBUTE);
+
+        if (offHeapCacheMem != null) {
+
+            if (offHeapCacheMem.endsWith("M") || offHeapCacheMem.endsWith("m")) {
+                offHeapCacheMem = offHeapCacheMem.substring(0, offHeapCacheMem.length() - 1);
+            }
+
+            try {
+                setProperty(PROPERTY_OFF_HEAP_CACHE_SIZE, Integer.valueOf(offHeapCacheMem));
+            } catch (final NumberFormatException nfe) {
+                LOG.warn(CANNOT_CONVERT_VALUE_TO_INTEGER, PROPERTY_OFF_HEAP_CACHE_SIZE, offHeapCacheMem, nfe);
+            }
+        }
+
         // Process the Check Max Cache value
 
         String checkMaxCache = getConfigAttributeValue(con, CACHE_CHECK_MAX_SIZE_ATTRIBUTE);
@@ -1009,14 +1040,49 @@ public class Configuration implements ErrorHandler {
 
         configureElement(con, BrokerPoolConstants.CONFIGURATION_POOL_ELEMENT_NAME, this::configurePool);
         configureElement(con, XQueryPool.CONFIGURATION_ELEMENT_NAME, this::configureXQueryPool);
+        configureElement(con, QueryResultCache.CONFIGURATION_ELEMENT_NAME, this::configureQueryResultCache);
         configureElement(con, XQueryWatchDog.CONFIGURATION_ELEMENT_NAME, this::configureWatchdog);
         configureElement(con, BrokerPoolConstants.CONFIGURATION_RECOVERY_ELEMENT_NAME, element -> configureRecovery(dbHome, element));
+        configureElement(con, PageIO.CONFIGURATION_ELEMENT_NAME, this::configurePageIO);
+    }
+
+    private void configurePageIO(final Element pageIO) {
+        configureProperty(pageIO, PageIO.MODE_ATTRIBUTE, PageIO.PROPERTY_PAGE_IO_MODE, Configuration::asPageIOMode, PageIO.Mode.RANDOM_ACCESS);
+
+        final Map<String, PageIO.Mode> fileModes = new HashMap<>();
+        final NodeList files = pageIO.getElementsByTagName(PageIO.CONFIGURATION_FILE_ELEMENT_NAME);
+        for (int i = 0; i < files.getLength(); i++) {
+            final Element file = (Element) files.item(i);
+            final String fileName = file.getAttribute(PageIO.FILE_NAME_ATTRIBUTE);
+            final PageIO.Mode mode = asPageIOMode(file.getAttribute(PageIO.MODE_ATTRIBUTE));
+            if (!fileName.isEmpty() && mode != null) {
+                fileModes.put(fileName, mode);
+            }
+        }
+        if (!fileModes.isEmpty()) {
+            setProperty(PageIO.PROPERTY_PAGE_IO_FILE_MODES, fileModes);
+        }
+    }
+
+    @Nullable
+    private static PageIO.Mode asPageIOMode(@Nullable final String value) {
+        // a missing mode falls back to the default without a warning
+        if (value != null && !value.isEmpty()) {
+            final PageIO.Mode mode = PageIO.Mode.fromConfigName(value);
+            if (mode == null) {
+                LOG.warn("Unknown page-io mode: {}, expected one of: raf, channel, mmap", value);
+            }
+            return mode;
+        }
+        return null;
     }
 
     private void configureRecovery(final Optional<Path> dbHome, final Element recovery) throws DatabaseConfigurationException {
         configureProperty(recovery, RECOVERY_ENABLED_ATTRIBUTE, PROPERTY_RECOVERY_ENABLED, Configuration::asBoolean, TRUE);
         configureProperty(recovery, RECOVERY_SYNC_ON_COMMIT_ATTRIBUTE, PROPERTY_RECOVERY_SYNC_ON_COMMIT, Configuration::asBoolean, TRUE);
         configureProperty(recovery, RECOVERY_GROUP_COMMIT_ATTRIBUTE, PROPERTY_RECOVERY_GROUP_COMMIT, Configuration::asBoolean, FALSE);
+        configureProperty(recovery, RECOVERY_GROUP_COMMIT_WINDOW_ATTRIBUTE, PROPERTY_RECOVERY_GROUP_COMMIT_WINDOW, Configuration::asInteger, null);
+        configureProperty(recovery, RECOVERY_GROUP_COMMIT_SIZE_ATTRIBUTE, PROPERTY_RECOVERY_GROUP_COMMIT_SIZE, Configuration::asInteger, null);
 
         final String journalDir = getConfigAttributeValue(recovery, RECOVERY_JOURNAL_DIR_ATTRIBUTE);
         if (journalDir != null) {
@@ -1045,6 +1111,7 @@ public class Configuration implements ErrorHandler {
 
         configureProperty(recovery, RECOVERY_FORCE_RESTART_ATTRIBUTE, PROPERTY_RECOVERY_FORCE_RESTART, Configuration::asBoolean, FALSE);
         configureProperty(recovery, RECOVERY_POST_RECOVERY_CHECK, PROPERTY_RECOVERY_CHECK, Configuration::asBoolean, FALSE);
+        configureProperty(recovery, RECOVERY_REDO_THREADS_ATTRIBUTE, PROPERTY_RECOVERY_REDO_THREADS, Configuration::asInteger, null);
     }
 
     /**
@@ -1067,6 +1134,10 @@ public class Configuration implements ErrorHandler {
         configureProperty(queryPool, POOL_SIZE_ATTTRIBUTE, XQueryPool.PROPERTY_POOL_SIZE, Configuration::asInteger, null);
     }
 
+    private void configureQueryResultCache(final Element queryResultCache) {
+        configureProperty(queryResultCache, QueryResultCache.MAX_ITEMS_ATTRIBUTE, QueryResultCache.PROPERTY_MAX_ITEMS, Configuration::asInteger, null);
+    }
+
     private void configureStartup(final Element startup) throws DatabaseConfigurationException {
         // Retrieve <triggers>
         configureElement(startup, "triggers", triggers -> {
@@ -1135,6 +1206,7 @@ public class Configuration implements ErrorHandler {
 
     private void configureIndexer(final Document doc, final Element indexer) throws DatabaseConfigurationException {
         configureProperty(indexer, INDEX_CASE_SENSITIVE_ATTRIBUTE, PROPERTY_INDEX_CASE_SENSITIVE, Configuration::asBoolean, FALSE);
+        configureProperty(indexer, INDEX_REGEX_TRIGRAMS_ATTRIBUTE, PROPERTY_INDEX_REGEX_TRIGRAMS, Configuration::asBoolean, FALSE);
 
         final String indexDepth = getConfigAttributeValue(indexer, INDEX_DEPTH_ATTRIBUTE);
 
@@ -22,6 +22,9 @@
 package org.exist.xmldb;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.xmldb.api.base.Collection;
 import org.xmldb.api.base.Resource;
@@ -47,5 +50,33 @@ public interface EXistCollection extends Collection {
 
     void storeResource(Resource res, Instant a, Instant b) throws XMLDBException;
 
+    /**
+     * Stores many resources into this collection.
+     *
+     * Implementations may store the resources more efficiently than
+     * storing each of them with {@link #storeResource(Resource)}, e.g.
+     * by parsing them concurrently and within a single transaction.
+     * A resource that cannot be stored is skipped, and reported in the
+     * result, the other resources are stored.
+     *
+     * @param resources the resources to store.
+     *
+     * @return the resources which could not be stored, and why.
+     *
+     * @throws XMLDBException if none of the resources can be stored, or a
+     *     resource which replaces an existing one fails part way through.
+     */
+    default Map<Resource, XMLDBException> storeResources(final List<Resource> resources) throws XMLDBException {
+        final Map<Resource, XMLDBException> failures = new LinkedHashMap<>();
+        for (final Resource resource : resources) {
+            try {
+                storeResource(resource);
+            } catch (final XMLDBException e) {
+                failures.put(resource, e);
+            }
+        }
+        return failures;
+    }
+
     XmldbURI getPathURI();
 }
@@ -30,6 +30,7 @@ import javax.xml.transform.OutputKeys;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.EXistException;
+import org.exist.collections.BulkLoader;
 import org.exist.collections.Collection;
 import org.exist.dom.persistent.DocumentImpl;
 import org.exist.dom.persistent.LockToken;
@@ -645,6 +646,93 @@ public class LocalCollection extends AbstractLocal implements EXistCollection {
         });
     }
 
+    /**
+     * Stores the resources with a {@link BulkLoader}, which parses the XML
+     * resources concurrently, in a single transaction. Resources which cannot
+     * be stored are skipped within the transaction, except for a replacement
+     * which fails after it started to overwrite the existing resource; that
+     * aborts the transaction, so that the existing resource is kept.
+     *
+     * @param resources the resources to store.
+     *
+     * @return the resources which could not be stored, and why.
+     *
+     * @throws XMLDBException if the resources cannot be stored.
+     */
+    @Override
+    public Map<Resource, XMLDBException> storeResources(final List<Resource> resources) throws XMLDBException {
+        final Map<Resource, XMLDBException> failures = new LinkedHashMap<>();
+        modify().apply((collection, broker, transaction) -> {
+            final List<BulkLoader.Entry> entries = new ArrayList<>(resources.size());
+            final Map<BulkLoader.Entry, Resource> entryResources = new IdentityHashMap<>(resources.size());
+            for (final Resource resource : resources) {
+                try {
+                    final BulkLoader.Entry entry = toEntry(broker, transaction, resource);
+                    entries.add(entry);
+                    entryResources.put(entry, resource);
+                } catch (final XMLDBException e) {
+                    failures.put(resource, e);
+                }
+            }
+
+            try (final BulkLoader loader = new BulkLoader(brokerPool)) {
+                loader.store(transaction, broker, collection, entries, (entry, e) ->
+                        failures.put(entryResources.get(entry), new XMLDBException(ErrorCodes.VENDOR_ERROR, e.getMessage(), e)));
+            } catch (final EXistException | SAXException e) {
+                throw new XMLDBException(ErrorCodes.VENDOR_ERROR, e.getMessage(), e);
+            }
+            return null;
+        });
+
+        for (final Resource resource : resources) {
+            if (!failures.containsKey(resource)) {
+                ((AbstractEXistResource) resource).isNewResource = false;
+            }
+        }
+        this.needsSync = true;
+        return failures;
+    }
+
+    private BulkLoader.Entry toEntry(final DBBroker broker, final Txn transaction, final Resource resource) throws XMLDBException {
+        final XmldbURI resURI;
+        try {
+            resURI = XmldbURI.xmldbUriFor(resource.getId());
+        } catch (final URISyntaxException e) {
+            throw new XMLDBException(ErrorCodes.INVALID_URI, e);
+        }
+
+        if (resource instanceof LocalXMLResource res) {
+            final String strMimeType = res.getMimeType(broker, transaction);
+            final MimeType mimeType = strMimeType != null ? MimeTable.getInstance().getContentType(strMimeType) : MimeType.XML_TYPE;
+            if (res.root != null) {
+                return new BulkLoader.Entry(resURI, mimeType, null, res.root, null, res.datecreated, res.datemodified);
+            }
+
+            final InputSource source;
+            if (res.file != null) {
+                source = new InputSource(res.file.toUri().toASCIIString());
+            } else {
+                source = Objects.requireNonNullElseGet(res.inputSource, () -> new StringInputSource(res.content));
+            }
+            final XMLReader reader = useHtmlReader(broker, transaction, res) ? getHtmlReader() : null;
+            return new BulkLoader.Entry(resURI, mimeType, source, null, reader, res.datecreated, res.datemodified);
+
+        } else if (resource instanceof LocalBinaryResource res) {
+            final String strMimeType = res.getMimeType(broker, transaction);
+            final MimeType mimeType = strMimeType != null ? MimeTable.getInstance().getContentType(strMimeType) : MimeType.BINARY_TYPE;
+            final InputSource source;
+            if (res.getStreamLength() != -1) {
+                source = new InputStreamSupplierInputSource(() -> Try(() -> res.getStreamContent(broker, transaction)).getOrElse((InputStream) null));
+            } else {
+                source = new StringInputSource((byte[]) res.getContent(broker, transaction));
+            }
+            return new BulkLoader.Entry(resURI, mimeType, source, null, null, res.datecreated, res.datemodified);
+
+        } else {
+            throw new XMLDBException(ErrorCodes.UNKNOWN_RESOURCE_TYPE, "unknown resource type: " + resource.getResourceType());
+        }
+    }
+
     /**
      * Determines if a HTML reader should be used for the resource.
      *
@@ -89,6 +89,38 @@ public abstract class BindingExpression extends AbstractFLWORClause implements R
         return super.postEval(seq);
     }
 
+    /**
+     * Start an evaluation of which only the first results are required, if the
+     * results are ordered by an "order by" clause which can then keep just the
+     * first tuples in order. That is the case if this is the first clause of
+     * its FLWOR expression, followed by "for", "let" and "where" clauses only
+     * up to the "order by", which is directly followed by "return".
+     *
+     * @param limit the number of results required
+     */
+    protected void startLimitedOrderBy(final int limit) {
+        if (getPreviousClause() != null) {
+            return;
+        }
+        Expression next = returnExpr;
+        while (next instanceof FLWORClause clause) {
+            switch (clause.getType()) {
+                case FOR:
+                case LET:
+                case WHERE:
+                    break;
+                case ORDERBY:
+                    if (!(clause.getReturnExpression() instanceof FLWORClause)) {
+                        ((OrderByClause) clause).startLimited(limit);
+                    }
+                    return;
+                default:
+                    return;
+            }
+            next = clause.getReturnExpression();
+        }
+    }
+
 	public DocumentSet preselect(final DocumentSet docs) throws XPathException {
 		return docs;
 	}
@@ -32,7 +32,7 @@ import org.exist.xquery.value.Sequence;
  * 
  * @author wolf
  */
-public class DynamicCardinalityCheck extends AbstractExpression {
+public class DynamicCardinalityCheck extends AbstractExpression implements LimitableExpression {
 
     final private Expression expression;
     final private Cardinality requiredCardinality;
@@ -89,6 +89,26 @@ public class DynamicCardinalityCheck extends AbstractExpression {
         return seq;
     }
 
+    /**
+     * Only the first items of a sequence tell whether it is empty, but not
+     * whether it holds more than one item, so the limit is passed on to the
+     * checked expression only if the required cardinality allows many items.
+     */
+    @Override
+    public Sequence evalLimited(final Sequence contextSequence, final Item contextItem, final int limit)
+            throws XPathException {
+        if (requiredCardinality.atMostOne() || limit < 1) {
+            return eval(contextSequence, contextItem);
+        }
+        final Sequence seq = LimitableExpression.eval(expression, contextSequence, contextItem, limit);
+        if (requiredCardinality.atLeastOne() && seq.isEmpty()) {
+            error.addArgs(ExpressionDumper.dump(expression),
+                requiredCardinality.getHumanDescription(), 0);
+            throw new XPathException(this, error.toString());
+        }
+        return seq;
+    }
+
     /* (non-Javadoc)
      * @see org.exist.xquery.Expression#dump(org.exist.xquery.util.ExpressionDumper)
      */
@@ -261,6 +261,7 @@ public class ErrorCodes {
     public static final ErrorCode EXXQDY0004 = new EXistErrorCode("EXXQDY0004", "Only Supported for xquery version \"3.1\" and later.");
     public static final ErrorCode EXXQDY0005 = new EXistErrorCode("EXXQDY0005", "No function call details were provided when trying to execute a Library Module.");
     public static final ErrorCode EXXQDY0006 = new EXistErrorCode("EXXQDY0006", "Unable to find named function when trying to execute a Library Module.");
+    public static final ErrorCode EXXQDY0007 = new EXistErrorCode("EXXQDY0007", "Unable to write tuples to, or read them back from, a temporary spill file.");
 
     public static final ErrorCode ERROR = new EXistErrorCode("ERROR", "Error.");
 
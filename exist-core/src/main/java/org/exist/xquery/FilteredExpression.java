@@ -99,7 +99,14 @@ public class FilteredExpression extends AbstractExpression {
         }
 
         final Sequence result;
-        final Sequence seq = expression.eval(contextSequence, contextItem);
+        final Sequence seq;
+        final int positionLimit = abbreviated || predicates.isEmpty() ? -1 : predicates.getFirst().getPositionLimit();
+        if (positionLimit > 0) {
+            // the predicate only selects from the first items, e.g. (for $a in ... return ...)[position() le 10]
+            seq = LimitableExpression.eval(expression, contextSequence, contextItem, positionLimit);
+        } else {
+            seq = expression.eval(contextSequence, contextItem);
+        }
         if (seq.isEmpty()) {
             result = Sequence.EMPTY_SEQUENCE;
         } else {
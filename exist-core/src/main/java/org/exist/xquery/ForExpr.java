@@ -34,11 +34,13 @@ import java.util.Set;
  * 
  * @author <a href="mailto:wolfgang@exist-db.org">Wolfgang Meier</a>
  */
-public class ForExpr extends BindingExpression {
+public class ForExpr extends BindingExpression implements LimitableExpression {
 
     private QName positionalVariable = null;
     private boolean allowEmpty = false;
     private boolean isOuterFor = true;
+    private boolean orderedByFollowingClause = false;
+    private boolean limitable = false;
 
     public ForExpr(XQueryContext context, boolean allowingEmpty) {
         super(context);
@@ -87,6 +89,9 @@ public class ForExpr extends BindingExpression {
             final AnalyzeContextInfo newContextInfo = new AnalyzeContextInfo(contextInfo);
             newContextInfo.addFlag(SINGLE_STEP_EXECUTION);
             returnExpr.analyze(newContextInfo);
+
+            orderedByFollowingClause = isOrderedByFollowingClause();
+            limitable = isFollowedByForLetWhereOnly();
         } finally {
             // restore the local variable stack
             context.popLocalVariables(mark);
@@ -102,6 +107,26 @@ public class ForExpr extends BindingExpression {
      */
     public Sequence eval(Sequence contextSequence, Item contextItem)
             throws XPathException {
+        return evalLimited(contextSequence, contextItem, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Stops iterating over the binding sequence once the limit has been reached,
+     * provided that the clause is only followed by "for", "let" and "where" clauses.
+     * If the results are ordered by a following "order by" clause instead, that
+     * clause only keeps the first tuples in order.
+     *
+     * @see LimitableExpression#evalLimited(Sequence, Item, int)
+     */
+    @Override
+    public Sequence evalLimited(Sequence contextSequence, Item contextItem, int limit)
+            throws XPathException {
+        if (limit != Integer.MAX_VALUE) {
+            startLimitedOrderBy(limit);
+        }
+        if (!limitable) {
+            limit = Integer.MAX_VALUE;
+        }
         if (context.getProfiler().isEnabled()) {
             context.getProfiler().start(this);
             context.getProfiler().message(this, Profiler.DEPENDENCIES,
@@ -177,10 +202,10 @@ public class ForExpr extends BindingExpression {
             // Loop through each variable binding
             int p = 0;
             if (in.isEmpty() && allowEmpty) {
-                processItem(var, AtomicValue.EMPTY_VALUE, Sequence.EMPTY_SEQUENCE, resultSequence, at, p);
+                processItem(var, AtomicValue.EMPTY_VALUE, Sequence.EMPTY_SEQUENCE, resultSequence, at, p, 0, limit);
             } else {
-                for (final SequenceIterator i = in.iterate(); i.hasNext(); p++) {
-                    processItem(var, i.nextItem(), in, resultSequence, at, p);
+                for (final SequenceIterator i = in.iterate(); i.hasNext() && resultSequence.getItemCount() < limit; p++) {
+                    processItem(var, i.nextItem(), in, resultSequence, at, p, 0, limit);
                 }
             }
         } finally {
@@ -212,10 +237,15 @@ public class ForExpr extends BindingExpression {
                 var.checkType();
             }
         }
-        setActualReturnType(resultSequence.getItemType());
+        if (!orderedByFollowingClause) {
+            setActualReturnType(resultSequence.getItemType());
+        }
 
         if (callPostEval()) {
             resultSequence = postEval(resultSequence);
+            if (orderedByFollowingClause) {
+                setActualReturnType(resultSequence.getItemType());
+            }
         }
 
         context.expressionEnd(this);
@@ -224,12 +254,112 @@ public class ForExpr extends BindingExpression {
         return resultSequence;
     }
 
+    /**
+     * Evaluate this "for" clause over a part of its binding sequence only.
+     *
+     * Used by {@link org.exist.xquery.pragmas.ParallelPragma}, which evaluates
+     * the input sequence once and then hands out parts of it to other threads,
+     * each of which evaluates its own compiled copy of the query.
+     *
+     * @param in the part of the binding sequence to iterate over
+     * @param offset the position of the first item of the part within the
+     *               whole binding sequence, used for the positional variable
+     *
+     * @return the results of the return clause for each item, in order
+     *
+     * @throws XPathException if an error occurs during evaluation
+     */
+    public Sequence evalPartition(Sequence in, final int offset) throws XPathException {
+        context.expressionStart(this);
+        final LocalVariable mark = context.markLocalVariables(false);
+        Sequence resultSequence = new ValueSequence(unordered);
+        try {
+            final LocalVariable var = createVariable(varName);
+            var.setSequenceType(sequenceType);
+            context.declareVariableBinding(var);
+            LocalVariable at = null;
+            if (positionalVariable != null) {
+                at = new LocalVariable(positionalVariable);
+                at.setSequenceType(POSITIONAL_VAR_TYPE);
+                context.declareVariableBinding(at);
+            }
+            // as in eval: try to process the following clauses in a single step
+            var.setValue(in);
+            if (in instanceof NodeSet) {
+                var.setContextDocs(in.getDocumentSet());
+            } else {
+                var.setContextDocs(null);
+            }
+            if (isOuterFor) {
+                if (returnExpr instanceof WhereClause) {
+                    if (at == null) {
+                        in = ((WhereClause) returnExpr).preEval(in);
+                    }
+                } else if (returnExpr instanceof FLWORClause) {
+                    in = ((FLWORClause) returnExpr).preEval(in);
+                }
+            }
+
+            int p = 0;
+            for (final SequenceIterator i = in.iterate(); i.hasNext(); p++) {
+                processItem(var, i.nextItem(), in, resultSequence, at, p, offset, Integer.MAX_VALUE);
+            }
+        } finally {
+            context.popLocalVariables(mark, resultSequence);
+        }
+
+        if (callPostEval()) {
+            resultSequence = postEval(resultSequence);
+        }
+        context.expressionEnd(this);
+        return resultSequence;
+    }
+
+    /**
+     * Check if the results of this "for" clause are the concatenation of
+     * the results of {@link #evalPartition(Sequence, int)} over consecutive
+     * parts of its binding sequence. That is the case when it is the first
+     * clause of its FLWOR expression and is only followed by "for", "let"
+     * and "where" clauses.
+     *
+     * @return true if the binding sequence may be partitioned
+     */
+    public boolean isPartitionable() {
+        if (getPreviousClause() != null || sequenceType != null || allowEmpty) {
+            return false;
+        }
+        return isFollowedByForLetWhereOnly();
+    }
+
+    /**
+     * Check if this clause is only followed by "for", "let" and "where" clauses,
+     * so that each item of its binding sequence contributes to its results
+     * in order, independent of those items which follow it.
+     *
+     * @return true if there are no other clauses following this one
+     */
+    private boolean isFollowedByForLetWhereOnly() {
+        Expression next = returnExpr;
+        while (next instanceof FLWORClause clause) {
+            switch (clause.getType()) {
+                case FOR:
+                case LET:
+                case WHERE:
+                    break;
+                default:
+                    return false;
+            }
+            next = clause.getReturnExpression();
+        }
+        return true;
+    }
+
     private void processItem(LocalVariable var, Item contextItem, Sequence in, Sequence resultSequence, LocalVariable
-            at, int p) throws XPathException {
+            at, int p, int offset, int limit) throws XPathException {
         context.proceed(this);
         context.setContextSequencePosition(p, in);
         if (positionalVariable != null) {
-            final int position = contextItem == AtomicValue.EMPTY_VALUE ? 0 : p + 1;
+            final int position = contextItem == AtomicValue.EMPTY_VALUE ? 0 : offset + p + 1;
             at.setValue(new IntegerValue(this, position));
         }
         final Sequence contextSequence = contextItem.toSequence();
@@ -243,15 +373,58 @@ public class ForExpr extends BindingExpression {
         final Sequence returnExprResult;
         if (returnExpr instanceof OrderByClause) {
             returnExprResult = returnExpr.eval(contextSequence, null);
-        } else {
+        } else if (limit == Integer.MAX_VALUE) {
             returnExprResult = returnExpr.eval(null, null);
+        } else {
+            // a nested "for" clause only needs to return the items still missing
+            returnExprResult = LimitableExpression.eval(returnExpr, null, null, limit - resultSequence.getItemCount());
+        }
+        if (orderedByFollowingClause && sequenceType == null) {
+            /*
+             The results are replaced by those of the "order by" clause, only keep
+             those items which hold resources that must not be released by var.destroy
+             */
+            for (final SequenceIterator i = returnExprResult.iterate(); i.hasNext(); ) {
+                final Item item = i.nextItem();
+                if (!SpillFile.isSpillable(item)) {
+                    resultSequence.add(item);
+                }
+            }
+        } else {
+            resultSequence.addAll(returnExprResult);
         }
-        resultSequence.addAll(returnExprResult);
 
         // free resources
         var.destroy(context, resultSequence);
     }
 
+    /**
+     * Check if the tuples produced by this clause are only ever returned through
+     * a following "order by" clause, which replaces the results in postEval.
+     *
+     * @return true if the result sequence is replaced by an "order by" clause
+     */
+    private boolean isOrderedByFollowingClause() {
+        for (FLWORClause prev = getPreviousClause(); prev != null; prev = prev.getPreviousClause()) {
+            if (prev.getType() != ClauseType.FOR && prev.getType() != ClauseType.LET && prev.getType() != ClauseType.WHERE) {
+                return false;
+            }
+        }
+        for (Expression next = returnExpr; next instanceof FLWORClause clause; next = clause.getReturnExpression()) {
+            switch (clause.getType()) {
+                case ORDERBY:
+                    return true;
+                case FOR:
+                case LET:
+                case WHERE:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
     private boolean callPostEval() {
         FLWORClause prev = getPreviousClause();
         while (prev != null) {
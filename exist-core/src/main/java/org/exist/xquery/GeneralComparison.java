@@ -26,6 +26,7 @@ import org.exist.EXistException;
 import org.exist.collections.Collection;
 import org.exist.dom.persistent.ContextItem;
 import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.IStoredNode;
 import org.exist.dom.persistent.NewArrayNodeSet;
 import org.exist.dom.persistent.NodeProxy;
 import org.exist.dom.persistent.NodeSet;
@@ -47,7 +48,9 @@ import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.StringValue;
 import org.exist.xquery.value.Type;
+import org.exist.xquery.value.UntypedAtomicValue;
 
+import javax.annotation.Nullable;
 import java.util.Iterator;
 import java.util.List;
 
@@ -61,6 +64,15 @@ import java.util.List;
  */
 public class GeneralComparison extends BinaryOp implements Optimizable, IndexUseReporter
 {
+    /** Minimum number of right-hand values for which a {@link JoinProbe} is built instead of comparing value by value. */
+    private static final int JOIN_PROBE_MIN_VALUES = 32;
+
+    /** Minimum number of value pairs a nested loop would have to compare before a {@link JoinProbe} is built. */
+    private static final long JOIN_PROBE_MIN_PAIRS = 4096;
+
+    /** Number of nodes whose values {@link #nodeSetCompare(NodeSet, Sequence)} reads from storage at once. */
+    private static final int NODE_VALUE_BATCH_SIZE = 1024;
+
     /** The type of operator used for the comparison, i.e. =, !=, &lt;, &gt; ... One of the constants declared in class {@link Constants}. */
     protected Comparison          relation              = Comparison.EQ;
 
@@ -101,6 +113,17 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
 
     private IndexFlags     idxflags         = new IndexFlags();
 
+    /**
+     * Set if the right operand is a variable, or a simple path starting at a variable, which is
+     * evaluated unchanged for as long as the variable keeps its value, e.g. in a FLWOR where clause.
+     */
+    @Nullable private VariableReference invariantRightVariable = null;
+
+    /** Probe built over the right operand for the current value of {@link #invariantRightVariable}. */
+    @Nullable private JoinProbe joinProbe = null;
+    @Nullable private Sequence joinProbeSource = null;
+    @Nullable private Collator joinProbeCollator = null;
+
     public GeneralComparison( XQueryContext context, Comparison relation )
     {
         this( context, relation, StringTruncationOperator.NONE );
@@ -187,6 +210,8 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
 
         contextInfo.removeFlag( NEED_INDEX_INFO );
 
+        invariantRightVariable = findInvariantVariable( getRight() );
+
         final List<LocationStep> steps = BasicExpressionVisitor.findLocationSteps( getLeft() );
 
         if( !steps.isEmpty() ) {
@@ -521,8 +546,20 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
     protected Sequence genericCompare( Sequence ls, Sequence contextSequence, Item contextItem ) throws XPathException
     {
         final long           start    = System.currentTimeMillis();
-        final Sequence rs       = getRight().eval( contextSequence, contextItem );
         final Collator collator = getCollator( contextSequence );
+
+        // the right operand did not change since the last call: probe the values collected then
+        final Sequence invariantValue = getInvariantRightValue();
+        if( ( joinProbe != null ) && ( invariantValue != null ) && ( joinProbeSource == invariantValue ) && ( joinProbeCollator == collator ) ) {
+            final Sequence result = BooleanValue.valueOf( probeCompare( joinProbe, ls, collator ) );
+            if( context.getProfiler().traceFunctions() ) {
+                context.getProfiler().traceIndexUsage( context, PerformanceStats.RANGE_IDX_TYPE, this, PerformanceStats.IndexOptimizationLevel.NONE, System.currentTimeMillis() - start );
+            }
+            return( result );
+        }
+
+        final Sequence rs       = getRight().eval( contextSequence, contextItem );
+        final JoinProbe probe   = ls.isEmpty() ? null : createJoinProbe( ls.getItemCount(), rs, collator, invariantValue );
         Sequence       result   = BooleanValue.FALSE;
 
 
@@ -547,6 +584,8 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
                     break;
                 }
             }
+        } else if( probe != null ) {
+            result = BooleanValue.valueOf( probeCompare( probe, ls, collator ) );
         } else if( ls.hasOne() && rs.hasOne() && ls.itemAt(0).getType() != Type.ARRAY_ITEM && rs.itemAt(0).getType() != Type.ARRAY_ITEM) {
             result = BooleanValue.valueOf( compareAtomic( collator, ls.itemAt( 0 ).atomize(), rs.itemAt( 0 ).atomize() ) );
         } else {
@@ -588,6 +627,125 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
     }
 
 
+    /**
+     * Check if any of the left-hand values matches one of the values collected by the probe.
+     *
+     * @param   probe     the probe over the right-hand values
+     * @param   ls        the left-hand sequence
+     * @param   collator  the collator to use for comparisons
+     *
+     * @return  true if the comparison holds for at least one pair of values
+     *
+     * @throws  XPathException  in case of dynamic error
+     */
+    private boolean probeCompare( final JoinProbe probe, final Sequence ls, final Collator collator ) throws XPathException
+    {
+        final JoinProbe.AtomicComparison comparison = ( lv, rv ) -> compareAtomic( collator, lv, rv );
+
+        for( final SequenceIterator i1 = Atomize.atomize(ls).iterate(); i1.hasNext(); ) {
+
+            if( probe.matches( i1.nextItem().atomize(), comparison ) ) {
+                return( true );
+            }
+        }
+        return( false );
+    }
+
+
+    /**
+     * Build a {@link JoinProbe} over the right-hand values if comparing them against the
+     * left-hand values one by one would be too expensive. If the right operand is
+     * invariant, the probe is kept for subsequent calls.
+     *
+     * @param   leftCount       the number of left-hand items
+     * @param   rs              the right-hand sequence
+     * @param   collator        the collator to use for comparisons
+     * @param   invariantValue  the current value of {@link #invariantRightVariable}, or null
+     *
+     * @return  the probe, or null if the values should be compared one by one
+     *
+     * @throws  XPathException  in case of dynamic error
+     */
+    private @Nullable JoinProbe createJoinProbe( final int leftCount, final Sequence rs, final Collator collator, @Nullable final Sequence invariantValue ) throws XPathException
+    {
+        if( ( truncation != StringTruncationOperator.NONE ) || ( rs.getItemCount() < JOIN_PROBE_MIN_VALUES ) ) {
+            return( null );
+        }
+
+        if( ( invariantValue == null ) && ( ( ( long )leftCount * rs.getItemCount() ) < JOIN_PROBE_MIN_PAIRS ) ) {
+            return( null );
+        }
+
+        final JoinProbe probe = JoinProbe.build( relation, collator, rs );
+
+        if( ( probe != null ) && ( invariantValue != null ) ) {
+            joinProbe         = probe;
+            joinProbeSource   = invariantValue;
+            joinProbeCollator = collator;
+        }
+
+        if( ( probe != null ) && context.getProfiler().isEnabled() ) {
+            context.getProfiler().message( this, Profiler.OPTIMIZATION_FLAGS, "OPTIMIZATION CHOICE", "joinProbe" );
+        }
+        return( probe );
+    }
+
+
+    /**
+     * Returns the current value of the variable the right operand depends on, if the right
+     * operand stays the same for as long as the variable keeps its value.
+     *
+     * @return  the value of the variable, or null
+     */
+    private @Nullable Sequence getInvariantRightValue()
+    {
+        if( invariantRightVariable == null ) {
+            return( null );
+        }
+
+        try {
+            final Variable var = context.resolveVariable( invariantRightVariable.getName() );
+            return( ( var == null ) ? null : var.getValue() );
+        } catch( final XPathException e ) {
+            return( null );
+        }
+    }
+
+
+    /**
+     * Check if the expression is a variable reference, or a path of location steps without
+     * predicates starting at a variable reference, whose result only depends on the value
+     * of the variable.
+     *
+     * @param   expr  the expression
+     *
+     * @return  the variable reference, or null
+     */
+    private static @Nullable VariableReference findInvariantVariable( final Expression expr )
+    {
+        if( expr instanceof final VariableReference ref ) {
+            return( ref );
+        }
+
+        if( ( expr.getClass() != PathExpr.class ) || ( ( ( PathExpr )expr ).getLength() < 2 ) ) {
+            return( null );
+        }
+        final PathExpr path = ( PathExpr )expr;
+
+        if( !( path.getExpression( 0 ) instanceof final VariableReference ref ) ) {
+            return( null );
+        }
+
+        for( int i = 1; i < path.getLength(); i++ ) {
+
+            if( !( path.getExpression( i ) instanceof final LocationStep step ) || step.hasPredicates() ) {
+                return( null );
+            }
+        }
+        return( ref );
+    }
+
+
     /**
      * Optimized implementation, which can be applied if the left operand returns a node set. In this case, the left expression is executed first. All
      * matching context nodes are then passed to the right expression.
@@ -634,20 +792,24 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
                     }
                 } while( ( context = context.getNextDirect() ) != null );
             }
-        } else {
+        } else if( !nodes.isEmpty() ) {
+            // the right operand does not depend on the current node, evaluate it once
+            final Sequence  values = Atomize.atomize( getRight().eval( contextSequence, null ) );
+            final JoinProbe probe  = createJoinProbe( nodes.getItemCount(), values, collator, null );
 
-            for( final NodeProxy item : nodes ) {
-                final AtomicValue lv = item.atomize();
-                final Sequence    rs = getRight().eval(contextSequence, null);
+            // compare the nodes batch by batch, so their values can be read in storage order
+            final NodeProxy[] batch  = new NodeProxy[Math.max( 1, Math.min( nodes.getItemCount(), NODE_VALUE_BATCH_SIZE ) )];
+            int               length = 0;
 
-                for( final SequenceIterator i2 = Atomize.atomize(rs).iterate(); i2.hasNext(); ) {
-                    final AtomicValue rv = i2.nextItem().atomize();
+            for( final NodeProxy item : nodes ) {
+                batch[length++] = item;
 
-                    if( compareAtomic( collator, lv, rv ) ) {
-                        result.add( item );
-                    }
+                if( length == batch.length ) {
+                    compareBatch( batch, length, values, probe, collator, result );
+                    length = 0;
                 }
             }
+            compareBatch( batch, length, values, probe, collator, result );
         }
 
         if( context.getProfiler().traceFunctions() ) {
@@ -657,6 +819,79 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
     }
 
 
+    /**
+     * Compare the values of a batch of nodes against the right-hand values, adding
+     * the nodes for which the comparison holds to the result.
+     *
+     * @param   batch     the nodes
+     * @param   length    the number of nodes in the batch
+     * @param   rs        the atomized right-hand values
+     * @param   probe     the probe over the right-hand values, or null to compare them one by one
+     * @param   collator  the collator to use for comparisons
+     * @param   result    the node set to add matching nodes to
+     *
+     * @throws  XPathException  in case of dynamic error
+     */
+    private void compareBatch( final NodeProxy[] batch, final int length, final Sequence rs, @Nullable final JoinProbe probe, final Collator collator, final NodeSet result ) throws XPathException
+    {
+        final AtomicValue[] values = atomize( batch, length );
+
+        for( int i = 0; i < length; i++ ) {
+            final AtomicValue lv = values[i];
+
+            if( probe != null ) {
+                if( probe.matches( lv, ( l, r ) -> compareAtomic( collator, l, r ) ) ) {
+                    result.add( batch[i] );
+                }
+                continue;
+            }
+
+            for( final SequenceIterator i2 = rs.iterate(); i2.hasNext(); ) {
+                final AtomicValue rv = i2.nextItem().atomize();
+
+                if( compareAtomic( collator, lv, rv ) ) {
+                    result.add( batch[i] );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Atomize a batch of stored nodes. Their string values are read from the DOM file
+     * in one go and in storage order, instead of looking up each node on its own.
+     *
+     * @param   nodes   the nodes
+     * @param   length  the number of nodes to atomize
+     *
+     * @return  the typed values of the nodes
+     *
+     * @throws  XPathException  in case of dynamic error
+     */
+    protected AtomicValue[] atomize( final NodeProxy[] nodes, final int length ) throws XPathException
+    {
+        final AtomicValue[] values = new AtomicValue[length];
+        final IStoredNode[] stored = new IStoredNode[length];
+
+        for( int i = 0; i < length; i++ ) {
+            if( nodes[i].isDocument() ) {
+                values[i] = nodes[i].atomize();
+            } else {
+                stored[i] = nodes[i].asStoredNode();
+            }
+        }
+
+        final String[] strings = context.getBroker().getNodeValues( stored, false );
+
+        for( int i = 0; i < length; i++ ) {
+            if( stored[i] != null ) {
+                values[i] = new UntypedAtomicValue( strings[i] );
+            }
+        }
+        return( values );
+    }
+
+
     /**
      * Optimized implementation: first checks if a range index is defined on the nodes in the left argument.
      * Otherwise, fall back to {@link #nodeSetCompare(NodeSet, Sequence)}.
@@ -1310,6 +1545,9 @@ public class GeneralComparison extends BinaryOp implements Optimizable, IndexUse
             preselectResult = null;
             hasUsedIndex    = false;
         }
+        joinProbe         = null;
+        joinProbeSource   = null;
+        joinProbeCollator = null;
     }
 
 
@@ -26,21 +26,33 @@ import it.unimi.dsi.fastutil.Hash;
 import it.unimi.dsi.fastutil.Hash.Strategy;
 import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectSortedMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.exist.dom.QName;
 import org.exist.xquery.functions.fn.FunDeepEqual;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
  * Implements a "group by" clause inside a FLWOR.
  *
+ * If the number of pre-grouping tuples exceeds {@link XQueryContext#getSpillThreshold()},
+ * the groups collected so far are hash partitioned into temporary files and the groups
+ * are then evaluated one partition at a time. The order of the groups is implementation
+ * dependent in that case.
+ *
  * @author <a href="mailto:adam@evolvedbinary.com">Adam Retter</a>
  * @author wolf
  */
 public class GroupByClause extends AbstractFLWORClause {
 
+    private static final Logger LOG = LogManager.getLogger(GroupByClause.class);
+
+    private static final int SPILL_PARTITIONS = 64;
+
     protected FLWORClause rootClause = null;
     private GroupSpec[] groupSpecs;
     private final Deque<GroupByData> stack = new ArrayDeque<>();
@@ -52,15 +64,40 @@ public class GroupByClause extends AbstractFLWORClause {
      * would overwrite data.
      */
     private static class GroupByData {
+        private final Strategy<Sequence> keyHashStrategy;
         private final Object2ObjectSortedMap<Sequence, Tuple> groupedMap;
-        private final Map<QName, LocalVariable> variables = new HashMap<>();
+        private final Map<QName, LocalVariable> variables = new LinkedHashMap<>();
         private final List<LocalVariable> groupingVars = new ArrayList<>();
 
         private boolean initialized = false;
 
+        // state for spilling groups to disk
+        private boolean spillable = true;
+        private int tupleCount = 0;
+        private SpillFile[] partitions = null;
+        private int[] partitionRecords = null;
+
         public GroupByData(final Strategy<Sequence> keyHashStrategy) {
+            this.keyHashStrategy = keyHashStrategy;
             this.groupedMap = new Object2ObjectLinkedOpenCustomHashMap<>(8, Hash.FAST_LOAD_FACTOR, keyHashStrategy);
         }
+
+        private int partitionOf(final Sequence groupingKeys) {
+            return Math.floorMod(keyHashStrategy.hashCode(groupingKeys), SPILL_PARTITIONS);
+        }
+
+        private void closeSpillFiles() {
+            if (partitions != null) {
+                for (final SpillFile partition : partitions) {
+                    try {
+                        partition.close();
+                    } catch (final IOException e) {
+                        LOG.warn("Unable to delete group by spill file: {}", e.getMessage(), e);
+                    }
+                }
+                partitions = null;
+            }
+        }
     }
 
     public GroupByClause(XQueryContext context) {
@@ -109,6 +146,11 @@ public class GroupByClause extends AbstractFLWORClause {
             }
             groupingValues.add(groupingValue);
             groupingKeys.add(groupingValue);
+
+            // a decimal does not retain its scale, and thus its hash code, when written to disk
+            if (data.spillable && (!SpillFile.isSpillable(groupingValue) || groupingValue.getType() == Type.DECIMAL)) {
+                data.spillable = false;
+            }
         }
 
         // collect the current tuples into the grouping map
@@ -118,7 +160,16 @@ public class GroupByClause extends AbstractFLWORClause {
         LocalVariable nextVar = rootClause.getStartVariable();
         Objects.requireNonNull(nextVar);
         while(nextVar != null) {
-            tuple.add(nextVar.getQName(), nextVar.getValue());
+            final Sequence value = nextVar.getValue();
+            tuple.add(nextVar.getQName(), value);
+            if (data.spillable) {
+                for (final SequenceIterator i = value.iterate(); i.hasNext(); ) {
+                    if (!SpillFile.isSpillable(i.nextItem())) {
+                        data.spillable = false;
+                        break;
+                    }
+                }
+            }
             if (!data.initialized) {
                 // on first call: initialize non-grouping variable for later use
                 final LocalVariable var = new LocalVariable(nextVar.getQName());
@@ -131,9 +182,98 @@ public class GroupByClause extends AbstractFLWORClause {
         }
 
         data.initialized = true;
+
+        final int spillThreshold = context.getSpillThreshold();
+        if (spillThreshold > 0 && data.spillable && ++data.tupleCount >= spillThreshold) {
+            spill(data);
+        }
         return contextSequence;
     }
 
+    /**
+     * Write the groups collected so far to the partition files, and
+     * release them from memory.
+     *
+     * @param data the state of the current evaluation
+     *
+     * @throws XPathException if the groups can not be written
+     */
+    private void spill(final GroupByData data) throws XPathException {
+        try {
+            if (data.partitions == null) {
+                data.partitions = new SpillFile[SPILL_PARTITIONS];
+                data.partitionRecords = new int[SPILL_PARTITIONS];
+                for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                    data.partitions[i] = new SpillFile();
+                }
+            }
+            for (final Map.Entry<Sequence, Tuple> group : data.groupedMap.entrySet()) {
+                final int partition = data.partitionOf(group.getKey());
+                final SpillFile file = data.partitions[partition];
+                for (final Sequence groupingValue : group.getValue().groupingValues) {
+                    file.writeItem((Item) groupingValue);
+                }
+                for (final QName name : data.variables.keySet()) {
+                    file.writeSequence(group.getValue().getOrDefault(name, Sequence.EMPTY_SEQUENCE));
+                }
+                data.partitionRecords[partition]++;
+            }
+        } catch (final IOException e) {
+            throw new XPathException(this, ErrorCodes.EXXQDY0007, "Unable to spill group by tuples to disk: " + e.getMessage(), e);
+        }
+        data.groupedMap.clear();
+        data.tupleCount = 0;
+    }
+
+    /**
+     * Read back the groups of a partition, merged with those groups
+     * still in memory which belong to the same partition.
+     *
+     * @param data the state of the current evaluation
+     * @param partition the partition to read
+     *
+     * @return the groups of the partition
+     *
+     * @throws XPathException if the partition can not be read
+     */
+    private Map<Sequence, Tuple> readPartition(final GroupByData data, final int partition) throws XPathException {
+        final Object2ObjectSortedMap<Sequence, Tuple> groups =
+                new Object2ObjectLinkedOpenCustomHashMap<>(8, Hash.FAST_LOAD_FACTOR, data.keyHashStrategy);
+        try (final SpillFile.Reader reader = data.partitions[partition].openReader()) {
+            for (int i = 0; i < data.partitionRecords[partition]; i++) {
+                final List<Sequence> groupingValues = new ArrayList<>(groupSpecs.length);
+                final Sequence groupingKeys = new ArrayListValueSequence();
+                for (int j = 0; j < groupSpecs.length; j++) {
+                    final AtomicValue groupingValue = reader.readAtomicValue();
+                    groupingValues.add(groupingValue);
+                    groupingKeys.add(groupingValue);
+                }
+                final Tuple tuple = groups.computeIfAbsent(groupingKeys, ks -> new Tuple(groupingValues));
+                for (final QName name : data.variables.keySet()) {
+                    tuple.add(name, reader.readSequence());
+                }
+            }
+        } catch (final IOException e) {
+            throw new XPathException(this, ErrorCodes.EXXQDY0007, "Unable to read spilled group by tuples: " + e.getMessage(), e);
+        }
+
+        // the tuples still in memory were collected after those on disk
+        for (final Map.Entry<Sequence, Tuple> group : data.groupedMap.entrySet()) {
+            if (data.partitionOf(group.getKey()) != partition) {
+                continue;
+            }
+            final Tuple tuple = groups.get(group.getKey());
+            if (tuple == null) {
+                groups.put(group.getKey(), group.getValue());
+            } else {
+                for (final Map.Entry<QName, Sequence> entry : group.getValue().entrySet()) {
+                    tuple.add(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return groups;
+    }
+
     @Override
     public Sequence postEval(final Sequence seq) throws XPathException {
         if (!stack.isEmpty()) {
@@ -149,30 +289,22 @@ public class GroupByClause extends AbstractFLWORClause {
                 for (LocalVariable var : data.groupingVars) {
                     context.declareVariableBinding(var);
                 }
-                // iterate over each group
-                for (Tuple tuple : data.groupedMap.values()) {
-                    context.proceed();
-
-                    // set grouping variable values
-                    final Iterator<Sequence> siter = tuple.groupingValues.iterator();
-                    for (LocalVariable var : data.groupingVars) {
-                        if (siter.hasNext()) {
-                            Sequence val = siter.next();
-                            var.setValue(val);
-                        } else {
-                            throw new XPathException(this, ErrorCodes.XPTY0004, "Internal error: missing grouping value for variable: $" + var.getQName());
-                        }
+                if (data.partitions == null) {
+                    // iterate over each group
+                    for (Tuple tuple : data.groupedMap.values()) {
+                        evalGroup(data, tuple, result);
                     }
-                    // set values of non-grouping variables
-                    for (Map.Entry<QName, Sequence> entry : tuple.entrySet()) {
-                        final LocalVariable var = data.variables.get(entry.getKey());
-                        var.setValue(entry.getValue());
+                } else {
+                    // iterate over each group, one partition at a time
+                    for (int partition = 0; partition < SPILL_PARTITIONS; partition++) {
+                        for (Tuple tuple : readPartition(data, partition).values()) {
+                            evalGroup(data, tuple, result);
+                        }
                     }
-                    final Sequence r = returnExpr.eval(null, null);
-                    result.addAll(r);
                 }
             } finally {
                 stack.pop();
+                data.closeSpillFiles();
                 context.popLocalVariables(mark, result);
             }
 
@@ -185,6 +317,28 @@ public class GroupByClause extends AbstractFLWORClause {
         return seq;
     }
 
+    private void evalGroup(final GroupByData data, final Tuple tuple, final Sequence result) throws XPathException {
+        context.proceed();
+
+        // set grouping variable values
+        final Iterator<Sequence> siter = tuple.groupingValues.iterator();
+        for (LocalVariable var : data.groupingVars) {
+            if (siter.hasNext()) {
+                Sequence val = siter.next();
+                var.setValue(val);
+            } else {
+                throw new XPathException(this, ErrorCodes.XPTY0004, "Internal error: missing grouping value for variable: $" + var.getQName());
+            }
+        }
+        // set values of non-grouping variables
+        for (Map.Entry<QName, Sequence> entry : tuple.entrySet()) {
+            final LocalVariable var = data.variables.get(entry.getKey());
+            var.setValue(entry.getValue());
+        }
+        final Sequence r = returnExpr.eval(null, null);
+        result.addAll(r);
+    }
+
     @Override
     public void analyze(final AnalyzeContextInfo contextInfo) throws XPathException {
         contextInfo.setParent(this);
@@ -268,6 +422,8 @@ public class GroupByClause extends AbstractFLWORClause {
     @Override
     public void resetState(boolean postOptimization) {
         super.resetState(postOptimization);
+        // release the spill files of an evaluation which did not complete
+        stack.forEach(GroupByData::closeSpillFiles);
         stack.clear();
         returnExpr.resetState(postOptimization);
         for (GroupSpec spec: groupSpecs) {
@@ -0,0 +1,202 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import com.ibm.icu.text.Collator;
+import org.exist.util.Collations;
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.value.AtomicValue;
+import org.exist.xquery.value.DecimalValue;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.Type;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Answers the existential question of a {@link GeneralComparison}, i.e. is there
+ * a value on the right-hand side for which the comparison with a given left-hand
+ * value holds, without comparing against every right-hand value.
+ *
+ * For <code>=</code> the right-hand values are kept in a hash set keyed by their
+ * collation key (strings) or by their decimal value (numbers). For <code>&lt;</code>,
+ * <code>&lt;=</code>, <code>&gt;</code> and <code>&gt;=</code> only the largest
+ * or smallest right-hand value has to be compared against, as the values are totally
+ * ordered.
+ *
+ * A probe is only built if all right-hand values belong to the same category:
+ * either strings (<code>xs:string</code>, <code>xs:anyURI</code> and
+ * <code>xs:untypedAtomic</code>, which are all compared as strings), or
+ * <code>xs:decimal</code> and its subtypes. Left-hand values of another category
+ * are compared one by one against all right-hand values, so the casting rules
+ * and errors of the general comparison are preserved.
+ */
+final class JoinProbe {
+
+    @FunctionalInterface
+    interface AtomicComparison {
+        boolean compare(AtomicValue lv, AtomicValue rv) throws XPathException;
+    }
+
+    private enum Category {
+        STRING,
+        DECIMAL,
+        OTHER
+    }
+
+    private final Comparison relation;
+    @Nullable private final Collator collator;
+    private final Category category;
+    private final AtomicValue[] values;
+    @Nullable private final Set<Object> keys;
+    @Nullable private final AtomicValue extremum;
+
+    private JoinProbe(final Comparison relation, @Nullable final Collator collator, final Category category,
+            final AtomicValue[] values, @Nullable final Set<Object> keys, @Nullable final AtomicValue extremum) {
+        this.relation = relation;
+        this.collator = collator;
+        this.category = category;
+        this.values = values;
+        this.keys = keys;
+        this.extremum = extremum;
+    }
+
+    /**
+     * Build a probe over the atomized values of the right-hand operand.
+     *
+     * @param relation the comparison operator
+     * @param collator the collator used for string comparisons, or null for codepoint comparison
+     * @param rs the right-hand sequence
+     *
+     * @return the probe, or null if the operator or the values are not supported
+     *
+     * @throws XPathException if the sequence cannot be atomized
+     */
+    static @Nullable JoinProbe build(final Comparison relation, @Nullable final Collator collator, final Sequence rs)
+            throws XPathException {
+        if (relation == Comparison.NEQ || relation == Comparison.IN) {
+            return null;
+        }
+
+        final List<AtomicValue> values = new ArrayList<>(rs.getItemCount());
+        Category category = null;
+        for (final SequenceIterator i = Atomize.atomize(rs).iterate(); i.hasNext(); ) {
+            final AtomicValue value = i.nextItem().atomize();
+            final Category valueCategory = categoryOf(value);
+            if (valueCategory == Category.OTHER || (category != null && category != valueCategory)) {
+                return null;
+            }
+            category = valueCategory;
+            values.add(value);
+        }
+        if (category == null) {
+            return null;
+        }
+
+        Set<Object> keys = null;
+        AtomicValue extremum = null;
+        if (relation == Comparison.EQ) {
+            keys = new HashSet<>(values.size() * 2);
+            for (final AtomicValue value : values) {
+                keys.add(key(category, collator, value));
+            }
+        } else {
+            // x < any of the values if and only if x < the largest value, likewise for >
+            final boolean largest = relation == Comparison.LT || relation == Comparison.LTEQ;
+            for (final AtomicValue value : values) {
+                if (extremum == null) {
+                    extremum = value;
+                } else {
+                    final int cmp = compare(category, collator, value, extremum);
+                    if (largest ? cmp > 0 : cmp < 0) {
+                        extremum = value;
+                    }
+                }
+            }
+        }
+        return new JoinProbe(relation, collator, category, values.toArray(new AtomicValue[0]), keys, extremum);
+    }
+
+    /**
+     * Check if the comparison holds between the left-hand value and any of
+     * the right-hand values.
+     *
+     * @param lv the atomized left-hand value
+     * @param comparison compares a single pair of values, used for values
+     *     which are not of the probe's category and for the range operators
+     *
+     * @return true if the comparison holds for at least one right-hand value
+     *
+     * @throws XPathException if a comparison raises an error
+     */
+    boolean matches(final AtomicValue lv, final AtomicComparison comparison) throws XPathException {
+        if (categoryOf(lv) != category) {
+            for (final AtomicValue rv : values) {
+                if (comparison.compare(lv, rv)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (keys != null) {
+            return keys.contains(key(category, collator, lv));
+        }
+        return comparison.compare(lv, extremum);
+    }
+
+    private static Category categoryOf(final AtomicValue value) {
+        final int type = value.getType();
+        if (Type.subTypeOf(type, Type.STRING) || type == Type.ANY_URI || type == Type.UNTYPED_ATOMIC) {
+            return Category.STRING;
+        } else if (Type.subTypeOf(type, Type.DECIMAL)) {
+            return Category.DECIMAL;
+        }
+        return Category.OTHER;
+    }
+
+    private static Object key(final Category category, @Nullable final Collator collator, final AtomicValue value)
+            throws XPathException {
+        if (category == Category.STRING) {
+            final String s = value.getStringValue();
+            return collator == null ? s : collator.getCollationKey(s);
+        }
+        return decimal(value).stripTrailingZeros();
+    }
+
+    private static int compare(final Category category, @Nullable final Collator collator, final AtomicValue v1,
+            final AtomicValue v2) throws XPathException {
+        if (category == Category.STRING) {
+            return Collations.compare(collator, v1.getStringValue(), v2.getStringValue());
+        }
+        return decimal(v1).compareTo(decimal(v2));
+    }
+
+    private static BigDecimal decimal(final AtomicValue value) throws XPathException {
+        return ((DecimalValue) value.convertTo(Type.DECIMAL)).getValue();
+    }
+}
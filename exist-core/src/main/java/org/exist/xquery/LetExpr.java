@@ -35,7 +35,7 @@ import java.util.Set;
  * 
  * @author <a href="mailto:wolfgang@exist-db.org">Wolfgang Meier</a>
  */
-public class LetExpr extends BindingExpression {
+public class LetExpr extends BindingExpression implements LimitableExpression {
 
     public LetExpr(XQueryContext context) {
         super(context);
@@ -75,6 +75,21 @@ public class LetExpr extends BindingExpression {
      */
     public Sequence eval(Sequence contextSequence, Item contextItem)
             throws XPathException {
+        return evalLimited(contextSequence, contextItem, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Passes the limit on to the following clause, or to a following
+     * "order by" clause which orders the results.
+     *
+     * @see LimitableExpression#evalLimited(Sequence, Item, int)
+     */
+    @Override
+    public Sequence evalLimited(Sequence contextSequence, Item contextItem, int limit)
+            throws XPathException {
+        if (limit != Integer.MAX_VALUE) {
+            startLimitedOrderBy(limit);
+        }
         if (context.getProfiler().isEnabled()){
             context.getProfiler().start(this);
             context.getProfiler().message(this, Profiler.DEPENDENCIES,
@@ -98,6 +113,10 @@ public class LetExpr extends BindingExpression {
                 // evaluate input sequence
                 in = inputSequence.eval(contextSequence, null);
                 clearContext(getExpressionId(), in);
+                if (in instanceof ValueSequence) {
+                    // keep large numeric bindings unboxed
+                    in = ((ValueSequence) in).compact();
+                }
                 // Declare the iteration variable
                 var = createVariable(varName);
                 var.setSequenceType(sequenceType);
@@ -108,7 +127,7 @@ public class LetExpr extends BindingExpression {
                 var.setContextDocs(inputSequence.getContextDocSet());
                 registerUpdateListener(in);
 
-                resultSequence = returnExpr.eval(contextSequence, null);
+                resultSequence = LimitableExpression.eval(returnExpr, contextSequence, null, limit);
 
                 if (sequenceType != null) {
                     Cardinality actualCardinality;
@@ -0,0 +1,76 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+
+import javax.annotation.Nullable;
+
+/**
+ * An expression which can stop evaluating once it has produced the first
+ * items of its result, for callers which only look at those, like
+ * fn:subsequence, fn:head or a positional predicate.
+ *
+ * The limit is pushed down from the caller when it is evaluated: a "for"
+ * clause stops iterating over its binding sequence as soon as enough
+ * items have been returned.
+ */
+public interface LimitableExpression extends Expression {
+
+    /**
+     * Evaluate the expression, stopping once it has produced at least
+     * the given number of items. The first limit items of the returned
+     * sequence are the same as those of {@link #eval(Sequence, Item)},
+     * but any further items may be missing.
+     *
+     * @param contextSequence the context sequence
+     * @param contextItem the context item
+     * @param limit the number of items required by the caller
+     *
+     * @return the result, which holds at least the first limit items of the full result if there are that many
+     *
+     * @throws XPathException if an error occurs during evaluation
+     */
+    Sequence evalLimited(@Nullable Sequence contextSequence, @Nullable Item contextItem, int limit) throws XPathException;
+
+    /**
+     * Evaluate an expression of which only the first items are required,
+     * pushing the limit down if the expression supports it.
+     *
+     * @param expression the expression to evaluate
+     * @param contextSequence the context sequence
+     * @param contextItem the context item
+     * @param limit the number of items required by the caller
+     *
+     * @return the result, which holds at least the first limit items of the full result if there are that many
+     *
+     * @throws XPathException if an error occurs during evaluation
+     */
+    static Sequence eval(final Expression expression, @Nullable final Sequence contextSequence,
+            @Nullable final Item contextItem, final int limit) throws XPathException {
+        if (expression instanceof LimitableExpression limitable) {
+            return limitable.evalLimited(contextSequence, contextItem, limit);
+        }
+        return expression.eval(contextSequence, contextItem);
+    }
+}
@@ -82,6 +82,11 @@ public class ModuleContext extends XQueryContext {
         return getRootContext().getRealUser();
     }
 
+    @Override
+    public int getSpillThreshold() {
+        return getRootContext().getSpillThreshold();
+    }
+
     String getLocation() {
         return location;
     }
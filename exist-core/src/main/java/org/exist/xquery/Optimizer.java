@@ -58,6 +58,7 @@ public class Optimizer extends DefaultExpressionVisitor {
     private final XQueryContext context;
     private final List<QueryRewriter> rewriters;
     private final FindOptimizable findOptimizable = new FindOptimizable();
+    private final @Nullable PredicateCostModel costModel;
 
     private int predicates = 0;
 
@@ -67,6 +68,7 @@ public class Optimizer extends DefaultExpressionVisitor {
         this.context = context;
         final DBBroker broker = context.getBroker();
         this.rewriters = broker != null ? broker.getIndexController().getQueryRewriters(context) : Collections.emptyList();
+        this.costModel = broker != null ? PredicateCostModel.create(broker) : null;
     }
 
     public boolean hasOptimized() {
@@ -77,6 +79,8 @@ public class Optimizer extends DefaultExpressionVisitor {
     public void visitLocationStep(final LocationStep locationStep) {
         super.visitLocationStep(locationStep);
 
+        reorderPredicates(locationStep);
+
         // check query rewriters if they want to rewrite the location step
         Pragma optimizePragma = null;
         try {  // Keep try-catch out of loop
@@ -155,6 +159,64 @@ public class Optimizer extends DefaultExpressionVisitor {
         }
     }
 
+    /**
+     * Reorder the predicates of a location step by their estimated cost: predicates
+     * which can be answered from an index come first, so they pre-select the context
+     * (see {@link Optimize}), followed by the remaining predicates in order of the
+     * number of elements they visit according to the statistics index. The order
+     * of predicates with the same cost is preserved. Nothing is changed if one of
+     * the predicates is positional.
+     *
+     * @param locationStep the location step
+     */
+    private void reorderPredicates(final LocationStep locationStep) {
+        @Nullable final Predicate[] preds = locationStep.getPredicates();
+        if (costModel == null || preds == null || preds.length < 2) {
+            return;
+        }
+
+        final Map<Predicate, PredicateCost> costs = new IdentityHashMap<>(preds.length);
+        for (final Predicate pred : preds) {
+            if (!PredicateCostModel.isReorderable(pred)) {
+                return;
+            }
+            pred.accept(findOptimizable);
+            final boolean indexed = canOptimize(findOptimizable.getOptimizables());
+            findOptimizable.reset();
+            costs.put(pred, new PredicateCost(indexed, costModel.estimate(pred)));
+        }
+
+        final Predicate[] ordered = preds.clone();
+        Arrays.sort(ordered, Comparator.comparing(costs::get));
+        if (Arrays.equals(preds, ordered)) {
+            return;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Reordering predicates of step {} by cost: {}", ExpressionDumper.dump(locationStep),
+                    Arrays.stream(ordered).map(costs::get).toList());
+        }
+        locationStep.setPredicates(ordered);
+        hasOptimized = true;
+    }
+
+    /**
+     * Estimated cost of a predicate, ordering index-backed predicates before
+     * structural ones and cheaper predicates before more expensive ones.
+     *
+     * @param indexed true if the predicate can be evaluated using an index
+     * @param nodes the estimated number of elements visited by the predicate
+     */
+    private record PredicateCost(boolean indexed, long nodes) implements Comparable<PredicateCost> {
+        @Override
+        public int compareTo(final PredicateCost other) {
+            if (indexed != other.indexed) {
+                return indexed ? -1 : 1;
+            }
+            return Long.compare(nodes, other.nodes);
+        }
+    }
+
     @Override
     public void visitFilteredExpr(final FilteredExpression filtered) {
         super.visitFilteredExpr(filtered);
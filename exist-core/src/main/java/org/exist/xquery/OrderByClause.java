@@ -75,7 +75,8 @@ public class OrderByClause extends AbstractFLWORClause {
         final Sequence result = getReturnExpression().eval(contextSequence, contextItem);
 
         if (orderedResult == null) {
-            orderedResult = new OrderedValueSequence(orderSpecs, result != null ? result.getItemCount() : 100);
+            orderedResult = new OrderedValueSequence(orderSpecs, result != null ? result.getItemCount() : 100,
+                    context.getSpillThreshold());
         }
 
         if (result != null) {
@@ -89,6 +90,17 @@ public class OrderByClause extends AbstractFLWORClause {
         return result;
     }
 
+    /**
+     * Start an evaluation of which only the first results, up to the given
+     * limit, are required. Only those tuples which may still be among the
+     * first are then kept, instead of sorting all of them.
+     *
+     * @param limit the number of results required
+     */
+    void startLimited(final int limit) {
+        stack.addFirst(new OrderedValueSequence(orderSpecs, Math.min(limit, 100), context.getSpillThreshold(), limit));
+    }
+
     @Override
     public Sequence postEval(final Sequence seq) throws XPathException {
         final OrderedValueSequence orderedResult = stack.pollFirst();
@@ -97,6 +109,7 @@ public class OrderByClause extends AbstractFLWORClause {
         }
 
         orderedResult.coerceTypesForOrderBy();
+        // a spilled result keeps its spill file until it is no longer reachable
         orderedResult.sort();
 
         Sequence result = orderedResult;
@@ -141,6 +154,8 @@ public class OrderByClause extends AbstractFLWORClause {
     public void resetState(boolean postOptimization) {
         super.resetState(postOptimization);
         returnExpr.resetState(postOptimization);
+        // release the spill files of an evaluation which did not complete
+        stack.forEach(OrderedValueSequence::close);
         stack.clear();
     }
 
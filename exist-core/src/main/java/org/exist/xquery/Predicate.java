@@ -29,7 +29,10 @@ import org.exist.dom.persistent.NewArrayNodeSet;
 import org.exist.dom.persistent.NodeProxy;
 import org.exist.dom.persistent.NodeSet;
 import org.exist.dom.persistent.VirtualNodeSet;
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.functions.fn.FunPosition;
 import org.exist.xquery.util.ExpressionDumper;
+import org.exist.xquery.value.IntegerValue;
 import org.exist.xquery.value.Item;
 import org.exist.xquery.value.NumericValue;
 import org.exist.xquery.value.Sequence;
@@ -628,6 +631,55 @@ public class Predicate extends PathExpr {
         return executionMode;
     }
 
+    /**
+     * Get the number of items at the start of the context sequence from which
+     * this predicate selects, if it selects by a constant position only,
+     * as in [3], [position() lt 10] or [position() le 10].
+     *
+     * @return the number of leading items required, or -1 if all items may be selected
+     */
+    int getPositionLimit() {
+        if (getSubExpressionCount() != 1) {
+            return -1;
+        }
+        final Expression inner = getSubExpression(0);
+        final long limit;
+        if (inner instanceof LiteralValue literal && literal.getValue() instanceof IntegerValue position) {
+            limit = position.getLong();
+        } else if (inner instanceof GeneralComparison comparison) {
+            final Comparison relation;
+            final Expression other;
+            if (isPositionCall(comparison.getLeft())) {
+                relation = comparison.getRelation();
+                other = comparison.getRight();
+            } else if (isPositionCall(comparison.getRight())) {
+                relation = switch (comparison.getRelation()) {
+                    case GT -> Comparison.LT;
+                    case GTEQ -> Comparison.LTEQ;
+                    default -> comparison.getRelation();
+                };
+                other = comparison.getLeft();
+            } else {
+                return -1;
+            }
+            if (!(other instanceof LiteralValue literal && literal.getValue() instanceof IntegerValue position)) {
+                return -1;
+            }
+            limit = switch (relation) {
+                case LT -> position.getLong() - 1;
+                case LTEQ, EQ -> position.getLong();
+                default -> -1;
+            };
+        } else {
+            return -1;
+        }
+        return limit > 0 && limit < Integer.MAX_VALUE ? (int) limit : -1;
+    }
+
+    private static boolean isPositionCall(final Expression expr) {
+        return expr instanceof InternalFunctionCall call && call.getFunction() instanceof FunPosition;
+    }
+
     @Override
     public void resetState(final boolean postOptimization) {
         super.resetState(postOptimization);
@@ -0,0 +1,168 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.storage.DBBroker;
+import org.exist.storage.ElementValue;
+import org.exist.storage.statistics.IndexStatistics;
+import org.exist.xquery.value.Type;
+
+import javax.annotation.Nullable;
+
+/**
+ * Estimates the cost of evaluating a predicate from the element counts
+ * collected by {@link IndexStatistics}. The cost of a predicate is the number
+ * of elements its location steps may have to visit: the fewer elements a
+ * predicate touches, the earlier the {@link Optimizer} should evaluate it.
+ *
+ * The estimate is deliberately coarse: the data guide only records element
+ * counts per path, so attribute and text steps do not contribute, while
+ * wildcard element steps make the cost unknown.
+ */
+final class PredicateCostModel {
+
+    /**
+     * Cost of a predicate which navigates to elements without a name test.
+     */
+    static final long UNKNOWN_COST = Long.MAX_VALUE;
+
+    private final IndexStatistics statistics;
+
+    private PredicateCostModel(final IndexStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Create a cost model for the database of the given broker.
+     *
+     * @param broker the broker
+     * @return the cost model, or null if the statistics index is not enabled
+     * or has not collected any statistics yet
+     */
+    static @Nullable PredicateCostModel create(final DBBroker broker) {
+        final IndexStatistics statistics = (IndexStatistics) broker.getBrokerPool().getIndexManager()
+                .getIndexById(IndexStatistics.ID);
+        if (statistics == null || statistics.isEmpty()) {
+            return null;
+        }
+        return new PredicateCostModel(statistics);
+    }
+
+    /**
+     * Check if the predicate may be evaluated in any order relative to the other
+     * predicates of a step, i.e. it filters by a boolean condition or by the
+     * existence of nodes, and does not depend on the context position.
+     *
+     * @param predicate the analyzed predicate
+     * @return true if the predicate may be moved
+     */
+    static boolean isReorderable(final Predicate predicate) {
+        if (predicate.getSubExpressionCount() != 1 ||
+                Dependency.dependsOn(predicate, Dependency.CONTEXT_POSITION)) {
+            return false;
+        }
+        return switch (predicate.getExecutionMode()) {
+            case BOOLEAN, NODE -> true;
+            case POSITIONAL -> false;
+            // predicates split off by the optimizer have not been analyzed yet
+            case UNKNOWN -> {
+                final int type = predicate.getSubExpression(0).returnsType();
+                yield Type.subTypeOf(type, Type.BOOLEAN) || Type.subTypeOf(type, Type.NODE);
+            }
+        };
+    }
+
+    /**
+     * Estimate the number of elements visited when evaluating the predicate.
+     *
+     * @param predicate the predicate
+     * @return the estimated cost, or {@link #UNKNOWN_COST}
+     */
+    long estimate(final Predicate predicate) {
+        final CostVisitor visitor = new CostVisitor();
+        predicate.accept(visitor);
+        return visitor.cost;
+    }
+
+    private class CostVisitor extends DefaultExpressionVisitor {
+        private long cost = 0;
+
+        @Override
+        public void visit(final Expression expression) {
+            // an extension expression passes its inner expression to visit
+            if (expression instanceof final LocationStep locationStep) {
+                visitLocationStep(locationStep);
+                return;
+            }
+            for (int i = 0; i < expression.getSubExpressionCount(); i++) {
+                expression.getSubExpression(i).accept(this);
+            }
+        }
+
+        @Override
+        public void visitLocationStep(final LocationStep locationStep) {
+            final NodeTest test = locationStep.getTest();
+            if (test.getType() == Type.ELEMENT || test.getType() == Type.NODE) {
+                final int axis = locationStep.getAxis();
+                if (test.isWildcardTest() || test.getName() == null) {
+                    if (axis != Constants.SELF_AXIS && axis != Constants.PARENT_AXIS) {
+                        cost = UNKNOWN_COST;
+                    }
+                } else if (test.getName().getNameType() == ElementValue.ELEMENT && cost != UNKNOWN_COST) {
+                    cost = saturatedAdd(cost, statistics.getNodeCount(test.getName()));
+                }
+            }
+            super.visitLocationStep(locationStep);
+        }
+
+        @Override
+        public void visitGeneralComparison(final GeneralComparison comparison) {
+            comparison.getLeft().accept(this);
+            comparison.getRight().accept(this);
+        }
+
+        @Override
+        public void visitAndExpr(final OpAnd and) {
+            and.getLeft().accept(this);
+            and.getRight().accept(this);
+        }
+
+        @Override
+        public void visitOrExpr(final OpOr or) {
+            or.getLeft().accept(this);
+            or.getRight().accept(this);
+        }
+
+        @Override
+        public void visitFilteredExpr(final FilteredExpression filtered) {
+            filtered.getExpression().accept(this);
+            for (final Predicate pred : filtered.getPredicates()) {
+                pred.accept(this);
+            }
+        }
+
+        private long saturatedAdd(final long a, final long b) {
+            final long sum = a + b;
+            return sum < 0 ? UNKNOWN_COST : sum;
+        }
+    }
+}
@@ -56,6 +56,14 @@ public class RangeSequence extends AbstractSequence {
         throw new XPathException(other, "Internal error: adding to an immutable sequence");
     }
 
+    public IntegerValue getStart() {
+        return start;
+    }
+
+    public IntegerValue getEnd() {
+        return end;
+    }
+
     public int getItemType() {
         return Type.INTEGER;
     }
@@ -146,6 +154,23 @@ public class RangeSequence extends AbstractSequence {
         }
     }
 
+    /**
+     * Computes the sum of the range without iterating over it.
+     *
+     * @return the sum of all integers in the range
+     * @throws XPathException if the bounds cannot be converted
+     */
+    public BigInteger sum() throws XPathException {
+        final BigInteger first = start.toJavaObject(BigInteger.class);
+        final BigInteger last = end.toJavaObject(BigInteger.class);
+        if (first.compareTo(last) > 0) {
+            return BigInteger.ZERO;
+        }
+        return last.subtract(first).add(BigInteger.ONE)
+                .multiply(first.add(last))
+                .shiftRight(1);
+    }
+
     @Override
     public long getItemCountLong() {
         if (start.compareTo(end) > 0) {
@@ -90,6 +90,15 @@ public abstract class Step extends AbstractExpression {
         predicates = newPredicates;
     }
 
+    /**
+     * Replace the predicates of this step, e.g. to change their order of evaluation.
+     *
+     * @param predicates the new predicates
+     */
+    public void setPredicates(final Predicate[] predicates) {
+        this.predicates = predicates;
+    }
+
     public boolean hasPredicates() {
         return predicates != null;
     }
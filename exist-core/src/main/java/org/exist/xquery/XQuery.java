@@ -45,6 +45,7 @@ import org.exist.source.FileSource;
 import org.exist.source.Source;
 import org.exist.source.StringSource;
 import org.exist.storage.DBBroker;
+import org.exist.storage.QueryResultCache;
 import org.exist.xquery.parser.XQueryLexer;
 import org.exist.xquery.parser.XQueryParser;
 import org.exist.xquery.parser.XQueryTreeParser;
@@ -215,6 +216,7 @@ public class XQuery {
     	 */
     	
     	final long start = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
         final XQueryLexer lexer = new XQueryLexer(context, reader);
         final XQueryParser parser = new XQueryParser(lexer);
         final XQueryTreeParser treeParser = new XQueryTreeParser(context);
@@ -280,7 +282,12 @@ public class XQuery {
             	final NumberFormat nf = NumberFormat.getNumberInstance();
                 LOG.debug("Compilation took {} ms", nf.format(System.currentTimeMillis() - start));
             }
-            
+
+            final DBBroker broker = context.getBroker();
+            if (broker != null) {
+                broker.getBrokerPool().getXQueryPool().recordCompilation(System.nanoTime() - startNanos);
+            }
+
             return expr;
         } catch(final RecognitionException e) {
             LOG.debug("Error compiling query: {}", e.getMessage(), e);
@@ -415,6 +422,23 @@ public class XQuery {
             FunctionCall call = null;
             try {
 
+                // the result of a query which opts in may be served from the result cache
+                final QueryResultCache resultCache = broker.getBrokerPool().getQueryResultCache();
+                QueryResultCache.Policy cachePolicy = null;
+                QueryResultCache.Key cacheKey = null;
+                Sequence cachedResult = null;
+                long cacheGeneration = 0;
+                if (functionCall == null && contextSequence == null && context.getContextItemDeclartion() == null) {
+                    cachePolicy = QueryResultCache.getPolicy(context);
+                    if (cachePolicy != null) {
+                        cacheKey = QueryResultCache.getKey(context, broker.getCurrentSubject().getName());
+                        if (cacheKey != null) {
+                            cacheGeneration = resultCache.getGeneration();
+                            cachedResult = resultCache.get(cacheKey);
+                        }
+                    }
+                }
+
                 // support for XQuery 3.0 - declare context item :=
                 if(contextSequence == null) {
                     if(context.getContextItemDeclartion() != null) {
@@ -423,7 +447,10 @@ public class XQuery {
                 }
 
                 final Sequence result;
-                if (expression instanceof LibraryModuleRoot) {
+                if (cachedResult != null) {
+                    result = cachedResult;
+
+                } else if (expression instanceof LibraryModuleRoot) {
                     if (functionCall == null) {
                         if (expression != null) {
                             throw new XPathException(((LibraryModuleRoot) expression).getLine(), ((LibraryModuleRoot) expression).getColumn(), ErrorCodes.EXXQDY0005, "No function call details were provided when trying to execute a Library Module.");
@@ -451,6 +478,10 @@ public class XQuery {
                     result = expression.eval(contextSequence, null);
                 }
 
+                if (cacheKey != null && cachedResult == null) {
+                    resultCache.put(cacheKey, context.getSource(), cachePolicy, result, cacheGeneration);
+                }
+
                 if(LOG.isDebugEnabled()) {
                     final NumberFormat nf = NumberFormat.getNumberInstance();
                     LOG.debug("Execution took {} ms", nf.format(System.currentTimeMillis() - start));
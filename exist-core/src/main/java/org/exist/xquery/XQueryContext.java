@@ -127,6 +127,7 @@ public class XQueryContext implements BinaryValueManager, Context {
     public static final String XQUERY_BACKWARD_COMPATIBLE_ATTRIBUTE = "backwardCompatible";
     public static final String XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_ATTRIBUTE = "raise-error-on-failed-retrieval";
     public static final String ENFORCE_INDEX_USE_ATTRIBUTE = "enforce-index-use";
+    public static final String SPILL_THRESHOLD_ATTRIBUTE = "spill-threshold";
 
     //TODO : move elsewhere ?
     public static final String BUILT_IN_MODULE_URI_ATTRIBUTE = "uri";
@@ -138,6 +139,8 @@ public class XQueryContext implements BinaryValueManager, Context {
     public static final String PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL = "xquery.raise-error-on-failed-retrieval";
     public static final boolean XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT = false;
     public static final String PROPERTY_ENFORCE_INDEX_USE = "xquery.enforce-index-use";
+    public static final String PROPERTY_SPILL_THRESHOLD = "xquery.spill-threshold";
+    public static final int SPILL_THRESHOLD_DEFAULT = 1_000_000;
 
     //TODO : move elsewhere ?
     public static final String PROPERTY_BUILT_IN_MODULES = "xquery.modules";
@@ -385,6 +388,11 @@ public class XQueryContext implements BinaryValueManager, Context {
 
     private boolean raiseErrorOnFailedRetrieval = XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT;
 
+    /**
+     * The number of tuples which an "order by" or "group by" clause may hold in memory before spilling them to disk.
+     */
+    private int spillThreshold = SPILL_THRESHOLD_DEFAULT;
+
     private boolean isShared = false;
 
     private Source source = null;
@@ -653,6 +661,60 @@ public class XQueryContext implements BinaryValueManager, Context {
         return ctx;
     }
 
+    /**
+     * Create a new, empty context into which the source of this context's query
+     * may be compiled a second time, e.g. for evaluating part of the query on
+     * another thread.
+     *
+     * The new context shares the statically known namespaces, documents and
+     * collections, the current date/time and the watchdog of this context,
+     * but none of its modules, functions or variables, nor its profiler.
+     *
+     * @return the new context.
+     */
+    public XQueryContext forkContext() {
+        final XQueryContext ctx = new XQueryContext(db, configuration, null);
+        for (final Map.Entry<String, String> namespace : staticNamespaces.entrySet()) {
+            if (XML_NS_PREFIX.equals(namespace.getKey()) || XMLNS_ATTRIBUTE.equals(namespace.getKey())) {
+                continue;
+            }
+            try {
+                ctx.declareNamespace(namespace.getKey(), namespace.getValue());
+            } catch (final XPathException e) {
+                // ignore
+                LOG.warn(e);
+            }
+        }
+        updateForkedContext(ctx);
+        return ctx;
+    }
+
+    /**
+     * Copy the dynamic context of this query to the context of another compiled copy of it,
+     * e.g. a copy taken from the {@link org.exist.storage.XQueryPool}, which evaluates part
+     * of the query on another thread.
+     *
+     * @param ctx the context of the copy
+     */
+    public void updateForkedContext(final XQueryContext ctx) {
+        // the forked context must see the same current date/time
+        ctx.calendar = getCalendar();
+        ctx.implicitTimeZone = getImplicitTimeZone();
+        ctx.baseURI = this.baseURI;
+        ctx.baseURISetInProlog = this.baseURISetInProlog;
+        ctx.staticDocumentPaths = this.staticDocumentPaths;
+        ctx.staticDocuments = this.staticDocuments;
+        ctx.dynamicDocuments = this.dynamicDocuments;
+        ctx.dynamicTextResources = this.dynamicTextResources;
+        ctx.dynamicCollections = this.dynamicCollections;
+        ctx.moduleLoadPath = this.moduleLoadPath;
+        ctx.attributes = new HashMap<>(this.attributes);
+        ctx.watchdog = this.watchdog;
+        ctx.httpContext = this.httpContext;
+        ctx.testRepository = this.testRepository;
+        ctx.spillThreshold = this.spillThreshold;
+    }
+
     @Override
     public void updateContext(final XQueryContext from) {
         this.watchdog = from.watchdog;
@@ -1254,6 +1316,10 @@ public class XQueryContext implements BinaryValueManager, Context {
         return staticDocuments;
     }
 
+    public @Nullable XmldbURI[] getStaticallyKnownDocumentPaths() {
+        return staticDocumentPaths;
+    }
+
     /**
      * Gets a document from the "Available documents" of the
      * dynamic context.
@@ -2131,6 +2197,26 @@ public class XQueryContext implements BinaryValueManager, Context {
         return raiseErrorOnFailedRetrieval;
     }
 
+    /**
+     * Get the number of tuples which an "order by" or "group by" clause
+     * may hold in memory before spilling them to disk.
+     *
+     * @return the spill threshold, or 0 if tuples are never spilled.
+     */
+    public int getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Set the number of tuples which an "order by" or "group by" clause
+     * may hold in memory before spilling them to disk.
+     *
+     * @param spillThreshold the spill threshold, or 0 to never spill tuples.
+     */
+    public void setSpillThreshold(final int spillThreshold) {
+        this.spillThreshold = spillThreshold;
+    }
+
     public Database getDatabase() {
         return db;
     }
@@ -3097,6 +3183,7 @@ public class XQueryContext implements BinaryValueManager, Context {
             case ProfilePragma.PROFILING_PRAGMA_LOCAL_NAME -> new ProfilePragma(rootExpression, qname, sanitizedContents);
             case ForceIndexUse.FORCE_INDEX_USE_PRAGMA_LOCAL_NAME -> new ForceIndexUse(rootExpression, qname, sanitizedContents);
             case NoIndexPragma.NO_INDEX_PRAGMA_LOCAL_NAME -> new NoIndexPragma(rootExpression, qname, sanitizedContents);
+            case ParallelPragma.PARALLEL_PRAGMA_LOCAL_NAME -> new ParallelPragma(rootExpression, qname, sanitizedContents);
             default -> null;
         };
     }
@@ -3151,6 +3238,8 @@ public class XQueryContext implements BinaryValueManager, Context {
         this.raiseErrorOnFailedRetrieval =
                 config.getProperty(PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL, Boolean.FALSE);
 
+        this.spillThreshold = config.getInteger(PROPERTY_SPILL_THRESHOLD, SPILL_THRESHOLD_DEFAULT);
+
         // Get map of built-in modules
         final Map<String, Class<Module>> builtInModules =
                 (Map<String, Class<Module>>) config.getProperty(PROPERTY_BUILT_IN_MODULES);
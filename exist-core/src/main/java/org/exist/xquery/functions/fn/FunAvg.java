@@ -87,8 +87,11 @@ public class FunAvg extends Function {
         }
         Sequence result;
         final Sequence inner = getArgument(0).eval(contextSequence, contextItem);
+        final ComputableValue unboxedSum;
         if (inner.isEmpty()) {
             result = Sequence.EMPTY_SEQUENCE;
+        } else if ((unboxedSum = FunSum.sumUnboxed(this, inner)) != null) {
+            result = unboxedSum.div(new IntegerValue(this, inner.getItemCountLong()));
         } else {
             final SequenceIterator iter = inner.iterate();
             Item item = iter.nextItem();
@@ -22,11 +22,23 @@
 package org.exist.xquery.functions.fn;
 
 import org.exist.dom.QName;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.indexing.StructuralIndex;
+import org.exist.storage.ElementValue;
 import org.exist.xquery.Cardinality;
+import org.exist.xquery.Constants;
 import org.exist.xquery.Dependency;
+import org.exist.xquery.DynamicCardinalityCheck;
+import org.exist.xquery.Expression;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
+import org.exist.xquery.InternalFunctionCall;
+import org.exist.xquery.LocationStep;
+import org.exist.xquery.NodeTest;
+import org.exist.xquery.PathExpr;
 import org.exist.xquery.Profiler;
+import org.exist.xquery.VariableReference;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.FunctionReturnSequenceType;
@@ -37,6 +49,8 @@ import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.Type;
 
+import javax.annotation.Nullable;
+
 public class FunCount extends Function {
 
     public final static FunctionSignature signature =
@@ -92,8 +106,13 @@ public class FunCount extends Function {
         if (getArgumentCount() == 0) {
             result = IntegerValue.ZERO;
         } else {
-            final Sequence seq = getArgument(0).eval(contextSequence, null);
-            result = new IntegerValue(this, seq.getItemCountLong());
+            final long count = countFromIndex(getArgument(0), contextSequence, Long.MAX_VALUE);
+            if (count >= 0) {
+                result = new IntegerValue(this, count);
+            } else {
+                final Sequence seq = getArgument(0).eval(contextSequence, null);
+                result = new IntegerValue(this, seq.getItemCountLong());
+            }
         }
 
         if (context.getProfiler().isEnabled()) {
@@ -102,4 +121,86 @@ public class FunCount extends Function {
 
         return result;
     }
+
+    /**
+     * Count the nodes selected by an expression of the form
+     * <code>collection($uri)//name</code>, <code>doc($uri)//@name</code> or
+     * <code>$docs//name</code> directly from the structural index, without
+     * building the node set.
+     *
+     * @param argument the expression whose items should be counted
+     * @param contextSequence the context sequence for the expression
+     * @param max the number of matches after which counting may stop
+     *
+     * @return the number of selected nodes, at most max, or -1 if the
+     *     expression has to be evaluated
+     *
+     * @throws XPathException if an error occurs while evaluating the documents to scan
+     */
+    static long countFromIndex(Expression argument, @Nullable final Sequence contextSequence, final long max)
+            throws XPathException {
+        while (argument instanceof DynamicCardinalityCheck) {
+            argument = argument.getSubExpression(0);
+        }
+        if (argument.getClass() != PathExpr.class || ((PathExpr) argument).getLength() != 2) {
+            return -1;
+        }
+        final PathExpr path = (PathExpr) argument;
+
+        // the documents are evaluated a second time if the index cannot be used,
+        // so only accept expressions for which that is cheap
+        final Expression docsExpr = path.getExpression(0);
+        if (!(docsExpr instanceof VariableReference || isDocumentFunction(docsExpr))
+                || Dependency.dependsOn(docsExpr.getDependencies(), Dependency.CONTEXT_ITEM)
+                || Dependency.dependsOn(docsExpr.getDependencies(), Dependency.CONTEXT_POSITION)) {
+            return -1;
+        }
+
+        if (!(path.getLastExpression() instanceof LocationStep step) || step.hasPredicates()) {
+            return -1;
+        }
+        final NodeTest test = step.getTest();
+        if (test.isWildcardTest() || test.getName() == null) {
+            return -1;
+        }
+        final byte type;
+        if (test.getType() == Type.ELEMENT
+                && (step.getAxis() == Constants.DESCENDANT_SELF_AXIS || step.getAxis() == Constants.DESCENDANT_AXIS)) {
+            type = ElementValue.ELEMENT;
+        } else if (test.getType() == Type.ATTRIBUTE && step.getAxis() == Constants.DESCENDANT_ATTRIBUTE_AXIS) {
+            type = ElementValue.ATTRIBUTE;
+        } else {
+            return -1;
+        }
+
+        final Sequence docs = docsExpr.eval(contextSequence, null);
+        if (docs.isEmpty()) {
+            return 0;
+        }
+        if (!docs.isPersistentSet()) {
+            return -1;
+        }
+        final NodeSet docNodes = docs.toNodeSet();
+        for (final NodeProxy node : docNodes) {
+            if (!node.isDocument()) {
+                return -1;
+            }
+        }
+
+        final XQueryContext context = argument.getContext();
+        final StructuralIndex index = context.getBroker().getStructuralIndex();
+        if (context.getProfiler().isEnabled()) {
+            context.getProfiler().message(step, Profiler.OPTIMIZATIONS, "OPTIMIZATION",
+                    "Counting with structural index '" + index + "'");
+        }
+        return index.countElementsByTagName(type, docNodes.getDocumentSet(), test.getName(), max, step);
+    }
+
+    private static boolean isDocumentFunction(final Expression expr) {
+        if (!(expr instanceof InternalFunctionCall call)) {
+            return false;
+        }
+        final Function function = call.getFunction();
+        return function instanceof ExtCollection || function instanceof FunDoc;
+    }
 }
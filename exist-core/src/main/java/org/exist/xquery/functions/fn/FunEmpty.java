@@ -24,8 +24,10 @@ package org.exist.xquery.functions.fn;
 import org.exist.dom.QName;
 import org.exist.xquery.Cardinality;
 import org.exist.xquery.Dependency;
+import org.exist.xquery.Expression;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
+import org.exist.xquery.LimitableExpression;
 import org.exist.xquery.Profiler;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
@@ -37,6 +39,8 @@ import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.Type;
 
+import javax.annotation.Nullable;
+
 /**
  * @author wolf
  */
@@ -74,12 +78,34 @@ public class FunEmpty extends Function {
             }
         }
 
-        final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
-        final Sequence result = seq.isEmpty() ? BooleanValue.TRUE : BooleanValue.FALSE;
+        final Sequence result = isEmpty(getArgument(0), contextSequence, contextItem) ? BooleanValue.TRUE : BooleanValue.FALSE;
 
         if (context.getProfiler().isEnabled()) {
             context.getProfiler().end(this, "", result);
         }
         return result;
     }
+
+    /**
+     * Test whether an expression evaluates to the empty sequence, asking the
+     * structural index for the first match where possible, and otherwise
+     * stopping the evaluation after the first item if the expression supports it.
+     *
+     * @param argument the expression to test
+     * @param contextSequence the context sequence
+     * @param contextItem the context item
+     *
+     * @return true if the expression evaluates to the empty sequence
+     *
+     * @throws XPathException if an error occurs during evaluation
+     */
+    static boolean isEmpty(final Expression argument, @Nullable final Sequence contextSequence,
+            @Nullable final Item contextItem) throws XPathException {
+        final long count = FunCount.countFromIndex(argument,
+                contextItem != null ? contextItem.toSequence() : contextSequence, 1);
+        if (count >= 0) {
+            return count == 0;
+        }
+        return LimitableExpression.eval(argument, contextSequence, contextItem, 1).isEmpty();
+    }
 }
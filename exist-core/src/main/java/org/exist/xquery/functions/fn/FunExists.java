@@ -74,8 +74,7 @@ public class FunExists extends Function {
         //if(contextItem != null)
 			//contextSequence = contextItem.toSequence();
         
-		final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
-		final Sequence result = seq.isEmpty() ? BooleanValue.FALSE : BooleanValue.TRUE;
+		final Sequence result = FunEmpty.isEmpty(getArgument(0), contextSequence, contextItem) ? BooleanValue.FALSE : BooleanValue.TRUE;
         
         if (context.getProfiler().isEnabled()) 
             {context.getProfiler().end(this, "", result);} 
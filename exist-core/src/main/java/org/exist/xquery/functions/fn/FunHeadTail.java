@@ -28,10 +28,12 @@ import org.exist.xquery.Cardinality;
 import org.exist.xquery.ErrorCodes;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
+import org.exist.xquery.LimitableExpression;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReturnSequenceType;
+import org.exist.xquery.value.Item;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.Type;
@@ -69,6 +71,19 @@ public class FunHeadTail extends BasicFunction {
 		}
 	}
 	
+	@Override
+	public Sequence eval(Sequence contextSequence, final Item contextItem) throws XPathException {
+		if (!isCalledAs("head")) {
+			return super.eval(contextSequence, contextItem);
+		}
+		if (contextItem != null) {
+			contextSequence = contextItem.toSequence();
+		}
+		// only the first item of the argument is needed
+		final Sequence arg = LimitableExpression.eval(getArgument(0), contextSequence, contextItem, 1);
+		return eval(new Sequence[] { arg }, contextSequence);
+	}
+
 	@Override
 	public Sequence eval(Sequence[] args, Sequence contextSequence)
 			throws XPathException {
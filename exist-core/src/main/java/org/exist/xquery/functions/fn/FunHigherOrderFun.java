@@ -24,10 +24,12 @@ package org.exist.xquery.functions.fn;
 import org.exist.dom.QName;
 import org.exist.xquery.*;
 import org.exist.xquery.functions.array.ArrayType;
+import org.exist.xquery.value.DoubleArraySequence;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReference;
 import org.exist.xquery.value.FunctionReturnSequenceType;
 import org.exist.xquery.value.Item;
+import org.exist.xquery.value.LongArraySequence;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.SequenceType;
@@ -179,6 +181,10 @@ public class FunHigherOrderFun extends BasicFunction {
                     result = foldRightNonRecursive(ref, zero, ((ValueSequence) seq).iterateInReverse());
                 } else if (seq instanceof RangeSequence) {
                     result = foldRightNonRecursive(ref, zero, ((RangeSequence) seq).iterateInReverse());
+                } else if (seq instanceof LongArraySequence) {
+                    result = foldRightNonRecursive(ref, zero, ((LongArraySequence) seq).iterateInReverse());
+                } else if (seq instanceof DoubleArraySequence) {
+                    result = foldRightNonRecursive(ref, zero, ((DoubleArraySequence) seq).iterateInReverse());
                 } else {
                     result = foldRight(ref, zero, seq);
                 }
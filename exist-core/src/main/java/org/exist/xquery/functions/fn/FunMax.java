@@ -30,16 +30,20 @@ import org.exist.xquery.ErrorCodes;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
 import org.exist.xquery.Profiler;
+import org.exist.xquery.RangeSequence;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.AtomicValue;
 import org.exist.xquery.value.ComputableValue;
+import org.exist.xquery.value.DoubleArraySequence;
 import org.exist.xquery.value.DoubleValue;
 import org.exist.xquery.value.DurationValue;
 import org.exist.xquery.value.FloatValue;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReturnSequenceType;
+import org.exist.xquery.value.IntegerValue;
 import org.exist.xquery.value.Item;
+import org.exist.xquery.value.LongArraySequence;
 import org.exist.xquery.value.NumericValue;
 import org.exist.xquery.value.QNameValue;
 import org.exist.xquery.value.Sequence;
@@ -132,6 +136,8 @@ public class FunMax extends CollatingFunction {
 		final Sequence arg = getArgument(0).eval(contextSequence, contextItem);
 		if(arg.isEmpty())
             {result = Sequence.EMPTY_SEQUENCE;}
+        else if (getArgumentCount() == 1 && (result = maxUnboxed(arg)) != null)
+            {/* computed without materializing the items */}
         else {
         	boolean computableProcessing = false;
         	//TODO : test if a range index is defined *iff* it is compatible with the collator
@@ -220,4 +226,21 @@ public class FunMax extends CollatingFunction {
         return result;   
         
 	}
+
+	/**
+	 * Computes the maximum of sequences which hold their values unboxed.
+	 *
+	 * @param arg the input sequence
+	 * @return the largest value, or null if the sequence has to be iterated
+	 */
+	private Sequence maxUnboxed(final Sequence arg) {
+		if (arg instanceof LongArraySequence longs) {
+			return new IntegerValue(this, longs.max());
+		} else if (arg instanceof DoubleArraySequence doubles) {
+			return new DoubleValue(this, doubles.max());
+		} else if (arg instanceof RangeSequence range) {
+			return new IntegerValue(this, range.getEnd().getLong());
+		}
+		return null;
+	}
 }
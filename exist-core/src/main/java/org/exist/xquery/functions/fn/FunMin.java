@@ -30,16 +30,20 @@ import org.exist.xquery.ErrorCodes;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
 import org.exist.xquery.Profiler;
+import org.exist.xquery.RangeSequence;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.AtomicValue;
 import org.exist.xquery.value.ComputableValue;
+import org.exist.xquery.value.DoubleArraySequence;
 import org.exist.xquery.value.DoubleValue;
 import org.exist.xquery.value.DurationValue;
 import org.exist.xquery.value.FloatValue;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReturnSequenceType;
+import org.exist.xquery.value.IntegerValue;
 import org.exist.xquery.value.Item;
+import org.exist.xquery.value.LongArraySequence;
 import org.exist.xquery.value.NumericValue;
 import org.exist.xquery.value.QNameValue;
 import org.exist.xquery.value.Sequence;
@@ -136,6 +140,8 @@ public class FunMin extends CollatingFunction {
 		final Sequence arg = getArgument(0).eval(contextSequence, contextItem);
 		if (arg.isEmpty())
 			{result = Sequence.EMPTY_SEQUENCE;}
+        else if (getArgumentCount() == 1 && (result = minUnboxed(arg)) != null)
+            {/* computed without materializing the items */}
         else {
         	//TODO : test if a range index is defined *iff* it is compatible with the collator
     		final Collator collator = getCollator(contextSequence, contextItem, 2);
@@ -222,4 +228,20 @@ public class FunMin extends CollatingFunction {
         return result;   
     }
 
+	/**
+	 * Computes the minimum of sequences which hold their values unboxed.
+	 *
+	 * @param arg the input sequence
+	 * @return the smallest value, or null if the sequence has to be iterated
+	 */
+	private Sequence minUnboxed(final Sequence arg) {
+		if (arg instanceof LongArraySequence longs) {
+			return new IntegerValue(this, longs.min());
+		} else if (arg instanceof DoubleArraySequence doubles) {
+			return new DoubleValue(this, doubles.min());
+		} else if (arg instanceof RangeSequence range) {
+			return new IntegerValue(this, range.getStart().getLong());
+		}
+		return null;
+	}
 }
@@ -28,6 +28,7 @@ import org.exist.xquery.*;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReturnSequenceType;
 import org.exist.xquery.value.IntegerValue;
+import org.exist.xquery.value.LongArraySequence;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.Type;
@@ -61,7 +62,7 @@ public class FunStringToCodepoints extends BasicFunction {
         if (args[0].isEmpty())
 			{result =  Sequence.EMPTY_SEQUENCE;}
         else {
-    		result = getCodePoints(this, args[0].getStringValue());
+    		result = getCodePointArray(args[0].getStringValue());
         }
         
         if (context.getProfiler().isEnabled()) 
@@ -70,6 +71,26 @@ public class FunStringToCodepoints extends BasicFunction {
         
 	}
 
+    /**
+     * Returns the code points of a string as an unboxed sequence.
+     *
+     * @param s a <code>String</code> value
+     * @return a <code>LongArraySequence</code> value
+     */
+    public static LongArraySequence getCodePointArray(final String s) {
+        final long[] codepoints = new long[s.length()];
+        int size = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char ch = s.charAt(i);
+            if (XMLCharUtil.isSurrogate(ch)) {
+                codepoints[size++] = XMLChar.supplemental(ch, s.charAt(++i));
+            } else {
+                codepoints[size++] = ch;
+            }
+        }
+        return new LongArraySequence(codepoints, size);
+    }
+
     /**
      * The method <code>getCodePoints</code>
      *
@@ -109,14 +109,27 @@ public class FunSubSequence extends Function {
         }
 
         final Sequence result;
-        final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
+        final DoubleValue startLoc = (DoubleValue) getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+        final DoubleValue length = getArgumentCount() != 3 ? null : (DoubleValue) getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+
+        // only the items up to the end of the subsequence are needed from the input sequence
+        final long limit;
+        if (length == null || length.getLong() < 1 || length.getLong() >= Integer.MAX_VALUE
+                || startLoc.getLong() <= Integer.MIN_VALUE || startLoc.getLong() >= Integer.MAX_VALUE) {
+            limit = -1;
+        } else {
+            limit = startLoc.getLong() + length.getLong() - 1;
+        }
+        final Sequence seq;
+        if (limit > 0 && limit < Integer.MAX_VALUE) {
+            seq = LimitableExpression.eval(getArgument(0), contextSequence, contextItem, (int) limit);
+        } else {
+            seq = getArgument(0).eval(contextSequence, contextItem);
+        }
         if (seq.isEmpty()) {
             result = Sequence.EMPTY_SEQUENCE;
         } else {
-            return subsequence(seq,
-                    ((DoubleValue)getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE)),
-                    getArgumentCount() != 3 ? null : ((DoubleValue)getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE))
-            );
+            return subsequence(seq, startLoc, length);
         }
 
         if (context.getProfiler().isEnabled()) {
@@ -25,19 +25,23 @@ import org.exist.dom.QName;
 import org.exist.xquery.Cardinality;
 import org.exist.xquery.Dependency;
 import org.exist.xquery.ErrorCodes;
+import org.exist.xquery.Expression;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
 import org.exist.xquery.Profiler;
+import org.exist.xquery.RangeSequence;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.AtomicValue;
 import org.exist.xquery.value.ComputableValue;
+import org.exist.xquery.value.DoubleArraySequence;
 import org.exist.xquery.value.DoubleValue;
 import org.exist.xquery.value.DurationValue;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.FunctionReturnSequenceType;
 import org.exist.xquery.value.IntegerValue;
 import org.exist.xquery.value.Item;
+import org.exist.xquery.value.LongArraySequence;
 import org.exist.xquery.value.NumericValue;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
@@ -97,6 +101,8 @@ public class FunSum extends Function {
 			if(getSignature().getArgumentCount() == 2)
 				{zero = getArgument(1).eval(contextSequence, contextItem);}
 			result = zero;
+		} else if ((result = sumUnboxed(this, inner)) != null) {
+			// summed without materializing the items
 		} else {
     		final SequenceIterator iter = inner.iterate();
     		Item item = iter.nextItem();
@@ -140,6 +146,26 @@ public class FunSum extends Function {
         return result;        
 	}
 	
+	/**
+	 * Sums sequences which hold their values unboxed, or can compute
+	 * their sum directly, without creating an item for every value.
+	 *
+	 * @param expression the expression to report errors against
+	 * @param seq the sequence to sum
+	 * @return the sum, or null if the sequence has to be iterated
+	 * @throws XPathException if the sum cannot be computed
+	 */
+	static ComputableValue sumUnboxed(final Expression expression, final Sequence seq) throws XPathException {
+		if (seq instanceof LongArraySequence longs) {
+			return new IntegerValue(expression, longs.sum());
+		} else if (seq instanceof DoubleArraySequence doubles) {
+			return new DoubleValue(expression, doubles.sum());
+		} else if (seq instanceof RangeSequence range) {
+			return new IntegerValue(expression, range.sum());
+		}
+		return null;
+	}
+
 	private AtomicValue check(AtomicValue value, ComputableValue sum) throws XPathException {
 		//Duration values must either all be xs:yearMonthDuration values or must all be xs:dayTimeDuration values.
 		if (Type.subTypeOf(value.getType(), Type.DURATION)) {
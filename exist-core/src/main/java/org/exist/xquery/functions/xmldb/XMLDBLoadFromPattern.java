@@ -26,12 +26,17 @@ import org.apache.logging.log4j.Logger;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.tools.ant.DirectoryScanner;
 import org.exist.dom.QName;
 import org.exist.util.FileUtils;
 import org.exist.util.MimeTable;
 import org.exist.util.MimeType;
+import org.exist.xmldb.EXistCollection;
 import org.exist.xmldb.EXistResource;
 import org.exist.xquery.Cardinality;
 import org.exist.xquery.FunctionSignature;
@@ -55,6 +60,11 @@ import org.xmldb.api.base.XMLDBException;
 public class XMLDBLoadFromPattern extends XMLDBAbstractCollectionManipulator {
     protected static final Logger logger = LogManager.getLogger(XMLDBLoadFromPattern.class);
 
+    /**
+     * The number of files which are stored together, in one transaction.
+     */
+    private static final int BATCH_SIZE = 256;
+
     protected final static QName FUNCTION_NAME = new QName("store-files-from-pattern", XMLDBModule.NAMESPACE_URI, XMLDBModule.PREFIX);
 
     protected final static String FUNCTION_DESCRIPTION = "Stores new resources into the database. Resources are read from the server's " +
@@ -117,7 +127,7 @@ public class XMLDBLoadFromPattern extends XMLDBAbstractCollectionManipulator {
         final int patternsLen = patternsSeq.getItemCount();
         final String[] includes = new String[patternsLen];
         for (int i = 0; i < patternsLen; i++) {
-            includes[i] = patternsSeq.itemAt(0).getStringValue();
+            includes[i] = patternsSeq.itemAt(i).getStringValue();
         }
 
         //determine resource type - xml or binary?
@@ -161,6 +171,7 @@ public class XMLDBLoadFromPattern extends XMLDBAbstractCollectionManipulator {
         Collection col = collection;
         String relDir;
         String prevDir = null;
+        final List<Resource> batch = new ArrayList<>(BATCH_SIZE);
 
         // store according to each pattern
         for (final String includedFile : directoryScanner.getIncludedFiles()) {
@@ -181,6 +192,7 @@ public class XMLDBLoadFromPattern extends XMLDBAbstractCollectionManipulator {
                 }
 
                 if (keepDirStructure && (prevDir == null || (!relDir.equals(prevDir)))) {
+                    storeBatch(col, batch, stored);
                     col = createCollectionPath(collection, relDir);
                     prevDir = relDir;
                 }
@@ -199,15 +211,63 @@ public class XMLDBLoadFromPattern extends XMLDBAbstractCollectionManipulator {
 
                 ((EXistResource) resource).setMimeType(mimeType.getName());
 
-                col.storeResource(resource);
-
-                //TODO : use dedicated function in XmldbURI
-                stored.add(new StringValue(this, col.getName() + "/" + resource.getId()));
+                batch.add(resource);
+                if (batch.size() == BATCH_SIZE) {
+                    storeBatch(col, batch, stored);
+                }
             } catch (final XMLDBException e) {
                 logger.error("Could not store file {}: {}", file.toAbsolutePath(), e.getMessage());
             }
         }
+        storeBatch(col, batch, stored);
 
         return stored;
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores a batch of resources into a collection, together if the collection supports it.
+     * The files which cannot be stored are skipped.
+     */
+    private void storeBatch(final Collection col, final List<Resource> batch, final ValueSequence stored) throws XPathException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Resource, XMLDBException> failures = new HashMap<>();
+        try {
+            if (col instanceof EXistCollection existCollection) {
+                failures = existCollection.storeResources(batch);
+            } else {
+                for (final Resource resource : batch) {
+                    try {
+                        col.storeResource(resource);
+                    } catch (final XMLDBException e) {
+                        failures.put(resource, e);
+                    }
+                }
+            }
+        } catch (final XMLDBException e) {
+            logger.error("Could not store {} files: {}", batch.size(), e.getMessage());
+            batch.clear();
+            return;
+        }
+
+        for (final Resource resource : batch) {
+            String id = null;
+            try {
+                id = resource.getId();
+                final XMLDBException failure = failures.get(resource);
+                if (failure != null) {
+                    logger.error("Could not store file {}: {}", id, failure.getMessage());
+                    continue;
+                }
+
+                //TODO : use dedicated function in XmldbURI
+                stored.add(new StringValue(this, col.getName() + "/" + id));
+            } catch (final XMLDBException e) {
+                logger.error("Could not store file {}: {}", id, e.getMessage());
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.pragmas;
+
+import org.exist.Namespaces;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NewArrayNodeSet;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.security.PermissionDeniedException;
+import org.exist.security.Subject;
+import org.exist.source.Source;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.ParallelQueryExecutor;
+import org.exist.storage.XQueryPool;
+import org.exist.xquery.*;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.exist.xquery.value.Type;
+import org.exist.xquery.value.ValueSequence;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * An XQuery Pragma that evaluates the iterations of a FLWOR
+ * expression on several threads.
+ *
+ * <pre>{@code
+ * (# exist:parallel threads=8 #) {
+ *     for $doc in collection("/db/data")/article
+ *     return transform:transform($doc, $stylesheet, ())
+ * }
+ * }</pre>
+ *
+ * The binding sequence of the first "for" clause is evaluated once and split into
+ * consecutive parts. Each part is evaluated by the {@link ParallelQueryExecutor} of the
+ * database, with its own broker and its own compiled copy of the query, which is taken from,
+ * and afterwards returned to, the {@link org.exist.storage.XQueryPool}. The results of the
+ * parts are concatenated in order, so the result is the same as that of sequential
+ * evaluation, whether or not the query is in ordered mode.
+ *
+ * By using the pragma, the query author asserts that the iterations are independent of
+ * each other, i.e. that the FLWOR expression does not update the database and does not
+ * rely on side effects of other iterations.
+ *
+ * The expression is evaluated sequentially if it is not a FLWOR expression made up only of
+ * "for", "let" and "where" clauses and starting with a "for" clause, if it is declared within a
+ * library module, if the query has no source, if any variable in scope holds a function item, map or array,
+ * if no brokers can be reserved for the parts, or if it is itself part of a parallel evaluation.
+ *
+ * The following optional configuration options may be given to the Parallel Pragma via the pragma's contents:
+ *     * threads - The maximum number of threads to use. If omitted this defaults to the number of available processors.
+ */
+public class ParallelPragma extends AbstractPragma {
+
+    public static final String PARALLEL_PRAGMA_LOCAL_NAME = "parallel";
+    public static final QName PARALLEL_PRAGMA = new QName(PARALLEL_PRAGMA_LOCAL_NAME, Namespaces.EXIST_NS, "exist");
+
+    private final int threads;
+    @Nullable private XQueryContext context = null;
+    @Nullable private ForExpr forExpr = null;
+
+    public ParallelPragma(final Expression expression, final QName qname, final String contents) throws XPathException {
+        super(expression, qname, contents);
+        this.threads = parseThreads(getContents());
+    }
+
+    @Override
+    public void before(final XQueryContext context, final Expression expression, final Sequence contextSequence) throws XPathException {
+        this.context = context;
+        this.forExpr = getPartitionableForExpr(expression);
+    }
+
+    @Override
+    public Sequence eval(final Sequence contextSequence, final Item contextItem) throws XPathException {
+        if (forExpr == null || threads < 2 || context.getSource() == null) {
+            return null;
+        }
+
+        final Map<QName, Variable> globalVariables = context.getGlobalVariables();
+        final Map<QName, Variable> localVariables = context.getLocalVariables();
+        if (holdsFunctionItems(globalVariables) || holdsFunctionItems(localVariables)) {
+            return null;
+        }
+
+        final BrokerPool pool = context.getBroker().getBrokerPool();
+        final ParallelQueryExecutor executor = pool.getParallelQueryExecutor();
+        final int reserved = executor.reserve(threads);
+        try {
+            if (reserved < 2) {
+                return null;
+            }
+
+            final Sequence input = forExpr.getInputSequence().eval(contextSequence, null);
+            final int itemCount = input.getItemCount();
+            final int partitionCount = Math.min(reserved, itemCount);
+            if (partitionCount < 2 || hasFunctionItems(input)) {
+                return forExpr.evalPartition(input, 0);
+            }
+
+            return evalPartitions(pool, executor, globalVariables, localVariables, partition(input, partitionCount));
+        } finally {
+            executor.release(reserved);
+        }
+    }
+
+    private Sequence evalPartitions(final BrokerPool pool, final ParallelQueryExecutor executor,
+            final Map<QName, Variable> globalVariables, final Map<QName, Variable> localVariables,
+            final List<Sequence> partitions) throws XPathException {
+        final Subject subject = context.getSubject();
+        final List<Future<Part>> parts = new ArrayList<>(partitions.size());
+        try {
+            int offset = 0;
+            for (final Sequence partition : partitions) {
+                // each part gets its own copy of the variables, see copyBindings
+                final List<Binding> workerGlobalVariables = copyBindings(globalVariables);
+                final List<Binding> workerLocalVariables = copyBindings(localVariables);
+                final int partitionOffset = offset;
+                parts.add(executor.submit(() -> evalPartition(pool, subject, workerGlobalVariables,
+                        workerLocalVariables, partition, partitionOffset)));
+                offset += partition.getItemCount();
+            }
+
+            final ValueSequence result = new ValueSequence();
+            for (final Future<Part> part : parts) {
+                result.addAll(part.get().result());
+            }
+            return result;
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new XPathException(forExpr, "Interrupted while waiting for parallel evaluation", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof XPathException xpe) {
+                throw xpe;
+            }
+            throw new XPathException(forExpr, "Parallel evaluation failed: " + cause.getMessage(), cause);
+        } finally {
+            /*
+             The reserved brokers may only be released once all parts have completed, and
+             the copies of the query are returned to the pool once the result is no longer used.
+             */
+            for (final Future<Part> part : parts) {
+                try {
+                    final Part completed = part.get();
+                    context.registerCleanupTask((ctx, predicate) -> completed.release(predicate));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (final ExecutionException e) {
+                    // reported above, or superseded by the error of an earlier part
+                }
+            }
+        }
+    }
+
+    @Override
+    public void after(final XQueryContext context, final Expression expression) throws XPathException {
+        this.context = null;
+        this.forExpr = null;
+    }
+
+    /**
+     * Evaluate one part of the binding sequence on the current thread.
+     */
+    private Part evalPartition(final BrokerPool pool, final Subject subject, final List<Binding> globalVariables,
+            final List<Binding> localVariables, final Sequence partition, final int offset) throws Exception {
+        try (final DBBroker broker = pool.get(Optional.of(subject))) {
+            final XQueryPool queryPool = pool.getXQueryPool();
+            final Source source = context.getSource();
+            CompiledXQuery compiled = queryPool.borrowCompiledXQuery(broker, source);
+            final XQueryContext workerContext;
+            if (compiled == null) {
+                workerContext = context.forkContext();
+                try {
+                    compiled = pool.getXQueryService().compile(workerContext, source);
+                } catch (final IOException | PermissionDeniedException e) {
+                    throw new XPathException(forExpr, "Unable to compile query for parallel evaluation: " + e.getMessage(), e);
+                }
+            } else {
+                workerContext = compiled.getContext();
+                context.updateForkedContext(workerContext);
+                workerContext.prepareForReuse();
+            }
+
+            final Part part = new Part(queryPool, source, compiled);
+            try {
+                final ForExpr workerForExpr = findForExpr(compiled, workerContext);
+                if (workerForExpr == null) {
+                    throw new XPathException(forExpr, "Unable to find the expression to evaluate in parallel");
+                }
+
+                // the prolog of the worker's query is not evaluated, so copy the values of the global variables
+                final Map<QName, Variable> workerGlobalVariables = workerContext.getGlobalVariables();
+                for (final Binding binding : globalVariables) {
+                    Variable workerVariable = workerGlobalVariables.get(binding.qname());
+                    if (workerVariable == null) {
+                        // the global variables of a pooled copy are cleared when it is reset
+                        workerVariable = workerContext.declareGlobalVariable(new VariableImpl(binding.qname()));
+                    }
+                    workerVariable.setValue(binding.value());
+                    workerVariable.setContextDocs(binding.contextDocs());
+                }
+                for (final Binding binding : localVariables) {
+                    final LocalVariable workerVariable = new LocalVariable(binding.qname());
+                    workerVariable.setValue(binding.value());
+                    workerVariable.setContextDocs(binding.contextDocs());
+                    workerContext.declareVariableBinding(workerVariable);
+                }
+
+                part.result = workerForExpr.evalPartition(partition, offset);
+                return part;
+            } catch (final Throwable t) {
+                part.release(object -> true);
+                throw t;
+            }
+        }
+    }
+
+    /**
+     * Find the "for" clause which corresponds to {@link #forExpr}
+     * in the worker's compiled copy of the query.
+     */
+    private @Nullable ForExpr findForExpr(final CompiledXQuery compiled, final XQueryContext workerContext) {
+        final ForExprFinder finder = new ForExprFinder(forExpr.getLine(), forExpr.getColumn());
+        if (compiled instanceof Expression expression) {
+            expression.accept(finder);
+        }
+        for (final Iterator<UserDefinedFunction> i = workerContext.localFunctions(); finder.found == null && i.hasNext(); ) {
+            i.next().getFunctionBody().accept(finder);
+        }
+        return finder.found;
+    }
+
+    private static @Nullable ForExpr getPartitionableForExpr(@Nullable Expression expression) {
+        while ((expression instanceof PathExpr || expression instanceof DebuggableExpression)
+                && expression.getSubExpressionCount() == 1) {
+            expression = expression.getSubExpression(0);
+        }
+        if (expression instanceof ForExpr forExpr && forExpr.isPartitionable()
+                && !(forExpr.getContext() instanceof ModuleContext)) {
+            return forExpr;
+        }
+        return null;
+    }
+
+    private static List<Sequence> partition(final Sequence input, final int partitionCount) throws XPathException {
+        final int itemCount = input.getItemCount();
+        final List<Sequence> partitions = new ArrayList<>(partitionCount);
+        final SequenceIterator i = input.iterate();
+        for (int p = 0; p < partitionCount; p++) {
+            // spread the remainder over the first partitions
+            final int size = itemCount / partitionCount + (p < itemCount % partitionCount ? 1 : 0);
+            final Sequence partition = input instanceof NodeSet ? new NewArrayNodeSet(size) : new ValueSequence(size);
+            for (int j = 0; j < size; j++) {
+                partition.add(i.nextItem());
+            }
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    /**
+     * Copy the values of variables for a part which is evaluated on another thread.
+     *
+     * Sequences are not safe to share between threads, e.g. a {@link NewArrayNodeSet} is
+     * sorted when it is first read, so each part is given copies of them, which are made
+     * on the calling thread.
+     */
+    private static List<Binding> copyBindings(final Map<QName, Variable> variables) throws XPathException {
+        final List<Binding> bindings = new ArrayList<>(variables.size());
+        for (final Variable variable : variables.values()) {
+            final Sequence value = variable.getValue();
+            if (value == null) {
+                continue;
+            }
+            final Sequence copy;
+            if (value.isEmpty()) {
+                copy = Sequence.EMPTY_SEQUENCE;
+            } else if (value instanceof NodeSet nodeSet) {
+                copy = nodeSet.copy();
+            } else {
+                final ValueSequence values = new ValueSequence(value);
+                values.keepUnOrdered(true);
+                copy = values;
+            }
+            bindings.add(new Binding(variable.getQName(), copy, variable.getContextDocs()));
+        }
+        return bindings;
+    }
+
+    /**
+     * Function items, including maps and arrays, may be bound to the expression tree of the query which
+     * created them, so they can not be shared with another thread.
+     */
+    private static boolean holdsFunctionItems(final Map<QName, Variable> variables) throws XPathException {
+        for (final Variable variable : variables.values()) {
+            if (variable.getValue() != null && hasFunctionItems(variable.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasFunctionItems(final Sequence sequence) throws XPathException {
+        final int itemType = sequence.getItemType();
+        if (Type.subTypeOf(itemType, Type.NODE) || Type.subTypeOf(itemType, Type.ANY_ATOMIC_TYPE)) {
+            return false;
+        }
+        for (final SequenceIterator i = sequence.iterate(); i.hasNext(); ) {
+            if (Type.subTypeOf(i.nextItem().getType(), Type.FUNCTION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int parseThreads(@Nullable final String contents) throws XPathException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (contents != null && !contents.isEmpty()) {
+            final String[] options = Option.tokenize(contents);
+            for (final String option : options) {
+                @Nullable final String[] param = Option.parseKeyValuePair(option);
+                if (param == null) {
+                    throw new XPathException((Expression) null, "Invalid content found for pragma " + PARALLEL_PRAGMA.getStringValue() + ": " + contents);
+                }
+
+                if ("threads".equals(param[0])) {
+                    try {
+                        threads = Integer.parseInt(param[1]);
+                    } catch (final NumberFormatException e) {
+                        throw new XPathException((Expression) null, "Invalid value for option threads of pragma " + PARALLEL_PRAGMA.getStringValue() + ": " + param[1]);
+                    }
+                }
+            }
+        }
+        return threads;
+    }
+
+    private record Binding(QName qname, Sequence value, @Nullable DocumentSet contextDocs) {
+    }
+
+    /**
+     * A part of the evaluation, and the compiled copy of the query which evaluated it.
+     */
+    private static class Part {
+        private final XQueryPool queryPool;
+        private final Source source;
+        private final CompiledXQuery compiled;
+        @Nullable private Sequence result = null;
+
+        private Part(final XQueryPool queryPool, final Source source, final CompiledXQuery compiled) {
+            this.queryPool = queryPool;
+            this.source = source;
+            this.compiled = compiled;
+        }
+
+        private Sequence result() {
+            return result;
+        }
+
+        /**
+         * Clean up the copy of the query and return it to the pool.
+         */
+        private void release(final Predicate<Object> predicate) {
+            final XQueryContext workerContext = compiled.getContext();
+            workerContext.runCleanupTasks(predicate);
+            // the watchdog is that of the calling query, which must not be reset
+            workerContext.setWatchDog(new XQueryWatchDog(workerContext));
+            compiled.reset();
+            workerContext.reset();
+            queryPool.returnCompiledXQuery(source, compiled);
+        }
+    }
+
+    /**
+     * Finds a "for" clause by its location in the query.
+     */
+    private static class ForExprFinder extends DefaultExpressionVisitor {
+        private final int line;
+        private final int column;
+        @Nullable private ForExpr found = null;
+        @Nullable private Expression visiting = null;
+
+        private ForExprFinder(final int line, final int column) {
+            this.line = line;
+            this.column = column;
+        }
+
+        @Override
+        public void visit(final Expression expression) {
+            // descend into expressions which only call back visit, e.g. extension expressions
+            if (expression != visiting && found == null) {
+                final Expression previous = visiting;
+                visiting = expression;
+                expression.accept(this);
+                visiting = previous;
+            }
+        }
+
+        @Override
+        public void visitForExpression(final ForExpr forExpr) {
+            if (found != null) {
+                return;
+            }
+            if (forExpr.getLine() == line && forExpr.getColumn() == column) {
+                found = forExpr;
+                return;
+            }
+            super.visitForExpression(forExpr);
+        }
+
+        @Override
+        public void visitFunctionCall(final FunctionCall call) {
+            // function bodies are searched separately, which avoids recursion
+            for (int i = 0; i < call.getArgumentCount(); i++) {
+                call.getArgument(i).accept(this);
+            }
+        }
+    }
+}
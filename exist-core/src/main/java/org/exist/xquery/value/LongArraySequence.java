@@ -0,0 +1,277 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import org.exist.dom.persistent.NodeSet;
+import org.exist.xquery.Cardinality;
+import org.exist.xquery.XPathException;
+
+import java.math.BigInteger;
+
+/**
+ * An immutable sequence of xs:integer values which are held
+ * unboxed in a <code>long[]</code>.
+ *
+ * Items are only materialized as {@link IntegerValue} when they
+ * are requested through {@link #itemAt(int)} or an iterator;
+ * aggregate functions can read the primitive values directly
+ * via {@link #getLong(int)}.
+ */
+public class LongArraySequence extends AbstractSequence {
+
+    private final long[] values;
+    private final int size;
+
+    public LongArraySequence(final long[] values, final int size) {
+        this.values = values;
+        this.size = size;
+        this.isEmpty = size == 0;
+        this.hasOne = size == 1;
+    }
+
+    /**
+     * Creates a compact copy of the given sequence if all of its items are
+     * xs:integer values which fit into a long.
+     *
+     * @param sequence the sequence to copy
+     * @return the compact sequence, or null if the sequence contains other items
+     */
+    public static LongArraySequence copyOf(final Sequence sequence) {
+        final int size = sequence.getItemCount();
+        final long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            final Item item = sequence.itemAt(i);
+            if (item.getType() != Type.INTEGER || !(item instanceof IntegerValue)
+                    || ((IntegerValue) item).value.bitLength() >= Long.SIZE) {
+                return null;
+            }
+            values[i] = ((IntegerValue) item).value.longValue();
+        }
+        return new LongArraySequence(values, size);
+    }
+
+    public long getLong(final int pos) {
+        return values[pos];
+    }
+
+    /**
+     * Returns the sum of all values, falling back to
+     * {@link BigInteger} arithmetic on overflow.
+     *
+     * @return the sum of the values
+     */
+    public BigInteger sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            try {
+                sum = Math.addExact(sum, values[i]);
+            } catch (final ArithmeticException e) {
+                BigInteger big = BigInteger.valueOf(sum);
+                for (int j = i; j < size; j++) {
+                    big = big.add(BigInteger.valueOf(values[j]));
+                }
+                return big;
+            }
+        }
+        return BigInteger.valueOf(sum);
+    }
+
+    public long min() {
+        long min = values[0];
+        for (int i = 1; i < size; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    public long max() {
+        long max = values[0];
+        for (int i = 1; i < size; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public void add(final Item item) throws XPathException {
+        throw new XPathException(item, "Internal error: adding to an immutable sequence");
+    }
+
+    @Override
+    public void addAll(final Sequence other) throws XPathException {
+        throw new XPathException(other, "Internal error: adding to an immutable sequence");
+    }
+
+    @Override
+    public int getItemType() {
+        return size == 0 ? Type.ITEM : Type.INTEGER;
+    }
+
+    @Override
+    public SequenceIterator iterate() {
+        return new LongArraySequenceIterator();
+    }
+
+    @Override
+    public SequenceIterator unorderedIterator() {
+        return new LongArraySequenceIterator();
+    }
+
+    public SequenceIterator iterateInReverse() {
+        return new ReverseLongArraySequenceIterator();
+    }
+
+    private class LongArraySequenceIterator implements SequenceIterator {
+        private int pos = 0;
+
+        @Override
+        public Item nextItem() {
+            if (pos < size) {
+                return new IntegerValue(values[pos++]);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < size;
+        }
+
+        @Override
+        public long skippable() {
+            return size - pos;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skip = (int) Math.min(n, size - pos);
+            pos += skip;
+            return skip;
+        }
+    }
+
+    private class ReverseLongArraySequenceIterator implements SequenceIterator {
+        private int pos = size - 1;
+
+        @Override
+        public Item nextItem() {
+            if (pos >= 0) {
+                return new IntegerValue(values[pos--]);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos >= 0;
+        }
+
+        @Override
+        public long skippable() {
+            return pos + 1;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skip = (int) Math.min(n, pos + 1);
+            pos -= skip;
+            return skip;
+        }
+    }
+
+    @Override
+    public long getItemCountLong() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean hasOne() {
+        return size == 1;
+    }
+
+    @Override
+    public boolean hasMany() {
+        return size > 1;
+    }
+
+    @Override
+    public Cardinality getCardinality() {
+        if (size == 0) {
+            return Cardinality.EMPTY_SEQUENCE;
+        }
+        if (size == 1) {
+            return Cardinality.EXACTLY_ONE;
+        }
+        return Cardinality._MANY;
+    }
+
+    @Override
+    public Item itemAt(final int pos) {
+        if (pos >= 0 && pos < size) {
+            return new IntegerValue(values[pos]);
+        }
+        return null;
+    }
+
+    @Override
+    public NodeSet toNodeSet() throws XPathException {
+        throw new XPathException(this, "Type error: the sequence cannot be converted into" +
+                " a node set. Item type is xs:integer");
+    }
+
+    @Override
+    public MemoryNodeSet toMemNodeSet() throws XPathException {
+        throw new XPathException(this, "Type error: the sequence cannot be converted into" +
+                " a memory node set. Item type is xs:integer");
+    }
+
+    @Override
+    public void removeDuplicates() {
+    }
+
+    @Override
+    public boolean containsReference(final Item item) {
+        return false;
+    }
+
+    @Override
+    public boolean contains(final Item item) {
+        if (item instanceof IntegerValue && ((IntegerValue) item).value.bitLength() < Long.SIZE) {
+            final long other = ((IntegerValue) item).value.longValue();
+            for (int i = 0; i < size; i++) {
+                if (values[i] == other) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -37,10 +37,20 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -52,6 +62,17 @@ import java.util.stream.IntStream;
  * all order expressions are evaluated once for each item in the sequence
  * <b>while</b> items are added.
  *
+ * If a spill threshold is given, and more entries than that have been added,
+ * the entries are sorted and written to a {@link SpillFile} as a run. Once the
+ * sequence is sorted, the runs are merged into a single file from which the
+ * items are read. Spilling stops if an entry is found which can not be written
+ * to a spill file, in which case the runs are merged back into memory.
+ *
+ * If a limit is given, only the first entries up to the limit are returned
+ * once the sequence has been sorted. While entries are added, those which
+ * can no longer be among them are discarded, so that no more than twice
+ * the limit are held in memory.
+ *
  * @author wolf
  */
 public class OrderedValueSequence extends AbstractSequence {
@@ -62,12 +83,60 @@ public class OrderedValueSequence extends AbstractSequence {
     private int count = 0;
     private int state = 0;
 
+    /**
+     * Releases the spill files of sequences which are no longer reachable.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * The number of items between two offsets recorded in the merged spill file.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1024;
+
+    private final int spillThreshold;
+    private int position = 0;
+    private boolean spillable = true;
+    @Nullable private SpillFiles spill = null;
+    @Nullable private Cleaner.Cleanable cleanable = null;
+    private long spilledCount = 0;
+    @Nullable private int[] coerceToTypes = null;
+    @Nullable private SpilledIterator cursor = null;
+
+    private final int limit;
+    private boolean truncating;
+    private int truncateAt;
+
     // used to keep track of the type of added items.
     private int itemType = Type.ANY_TYPE;
     private Sequence contextSequence;
 
     public OrderedValueSequence(final List<OrderSpec> orderSpecs, final int size) {
+        this(orderSpecs, size, 0);
+    }
+
+    /**
+     * @param orderSpecs the ordering specifications.
+     * @param size the initial capacity.
+     * @param spillThreshold the maximum number of entries to hold in memory
+     *                       before spilling them to disk, or 0 to never spill.
+     */
+    public OrderedValueSequence(final List<OrderSpec> orderSpecs, final int size, final int spillThreshold) {
+        this(orderSpecs, size, spillThreshold, 0);
+    }
+
+    /**
+     * @param orderSpecs the ordering specifications.
+     * @param size the initial capacity.
+     * @param spillThreshold the maximum number of entries to hold in memory
+     *                       before spilling them to disk, or 0 to never spill.
+     * @param limit the number of entries to return, or 0 to return all entries.
+     */
+    public OrderedValueSequence(final List<OrderSpec> orderSpecs, final int size, final int spillThreshold, final int limit) {
         this.orderSpecs = orderSpecs;
+        this.spillThreshold = spillThreshold;
+        this.limit = limit;
+        this.truncating = limit > 0 && limit < Integer.MAX_VALUE / 2;
+        this.truncateAt = limit * 2;
         this.encounteredPrimitiveTypesForOrderSpecs = new ArrayList<>(orderSpecs.size());
         for (int i = 0; i < orderSpecs.size(); i++) {
             this.encounteredPrimitiveTypesForOrderSpecs.add(new BitSet(Type.ARRAY_ITEM + 1));
@@ -76,18 +145,41 @@ public class OrderedValueSequence extends AbstractSequence {
     }
 
     @Override
-    public SequenceIterator iterate() {
+    public SequenceIterator iterate() throws XPathException {
+        if (spill != null) {
+            sort();
+        }
+        if (spill != null) {
+            final SpilledIterator iterator = new SpilledIterator();
+            try {
+                iterator.seek(0);
+            } catch (final IOException e) {
+                throw spillError(e);
+            }
+            return iterator;
+        }
         return new OrderedValueSequenceIterator();
     }
 
     @Override
-    public SequenceIterator unorderedIterator() {
+    public SequenceIterator unorderedIterator() throws XPathException {
+        return iterate();
+    }
+
+    /**
+     * Get an iterator which reports errors reading the spill file as unchecked exceptions.
+     */
+    private SequenceIterator iterator() {
+        if (spill != null) {
+            checkMerged();
+            return new SpilledIterator();
+        }
         return new OrderedValueSequenceIterator();
     }
 
     @Override
     public long getItemCountLong() {
-        return (items == null) ? 0 : count;
+        return (items == null) ? 0 : count + spilledCount;
     }
 
     @Override
@@ -116,9 +208,97 @@ public class OrderedValueSequence extends AbstractSequence {
             System.arraycopy(items, 0, newItems, 0, count);
             items = newItems;
         }
-        items[count] = Entry.create(encounteredPrimitiveTypesForOrderSpecs, orderSpecs, item, count++, contextSequence);
+        final Entry entry = Entry.create(encounteredPrimitiveTypesForOrderSpecs, orderSpecs, item, position++, contextSequence);
+        items[count++] = entry;
         checkItemType(item.getType());
         setHasChanged();
+
+        if (spillThreshold > 0 && spillable) {
+            spillable = entry.isSpillable();
+        }
+        if (truncating) {
+            truncating = entry.hasExactFloatValues();
+            if (truncating && count >= truncateAt) {
+                truncate();
+            }
+        } else if (spillThreshold > 0 && spillable && count >= spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * Discard the entries which can no longer be among the first entries up to the limit.
+     */
+    private void truncate() {
+        for (final BitSet encounteredPrimitiveTypesForOrderSpec : encounteredPrimitiveTypesForOrderSpecs) {
+            if (encounteredPrimitiveTypesForOrderSpec.cardinality() > 1) {
+                // the values still have to be coerced to a common type before they can be compared
+                truncateAt = count * 2;
+                return;
+            }
+        }
+        Arrays.parallelSort(items, 0, count);
+        Arrays.fill(items, limit, count, null);
+        count = limit;
+        hasOne = count == 1;
+    }
+
+    /**
+     * Sort the entries held in memory and write them to a new run.
+     */
+    private void spill() throws XPathException {
+        Arrays.sort(items, 0, count);
+        try {
+            final SpillFile file = new SpillFile();
+            try {
+                for (int i = 0; i < count; i++) {
+                    items[i].write(file);
+                }
+            } catch (final IOException | XPathException e) {
+                file.close();
+                throw e;
+            }
+            if (spill == null) {
+                spill = new SpillFiles();
+                cleanable = CLEANER.register(this, spill);
+            }
+            spill.runs.add(new Run(file, count));
+        } catch (final IOException e) {
+            throw spillError(e);
+        }
+        spilledCount += count;
+        Arrays.fill(items, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * @return true if entries have been spilled to disk,
+     * in which case {@link #close()} must be called once
+     * the sequence is no longer needed.
+     */
+    public boolean isSpilled() {
+        return spill != null;
+    }
+
+    /**
+     * Release the spill files of this sequence. If the sequence is not closed,
+     * they are released once it is no longer reachable.
+     */
+    public void close() {
+        cursor = null;
+        if (cleanable != null) {
+            cleanable.clean();
+        }
+    }
+
+    private void checkMerged() {
+        if (spill.merged == null) {
+            throw new IllegalStateException("The spilled order by entries have not been sorted");
+        }
+    }
+
+    private static XPathException spillError(final IOException e) {
+        return new XPathException((Expression) null, ErrorCodes.EXXQDY0007, "Unable to spill order by entries to disk: " + e.getMessage(), e);
     }
 
     @Override
@@ -187,7 +367,14 @@ public class OrderedValueSequence extends AbstractSequence {
                     throw new XPathException(expression, ErrorCodes.XPTY0004, message.toString());
                 }
 
-                // perform the coercion
+                // perform the coercion, spilled entries are coerced when they are read back
+                if (spill != null) {
+                    if (coerceToTypes == null) {
+                        coerceToTypes = new int[orderSpecs.size()];
+                        Arrays.fill(coerceToTypes, -1);
+                    }
+                    coerceToTypes[t] = coerceToType;
+                }
                 for (int i = 0; i < count; i++) {
                     final Entry item = items[i];
                     final AtomicValue value = item.values.get(t);
@@ -208,15 +395,114 @@ public class OrderedValueSequence extends AbstractSequence {
         return setBitsCount;
     }
 
-    public void sort() {
+    /**
+     * Sort the entries. If entries have been spilled, the spilled runs are merged.
+     *
+     * @throws XPathException if the spilled runs can not be merged
+     */
+    public void sort() throws XPathException {
 //		FastQSort.sort(items, 0, count - 1);
 
+        if (spill != null) {
+            if (spill.merged == null) {
+                // the sort values are needed for merging with the spilled runs
+                Arrays.sort(items, 0, count);
+                merge();
+            }
+            return;
+        }
+
         Arrays.parallelSort(items, 0, count);
+        if (limit > 0 && count > limit) {
+            Arrays.fill(items, limit, count, null);
+            count = limit;
+            hasOne = count == 1;
+        }
         Arrays.stream(items, 0, count).parallel().forEach(Entry::clear);
     }
 
+    /**
+     * Merge the spilled runs with the entries held in memory.
+     *
+     * The items are written in their final order to a single file, which
+     * records the offset of every {@link #CHECKPOINT_INTERVAL}th item, so that
+     * {@link #itemAt(int)} can move back in the file without reading it from
+     * the start. The runs are released once they have been merged. If not all
+     * entries can be spilled, they are merged back into memory instead.
+     */
+    private void merge() throws XPathException {
+        final long total = limit > 0 ? Math.min(limit, spilledCount + count) : spilledCount + count;
+        if (!spillable && total >= Integer.MAX_VALUE) {
+            throw new XPathException((Expression) null, ErrorCodes.EXXQDY0007, "Too many order by entries to hold in memory: " + total);
+        }
+
+        try {
+            final SpillFile merged = spillable ? new SpillFile() : null;
+            final long[] checkpoints = new long[(int) ((total + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL)];
+            final Entry[] mergedItems = spillable ? null : new Entry[Math.max((int) total, 1)];
+            try (final Merge merge = new Merge()) {
+                for (int i = 0; i < total; i++) {
+                    final Entry entry = merge.next();
+                    if (entry == null) {
+                        throw new IOException("Spilled order by entries are missing");
+                    }
+                    if (merged != null) {
+                        if (i % CHECKPOINT_INTERVAL == 0) {
+                            checkpoints[i / CHECKPOINT_INTERVAL] = merged.position();
+                        }
+                        merged.writeItem(entry.item);
+                    } else {
+                        mergedItems[i] = entry;
+                    }
+                }
+            } catch (final IOException | XPathException e) {
+                if (merged != null) {
+                    merged.close();
+                }
+                throw e;
+            }
+
+            spill.closeRuns();
+            if (merged != null) {
+                spill.merged = merged;
+                spill.checkpoints = checkpoints;
+                spilledCount = total;
+                items = new Entry[1];
+                count = 0;
+            } else {
+                close();
+                spill = null;
+                cleanable = null;
+                spilledCount = 0;
+                items = mergedItems;
+                count = (int) total;
+                Arrays.stream(items, 0, count).forEach(Entry::clear);
+            }
+            hasOne = total == 1;
+        } catch (final IOException e) {
+            throw spillError(e);
+        }
+    }
+
     @Override
     public Item itemAt(final int pos) {
+        if (spill != null) {
+            if (pos < 0 || pos >= spilledCount) {
+                return null;
+            }
+            checkMerged();
+            // sequential access is served by a single reader of the merged file
+            if (cursor == null) {
+                cursor = new SpilledIterator();
+            }
+            try {
+                cursor.seek(pos);
+            } catch (final IOException | XPathException e) {
+                cursor.close();
+                throw readError(e);
+            }
+            return cursor.nextItem();
+        }
         if (items != null && pos > -1 && pos < count) {
             return items[pos].item;
         } else {
@@ -246,6 +532,9 @@ public class OrderedValueSequence extends AbstractSequence {
             return NodeSet.EMPTY_SET;
         }
         // for this method to work, all items have to be nodes
+        if (spill != null) {
+            return new ValueSequence(this).toNodeSet();
+        }
         if (itemType != Type.ANY_TYPE && Type.subTypeOf(itemType, Type.NODE)) {
             //Was ExtArrayNodeset() which orders the nodes in document order
             //The order seems to change between different invocations !!!
@@ -309,7 +598,7 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public boolean isPersistentSet() {
-        if (count == 0) {
+        if (count == 0 && spilledCount == 0) {
             return true;
         }
         if (itemType != Type.ANY_TYPE && Type.subTypeOf(itemType, Type.NODE)) {
@@ -326,13 +615,17 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public MemoryNodeSet toMemNodeSet() throws XPathException {
-        if (count == 0) {
+        if (getItemCountLong() == 0) {
             return MemoryNodeSet.EMPTY;
         }
         if (itemType == Type.ANY_TYPE || !Type.subTypeOf(itemType, Type.NODE)) {
             throw new XPathException((Expression) null, "Type error: the sequence cannot be converted into" +
                     " a node set. Item type is " + Type.getTypeName(itemType));
         }
+        if (spilledCount > 0) {
+            // spilled nodes are persistent
+            return null;
+        }
         for (int i = 0; i < count; i++) {
             final NodeValue v = (NodeValue) items[i].item;
             if (v.getImplementationType() == NodeValue.PERSISTENT_NODE) {
@@ -345,6 +638,12 @@ public class OrderedValueSequence extends AbstractSequence {
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
+        if (spill != null) {
+            for (final SequenceIterator i = iterator(); i.hasNext(); ) {
+                builder.append(i.nextItem());
+            }
+            return builder.toString();
+        }
         for (int i = 0; i < count; i++) {
             builder.append(items[i].toString());
         }
@@ -377,7 +676,7 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public boolean containsReference(final Item item) {
-        for (final SequenceIterator it = iterate(); it.hasNext(); ) {
+        for (final SequenceIterator it = iterator(); it.hasNext(); ) {
             final Item i = it.nextItem();
             if (i == item) {
                 return true;
@@ -388,7 +687,7 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public boolean contains(final Item item) {
-        for (final SequenceIterator it = iterate(); it.hasNext(); ) {
+        for (final SequenceIterator it = iterator(); it.hasNext(); ) {
             final Item i = it.nextItem();
             if (i.equals(item)) {
                 return true;
@@ -477,8 +776,85 @@ public class OrderedValueSequence extends AbstractSequence {
             return new Entry(encounteredPrimitiveTypesForOrderSpecs, orderSpecs, item, position, values);
         }
 
+        /**
+         * Check if this entry can be written to a spill file.
+         */
+        boolean isSpillable() {
+            if (!SpillFile.isSpillable(item)) {
+                return false;
+            }
+            for (final AtomicValue value : values) {
+                if (!SpillFile.isSpillable(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Check if the xs:decimal sort values of this entry are exactly representable
+         * as xs:float, so that they keep their order relative to other such values if
+         * they are cast to xs:float or xs:double by {@link #coerceTypesForOrderBy()}.
+         */
+        boolean hasExactFloatValues() {
+            for (final AtomicValue value : values) {
+                if (value == AtomicValue.EMPTY_VALUE || Type.primitiveTypeOf(value.getType()) != Type.DECIMAL) {
+                    continue;
+                }
+                try {
+                    final float f = ((NumericValue) value).getFloat();
+                    if (Float.isInfinite(f) || new BigDecimal(f).compareTo(new BigDecimal(value.getStringValue())) != 0) {
+                        return false;
+                    }
+                } catch (final XPathException | NumberFormatException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void write(final SpillFile file) throws IOException, XPathException {
+            file.writeInt(pos);
+            file.writeItem(item);
+            for (final AtomicValue value : values) {
+                file.writeItem(value);
+            }
+        }
+
+        /**
+         * Read an entry written by {@link #write(SpillFile)}.
+         *
+         * @param coerceToTypes the type to cast the value of each order spec to, or -1, or null if no values are to be cast.
+         */
+        static Entry read(final SpillFile.Reader reader, final List<BitSet> encounteredPrimitiveTypesForOrderSpecs,
+                final List<OrderSpec> orderSpecs, @Nullable final int[] coerceToTypes) throws IOException, XPathException {
+            final int position = reader.readInt();
+            final Item item = reader.readItem();
+            final List<AtomicValue> values = new ArrayList<>(orderSpecs.size());
+            for (int i = 0; i < orderSpecs.size(); i++) {
+                AtomicValue value = reader.readAtomicValue();
+                if (coerceToTypes != null && coerceToTypes[i] != -1 && value != AtomicValue.EMPTY_VALUE) {
+                    value = value.convertTo(coerceToTypes[i]);
+                }
+                values.add(value);
+            }
+            return new Entry(encounteredPrimitiveTypesForOrderSpecs, orderSpecs, item, position, values);
+        }
+
         @Override
         public int compareTo(final Entry other) {
+            int cmp = compareValues(other);
+            // if the sort keys are equal, we need to order by the original position in the result sequence
+            if (cmp == Constants.EQUAL) {
+                cmp = (pos > other.pos ? Constants.SUPERIOR : (pos == other.pos ? Constants.EQUAL : Constants.INFERIOR));
+            }
+            return cmp;
+        }
+
+        /**
+         * Compare the sort values of this entry to those of another entry.
+         */
+        int compareValues(final Entry other) {
             int cmp = 0;
             for (int i = 0; i < values.size(); i++) {
                 try {
@@ -528,10 +904,6 @@ public class OrderedValueSequence extends AbstractSequence {
                 } catch (final XPathException e) {
                 }
             }
-            // if the sort keys are equal, we need to order by the original position in the result sequence
-            if (cmp == Constants.EQUAL) {
-                cmp = (pos > other.pos ? Constants.SUPERIOR : (pos == other.pos ? Constants.EQUAL : Constants.INFERIOR));
-            }
             return cmp;
         }
 
@@ -593,4 +965,304 @@ public class OrderedValueSequence extends AbstractSequence {
             return skip;
         }
     }
+
+    private record Run(SpillFile file, int count) {
+    }
+
+    /**
+     * The spill files of a sequence.
+     *
+     * A spilled sequence may be the result of a query, which is read after the
+     * query has finished, e.g. by the XML:DB API or from a REST session, so the
+     * files live as long as the sequence: they are released when it is closed,
+     * or once it is no longer reachable.
+     */
+    private static class SpillFiles implements Runnable {
+        private final List<Run> runs = new ArrayList<>();
+        @Nullable private SpillFile merged = null;
+        @Nullable private long[] checkpoints = null;
+        private final Set<SpillFile.Reader> openReaders = new HashSet<>();
+
+        synchronized SpillFile.Reader openReader(final long offset) throws IOException {
+            if (merged == null) {
+                throw new IOException("The spilled order by entries have been released");
+            }
+            final SpillFile.Reader reader = merged.openReader(offset);
+            openReaders.add(reader);
+            return reader;
+        }
+
+        synchronized void closeReader(final SpillFile.Reader reader) {
+            if (openReaders.remove(reader)) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        synchronized void closeRuns() {
+            for (final Run run : runs) {
+                try {
+                    run.file.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+            runs.clear();
+        }
+
+        @Override
+        public synchronized void run() {
+            for (final SpillFile.Reader reader : openReaders) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+            openReaders.clear();
+            closeRuns();
+            if (merged != null) {
+                try {
+                    merged.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+                merged = null;
+            }
+        }
+    }
+
+    /**
+     * A sorted run, positioned on its current entry.
+     */
+    private interface RunCursor {
+        @Nullable Entry current();
+
+        /**
+         * Move to the next entry.
+         *
+         * @return false if there are no more entries
+         */
+        boolean advance() throws IOException, XPathException;
+    }
+
+    private class MemoryRunCursor implements RunCursor {
+        private int next = 0;
+        @Nullable private Entry current;
+
+        @Override
+        public @Nullable Entry current() {
+            return current;
+        }
+
+        @Override
+        public boolean advance() {
+            current = next < count ? items[next++] : null;
+            return current != null;
+        }
+    }
+
+    private class SpilledRunCursor implements RunCursor {
+        private final SpillFile.Reader reader;
+        private int remaining;
+        @Nullable private Entry current;
+        @Nullable private Entry pending = null;
+        private final Deque<Entry> group = new ArrayDeque<>();
+
+        private SpilledRunCursor(final Run run) throws IOException {
+            this.reader = run.file.openReader();
+            this.remaining = run.count;
+        }
+
+        @Override
+        public @Nullable Entry current() {
+            return current;
+        }
+
+        @Override
+        public boolean advance() throws IOException, XPathException {
+            if (group.isEmpty()) {
+                final Entry next = pending != null ? pending : read();
+                pending = null;
+                if (next == null) {
+                    current = null;
+                    return false;
+                }
+                if (coerceToTypes == null) {
+                    current = next;
+                    return true;
+                }
+
+                /*
+                 The run was sorted before its values were cast, entries which are only
+                 equal after casting must be put back into their original order.
+                 */
+                final List<Entry> equal = new ArrayList<>();
+                equal.add(next);
+                Entry following;
+                while ((following = read()) != null && following.compareValues(next) == Constants.EQUAL) {
+                    equal.add(following);
+                }
+                pending = following;
+                equal.sort(Comparator.comparingInt(entry -> entry.pos));
+                group.addAll(equal);
+            }
+            current = group.poll();
+            return true;
+        }
+
+        private @Nullable Entry read() throws IOException, XPathException {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            return Entry.read(reader, encounteredPrimitiveTypesForOrderSpecs, orderSpecs, coerceToTypes);
+        }
+    }
+
+    /**
+     * Merges the sorted runs with the entries held in memory.
+     */
+    private class Merge implements AutoCloseable {
+        private final PriorityQueue<RunCursor> queue;
+        private final List<SpilledRunCursor> spilledRuns = new ArrayList<>();
+
+        private Merge() throws IOException, XPathException {
+            this.queue = new PriorityQueue<>(spill.runs.size() + 1, (c1, c2) -> c1.current().compareTo(c2.current()));
+            try {
+                for (final Run run : spill.runs) {
+                    final SpilledRunCursor cursor = new SpilledRunCursor(run);
+                    spilledRuns.add(cursor);
+                    add(cursor);
+                }
+                add(new MemoryRunCursor());
+            } catch (final IOException | XPathException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void add(final RunCursor cursor) throws IOException, XPathException {
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        /**
+         * @return the next entry, or null if all entries have been merged
+         */
+        private @Nullable Entry next() throws IOException, XPathException {
+            final RunCursor cursor = queue.poll();
+            if (cursor == null) {
+                return null;
+            }
+            final Entry entry = cursor.current();
+            add(cursor);
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            for (final SpilledRunCursor cursor : spilledRuns) {
+                try {
+                    cursor.reader.close();
+                } catch (final IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static RuntimeException readError(final Exception e) {
+        final IOException cause = e instanceof IOException ioe ? ioe : new IOException(e.getMessage(), e);
+        return new UncheckedIOException("Unable to read spilled order by entries: " + e.getMessage(), cause);
+    }
+
+    /**
+     * Reads the items of a spilled sequence from the merged file.
+     */
+    private class SpilledIterator implements SequenceIterator {
+        private final SpillFiles files = spill;
+        @Nullable private SpillFile.Reader reader = null;
+        private long position = 0;
+
+        /**
+         * Move to an item, reopening the file at the closest offset recorded before
+         * it if the item is behind the current one, or beyond the next offset.
+         *
+         * @param target the position of the item
+         */
+        private void seek(final long target) throws IOException, XPathException {
+            if (target >= spilledCount) {
+                close();
+                position = spilledCount;
+                return;
+            }
+            final int checkpoint = (int) (target / CHECKPOINT_INTERVAL);
+            if (reader == null || target < position || checkpoint > position / CHECKPOINT_INTERVAL) {
+                close();
+                reader = files.openReader(files.checkpoints[checkpoint]);
+                position = (long) checkpoint * CHECKPOINT_INTERVAL;
+            }
+            while (position < target) {
+                reader.readItem();
+                position++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < spilledCount;
+        }
+
+        @Override
+        public @Nullable Item nextItem() {
+            if (!hasNext()) {
+                return null;
+            }
+            try {
+                if (reader == null) {
+                    seek(position);
+                }
+                final Item item = reader.readItem();
+                position++;
+                if (!hasNext()) {
+                    close();
+                }
+                return item;
+            } catch (final IOException | XPathException e) {
+                close();
+                throw readError(e);
+            }
+        }
+
+        @Override
+        public long skippable() {
+            return spilledCount - position;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long skip = Math.min(n, skippable());
+            if (skip > 0) {
+                try {
+                    seek(position + skip);
+                } catch (final IOException | XPathException e) {
+                    close();
+                    throw readError(e);
+                }
+            }
+            return skip;
+        }
+
+        private void close() {
+            if (reader != null) {
+                files.closeReader(reader);
+                reader = null;
+            }
+        }
+    }
 }
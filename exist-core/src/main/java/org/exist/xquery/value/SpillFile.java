@@ -0,0 +1,288 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.numbering.NodeId;
+import org.exist.storage.io.VariableByteInputStream;
+import org.exist.storage.io.VariableByteOutputStream;
+import org.exist.util.io.TemporaryFileManager;
+import org.exist.xquery.Expression;
+import org.exist.xquery.XPathException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A temporary file to which items are written, and from which they
+ * can be read back, any number of times, in the order in which they
+ * were written.
+ *
+ * Used by "order by" and "group by" clauses to keep the memory used by
+ * huge FLWOR expressions within bounds. Only items which can be recreated
+ * from their serialized form may be written, see {@link #isSpillable(Item)}.
+ */
+public class SpillFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte EMPTY_VALUE = 0;
+    private static final byte PERSISTENT_NODE = 1;
+    private static final byte ATOMIC_VALUE = 2;
+
+    private final Path path;
+    private final Int2ObjectMap<DocumentImpl> documents = new Int2ObjectOpenHashMap<>();
+    private final VariableByteOutputStream buffer = new VariableByteOutputStream(BUFFER_SIZE);
+    @Nullable private OutputStream os;
+    private long flushed = 0;
+
+    public SpillFile() throws IOException {
+        this.path = TemporaryFileManager.getInstance().getTemporaryFile();
+        this.os = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+    }
+
+    /**
+     * Check if an item can be written to a spill file.
+     *
+     * That is the case for persistent nodes without full-text matches,
+     * and for atomic values of the types which can be cast from their
+     * string value, i.e. all primitive types but xs:QName, xs:NOTATION
+     * and the binary types.
+     *
+     * @param item the item to check
+     *
+     * @return true if the item can be written
+     */
+    public static boolean isSpillable(final Item item) {
+        if (item == AtomicValue.EMPTY_VALUE) {
+            return true;
+        }
+        if (item instanceof NodeProxy node) {
+            return node.getMatches() == null;
+        }
+        if (!(item instanceof AtomicValue)) {
+            return false;
+        }
+        final int type = item.getType();
+        return (type >= Type.UNTYPED_ATOMIC && type <= Type.BOOLEAN) || type == Type.ANY_URI;
+    }
+
+    public void writeInt(final int i) throws IOException {
+        buffer.writeInt(i);
+        flushIfFull();
+    }
+
+    /**
+     * Write an item.
+     *
+     * @param item the item, which must be {@link #isSpillable(Item) spillable}
+     *
+     * @throws IOException if the item can not be written
+     * @throws XPathException if the string value of an atomic value can not be determined
+     */
+    public void writeItem(final Item item) throws IOException, XPathException {
+        if (item == AtomicValue.EMPTY_VALUE) {
+            buffer.writeByte(EMPTY_VALUE);
+        } else if (item instanceof NodeProxy node) {
+            final DocumentImpl doc = node.getOwnerDocument();
+            documents.putIfAbsent(doc.getDocId(), doc);
+            buffer.writeByte(PERSISTENT_NODE);
+            buffer.writeInt(doc.getDocId());
+            buffer.writeShort(node.getNodeType());
+            // unknown addresses are -1
+            buffer.writeLong(node.getInternalAddress() + 1);
+            node.getNodeId().write(buffer);
+        } else {
+            buffer.writeByte(ATOMIC_VALUE);
+            buffer.writeInt(item.getType());
+            buffer.writeUTF(item.getStringValue());
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Write a sequence, preceded by its length.
+     *
+     * @param sequence the sequence, all items of which must be {@link #isSpillable(Item) spillable}
+     *
+     * @throws IOException if the sequence can not be written
+     * @throws XPathException if the string value of an atomic value can not be determined
+     */
+    public void writeSequence(final Sequence sequence) throws IOException, XPathException {
+        writeInt(sequence.getItemCount());
+        for (final SequenceIterator i = sequence.iterate(); i.hasNext(); ) {
+            writeItem(i.nextItem());
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        if (buffer.size() >= BUFFER_SIZE) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (os == null) {
+            throw new IOException("Spill file is closed for writing: " + path);
+        }
+        flushed += buffer.size();
+        os.write(buffer.toByteArray());
+        buffer.clear();
+    }
+
+    /**
+     * Get the offset at which the next item will be written.
+     *
+     * @return the number of bytes written so far
+     */
+    public long position() {
+        return flushed + buffer.size();
+    }
+
+    /**
+     * Open a reader from the start of the file. No more items may be written
+     * once a reader has been opened.
+     *
+     * @return the reader, which must be closed after use
+     *
+     * @throws IOException if the file can not be read
+     */
+    public Reader openReader() throws IOException {
+        return openReader(0);
+    }
+
+    /**
+     * Open a reader from an offset in the file. No more items may be written
+     * once a reader has been opened.
+     *
+     * @param offset the offset at which an item starts, see {@link #position()}
+     *
+     * @return the reader, which must be closed after use
+     *
+     * @throws IOException if the file can not be read
+     */
+    public Reader openReader(final long offset) throws IOException {
+        if (os != null) {
+            flushBuffer();
+            os.close();
+            os = null;
+        }
+        final SeekableByteChannel channel = Files.newByteChannel(path);
+        try {
+            channel.position(offset);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Reader(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (os != null) {
+                os.close();
+                os = null;
+            }
+        } finally {
+            TemporaryFileManager.getInstance().returnTemporaryFile(path);
+        }
+    }
+
+    /**
+     * Reads back the contents of a {@link SpillFile}.
+     */
+    public class Reader implements Closeable {
+        private final InputStream is;
+        private final VariableByteInputStream input;
+
+        private Reader(final InputStream is) {
+            this.is = is;
+            this.input = new VariableByteInputStream(is);
+        }
+
+        public int readInt() throws IOException {
+            return input.readInt();
+        }
+
+        public Item readItem() throws IOException, XPathException {
+            final byte kind = input.readByte();
+            switch (kind) {
+                case EMPTY_VALUE:
+                    return AtomicValue.EMPTY_VALUE;
+
+                case PERSISTENT_NODE:
+                    final DocumentImpl doc = documents.get(input.readInt());
+                    final short nodeType = input.readShort();
+                    final long address = input.readLong() - 1;
+                    final NodeId nodeId = doc.getBrokerPool().getNodeFactory().createFromStream(input);
+                    return new NodeProxy(null, doc, nodeId, nodeType, address);
+
+                case ATOMIC_VALUE:
+                    final int type = input.readInt();
+                    final String value = input.readUTF();
+                    return switch (type) {
+                        case Type.STRING -> new StringValue(value);
+                        case Type.UNTYPED_ATOMIC -> new UntypedAtomicValue(value);
+                        default -> new StringValue(value).convertTo(type);
+                    };
+
+                default:
+                    throw new IOException("Corrupted spill file: " + path);
+            }
+        }
+
+        public AtomicValue readAtomicValue() throws IOException, XPathException {
+            final Item item = readItem();
+            if (!(item instanceof AtomicValue atomicValue)) {
+                throw new XPathException((Expression) null, "Expected an atomic value in spill file: " + path);
+            }
+            return atomicValue;
+        }
+
+        public Sequence readSequence() throws IOException, XPathException {
+            final int length = readInt();
+            final ValueSequence sequence = new ValueSequence(length);
+            for (int i = 0; i < length; i++) {
+                sequence.add(readItem());
+            }
+            return sequence;
+        }
+
+        @Override
+        public void close() throws IOException {
+            is.close();
+        }
+    }
+}
@@ -47,6 +47,7 @@ public class ValueSequence extends AbstractSequence implements MemoryNodeSet {
     //Do not change the -1 value since size computation relies on this start value
     private final static int UNSET_SIZE = -1;
     private final static int INITIAL_SIZE = 64;
+    private final static int COMPACT_THRESHOLD = 256;
     private final static Logger LOG = LogManager.getLogger(ValueSequence.class);
     protected Item[] values;
     protected int size = UNSET_SIZE;
@@ -222,6 +223,25 @@ public class ValueSequence extends AbstractSequence implements MemoryNodeSet {
         return values[pos];
     }
 
+    /**
+     * Returns an unboxed copy of this sequence if it is large and
+     * consists only of xs:integer or only of xs:double values.
+     *
+     * @return a {@link LongArraySequence} or {@link DoubleArraySequence},
+     *     or this sequence if it cannot be compacted
+     */
+    public Sequence compact() {
+        if (size + 1 < COMPACT_THRESHOLD) {
+            return this;
+        }
+        final Sequence compact = switch (itemType) {
+            case Type.INTEGER -> LongArraySequence.copyOf(this);
+            case Type.DOUBLE -> DoubleArraySequence.copyOf(this);
+            default -> null;
+        };
+        return compact == null ? this : compact;
+    }
+
     public void setHolderVariable(final Variable var) {
         this.holderVar = var;
     }
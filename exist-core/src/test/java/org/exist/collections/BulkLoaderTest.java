@@ -0,0 +1,224 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections;
+
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.LockedDocument;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.LockException;
+import org.exist.util.MimeType;
+import org.exist.util.StringInputSource;
+import org.exist.xmldb.XmldbURI;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.xmlunit.builder.DiffBuilder;
+import org.xmlunit.builder.Input;
+import org.xmlunit.diff.Diff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class BulkLoaderTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final int DOCUMENTS = 50;
+
+    private static final String DOCTYPE_DOC =
+            "<!DOCTYPE doc PUBLIC \"-//TEST//DTD Test//EN\" \"test.dtd\">" +
+            "<doc xmlns=\"http://example.com/ns\" xmlns:x=\"http://example.com/x\">" +
+            "<!-- a comment --><?pi data?><x:a x:attr=\"1\">text<![CDATA[ <cdata> ]]></x:a></doc>";
+
+    @Test
+    public void storeDocuments() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException {
+        final XmldbURI collectionUri = XmldbURI.create("/db/bulk-load-test");
+        final List<BulkLoader.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            entries.add(new BulkLoader.Entry(XmldbURI.create("doc" + i + ".xml"), MimeType.XML_TYPE, new StringInputSource(document(i))));
+        }
+        entries.add(new BulkLoader.Entry(XmldbURI.create("doctype.xml"), MimeType.XML_TYPE, new StringInputSource(DOCTYPE_DOC)));
+        entries.add(new BulkLoader.Entry(XmldbURI.create("binary.txt"), MimeType.TEXT_TYPE, new StringInputSource("binary".getBytes())));
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.getOrCreateCollection(transaction, collectionUri);
+                    final BulkLoader loader = new BulkLoader(pool, 3)) {
+                broker.saveCollection(transaction, collection);
+                loader.store(transaction, broker, collection, entries);
+                // for comparison, the same document stored without the loader
+                broker.storeDocument(transaction, XmldbURI.create("plain.xml"), new StringInputSource(DOCTYPE_DOC), MimeType.XML_TYPE, collection);
+            }
+            transaction.commit();
+        }
+
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            for (int i = 0; i < DOCUMENTS; i++) {
+                assertStored(broker, collectionUri.append("doc" + i + ".xml"), document(i));
+            }
+
+            try (final LockedDocument plain = broker.getXMLResource(collectionUri.append("plain.xml"), LockMode.READ_LOCK);
+                    final LockedDocument doctype = broker.getXMLResource(collectionUri.append("doctype.xml"), LockMode.READ_LOCK)) {
+                assertNotNull(doctype);
+                final Diff diff = DiffBuilder.compare(Input.fromDocument(plain.getDocument()).build())
+                        .withTest(Input.fromDocument(doctype.getDocument()).build())
+                        .build();
+                assertFalse(diff.toString(), diff.hasDifferences());
+
+                assertNotNull(doctype.getDocument().getDoctype());
+                assertEquals("doc", doctype.getDocument().getDoctype().getName());
+                assertEquals("-//TEST//DTD Test//EN", doctype.getDocument().getDoctype().getPublicId());
+            }
+
+            try (final LockedDocument binary = broker.getXMLResource(collectionUri.append("binary.txt"), LockMode.READ_LOCK)) {
+                assertNotNull(binary);
+                assertEquals(DocumentImpl.BINARY_FILE, binary.getDocument().getResourceType());
+            }
+        }
+    }
+
+    @Test
+    public void malformedDocumentStopsLoad() throws EXistException, PermissionDeniedException, IOException, LockException {
+        final XmldbURI collectionUri = XmldbURI.create("/db/bulk-load-malformed-test");
+        final List<BulkLoader.Entry> entries = List.of(
+                new BulkLoader.Entry(XmldbURI.create("first.xml"), MimeType.XML_TYPE, new StringInputSource(document(1))),
+                new BulkLoader.Entry(XmldbURI.create("malformed.xml"), MimeType.XML_TYPE, new StringInputSource("<unclosed>")),
+                new BulkLoader.Entry(XmldbURI.create("last.xml"), MimeType.XML_TYPE, new StringInputSource(document(2))));
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.getOrCreateCollection(transaction, collectionUri);
+                    final BulkLoader loader = new BulkLoader(pool, 2)) {
+                broker.saveCollection(transaction, collection);
+                loader.store(transaction, broker, collection, entries);
+                fail("Expected the malformed document to stop the load");
+            } catch (final SAXException e) {
+                // expected
+            }
+            transaction.commit();
+
+            try (final LockedDocument first = broker.getXMLResource(collectionUri.append("first.xml"), LockMode.READ_LOCK)) {
+                assertNotNull(first);
+            }
+            try (final LockedDocument malformed = broker.getXMLResource(collectionUri.append("malformed.xml"), LockMode.READ_LOCK)) {
+                assertNull(malformed);
+            }
+            try (final LockedDocument last = broker.getXMLResource(collectionUri.append("last.xml"), LockMode.READ_LOCK)) {
+                assertNull(last);
+            }
+        }
+    }
+
+    @Test
+    public void malformedDocumentIsSkipped() throws EXistException, PermissionDeniedException, IOException, LockException, SAXException {
+        final XmldbURI collectionUri = XmldbURI.create("/db/bulk-load-skip-test");
+        final List<BulkLoader.Entry> entries = List.of(
+                new BulkLoader.Entry(XmldbURI.create("first.xml"), MimeType.XML_TYPE, new StringInputSource(document(1))),
+                new BulkLoader.Entry(XmldbURI.create("malformed.xml"), MimeType.XML_TYPE, new StringInputSource("<unclosed>")),
+                new BulkLoader.Entry(XmldbURI.create("last.xml"), MimeType.XML_TYPE, new StringInputSource(document(2))));
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final List<XmldbURI> failed = new ArrayList<>();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.getOrCreateCollection(transaction, collectionUri);
+                    final BulkLoader loader = new BulkLoader(pool)) {
+                broker.saveCollection(transaction, collection);
+                loader.store(transaction, broker, collection, entries, (entry, e) -> failed.add(entry.name()));
+            }
+            transaction.commit();
+
+            assertEquals(List.of(XmldbURI.create("malformed.xml")), failed);
+            assertStored(broker, collectionUri.append("first.xml"), document(1));
+            assertStored(broker, collectionUri.append("last.xml"), document(2));
+            try (final LockedDocument malformed = broker.getXMLResource(collectionUri.append("malformed.xml"), LockMode.READ_LOCK)) {
+                assertNull(malformed);
+            }
+        }
+    }
+
+    @Test
+    public void malformedReplacementKeepsExistingDocument() throws EXistException, PermissionDeniedException, IOException, LockException, SAXException {
+        final XmldbURI collectionUri = XmldbURI.create("/db/bulk-load-replace-test");
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.getOrCreateCollection(transaction, collectionUri)) {
+                broker.saveCollection(transaction, collection);
+                broker.storeDocument(transaction, XmldbURI.create("existing.xml"), new StringInputSource(document(1)), MimeType.XML_TYPE, collection);
+            }
+            transaction.commit();
+        }
+
+        final List<BulkLoader.Entry> entries = List.of(
+                new BulkLoader.Entry(XmldbURI.create("first.xml"), MimeType.XML_TYPE, new StringInputSource(document(2))),
+                new BulkLoader.Entry(XmldbURI.create("existing.xml"), MimeType.XML_TYPE, new StringInputSource("<unclosed>")),
+                new BulkLoader.Entry(XmldbURI.create("last.xml"), MimeType.XML_TYPE, new StringInputSource(document(3))));
+
+        final List<XmldbURI> failed = new ArrayList<>();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.openCollection(collectionUri, LockMode.WRITE_LOCK);
+                    final BulkLoader loader = new BulkLoader(pool)) {
+                loader.store(transaction, broker, collection, entries, (entry, e) -> failed.add(entry.name()));
+            }
+            transaction.commit();
+
+            assertEquals(List.of(XmldbURI.create("existing.xml")), failed);
+            assertStored(broker, collectionUri.append("existing.xml"), document(1));
+            assertStored(broker, collectionUri.append("first.xml"), document(2));
+            assertStored(broker, collectionUri.append("last.xml"), document(3));
+        }
+    }
+
+    private static String document(final int i) {
+        return "<doc id=\"" + i + "\"><title>Document " + i + "</title><p>Some <b>mixed</b> content</p></doc>";
+    }
+
+    private static void assertStored(final DBBroker broker, final XmldbURI uri, final String expected) throws PermissionDeniedException {
+        try (final LockedDocument lockedDoc = broker.getXMLResource(uri, LockMode.READ_LOCK)) {
+            assertNotNull(uri.toString(), lockedDoc);
+            final Diff diff = DiffBuilder.compare(Input.fromString(expected).build())
+                    .withTest(Input.fromDocument(lockedDoc.getDocument()).build())
+                    .checkForSimilar()
+                    .build();
+            assertFalse(diff.toString(), diff.hasDifferences());
+        }
+    }
+}
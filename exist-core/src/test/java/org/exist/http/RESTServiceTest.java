@@ -665,6 +665,34 @@ try {
         }
     }
 
+    @Test
+    public void queryPostJSON() throws IOException {
+        final String query = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<query xmlns=\"" + Namespaces.EXIST_NS + "\" method=\"json\" start=\"2\" max=\"%d\">"
+                + "<text>(1, 'a\"b', 3)</text>"
+                + "</query>";
+
+        assertEquals("[\"a\\\"b\",\"3\"]", postJSONQueryData(String.format(query, 2)));
+        assertEquals("\"a\\\"b\"", postJSONQueryData(String.format(query, 1)));
+    }
+
+    private String postJSONQueryData(final String query) throws IOException {
+        final HttpURLConnection connect = preparePost(query, getCollectionUri());
+        try {
+            connect.connect();
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+
+            final String data = readResponse(connect.getInputStream()).trim();
+            assertTrue(data, data.contains("\"hits\""));
+            final int dataStart = data.indexOf("\"data\":");
+            assertTrue(data, dataStart > -1 && data.endsWith("}"));
+            return data.substring(dataStart + "\"data\":".length(), data.length() - 1);
+        } finally {
+            connect.disconnect();
+        }
+    }
+
     @Test
     public void queryPostXQueryError() throws IOException {
         final HttpURLConnection connect = preparePost(QUERY_REQUEST_ERROR, getResourceUri());
@@ -0,0 +1,82 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.http;
+
+import org.exist.xquery.Expression;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.value.IntegerValue;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Type;
+import org.exist.xquery.value.ValueSequence;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingResultsTest {
+
+    @Test
+    public void errorInLaterItemIsMarked() throws IOException, SAXException, XPathException {
+        final ValueSequence results = new ValueSequence();
+        results.add(new IntegerValue(1));
+        results.add(failingItem());
+        results.add(new IntegerValue(3));
+
+        final RESTServer.StreamingResults data = new RESTServer.StreamingResults("data", null, results, 0, 3, false);
+        data.serializeFirst();
+        final StringWriter writer = new StringWriter();
+        data.serialize(writer, false);
+
+        final String json = writer.toString();
+        assertTrue(json, json.startsWith("\"data\":[\"1\"],\"error\":\""));
+        assertTrue(json, json.contains("failed"));
+        assertTrue(json, json.endsWith("\""));
+    }
+
+    @Test
+    public void errorInFirstItemIsRaised() throws SAXException {
+        final ValueSequence results = new ValueSequence();
+        results.add(failingItem());
+        results.add(new IntegerValue(2));
+
+        final RESTServer.StreamingResults data = new RESTServer.StreamingResults("data", null, results, 0, 2, false);
+        try {
+            data.serializeFirst();
+            fail("Expected the error of the first item to be raised");
+        } catch (final XPathException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("failed"));
+        }
+    }
+
+    private static Item failingItem() throws XPathException {
+        final Item item = createMock(Item.class);
+        expect(item.getType()).andReturn(Type.STRING).anyTimes();
+        expect(item.getStringValue()).andThrow(new XPathException((Expression) null, "failed")).anyTimes();
+        replay(item);
+        return item;
+    }
+}
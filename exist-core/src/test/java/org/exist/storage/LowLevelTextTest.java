@@ -37,6 +37,8 @@ import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Currently, tests for the {@link org.exist.storage.XQueryPool}
@@ -123,6 +125,24 @@ public class LowLevelTextTest {
 		callAndTestBorrowCompiledXQuery(localStringSource);
 	}
 
+	@Test
+	public void statistics() throws PermissionDeniedException {
+		final XQueryPool.Statistics before = xqueryPool.getStatistics();
+		assertTrue(before.getCompileCount() >= 1);
+		assertTrue(before.getTotalCompileTime() > 0);
+
+		final StringSource otherSource = new StringSource("/other");
+		assertNull(xqueryPool.borrowCompiledXQuery(broker, otherSource));
+
+		xqueryPool.returnCompiledXQuery(stringSource, preCompiledXQuery);
+		callAndTestBorrowCompiledXQuery(stringSource);
+
+		final XQueryPool.Statistics after = xqueryPool.getStatistics();
+		assertEquals(before.getHitCount() + 1, after.getHitCount());
+		assertEquals(before.getMissCount() + 1, after.getMissCount());
+		assertEquals(1, after.getSize());
+	}
+
 	private void callAndTestBorrowCompiledXQuery(StringSource stringSourceArg) throws PermissionDeniedException {
 		final CompiledXQuery compiledXQuery = xqueryPool.borrowCompiledXQuery(broker, stringSourceArg);
 		assertNotNull(
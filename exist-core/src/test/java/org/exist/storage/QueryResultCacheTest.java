@@ -0,0 +1,123 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceIterator;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Checks that results of queries which declare exist:result-cache are reused
+ * until a document in the collections they depend on changes.
+ */
+public class QueryResultCacheTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final String CACHED_QUERY =
+            "declare option exist:result-cache 'collections=/db/rc-data';\n" +
+            "(count(collection('/db/rc-data')//item), util:uuid())";
+
+    @Before
+    public void setUp() throws EXistException, PermissionDeniedException, XPathException {
+        query("(xmldb:create-collection('/db', 'rc-data'), xmldb:create-collection('/db', 'rc-other'), " +
+                "xmldb:store('/db/rc-data', 'a.xml', <items><item/><item/></items>))");
+        existEmbeddedServer.getBrokerPool().getQueryResultCache().clear();
+    }
+
+    @Test
+    public void reusesResult() throws EXistException, PermissionDeniedException, XPathException {
+        final QueryResultCache.Statistics before = existEmbeddedServer.getBrokerPool().getQueryResultCache().getStatistics();
+
+        final String first = query(CACHED_QUERY);
+        assertEquals(first, query(CACHED_QUERY));
+
+        final QueryResultCache.Statistics after = existEmbeddedServer.getBrokerPool().getQueryResultCache().getStatistics();
+        assertEquals(before.getHitCount() + 1, after.getHitCount());
+    }
+
+    @Test
+    public void invalidatedByUpdateInDependency() throws EXistException, PermissionDeniedException, XPathException {
+        final String first = query(CACHED_QUERY);
+        query("xmldb:store('/db/rc-data', 'b.xml', <items><item/></items>)");
+
+        final String second = query(CACHED_QUERY);
+        assertNotEquals(first, second);
+        assertEquals("3", second.split(",")[0]);
+
+        query("xmldb:remove('/db/rc-data', 'b.xml')");
+        assertEquals("2", query(CACHED_QUERY).split(",")[0]);
+    }
+
+    @Test
+    public void keptOnUpdateOutsideDependency() throws EXistException, PermissionDeniedException, XPathException {
+        final String first = query(CACHED_QUERY);
+        query("xmldb:store('/db/rc-other', 'c.xml', <items><item/></items>)");
+        assertEquals(first, query(CACHED_QUERY));
+    }
+
+    @Test
+    public void anyUpdateInvalidatesWithoutCollections() throws EXistException, PermissionDeniedException, XPathException {
+        final String cachedQuery = "declare option exist:result-cache '';\n util:uuid()";
+        final String first = query(cachedQuery);
+        assertEquals(first, query(cachedQuery));
+
+        query("xmldb:store('/db/rc-other', 'd.xml', <items/>)");
+        assertNotEquals(first, query(cachedQuery));
+    }
+
+    @Test
+    public void notCachedWithoutOption() throws EXistException, PermissionDeniedException, XPathException {
+        assertNotEquals(query("util:uuid()"), query("util:uuid()"));
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final XQueryContext context = new XQueryContext(pool);
+            final Sequence result = xquery.execute(broker, xquery.compile(context, query), null);
+            final StringBuilder builder = new StringBuilder();
+            for (final SequenceIterator i = result.iterate(); i.hasNext(); ) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(i.nextItem().getStringValue());
+            }
+            return builder.toString();
+        }
+    }
+}
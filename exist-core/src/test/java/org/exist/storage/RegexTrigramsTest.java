@@ -0,0 +1,132 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that regular expressions and substrings looked up by the trigrams
+ * of the range index find the same nodes as a scan of the documents
+ * without an index.
+ */
+public class RegexTrigramsTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(NativeValueIndex.PROPERTY_INDEX_REGEX_TRIGRAMS, true)
+                    .build(),
+            true,
+            true);
+
+    private static final String COLLECTION_CONFIG =
+            "<collection xmlns='http://exist-db.org/collection-config/1.0'>" +
+            "    <index>" +
+            "        <create qname='title' type='xs:string'/>" +
+            "    </index>" +
+            "</collection>";
+
+    private static final String[] EXPRESSIONS = {
+            "wald", "wa+ld", "title 1.*wald", "weg$", "x{3}", "^title 7", "title (1|2)0",
+            "wal?d", "title \\d+ wald", "\\s+xxxx"
+    };
+
+    @BeforeClass
+    public static void storeDocuments() throws EXistException, PermissionDeniedException, XPathException {
+        query("xmldb:create-collection('/db/system/config/db', 'trigrams')");
+        query("xmldb:store('/db/system/config/db/trigrams', 'collection.xconf', " + COLLECTION_CONFIG + ")");
+        query("xmldb:create-collection('/db', 'trigrams')");
+        query("xmldb:create-collection('/db', 'plain')");
+        for (final String collection : new String[] { "/db/trigrams", "/db/plain" }) {
+            query("for $d in 1 to 4 return xmldb:store('" + collection + "', 'doc' || $d || '.xml', " +
+                    "<books>{for $i in 1 to 50 let $n := ($d - 1) * 50 + $i return <book><title>{" +
+                    "'title ' || $n || (if ($n mod 7 = 0) then ' waldweg' else ())" +
+                    " || (if ($n mod 11 = 0) then ' ' || string-join(for $j in 1 to 300 return 'x') else ())" +
+                    "}</title></book>}</books>)");
+        }
+    }
+
+    @Test
+    public void matches() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameMatches();
+    }
+
+    @Test
+    public void matchesWithFlags() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("count(collection('/db/trigrams')//title[matches(., 'WALD', 'i')])",
+                "count(collection('/db/plain')//title[matches(., 'WALD', 'i')])");
+        assertSameResults("count(collection('/db/trigrams')//title[matches(., '1.', 'q')])",
+                "count(collection('/db/plain')//title[matches(., '1.', 'q')])");
+        assertSameResults("count(collection('/db/trigrams')//book[matches(title, 'title 1 0', 'x')])",
+                "count(collection('/db/plain')//book[matches(title, 'title 1 0', 'x')])");
+    }
+
+    @Test
+    public void updates() throws EXistException, PermissionDeniedException, XPathException {
+        query("xmldb:remove('/db/trigrams', 'doc2.xml'), xmldb:remove('/db/plain', 'doc2.xml')");
+        assertSameMatches();
+
+        for (final String collection : new String[] { "/db/trigrams", "/db/plain" }) {
+            query("xmldb:store('" + collection + "', 'doc5.xml', <books><book><title>title 1000 waldweg</title></book></books>)");
+            query("update value doc('" + collection + "/doc1.xml')//book[1]/title with 'title 1 wald'");
+        }
+        assertSameMatches();
+
+        query("xmldb:reindex('/db/trigrams')");
+        assertSameMatches();
+    }
+
+    private static void assertSameMatches() throws EXistException, PermissionDeniedException, XPathException {
+        for (final String expr : EXPRESSIONS) {
+            assertSameResults("string-join(collection('/db/trigrams')//title[matches(., '" + expr + "')]/substring(., 1, 20), ',')",
+                    "string-join(collection('/db/plain')//title[matches(., '" + expr + "')]/substring(., 1, 20), ',')");
+            assertSameResults("count(collection('/db/trigrams')//book[matches(title, '" + expr + "')])",
+                    "count(collection('/db/plain')//book[matches(title, '" + expr + "')])");
+        }
+    }
+
+    private static void assertSameResults(final String query, final String unindexedQuery) throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals(query, query(unindexedQuery), query(query));
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = xquery.execute(broker, query, null);
+            return result.isEmpty() ? "" : result.itemAt(result.getItemCount() - 1).getStringValue();
+        }
+    }
+}
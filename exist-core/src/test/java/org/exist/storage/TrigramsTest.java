@@ -0,0 +1,104 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class TrigramsTest {
+
+    @Test
+    public void literals() {
+        assertLiterals("hello world", "hello world");
+        assertLiterals("foo.*bar", "foo", "bar");
+        assertLiterals("[abc]def\\d{2}ghi", "def", "ghi");
+        assertLiterals("^start|end$");
+        assertLiterals("x\\.yz", "x.yz");
+    }
+
+    @Test
+    public void quantifiers() {
+        assertLiterals("colou?r", "colo");
+        assertLiterals("abc{0,2}def", "def");
+        assertLiterals("wa+ld", "ald");
+        assertLiterals("ab+cd*efg", "efg");
+        assertLiterals("abc+?def", "abc", "cdef");
+    }
+
+    @Test
+    public void groups() {
+        assertLiterals("ab(cde)?fgh", "fgh");
+        assertLiterals("(abcd)+efg", "abcd", "efg");
+        assertLiterals("(?:abcd){0,1}efg", "efg");
+        assertLiterals("(?<name>abcd)", "abcd");
+        assertLiterals("(?=abc)def");
+        assertLiterals("(abc");
+        assertLiterals("abc)");
+    }
+
+    @Test
+    public void unsupported() {
+        assertLiterals("a|bcd");
+        assertLiterals("\\Qabc\\E");
+        assertLiterals("\\p{L}abc");
+        assertLiterals("(abc)\\1");
+    }
+
+    @Test
+    public void flags() {
+        assertEquals(Collections.emptyList(), Trigrams.requiredLiterals("abc", Pattern.CASE_INSENSITIVE));
+        assertEquals(Collections.emptyList(), Trigrams.requiredLiterals("abc", Pattern.COMMENTS));
+        assertEquals(List.of("a.c|d"), Trigrams.requiredLiterals("a.c|d", Pattern.LITERAL));
+    }
+
+    @Test
+    public void trigrams() {
+        assertEquals(List.of("abc", "bcd"), trigrams("abcd"));
+        assertEquals(List.of("aaa"), trigrams("aaaaa"));
+        assertEquals(Collections.emptyList(), trigrams("ab"));
+        assertEquals(List.of("a𝄞b"), trigrams("a𝄞b"));
+    }
+
+    @Test
+    public void required() {
+        assertEquals(List.of("foo", "bar"), Trigrams.required("foo.*bar", DBBroker.MATCH_REGEXP, 0));
+        assertEquals(List.of("abc", "bcd"), Trigrams.required("abcd", DBBroker.MATCH_CONTAINS, 0));
+        assertEquals(Collections.emptyList(), Trigrams.required("abcd", DBBroker.MATCH_EXACT, 0));
+        assertEquals(Trigrams.MAX_QUERY_TRIGRAMS, Trigrams.required("abcdefghijklmnop", DBBroker.MATCH_REGEXP, 0).size());
+    }
+
+    private static void assertLiterals(final String regex, final String... expected) {
+        assertEquals(regex, List.of(expected), Trigrams.requiredLiterals(regex, 0));
+    }
+
+    private static List<String> trigrams(final String s) {
+        final List<String> trigrams = new ArrayList<>();
+        Trigrams.forEach(s, trigrams::add);
+        return trigrams;
+    }
+}
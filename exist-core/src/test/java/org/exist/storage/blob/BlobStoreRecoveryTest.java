@@ -473,6 +473,8 @@ public class BlobStoreRecoveryTest {
         final Configuration mockConfiguration = createNiceMock(Configuration.class);
         expect(mockConfiguration.getProperty(Journal.PROPERTY_RECOVERY_JOURNAL_DIR)).andReturn(journalDir);
         expect(mockConfiguration.getProperty(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, false)).andReturn(false);
+        expect(mockConfiguration.getProperty(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_WINDOW, 0)).andReturn(0);
+        expect(mockConfiguration.getProperty(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_SIZE, 32)).andReturn(32);
 
         expect(mockConfiguration.getProperty(PROPERTY_RECOVERY_SYNC_ON_COMMIT, true)).andReturn(true);
         expect(mockConfiguration.getProperty(PROPERTY_RECOVERY_SIZE_MIN, 1)).andReturn(1);
@@ -40,6 +40,12 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Low-level tests on the B+tree.
@@ -145,6 +151,53 @@ public class BTreeTest {
         }
     }
 
+    /**
+     * Lookups and scans may be performed concurrently by
+     * threads holding the shared BTree lock.
+     */
+    @Test
+    public void concurrentReads() throws Exception {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try(final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+
+            final String prefixStr = "R";
+            for (int i = 1; i <= COUNT; i++) {
+                btree.addValue(new Value(prefixStr + i), i);
+            }
+            btree.flush();
+
+            final int threads = 8;
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int seed = t;
+                    results.add(executor.submit(() -> {
+                        final Random random = new Random(seed);
+                        for (int i = 0; i < COUNT; i++) {
+                            final int key = random.nextInt(COUNT) + 1;
+                            assertEquals(key, btree.findValue(new Value(prefixStr + key)));
+                        }
+
+                        final AtomicInteger found = new AtomicInteger();
+                        btree.query(new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value(prefixStr)), (value, pointer) -> {
+                            found.incrementAndGet();
+                            return true;
+                        });
+                        assertEquals(COUNT, found.get());
+                        return null;
+                    }));
+                }
+                for (final Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
     @Test
     public void longStrings() throws DBException, IOException {
         // Test storage of long keys up to half of the page size (4k)
@@ -0,0 +1,133 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageIOTest {
+
+    private static final int PAGE_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(PageIO.Mode.class)
+    public void writeAndRead(final PageIO.Mode mode) throws IOException {
+        final Path file = tempDir.resolve("pages.dbx");
+        try (final PageIO pageIO = PageIO.create(mode, new RandomAccessFile(file.toFile(), "rw"))) {
+            assertEquals(mode, pageIO.getMode());
+
+            for (int i = 0; i < 16; i++) {
+                pageIO.write((long) i * PAGE_SIZE, page((byte) i), 0, PAGE_SIZE);
+            }
+
+            for (int i = 15; i >= 0; i--) {
+                final byte[] buf = new byte[PAGE_SIZE];
+                pageIO.read((long) i * PAGE_SIZE, buf, 0, PAGE_SIZE);
+                assertArrayEquals(page((byte) i), buf);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(PageIO.Mode.class)
+    public void readBeyondEndIsZeroFilled(final PageIO.Mode mode) throws IOException {
+        final Path file = tempDir.resolve("pages.dbx");
+        try (final PageIO pageIO = PageIO.create(mode, new RandomAccessFile(file.toFile(), "rw"))) {
+            pageIO.write(0, page((byte) 1), 0, PAGE_SIZE);
+
+            // straddles the end of the file
+            final byte[] buf = new byte[PAGE_SIZE];
+            Arrays.fill(buf, (byte) 0x7F);
+            pageIO.read(PAGE_SIZE / 2, buf, 0, PAGE_SIZE);
+            for (int i = 0; i < PAGE_SIZE / 2; i++) {
+                assertEquals(1, buf[i]);
+            }
+            for (int i = PAGE_SIZE / 2; i < PAGE_SIZE; i++) {
+                assertEquals(0, buf[i]);
+            }
+
+            // entirely after the end of the file
+            Arrays.fill(buf, (byte) 0x7F);
+            pageIO.read(10 * PAGE_SIZE, buf, 0, PAGE_SIZE);
+            assertArrayEquals(new byte[PAGE_SIZE], buf);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(PageIO.Mode.class)
+    public void transferTo(final PageIO.Mode mode) throws IOException {
+        final Path file = tempDir.resolve("pages.dbx");
+        try (final PageIO pageIO = PageIO.create(mode, new RandomAccessFile(file.toFile(), "rw"))) {
+            pageIO.write(0, page((byte) 1), 0, PAGE_SIZE);
+            pageIO.write(PAGE_SIZE, page((byte) 2), 0, PAGE_SIZE);
+
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            pageIO.transferTo(os);
+            final byte[] data = os.toByteArray();
+            assertEquals(2 * PAGE_SIZE, data.length);
+            assertArrayEquals(page((byte) 1), Arrays.copyOfRange(data, 0, PAGE_SIZE));
+            assertArrayEquals(page((byte) 2), Arrays.copyOfRange(data, PAGE_SIZE, 2 * PAGE_SIZE));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = PageIO.Mode.class, names = "MEMORY_MAPPED")
+    public void writesVisibleThroughMappedRegion(final PageIO.Mode mode) throws IOException {
+        final Path file = tempDir.resolve("pages.dbx");
+        final RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        // sparse file which covers the first mapped region entirely
+        raf.setLength(MappedPageIO.REGION_SIZE + PAGE_SIZE);
+        try (final PageIO pageIO = PageIO.create(mode, raf)) {
+            final byte[] buf = new byte[PAGE_SIZE];
+            pageIO.read(PAGE_SIZE, buf, 0, PAGE_SIZE);
+            assertArrayEquals(new byte[PAGE_SIZE], buf);
+
+            // the region is now mapped, overwrite the page
+            pageIO.write(PAGE_SIZE, page((byte) 3), 0, PAGE_SIZE);
+            pageIO.read(PAGE_SIZE, buf, 0, PAGE_SIZE);
+            assertArrayEquals(page((byte) 3), buf);
+
+            // read across the end of the mapped region
+            pageIO.write(MappedPageIO.REGION_SIZE - PAGE_SIZE / 2, page((byte) 4), 0, PAGE_SIZE);
+            pageIO.read(MappedPageIO.REGION_SIZE - PAGE_SIZE / 2, buf, 0, PAGE_SIZE);
+            assertArrayEquals(page((byte) 4), buf);
+        }
+    }
+
+    private static byte[] page(final byte value) {
+        final byte[] page = new byte[PAGE_SIZE];
+        Arrays.fill(page, value);
+        return page;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapPageCacheTest {
+
+    private static final int PAGE_SIZE = 4096;
+
+    @Test
+    public void readWhatWasWritten() {
+        final OffHeapPageCache cache = new OffHeapPageCache("test", 64 * PAGE_SIZE, PAGE_SIZE);
+        final int fileId = cache.registerFile();
+
+        final byte[] buf = new byte[PAGE_SIZE];
+        assertFalse(cache.read(fileId, 1, buf));
+
+        cache.write(fileId, 1, page((byte) 1));
+        assertTrue(cache.read(fileId, 1, buf));
+        assertArrayEquals(page((byte) 1), buf);
+
+        cache.write(fileId, 1, page((byte) 2));
+        assertTrue(cache.read(fileId, 1, buf));
+        assertArrayEquals(page((byte) 2), buf);
+
+        assertEquals(1, cache.getUsed());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getFails());
+    }
+
+    @Test
+    public void addDoesNotReplace() {
+        final OffHeapPageCache cache = new OffHeapPageCache("test", 64 * PAGE_SIZE, PAGE_SIZE);
+        final int fileId = cache.registerFile();
+
+        cache.write(fileId, 7, page((byte) 1));
+        cache.add(fileId, 7, page((byte) 2));
+
+        final byte[] buf = new byte[PAGE_SIZE];
+        assertTrue(cache.read(fileId, 7, buf));
+        assertArrayEquals(page((byte) 1), buf);
+    }
+
+    @Test
+    public void filesAreSeparate() {
+        final OffHeapPageCache cache = new OffHeapPageCache("test", 64 * PAGE_SIZE, PAGE_SIZE);
+        final int fileId1 = cache.registerFile();
+        final int fileId2 = cache.registerFile();
+
+        cache.write(fileId1, 3, page((byte) 1));
+        cache.write(fileId2, 3, page((byte) 2));
+
+        final byte[] buf = new byte[PAGE_SIZE];
+        assertTrue(cache.read(fileId1, 3, buf));
+        assertArrayEquals(page((byte) 1), buf);
+        assertTrue(cache.read(fileId2, 3, buf));
+        assertArrayEquals(page((byte) 2), buf);
+
+        cache.invalidateFile(fileId1);
+        assertFalse(cache.read(fileId1, 3, buf));
+        assertTrue(cache.read(fileId2, 3, buf));
+
+        cache.invalidate(fileId2, 3);
+        assertFalse(cache.read(fileId2, 3, buf));
+        assertEquals(0, cache.getUsed());
+    }
+
+    @Test
+    public void pageNumbersAreNotTruncated() {
+        final OffHeapPageCache cache = new OffHeapPageCache("test", 64 * PAGE_SIZE, PAGE_SIZE);
+        final int fileId = cache.registerFile();
+
+        cache.write(fileId, 5, page((byte) 1));
+        cache.write(fileId, (1L << 32) + 5, page((byte) 2));
+
+        final byte[] buf = new byte[PAGE_SIZE];
+        assertTrue(cache.read(fileId, 5, buf));
+        assertArrayEquals(page((byte) 1), buf);
+        assertTrue(cache.read(fileId, (1L << 32) + 5, buf));
+        assertArrayEquals(page((byte) 2), buf);
+        assertEquals(2, cache.getUsed());
+    }
+
+    @Test
+    public void readPartOfPage() {
+        final OffHeapPageCache cache = new OffHeapPageCache("test", 64 * PAGE_SIZE, PAGE_SIZE);
+        final int fileId = cache.registerFile();
+
+        final byte[] image = page((byte) 1);
+        image[10] = 42;
+        image[11] = 43;
+        cache.write(fileId, 9, image);
+
+        final byte[] part = cache.read(fileId, 9, (slab, offset) -> {
+            final byte[] data = new byte[2];
+            slab.get(offset + 10, data, 0, data.length);
+            return data;
+        });
+        assertArrayEquals(new byte[] { 42, 43 }, part);
+        assertNull(cache.read(fileId, 10, (slab, offset) -> new byte[0]));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getFails());
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        final int capacity = 32;
+        final OffHeapPageCache cache = new OffHeapPageCache("test", capacity * PAGE_SIZE, PAGE_SIZE);
+        final int fileId = cache.registerFile();
+
+        for (int i = 0; i < capacity * 4; i++) {
+            cache.write(fileId, i, page((byte) i));
+        }
+        assertTrue(cache.getUsed() <= cache.getCapacity());
+        assertTrue(cache.getEvictions() >= (capacity * 4) - cache.getCapacity());
+
+        // whatever is still cached must be intact
+        final byte[] buf = new byte[PAGE_SIZE];
+        int cached = 0;
+        for (int i = 0; i < capacity * 4; i++) {
+            if (cache.read(fileId, i, buf)) {
+                assertArrayEquals(page((byte) i), buf);
+                cached++;
+            }
+        }
+        assertEquals(cache.getUsed(), cached);
+        assertEquals(cache.getCapacity() * PAGE_SIZE, cache.getAllocated());
+    }
+
+    private static byte[] page(final byte value) {
+        final byte[] page = new byte[PAGE_SIZE];
+        Arrays.fill(page, value);
+        return page;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.journal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class GroupCommitterTest {
+
+    @Test
+    public void singleCommit() {
+        final AtomicInteger syncs = new AtomicInteger();
+        final GroupCommitter committer = new GroupCommitter(() -> {
+            syncs.incrementAndGet();
+            return new Lsn((short) 0, 10);
+        }, 0, 32);
+
+        committer.commit(new Lsn((short) 0, 10));
+        assertEquals(1, syncs.get());
+
+        // already synced
+        committer.commit(new Lsn((short) 0, 5));
+        assertEquals(1, syncs.get());
+
+        assertEquals(2, committer.getCommits());
+        assertEquals(1, committer.getSyncs());
+    }
+
+    @Test
+    public void concurrentCommitsShareSyncs() throws Exception {
+        final int threads = 16;
+        final int commitsPerThread = 50;
+
+        // simulates the journal, the sync covers every record written before it
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong synced = new AtomicLong();
+        final GroupCommitter committer = new GroupCommitter(() -> {
+            final long lsn = written.get();
+            try {
+                Thread.sleep(2);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synced.accumulateAndGet(lsn, Math::max);
+            return new Lsn((short) 0, lsn);
+        }, 5, threads);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < commitsPerThread; j++) {
+                        final long lsn = written.incrementAndGet();
+                        committer.commit(new Lsn((short) 0, lsn));
+                        assertTrue("commit returned before its record was synced", synced.get() >= lsn);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * commitsPerThread, committer.getCommits());
+        assertTrue(committer.getSyncs() < committer.getCommits());
+        assertTrue(committer.getMaxGroupSize() > 1);
+    }
+}
@@ -45,7 +45,9 @@ import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Stack;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.junit.Assert.*;
 
@@ -778,6 +780,56 @@ public class LockManagerTest {
     }
 
 
+    /**
+     * Shared READ locks on a BTree may be held by
+     * many threads at once, but exclude the exclusive lock
+     */
+    @Test
+    public void acquireBTreeSharedReadLock() throws LockException, InterruptedException {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
+        final Stack<LockAction> events = recordLockEvents(lockManager, () -> {
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock
+                         = lockManager.acquireBtreeSharedReadLock(btree1Name)) {
+                assertNotNull(btree1Lock);
+                assertTrue(lockManager.isBtreeLocked(btree1Name));
+                assertFalse(lockManager.isBtreeLockedForWrite(btree1Name));
+
+                // another thread may also acquire the shared lock, but not the exclusive lock
+                final AtomicBoolean sharedAcquired = new AtomicBoolean();
+                final AtomicBoolean exclusiveAcquired = new AtomicBoolean();
+                final CountDownLatch done = new CountDownLatch(1);
+                final Thread other = new Thread(() -> {
+                    try (final ManagedLock<ReentrantReadWriteLock> otherLock
+                                 = lockManager.acquireBtreeSharedReadLock(btree1Name)) {
+                        sharedAcquired.set(true);
+                    } catch (final LockException e) {
+                        throw new RuntimeException(e);
+                    }
+                    exclusiveAcquired.set(lockManager.getBTreeLatch(btree1Name).writeLock().tryLock());
+                    done.countDown();
+                });
+                other.start();
+                try {
+                    done.await();
+                } catch (final InterruptedException e) {
+                    throw new LockException(e.getMessage(), e);
+                }
+                assertTrue(sharedAcquired.get());
+                assertFalse(exclusiveAcquired.get());
+            }
+        });
+
+        assertFalse(lockManager.isBtreeLocked(btree1Name));
+
+        assertEquals(6, events.size());
+        final LockAction event6 = events.pop();
+        assertEquals(LockTable.LockEventType.Released, event6.lockEventType);
+        assertEquals(btree1Name, event6.id);
+        assertEquals(Lock.LockMode.READ_LOCK, event6.mode);
+    }
+
     private Stack<LockAction> recordLockEvents(final LockManager lockManager, final RunnableE<LockException> runnable) throws LockException{
         final LockTable lockTable = lockManager.getLockTable();
         final LockEventRecordingListener lockEventRecordingListener = new LockEventRecordingListener();
@@ -0,0 +1,171 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.recovery;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.exist.Database;
+import org.exist.storage.journal.AbstractLoggable;
+import org.exist.storage.journal.LogException;
+import org.exist.storage.journal.Loggable;
+import org.exist.storage.journal.Lsn;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelRedoTest {
+
+    @Test
+    public void redoesPartitionsInJournalOrder() throws LogException {
+        final List<TestLoggable> redone = Collections.synchronizedList(new ArrayList<>());
+        final List<TestLoggable> entries = new ArrayList<>();
+        try (final ParallelRedo redo = new ParallelRedo(mockDatabase(), 4, 7)) {
+            for (int i = 0; i < 100; i++) {
+                final TestLoggable entry = new TestLoggable(i, i % 3, redone);
+                entries.add(entry);
+                redo.redo(entry);
+            }
+            redo.flush();
+            assertEquals(100, redo.getRedone());
+        }
+
+        assertEquals(100, redone.size());
+        for (int partition = 0; partition < 3; partition++) {
+            assertEquals(partitionOf(entries, partition), partitionOf(redone, partition));
+        }
+    }
+
+    @Test
+    public void serialEntryIsBarrier() throws LogException {
+        final List<TestLoggable> redone = Collections.synchronizedList(new ArrayList<>());
+        try (final ParallelRedo redo = new ParallelRedo(mockDatabase(), 4, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                redo.redo(new TestLoggable(i, i % 2, redone));
+            }
+            redo.redo(new TestLoggable(10, Loggable.REDO_SERIAL, redone));
+            redo.redo(new TestLoggable(11, 0, redone));
+            redo.flush();
+        }
+
+        assertEquals(12, redone.size());
+        assertEquals(10, redone.get(10).offset);
+        assertEquals(11, redone.get(11).offset);
+    }
+
+    @Test
+    public void sequentialRedo() throws LogException {
+        final List<TestLoggable> redone = new ArrayList<>();
+        try (final ParallelRedo redo = new ParallelRedo(mockDatabase(), 1, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                redo.redo(new TestLoggable(i, i % 2, redone));
+                assertEquals(i + 1, redone.size());
+            }
+            assertEquals(10, redo.getRedone());
+        }
+    }
+
+    @Test
+    public void failureIsReported() {
+        final List<TestLoggable> redone = Collections.synchronizedList(new ArrayList<>());
+        try (final ParallelRedo redo = new ParallelRedo(mockDatabase(), 4, 1000)) {
+            redo.redo(new TestLoggable(0, 0, redone));
+            redo.redo(new FailingLoggable(1, 1, redone));
+            redo.redo(new TestLoggable(2, 2, redone));
+            redo.flush();
+            fail("Expected LogException");
+        } catch (final LogException e) {
+            assertTrue(e.getMessage().contains(FailingLoggable.class.getName()));
+        }
+        assertEquals(2, redone.size());
+    }
+
+    private static Database mockDatabase() {
+        final Database database = createNiceMock(Database.class);
+        replay(database);
+        return database;
+    }
+
+    private static List<TestLoggable> partitionOf(final List<TestLoggable> entries, final int partition) {
+        final List<TestLoggable> result = new ArrayList<>();
+        for (final TestLoggable entry : entries) {
+            if (entry.getRedoPartition() == partition) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static class TestLoggable extends AbstractLoggable {
+        final long offset;
+        final int partition;
+        final List<TestLoggable> redone;
+
+        TestLoggable(final long offset, final int partition, final List<TestLoggable> redone) {
+            super((byte) 0, 1);
+            this.offset = offset;
+            this.partition = partition;
+            this.redone = redone;
+            setLsn(new Lsn((short) 1, offset));
+        }
+
+        @Override
+        public int getRedoPartition() {
+            return partition;
+        }
+
+        @Override
+        public void redo() throws LogException {
+            redone.add(this);
+        }
+
+        @Override
+        public void write(final ByteBuffer out) {
+        }
+
+        @Override
+        public void read(final ByteBuffer in) {
+        }
+
+        @Override
+        public int getLogSize() {
+            return 0;
+        }
+    }
+
+    private static class FailingLoggable extends TestLoggable {
+        FailingLoggable(final long offset, final int partition, final List<TestLoggable> redone) {
+            super(offset, partition, redone);
+        }
+
+        @Override
+        public void redo() throws LogException {
+            throw new LogException("redo failed");
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.googlecode.junittoolbox.ParallelRunner;
 import org.easymock.EasyMock;
 import org.exist.dom.persistent.DocumentImpl;
 import org.exist.dom.persistent.DocumentSet;
+import org.exist.util.CompressedBitmap;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -152,6 +153,39 @@ public class NativeStructuralIndexWorkerTest {
         assertEquals(24, ranges.get(3).end);
     }
 
+    @Test
+    public void getDocIdRanges_named() {
+        final NativeStructuralIndexWorker indexWorker = new NativeStructuralIndexWorker(null);
+
+        final DocumentSet docs = documentIdSet(Arrays.asList(12, 1,2,3,4,5,6, 10, 20,21));
+        final CompressedBitmap named = new CompressedBitmap();
+        for (final int docId : new int[] { 2, 4, 6, 8, 10, 12, 21, 30 }) {
+            named.add(docId);
+        }
+
+        final List<NativeStructuralIndexWorker.Range> ranges = indexWorker.getDocIdRanges(docs, named);
+
+        // 8 contains the name, but is not in the document set
+        assertEquals(2, ranges.size());
+
+        assertEquals(2, ranges.get(0).start);
+        assertEquals(6, ranges.get(0).end);
+
+        assertEquals(10, ranges.get(1).start);
+        assertEquals(21, ranges.get(1).end);
+    }
+
+    @Test
+    public void getDocIdRanges_named_none() {
+        final NativeStructuralIndexWorker indexWorker = new NativeStructuralIndexWorker(null);
+
+        final DocumentSet docs = documentIdSet(Arrays.asList(1,2,3));
+        final CompressedBitmap named = new CompressedBitmap();
+        named.add(4);
+
+        assertEquals(0, indexWorker.getDocIdRanges(docs, named).size());
+    }
+
     private DocumentSet documentIdSet(final List<Integer> documentIds) {
         final DocumentSet mockDocumentSet = createMock(DocumentSet.class);
 
@@ -0,0 +1,151 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedBitmapTest {
+
+    @Test
+    public void addRemove() {
+        final CompressedBitmap bitmap = new CompressedBitmap();
+        assertTrue(bitmap.isEmpty());
+        bitmap.add(5);
+        bitmap.add(70000);
+        bitmap.add(5);
+        assertEquals(2, bitmap.getCardinality());
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(6));
+        bitmap.remove(70000);
+        bitmap.remove(6);
+        assertEquals(List.of(5), values(bitmap));
+        bitmap.remove(5);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void next() {
+        final CompressedBitmap bitmap = bitmap(3, 10, 65536, 200000);
+        assertEquals(3, bitmap.next(-1));
+        assertEquals(3, bitmap.next(3));
+        assertEquals(10, bitmap.next(4));
+        assertEquals(65536, bitmap.next(11));
+        assertEquals(200000, bitmap.next(65537));
+        assertEquals(-1, bitmap.next(200001));
+    }
+
+    @Test
+    public void andOr() {
+        final CompressedBitmap a = bitmap(1, 2, 3, 100000, 100001);
+        final CompressedBitmap b = bitmap(2, 3, 4, 100001, 300000);
+        assertEquals(List.of(2, 3, 100001), values(a.and(b)));
+        assertEquals(List.of(1, 2, 3, 4, 100000, 100001, 300000), values(a.or(b)));
+
+        // the results are independent of their inputs
+        a.or(b).add(7);
+        assertFalse(a.contains(7));
+        assertFalse(b.contains(7));
+    }
+
+    @Test
+    public void dense() {
+        final CompressedBitmap even = new CompressedBitmap();
+        final CompressedBitmap thirds = new CompressedBitmap();
+        for (int i = 0; i < 100000; i++) {
+            if (i % 2 == 0) {
+                even.add(i);
+            }
+            if (i % 3 == 0) {
+                thirds.add(i);
+            }
+        }
+        assertEquals(50000, even.getCardinality());
+        assertEquals(16667, even.and(thirds).getCardinality());
+        assertEquals(66667, even.or(thirds).getCardinality());
+        assertEquals(6, even.and(thirds).next(1));
+
+        for (int i = 0; i < 100000; i += 2) {
+            if (i % 1000 != 0) {
+                even.remove(i);
+            }
+        }
+        assertEquals(100, even.getCardinality());
+        assertEquals(1000, even.next(1));
+    }
+
+    @Test
+    public void random() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            final int range = round % 2 == 0 ? 200000 : 5000;
+            final TreeSet<Integer> expectedA = new TreeSet<>();
+            final TreeSet<Integer> expectedB = new TreeSet<>();
+            final CompressedBitmap a = new CompressedBitmap();
+            final CompressedBitmap b = new CompressedBitmap();
+            for (int i = 0; i < 10000; i++) {
+                final int x = random.nextInt(range);
+                expectedA.add(x);
+                a.add(x);
+                final int y = random.nextInt(range);
+                expectedB.add(y);
+                b.add(y);
+            }
+            for (int i = 0; i < 3000; i++) {
+                final int x = random.nextInt(range);
+                expectedA.remove(x);
+                a.remove(x);
+            }
+
+            assertEquals(new ArrayList<>(expectedA), values(a));
+            final TreeSet<Integer> expectedAnd = new TreeSet<>(expectedA);
+            expectedAnd.retainAll(expectedB);
+            assertEquals(new ArrayList<>(expectedAnd), values(a.and(b)));
+            final TreeSet<Integer> expectedOr = new TreeSet<>(expectedA);
+            expectedOr.addAll(expectedB);
+            assertEquals(new ArrayList<>(expectedOr), values(a.or(b)));
+        }
+    }
+
+    private static CompressedBitmap bitmap(final int... values) {
+        final CompressedBitmap bitmap = new CompressedBitmap();
+        for (final int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    private static List<Integer> values(final CompressedBitmap bitmap) {
+        final List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -28,13 +28,20 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.Resource;
 import org.xmldb.api.base.ServiceProviderCache;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.BinaryResource;
 import org.xmldb.api.modules.CollectionManagementService;
+import org.xmldb.api.modules.XMLResource;
 import org.xmldb.api.modules.XPathQueryService;
 import org.xmldb.api.modules.XQueryService;
 import org.xmldb.api.modules.XUpdateQueryService;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -136,4 +143,57 @@ public class LocalCollectionTest {
     public void getCreationTime() throws XMLDBException {
         assertNotNull(testCollection.getCreationTime());
     }
+
+    @Test
+    public void storeResources() throws XMLDBException {
+        final CollectionManagementService cms = existEmbeddedServer
+                .getRoot()
+                .getService(CollectionManagementService.class);
+        final Collection collection = cms.createCollection("store-resources-test");
+        try {
+            final List<Resource> resources = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final Resource resource = collection.createResource("doc" + i + ".xml", XMLResource.class);
+                resource.setContent("<doc n=\"" + i + "\"/>");
+                resources.add(resource);
+            }
+            final Resource binary = collection.createResource("binary.bin", BinaryResource.class);
+            binary.setContent("binary".getBytes());
+            resources.add(binary);
+
+            assertTrue(((EXistCollection) collection).storeResources(resources).isEmpty());
+
+            assertEquals(11, collection.getResourceCount());
+            assertEquals("<doc n=\"7\"/>", collection.getResource("doc7.xml").getContent());
+            assertArrayEquals("binary".getBytes(), (byte[]) collection.getResource("binary.bin").getContent());
+        } finally {
+            cms.removeCollection("store-resources-test");
+        }
+    }
+
+    @Test
+    public void storeResourcesSkipsFailures() throws XMLDBException {
+        final CollectionManagementService cms = existEmbeddedServer
+                .getRoot()
+                .getService(CollectionManagementService.class);
+        final Collection collection = cms.createCollection("store-resources-failure-test");
+        try {
+            final List<Resource> resources = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final Resource resource = collection.createResource("doc" + i + ".xml", XMLResource.class);
+                resource.setContent(i == 1 ? "<unclosed>" : "<doc n=\"" + i + "\"/>");
+                resources.add(resource);
+            }
+
+            final Map<Resource, XMLDBException> failures = ((EXistCollection) collection).storeResources(resources);
+
+            assertEquals(1, failures.size());
+            assertTrue(failures.containsKey(resources.get(1)));
+            assertEquals(2, collection.getResourceCount());
+            assertNull(collection.getResource("doc1.xml"));
+            assertEquals("<doc n=\"2\"/>", collection.getResource("doc2.xml").getContent());
+        } finally {
+            cms.removeCollection("store-resources-failure-test");
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that fn:count, fn:exists and fn:empty return the same results
+ * when they are answered from the structural index as when the node set
+ * is built. A predicate which is always true keeps the index shortcut
+ * from being used.
+ */
+public class IndexedCountTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    @BeforeClass
+    public static void storeDocuments() throws EXistException, PermissionDeniedException, XPathException {
+        query("xmldb:create-collection('/db', 'count')");
+        query("for $d in 1 to 5 return xmldb:store('/db/count', 'doc' || $d || '.xml', " +
+                "<records>{for $i in 1 to $d * 20 return <record id='{$i}'><item/>{if ($i mod 3 = 0) then <item status='x'/> else ()}</record>}</records>)");
+        query("xmldb:store('/db', 'other.xml', <records><record id='1'/></records>)");
+    }
+
+    @Test
+    public void countElements() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("300", query("count(collection('/db/count')//record)"));
+        assertUnindexedEquals("count(collection('/db/count')//record)", "count(collection('/db/count')//record[true()])");
+        assertUnindexedEquals("count(collection('/db/count')//item)", "count(collection('/db/count')//item[true()])");
+        assertUnindexedEquals("count(collection('/db/count')/descendant::item)", "count(collection('/db/count')/descendant::item[true()])");
+        assertUnindexedEquals("count(doc('/db/count/doc3.xml')//record)", "count(doc('/db/count/doc3.xml')//record[true()])");
+    }
+
+    @Test
+    public void countAttributes() throws EXistException, PermissionDeniedException, XPathException {
+        assertUnindexedEquals("count(collection('/db/count')//@status)", "count(collection('/db/count')//@status[true()])");
+        assertUnindexedEquals("count(collection('/db/count')//@id)", "count(collection('/db/count')//@id[true()])");
+    }
+
+    @Test
+    public void countVariable() throws EXistException, PermissionDeniedException, XPathException {
+        assertUnindexedEquals("let $docs := (doc('/db/count/doc1.xml'), doc('/db/count/doc4.xml')) return count($docs//record)",
+                "let $docs := (doc('/db/count/doc1.xml'), doc('/db/count/doc4.xml')) return count($docs//record[true()])");
+        // not document nodes, so the path has to be evaluated
+        assertEquals("20", query("let $roots := collection('/db/count')/records[count(record) = 20] return count($roots//record)"));
+    }
+
+    @Test
+    public void countMissing() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("0", query("count(collection('/db/count')//missing)"));
+        assertEquals("0", query("count(collection('/db/count')//@missing)"));
+    }
+
+    @Test
+    public void existsAndEmpty() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("true", query("exists(collection('/db/count')//item)"));
+        assertEquals("false", query("empty(collection('/db/count')//item)"));
+        assertEquals("false", query("exists(collection('/db/count')//missing)"));
+        assertEquals("true", query("empty(collection('/db/count')//missing)"));
+        assertEquals("true", query("exists(doc('/db/count/doc2.xml')//@status)"));
+        assertEquals("false", query("exists(doc('/db/other.xml')//item)"));
+        assertEquals("true", query("exists(doc('/db/other.xml')//record)"));
+    }
+
+    @Test
+    public void existsAndEmptyInPredicate() throws EXistException, PermissionDeniedException, XPathException {
+        assertUnindexedEquals("count(collection('/db/count')//record[exists(item/@status)])",
+                "count(collection('/db/count')//record[exists(item/@status[true()])])");
+        assertUnindexedEquals("count(collection('/db/count')//record[empty(item/@status)])",
+                "count(collection('/db/count')//record[empty(item/@status[true()])])");
+    }
+
+    private static void assertUnindexedEquals(final String query, final String unindexedQuery) throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals(query(unindexedQuery), query(query));
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = xquery.execute(broker, query, null);
+            return result.isEmpty() ? "" : result.itemAt(result.getItemCount() - 1).getStringValue();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that general comparisons between large sequences, which are evaluated
+ * by a {@link JoinProbe}, return the same results as value by value comparisons.
+ */
+public class JoinProbeTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final String RECORDS =
+            "let $a := for $i in 1 to 200 return <a><k>{$i}</k></a> " +
+            "let $b := for $i in 100 to 300 return <b><k>{$i}</k></b> ";
+
+    @Test
+    public void equiJoinInPredicate() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("101", query(RECORDS + "return count($a[k = $b/k])"));
+    }
+
+    @Test
+    public void equiJoinInWhereClause() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("101", query(RECORDS + "return count(for $x in $a where $x/k = $b/k return $x)"));
+    }
+
+    @Test
+    public void sequenceComparison() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("true", query(RECORDS + "return $a/k = $b/k"));
+        assertEquals("false", query(RECORDS + "return $a[k < 100]/k = $b/k"));
+    }
+
+    @Test
+    public void rangeJoin() throws EXistException, PermissionDeniedException, XPathException {
+        final String numbers = "let $n := (50 to 150) ! xs:integer(.) ";
+        assertEquals("149", query(RECORDS + numbers + "return count($a[xs:integer(k) < $n])"));
+        assertEquals("150", query(RECORDS + numbers + "return count($a[xs:integer(k) <= $n])"));
+        assertEquals("150", query(RECORDS + numbers + "return count($a[xs:integer(k) > $n])"));
+        assertEquals("151", query(RECORDS + numbers + "return count($a[xs:integer(k) >= $n])"));
+        // untyped values are compared as strings
+        assertEquals(query(RECORDS + "return count($a[some $y in $b/k satisfies string(k) lt string($y)])"),
+                query(RECORDS + "return count($a[k < $b/k])"));
+    }
+
+    @Test
+    public void untypedComparedToNumbers() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("101", query(RECORDS + "let $n := 100 to 300 return count($a[k = $n])"));
+        assertEquals("101", query(RECORDS + "let $n := (100 to 300) ! xs:decimal(. || '.0') return count($a[xs:decimal(k) = $n])"));
+    }
+
+    @Test
+    public void collation() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("2", query("declare default collation 'http://www.w3.org/2013/collation/UCA?strength=primary'; " +
+                "let $keys := for $i in 1 to 100 return 'KEY' || $i " +
+                "return count(('key5', 'x', 'Key99')[. = $keys])"));
+        assertEquals("0", query("let $keys := for $i in 1 to 100 return 'KEY' || $i " +
+                "return count(('key5', 'x', 'Key99')[. = $keys])"));
+    }
+
+    @Test
+    public void castErrorIsRaised() throws EXistException, PermissionDeniedException {
+        try {
+            query("let $n := 1 to 100 return count((<k>abc</k>, <k>def</k>)[. = $n])");
+            fail("Expected the untyped value to fail casting to xs:double");
+        } catch (final XPathException e) {
+            assertEquals(ErrorCodes.FORG0001, e.getErrorCode());
+        }
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
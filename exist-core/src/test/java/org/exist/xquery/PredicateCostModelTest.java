@@ -0,0 +1,161 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.LockException;
+import org.exist.util.MimeType;
+import org.exist.util.StringInputSource;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.util.ExpressionDumper;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PredicateCostModelTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(null, statisticsConfig(), null, true, true);
+
+    private static final XmldbURI TEST_COLLECTION = XmldbURI.create("/db/predicate-cost-test");
+
+    @BeforeClass
+    public static void storeDocument() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException {
+        final StringBuilder xml = new StringBuilder("<items>");
+        for (int i = 0; i < 100; i++) {
+            xml.append("<item><name>item").append(i).append("</name><keyword>k</keyword><keyword>l</keyword>");
+            if (i % 50 == 0) {
+                xml.append("<rare/>");
+            }
+            xml.append("</item>");
+        }
+        xml.append("</items>");
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            try (final Collection collection = broker.getOrCreateCollection(transaction, TEST_COLLECTION)) {
+                broker.saveCollection(transaction, collection);
+                broker.storeDocument(transaction, XmldbURI.create("items.xml"), new StringInputSource(xml.toString()), MimeType.XML_TYPE, collection);
+            }
+            transaction.commit();
+        }
+    }
+
+    @Test
+    public void leastFrequentElementFirst() throws EXistException, PermissionDeniedException, XPathException {
+        final List<String> predicates = compilePredicates("collection('" + TEST_COLLECTION + "')//item[keyword][rare]");
+        assertEquals(List.of("child::{}rare", "child::{}keyword"), predicates);
+        assertEquals(2, count("collection('" + TEST_COLLECTION + "')//item[keyword][rare]"));
+    }
+
+    @Test
+    public void indexedPredicateFirst() throws EXistException, PermissionDeniedException, XPathException {
+        final List<String> predicates = compilePredicates("collection('" + TEST_COLLECTION + "')//item[rare][name = 'item50']");
+        assertEquals(2, predicates.size());
+        assertTrue(predicates.toString(), predicates.get(0).contains("item50"));
+        assertEquals(1, count("collection('" + TEST_COLLECTION + "')//item[rare][name = 'item50']"));
+    }
+
+    @Test
+    public void splitAndExpression() throws EXistException, PermissionDeniedException, XPathException {
+        final List<String> predicates = compilePredicates("collection('" + TEST_COLLECTION + "')//item[keyword and rare]");
+        assertEquals(List.of("child::{}rare", "child::{}keyword"), predicates);
+    }
+
+    @Test
+    public void positionalPredicateKeepsOrder() throws EXistException, PermissionDeniedException, XPathException {
+        final List<String> predicates = compilePredicates("collection('" + TEST_COLLECTION + "')//item[keyword][1][rare]");
+        assertEquals(3, predicates.size());
+        assertEquals("child::{}keyword", predicates.get(0));
+        assertEquals("child::{}rare", predicates.get(2));
+        assertEquals(1, count("collection('" + TEST_COLLECTION + "')//item[keyword][1][rare]"));
+    }
+
+    private static List<String> compilePredicates(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final XQueryContext context = new XQueryContext(pool);
+            final CompiledXQuery compiled = pool.getXQueryService().compile(context, query);
+            final List<String> predicates = new ArrayList<>();
+            ((Expression) compiled).accept(new DefaultExpressionVisitor() {
+                @Override
+                public void visit(final Expression expression) {
+                    // an extension expression passes its inner expression to visit
+                    if (expression instanceof final LocationStep locationStep) {
+                        visitLocationStep(locationStep);
+                        return;
+                    }
+                    for (int i = 0; i < expression.getSubExpressionCount(); i++) {
+                        expression.getSubExpression(i).accept(this);
+                    }
+                }
+
+                @Override
+                public void visitLocationStep(final LocationStep locationStep) {
+                    if (locationStep.getPredicates() != null && "item".equals(locationStep.getTest().getName().getLocalPart())) {
+                        for (final Predicate predicate : locationStep.getPredicates()) {
+                            predicates.add(ExpressionDumper.dump(predicate.getSubExpression(0)).trim());
+                        }
+                    }
+                }
+            });
+            context.reset();
+            return predicates;
+        }
+    }
+
+    private static int count(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            return result.getItemCount();
+        }
+    }
+
+    private static Path statisticsConfig() {
+        try {
+            return Paths.get(PredicateCostModelTest.class.getClassLoader().getResource("org/exist/storage/statistics/conf.xml").toURI());
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
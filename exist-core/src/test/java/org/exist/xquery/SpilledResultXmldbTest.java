@@ -0,0 +1,65 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.test.ExistXmldbEmbeddedServer;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that an ordered result which has been spilled to disk can still be
+ * read through the XML:DB API once the query has finished.
+ */
+public class SpilledResultXmldbTest {
+
+    @ClassRule
+    public static final ExistXmldbEmbeddedServer existServer = new ExistXmldbEmbeddedServer(false, true, true,
+            propertiesBuilder().put(XQueryContext.PROPERTY_SPILL_THRESHOLD, 7).build());
+
+    @Test
+    public void readSpilledResult() throws XMLDBException {
+        final List<String> expected = new ArrayList<>();
+        IntStream.rangeClosed(1, 3000).boxed()
+                .sorted(Comparator.<Integer>comparingInt(x -> x * 37 % 101).thenComparing(Comparator.reverseOrder()))
+                .forEach(x -> expected.add(String.valueOf(x)));
+
+        final ResourceSet result = existServer.executeQuery("for $x in 1 to 3000 order by $x * 37 mod 101, $x descending return $x");
+        assertEquals(expected.size(), result.getSize());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), result.getResource(i).getContent());
+        }
+        for (int i = expected.size() - 1; i >= 0; i -= 97) {
+            assertEquals(expected.get(i), result.getResource(i).getContent());
+        }
+    }
+}
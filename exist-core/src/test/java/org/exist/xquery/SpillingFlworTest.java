@@ -0,0 +1,132 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that "order by" and "group by" clauses which spill their tuples
+ * to disk return the same results as those which keep them in memory.
+ */
+public class SpillingFlworTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final int SPILL_THRESHOLD = 7;
+
+    @BeforeClass
+    public static void storeDocument() throws EXistException, PermissionDeniedException, XPathException {
+        query("xmldb:store('/db', 'spill.xml', <items>{for $i in 1 to 500 return <item id='{$i}' k='{$i * 37 mod 101}'/>}</items>)", 0);
+    }
+
+    @Test
+    public void orderByAtomicValues() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 1000 order by $x * 37 mod 101, $x descending return $x, ',')");
+    }
+
+    @Test
+    public void orderByIsStable() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 1000 stable order by $x mod 3 return $x, ',')");
+    }
+
+    @Test
+    public void orderByStoredNodes() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in doc('/db/spill.xml')//item order by xs:integer($x/@k) descending return $x/@id, ',')");
+        assertSpilledEquals("string-join(for $x in doc('/db/spill.xml')//item order by $x/@k return $x/@id, ',')");
+    }
+
+    @Test
+    public void orderByEmptyKeys() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 500 let $k := if ($x mod 5 = 0) then () else $x mod 13 " +
+                "order by $k empty greatest, $x descending return $x, ',')");
+        assertSpilledEquals("string-join(for $x in 1 to 500 let $k := if ($x mod 5 = 0) then () else $x mod 13 " +
+                "order by $k empty least return $x, ',')");
+    }
+
+    @Test
+    public void orderByMixedNumericTypes() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 500 " +
+                "let $k := if ($x mod 2 = 0) then xs:decimal($x) div 2 else xs:double($x) div 3 " +
+                "order by $k return $x, ',')");
+    }
+
+    @Test
+    public void orderByNestedFor() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $a in 1 to 30 for $b in 1 to 30 order by $b, $a descending return $a * $b, ',')");
+    }
+
+    @Test
+    public void orderByFunctionItems() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 100 order by -$x return map { 'x': $x }?x, ',')");
+    }
+
+    @Test
+    public void groupByAtomicValues() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 1000 let $k := $x mod 17 group by $k order by $k " +
+                "return $k || ':' || sum($x) || ':' || string-join($x, ' '), ',')");
+    }
+
+    @Test
+    public void groupByMultipleKeys() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in 1 to 1000 group by $a := $x mod 3, $b := string($x mod 5) " +
+                "order by $a, $b return $a || $b || ':' || count($x), ',')");
+    }
+
+    @Test
+    public void groupByStoredNodes() throws EXistException, PermissionDeniedException, XPathException {
+        assertSpilledEquals("string-join(for $x in doc('/db/spill.xml')//item group by $k := $x/@k mod 10 order by $k " +
+                "return $k || ':' || string-join($x/@id, ' '), ',')");
+    }
+
+    private static void assertSpilledEquals(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals(query(query, 0), query(query, SPILL_THRESHOLD));
+    }
+
+    private static String query(final String query, final int spillThreshold) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final XQueryContext context = new XQueryContext(pool);
+            context.setSpillThreshold(spillThreshold);
+            try {
+                final Sequence result = xquery.execute(broker, xquery.compile(context, query), null);
+                assertEquals(1, result.getItemCount());
+                return result.itemAt(0).getStringValue();
+            } finally {
+                context.runCleanupTasks(o -> true);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.pragmas;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that FLWOR expressions evaluated in parallel by the {@link ParallelPragma}
+ * return the same results as when they are evaluated sequentially.
+ */
+public class ParallelPragmaTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final String PARALLEL = "(# exist:parallel threads=4 #) ";
+
+    @BeforeClass
+    public static void storeDocuments() throws EXistException, PermissionDeniedException, XPathException {
+        query("let $col := xmldb:create-collection('/db', 'parallel-test') " +
+                "return string-join(for $i in 1 to 50 " +
+                "return xmldb:store($col, 'item' || $i || '.xml', <item n='{$i}'><name>item {$i}</name></item>))");
+    }
+
+    @Test
+    public void orderedResults() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ for $i at $p in 1 to 1000 let $s := $i * 2 where $i mod 3 = 0 return $p || ':' || $s }");
+    }
+
+    @Test
+    public void nestedClauses() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ for $i in 1 to 20 for $j at $p in 1 to $i where ($i + $j) mod 2 = 0 return $i * $p }");
+    }
+
+    @Test
+    public void functionsAndVariables() throws EXistException, PermissionDeniedException, XPathException {
+        final String prolog = "declare variable $local:factor := 3; " +
+                "declare function local:f($x) { $x * $local:factor }; ";
+        assertEquals(
+                query(prolog + "let $base := 10 return string-join(for $i in 1 to 100 return local:f($i) + $base, ',')"),
+                query(prolog + "let $base := 10 return string-join(" + PARALLEL + "{ for $i in 1 to 100 return local:f($i) + $base }, ',')"));
+    }
+
+    @Test
+    public void storedDocuments() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ for $item in collection('/db/parallel-test')/item let $n := xs:integer($item/@n) " +
+                "where $n > 10 return <r>{$n, $item/name/string()}</r> }");
+    }
+
+    @Test
+    public void nodeSetVariable() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ let $items := collection('/db/parallel-test')/item " +
+                "for $i in 1 to 200 return count($items[@n = $i mod 60]) }");
+    }
+
+    @Test
+    public void nestedPragmas() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ for $i in 1 to 40 return string-join(" + PARALLEL + "{ for $j in 1 to $i return $i * $j }, '-') }");
+    }
+
+    @Test
+    public void orderByIsSequential() throws EXistException, PermissionDeniedException, XPathException {
+        assertSameResults("{ for $i in 1 to 100 order by $i descending return $i }");
+    }
+
+    @Test
+    public void errorIsRaised() throws EXistException, PermissionDeniedException {
+        try {
+            query("string-join(" + PARALLEL + "{ for $i in 1 to 100 " +
+                    "return if ($i = 70) then error(xs:QName('local:failed'), 'failed') else $i })");
+            fail("Expected the error to be raised");
+        } catch (final XPathException e) {
+            assertEquals("failed", e.getErrorCode().getErrorQName().getLocalPart());
+        }
+    }
+
+    private static void assertSameResults(final String flwor) throws EXistException, PermissionDeniedException, XPathException {
+        final String expected = query("string-join((" + flwor.substring(1, flwor.length() - 1) + ") ! serialize(.), ',')");
+        assertEquals(expected, query("string-join((" + PARALLEL + flwor + ") ! serialize(.), ',')"));
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final Sequence result = pool.getXQueryService().execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.storage.BrokerPool;
+import org.exist.util.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies changes to a Lucene index on background threads, so that storing a
+ * document does not have to wait until its text has been analyzed and added to
+ * the index.
+ *
+ * Each thread has its own queue. All changes for a document go to the same
+ * thread, so they are applied in the order they were made. If a queue is full,
+ * the thread submitting a change blocks until there is space again, which keeps
+ * the memory used by queued documents bounded.
+ *
+ * Queued changes only live in memory. They are drained before the index is
+ * committed, so a commit of the Lucene index always contains every change
+ * made before it.
+ */
+final class AsyncIndexWriter {
+
+    private static final Logger LOG = LogManager.getLogger(AsyncIndexWriter.class);
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final LuceneIndex index;
+    private final ThreadPoolExecutor[] executors;
+
+    AsyncIndexWriter(final LuceneIndex index, final int threads) {
+        this.index = index;
+        final BrokerPool pool = index.getBrokerPool();
+        final ThreadFactory threadFactory = new NamedThreadFactory(pool.getThreadGroup(), pool.getId(), "lucene.async-writer");
+        this.executors = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(QUEUE_CAPACITY), threadFactory, AsyncIndexWriter::waitForSpace);
+            executors[i].prestartAllCoreThreads();
+        }
+    }
+
+    void submit(final int docId, final LuceneIndex.WriteOperation operation) {
+        executors[Math.floorMod(docId, executors.length)].execute(() -> index.applyWrite(operation, null));
+    }
+
+    /**
+     * Wait until every change submitted before this call has been applied.
+     */
+    void awaitPending() {
+        final List<Future<?>> barriers = new ArrayList<>(executors.length);
+        for (final ThreadPoolExecutor executor : executors) {
+            barriers.add(executor.submit(() -> {}));
+        }
+        for (final Future<?> barrier : barriers) {
+            try {
+                barrier.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final ExecutionException e) {
+                LOG.warn("Error while waiting for pending Lucene index writes: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Apply all queued changes and stop the background threads.
+     */
+    void shutdown() {
+        for (final ThreadPoolExecutor executor : executors) {
+            executor.shutdown();
+        }
+        try {
+            for (final ThreadPoolExecutor executor : executors) {
+                if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+                    LOG.warn("Pending Lucene index writes did not finish in time");
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForSpace(final Runnable task, final ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Lucene index writer has been shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting to queue a Lucene index write", e);
+        }
+    }
+}
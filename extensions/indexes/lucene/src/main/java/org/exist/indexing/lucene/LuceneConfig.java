@@ -52,6 +52,7 @@ public class LuceneConfig {
     private static final String IGNORE_ELEMENT = "ignore";
     private final static String BOOST_ATTRIB = "boost";
     private static final String DIACRITICS = "diacritics";
+    private static final String SEARCH_THREADS_ATTRIB = "search-threads";
     private static final String MODULE_ELEMENT = "module";
     private static final String ATTR_MODULE_URI = "uri";
     private static final String ATTR_MODULE_PREFIX = "prefix";
@@ -70,6 +71,8 @@ public class LuceneConfig {
     
     private float boost = -1;
 
+    private int searchThreads = 1;
+
     private AnalyzerConfig analyzers = new AnalyzerConfig();
 
     private String queryParser = null;
@@ -99,6 +102,7 @@ public class LuceneConfig {
     	this.inlineNodes = other.inlineNodes;
     	this.ignoreNodes = other.ignoreNodes;
     	this.boost = other.boost;
+    	this.searchThreads = other.searchThreads;
     	this.analyzers = other.analyzers;
     	this.facetsConfig = other.facetsConfig;
     }
@@ -284,6 +288,16 @@ public class LuceneConfig {
     public float getBoost() {
         return boost;
     }
+
+    /**
+     * The number of threads a query may use to search the segments of the index
+     * and count facets in parallel. 1 if the query is run by the calling thread only.
+     *
+     * @return the number of threads
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
     
     public FieldType getFieldType(String name){
         return fieldTypes.get(name);
@@ -322,6 +336,15 @@ public class LuceneConfig {
                                                 + "lucene index config: float expected, got " + value);
                                     }
                                 }
+                                if (elem.hasAttribute(SEARCH_THREADS_ATTRIB)) {
+                                    String value = elem.getAttribute(SEARCH_THREADS_ATTRIB);
+                                    try {
+                                        searchThreads = Math.max(1, Integer.parseInt(value));
+                                    } catch (NumberFormatException e) {
+                                        throw new DatabaseConfigurationException("Invalid value for 'search-threads' attribute in "
+                                                + "lucene index config: integer expected, got " + value);
+                                    }
+                                }
                                 if (elem.hasAttribute(DIACRITICS)) {
                                     String value = elem.getAttribute(DIACRITICS);
                                     if ("no".equalsIgnoreCase(value)) {
@@ -38,19 +38,34 @@ import org.exist.backup.RawDataBackup;
 import org.exist.indexing.AbstractIndex;
 import org.exist.indexing.IndexWorker;
 import org.exist.indexing.RawBackupSupport;
+import org.exist.management.AgentFactory;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.DBBroker;
 import org.exist.storage.btree.DBException;
+import org.exist.storage.txn.Txn;
+import org.exist.storage.txn.TxnListener;
 import org.exist.util.DatabaseConfigurationException;
 import org.exist.util.FileUtils;
+import org.exist.util.NamedThreadFactory;
 import org.exist.xquery.XPathException;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
@@ -77,6 +92,39 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     protected SearcherTaxonomyManager searcherManager = null;
     protected ReaderManager readerManager = null;
 
+    /**
+     * Maximum time in milliseconds before changes become visible to queries, if the
+     * searcher is refreshed in the background. If 0, it is refreshed before each query.
+     */
+    protected long refreshInterval = 0;
+
+    /**
+     * Refresh the searcher in the background as soon as a transaction which changed
+     * the index commits.
+     */
+    protected boolean refreshAfterCommit = false;
+
+    @Nullable private ScheduledExecutorService refresher = null;
+    private final Set<Long> refreshTransactions = ConcurrentHashMap.newKeySet();
+
+    // incremented whenever changes are written, to tell how far the searcher lags behind
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private volatile long searcherGeneration = 0;
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong totalRefreshTime = new AtomicLong();
+    private volatile long lastRefreshTime = 0;
+    private volatile long maxRefreshTime = 0;
+
+    /**
+     * Number of background threads applying changes to the index. If 0, changes
+     * are applied by the thread which stores the document.
+     */
+    protected int asyncWriters = 0;
+
+    @Nullable private volatile AsyncIndexWriter asyncWriter = null;
+
+    @Nullable private volatile ExecutorService searchExecutor = null;
+
     public String getDirName() {
         return DIR_NAME;
     }
@@ -97,6 +145,29 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
         if (LOG.isDebugEnabled())
             LOG.debug("Using buffer size: {}", bufferSize);
+
+        final String refreshIntervalParam = config.getAttribute("refresh-interval");
+        if (!refreshIntervalParam.isEmpty()) {
+            try {
+                refreshInterval = Long.parseLong(refreshIntervalParam);
+            } catch (final NumberFormatException e) {
+                LOG.warn("Invalid refresh interval setting for Lucene index: {}", refreshIntervalParam, e);
+            }
+        }
+        final String refreshAfterCommitParam = config.getAttribute("refresh-after-commit");
+        refreshAfterCommit = "yes".equals(refreshAfterCommitParam);
+
+        if (LOG.isDebugEnabled() && isBackgroundRefresh())
+            LOG.debug("Refreshing searcher in the background, interval: {}ms, after commit: {}", refreshInterval, refreshAfterCommit);
+
+        final String asyncWritersParam = config.getAttribute("async-writers");
+        if (!asyncWritersParam.isEmpty()) {
+            try {
+                asyncWriters = Integer.parseInt(asyncWritersParam);
+            } catch (final NumberFormatException e) {
+                LOG.warn("Invalid async writers setting for Lucene index: {}", asyncWritersParam, e);
+            }
+        }
         
         NodeList nl = config.getElementsByTagName("analyzer");
         if (nl.getLength() > 0) {
@@ -137,6 +208,13 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
 
             searcherManager = new SearcherTaxonomyManager(cachedWriter, true, null, cachedTaxonomyWriter);
             readerManager = new ReaderManager(cachedWriter, true);
+
+            if (isBackgroundRefresh()) {
+                startRefresher();
+            }
+            if (asyncWriters > 0) {
+                asyncWriter = new AsyncIndexWriter(this, asyncWriters);
+            }
         } catch (IOException e) {
             throw new DatabaseConfigurationException("Exception while reading Lucene index directory: " +
                 e.getMessage(), e);
@@ -146,7 +224,23 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     }
 
     @Override
-    public synchronized void close() throws DBException {
+    public void close() throws DBException {
+        // outside the lock, the background writers need it to release the writer
+        if (asyncWriter != null) {
+            asyncWriter.shutdown();
+            asyncWriter = null;
+        }
+        synchronized (this) {
+            closeIndex();
+        }
+    }
+
+    private void closeIndex() throws DBException {
+        stopRefresher();
+        if (searchExecutor != null) {
+            searchExecutor.shutdown();
+            searchExecutor = null;
+        }
         try {
             if (searcherManager != null) {
                 searcherManager.close();
@@ -172,9 +266,12 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     }
 
     @Override
-    public synchronized void sync() throws DBException {
-        //Nothing special to do
-        commit();
+    public void sync() throws DBException {
+        // changes still queued for the background writers have to be part of the commit
+        waitForPendingWrites();
+        synchronized (this) {
+            commit();
+        }
     }
 
     @Override
@@ -221,6 +318,124 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
         if (writer == null)
             return;
         needsCommit = true;
+        writeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Release the writer after it was used to change the index within a transaction.
+     * If refresh-after-commit is enabled, the searcher will be refreshed in the
+     * background as soon as the transaction has committed.
+     *
+     * @param writer the writer, may be null
+     * @param transaction the transaction the changes were made in, may be null
+     */
+    public void releaseWriter(final IndexWriter writer, @Nullable final Txn transaction) {
+        releaseWriter(writer);
+        if (writer == null || !refreshAfterCommit || refresher == null) {
+            return;
+        }
+        if (transaction == null) {
+            requestRefresh();
+            return;
+        }
+        final long transactionId = transaction.getId();
+        if (refreshTransactions.add(transactionId)) {
+            transaction.registerListener(new TxnListener() {
+                @Override
+                public void commit() {
+                    refreshTransactions.remove(transactionId);
+                    requestRefresh();
+                }
+
+                @Override
+                public void abort() {
+                    // changes to the Lucene index are not rolled back
+                    refreshTransactions.remove(transactionId);
+                    requestRefresh();
+                }
+            });
+        }
+    }
+
+    /**
+     * Change the index. If async-writers is configured, the change is queued and
+     * applied by a background thread, otherwise it is applied right away. Changes
+     * for the same document are applied in the order they were made.
+     *
+     * @param docId the id of the eXist document the change belongs to
+     * @param transaction the transaction the change is made in, may be null
+     * @param operation the change to apply
+     */
+    public void write(final int docId, @Nullable final Txn transaction, final WriteOperation operation) {
+        final AsyncIndexWriter asyncWriter = this.asyncWriter;
+        if (asyncWriter == null) {
+            applyWrite(operation, transaction);
+        } else {
+            asyncWriter.submit(docId, operation);
+        }
+    }
+
+    void applyWrite(final WriteOperation operation, @Nullable final Txn transaction) {
+        IndexWriter writer = null;
+        try {
+            writer = getWriter();
+            operation.apply(writer);
+        } catch (final IOException e) {
+            LOG.warn("An exception was caught while writing to the Lucene index: {}", e.getMessage(), e);
+        } finally {
+            releaseWriter(writer, transaction);
+        }
+    }
+
+    /**
+     * Wait until all changes queued for the background writers have been applied
+     * and the searcher has been refreshed, so that a following query sees them.
+     * Returns immediately if async-writers is not configured.
+     */
+    public void waitForPendingWrites() {
+        final AsyncIndexWriter asyncWriter = this.asyncWriter;
+        if (asyncWriter == null) {
+            return;
+        }
+        asyncWriter.awaitPending();
+        if (isBackgroundRefresh()) {
+            try {
+                searcherManager.maybeRefreshBlocking();
+                readerManager.maybeRefreshBlocking();
+            } catch (final IOException e) {
+                LOG.warn("Failed to refresh Lucene searcher: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Get the executor used to search the segments of the index and count facets
+     * in parallel. It is shared by all queries and has at most one thread per
+     * processor, so parallel queries cannot use more threads than there are cores.
+     *
+     * @return the executor
+     */
+    ExecutorService getSearchExecutor() {
+        ExecutorService executor = searchExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = searchExecutor;
+                if (executor == null) {
+                    final int threads = Runtime.getRuntime().availableProcessors();
+                    final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), new NamedThreadFactory(pool.getThreadGroup(), pool.getId(), "lucene.search"));
+                    threadPool.allowCoreThreadTimeOut(true);
+                    executor = threadPool;
+                    searchExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @FunctionalInterface
+    public interface WriteOperation {
+        void apply(IndexWriter writer) throws IOException;
     }
 
     protected void commit() {
@@ -244,7 +459,9 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     }
 
     public <R> R withReader(FunctionE<IndexReader, R, IOException> fn) throws IOException {
-        readerManager.maybeRefreshBlocking();
+        if (!isBackgroundRefresh()) {
+            readerManager.maybeRefreshBlocking();
+        }
         final DirectoryReader reader = readerManager.acquire();
         try {
             return fn.apply(reader);
@@ -254,7 +471,9 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
     }
 
     public <R> R withSearcher(final Function2E<SearcherTaxonomyManager.SearcherAndTaxonomy, R, IOException, XPathException> consumer) throws IOException, XPathException {
-        searcherManager.maybeRefreshBlocking();
+        if (!isBackgroundRefresh()) {
+            searcherManager.maybeRefreshBlocking();
+        }
         final SearcherTaxonomyManager.SearcherAndTaxonomy searcher = searcherManager.acquire();
         try {
             return consumer.apply(searcher);
@@ -263,6 +482,118 @@ public class LuceneIndex extends AbstractIndex implements RawBackupSupport {
         }
     }
 
+    /**
+     * Whether the searcher is refreshed by a background thread instead of
+     * before each query. Queries then never block on reopening the index,
+     * but may not see changes made during the last refresh interval.
+     *
+     * @return true if the searcher is refreshed in the background
+     */
+    public boolean isBackgroundRefresh() {
+        return refreshInterval > 0 || refreshAfterCommit;
+    }
+
+    private void startRefresher() {
+        final BrokerPool pool = getBrokerPool();
+        refresher = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(pool.getThreadGroup(), pool.getId(), "lucene.refresh"));
+        if (refreshInterval > 0) {
+            refresher.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            AgentFactory.getInstance().addMBean(new LuceneSearcherRefresh(pool.getId(), this));
+        } catch (final DatabaseConfigurationException e) {
+            LOG.warn("Exception while registering JMX LuceneSearcherRefresh MBean.", e);
+        }
+    }
+
+    private void stopRefresher() {
+        if (refresher == null) {
+            return;
+        }
+        // let a running refresh finish, interrupting it could close the index files
+        refresher.shutdown();
+        try {
+            if (!refresher.awaitTermination(60, TimeUnit.SECONDS)) {
+                LOG.warn("Lucene searcher refresh did not finish in time");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        refresher = null;
+    }
+
+    private void requestRefresh() {
+        final ScheduledExecutorService refresher = this.refresher;
+        if (refresher != null) {
+            try {
+                refresher.execute(this::refresh);
+            } catch (final RejectedExecutionException e) {
+                // the index is being closed
+            }
+        }
+    }
+
+    /**
+     * Reopen the searcher and reader if there were changes since they were last opened.
+     * Called by the background refresh thread only.
+     */
+    private void refresh() {
+        final long generation = writeGeneration.get();
+        if (generation == searcherGeneration) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            searcherManager.maybeRefreshBlocking();
+            readerManager.maybeRefreshBlocking();
+            searcherGeneration = generation;
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn("Failed to refresh Lucene searcher: {}", e.getMessage(), e);
+            return;
+        }
+        final long time = System.currentTimeMillis() - start;
+        lastRefreshTime = time;
+        if (time > maxRefreshTime) {
+            maxRefreshTime = time;
+        }
+        totalRefreshTime.addAndGet(time);
+        refreshCount.incrementAndGet();
+    }
+
+    long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    boolean isRefreshAfterCommit() {
+        return refreshAfterCommit;
+    }
+
+    long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    long getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    long getMaxRefreshTime() {
+        return maxRefreshTime;
+    }
+
+    long getTotalRefreshTime() {
+        return totalRefreshTime.get();
+    }
+
+    long getWriteGeneration() {
+        return writeGeneration.get();
+    }
+
+    long getSearcherGeneration() {
+        return searcherGeneration;
+    }
+
 	@Override
 	public void backupToArchive(final RawDataBackup backup) throws IOException {
 		for (final String name : directory.listAll()) {
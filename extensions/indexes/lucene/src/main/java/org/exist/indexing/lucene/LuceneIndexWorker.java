@@ -77,6 +77,8 @@ import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 
 /**
@@ -311,54 +313,34 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
 
     protected void removeDocument(int docId) {
-    	IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-            final BytesRefBuilder bytes = new BytesRefBuilder();
-            NumericUtils.intToPrefixCoded(docId, 0, bytes);
-            Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
-            writer.deleteDocuments(dt);
-        } catch (IOException e) {
-            LOG.warn("Error while removing lucene index: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            mode = ReindexMode.STORE;
-        }
+        final BytesRefBuilder bytes = new BytesRefBuilder();
+        NumericUtils.intToPrefixCoded(docId, 0, bytes);
+        final Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
+        index.write(docId, broker.getCurrentTransaction(), writer -> writer.deleteDocuments(dt));
+        mode = ReindexMode.STORE;
     }
 
     protected void removePlainTextIndexes() {
-    	IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-            String uri = currentDoc.getURI().toString();
-            Term dt = new Term(FIELD_DOC_URI, uri);
-            writer.deleteDocuments(dt);
-        } catch (IOException e) {
-            LOG.warn("Error while removing lucene index: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            mode = ReindexMode.STORE;
-        }
+        final Term dt = new Term(FIELD_DOC_URI, currentDoc.getURI().toString());
+        index.write(currentDoc.getDocId(), broker.getCurrentTransaction(), writer -> writer.deleteDocuments(dt));
+        mode = ReindexMode.STORE;
     }
 
     @Override
     public void removeCollection(Collection collection, DBBroker broker, boolean reindex) {
         if (LOG.isDebugEnabled())
             LOG.debug("Removing collection {}", collection.getURI());
-        IndexWriter writer = null;
         try {
-            writer = index.getWriter();
             for (Iterator<DocumentImpl> i = collection.iterator(broker); i.hasNext(); ) {
                 DocumentImpl doc = i.next();
                 final BytesRefBuilder bytes = new BytesRefBuilder();
                 NumericUtils.intToPrefixCoded(doc.getDocId(), 0, bytes);
-                Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
-                writer.deleteDocuments(dt);
+                final Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
+                index.write(doc.getDocId(), broker.getCurrentTransaction(), writer -> writer.deleteDocuments(dt));
             }
-        } catch (IOException | PermissionDeniedException | LockException e) {
+        } catch (PermissionDeniedException | LockException e) {
             LOG.error("Error while removing lucene index: {}", e.getMessage(), e);
         } finally {
-            index.releaseWriter(writer);
             if (reindex) {
                 try {
                     index.sync();
@@ -380,35 +362,30 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     protected void removeNodes() {
     	if (nodesToRemove == null)
             return;
-        IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-
-            final BytesRefBuilder bytes = new BytesRefBuilder();
-            NumericUtils.intToPrefixCoded(currentDoc.getDocId(), 0, bytes);
-            Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
-            TermQuery tq = new TermQuery(dt);
-            for (NodeId nodeId : nodesToRemove) {
-                // store the node id
-                int nodeIdLen = nodeId.size();
-                byte[] data = new byte[nodeIdLen + 2];
-                ByteConversion.shortToByte((short) nodeId.units(), data, 0);
-                nodeId.serialize(data, 2);
-
-                Term it = new Term(LuceneUtil.FIELD_NODE_ID, new BytesRef(data));
-
-                TermQuery iq = new TermQuery(it);
-                BooleanQuery q = new BooleanQuery();
-                q.add(tq, BooleanClause.Occur.MUST);
-                q.add(iq, BooleanClause.Occur.MUST);
-                writer.deleteDocuments(q);
-            }
-        } catch (IOException e) {
-            LOG.warn("Error while deleting lucene index entries: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            nodesToRemove = null;
+
+        final BytesRefBuilder bytes = new BytesRefBuilder();
+        NumericUtils.intToPrefixCoded(currentDoc.getDocId(), 0, bytes);
+        Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
+        TermQuery tq = new TermQuery(dt);
+        final Query[] queries = new Query[nodesToRemove.size()];
+        int count = 0;
+        for (NodeId nodeId : nodesToRemove) {
+            // store the node id
+            int nodeIdLen = nodeId.size();
+            byte[] data = new byte[nodeIdLen + 2];
+            ByteConversion.shortToByte((short) nodeId.units(), data, 0);
+            nodeId.serialize(data, 2);
+
+            Term it = new Term(LuceneUtil.FIELD_NODE_ID, new BytesRef(data));
+
+            TermQuery iq = new TermQuery(it);
+            BooleanQuery q = new BooleanQuery();
+            q.add(tq, BooleanClause.Occur.MUST);
+            q.add(iq, BooleanClause.Occur.MUST);
+            queries[count++] = q;
         }
+        nodesToRemove = null;
+        index.write(currentDoc.getDocId(), broker.getCurrentTransaction(), writer -> writer.deleteDocuments(queries));
     }
 
     /**
@@ -434,6 +411,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     public NodeSet query(final int contextId, final DocumentSet docs, @Nullable final NodeSet contextSet,
                          final List<QName> qnames, final String queryStr, final int axis, final QueryOptions options)
             throws IOException, ParseException, XPathException {
+        waitForIndex(options);
         return index.withSearcher(searcher -> {
             final List<QName> definedIndexes = getDefinedIndexes(qnames);
             final NodeSet resultSet = new NewArrayNodeSet();
@@ -484,6 +462,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     public NodeSet query(int contextId, DocumentSet docs, NodeSet contextSet,
                          List<QName> qnames, Element queryRoot, int axis, QueryOptions options)
             throws IOException, ParseException, XPathException {
+        waitForIndex(options);
         return index.withSearcher(searcher -> {
             final List<QName> definedIndexes = getDefinedIndexes(qnames);
             final NodeSet resultSet = new NewArrayNodeSet();
@@ -509,6 +488,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     public NodeSet queryField(int contextId, DocumentSet docs, NodeSet contextSet,
                               String field, Element queryRoot, int axis, QueryOptions options)
             throws IOException, XPathException {
+        waitForIndex(options);
         return index.withSearcher(searcher -> {
             final NodeSet resultSet = new NewArrayNodeSet();
             final boolean returnAncestor = axis == NodeSet.ANCESTOR;
@@ -539,10 +519,65 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         final LuceneFacets facets = new LuceneFacets();
         final FacetsCollector facetsCollector = new FacetsCollector();
         final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, facetsCollector);
-        searcher.searcher.search(query, collector);
+        final List<AtomicReaderContext> leaves = searcher.searcher.getIndexReader().leaves();
+        final int threads = Math.min(config.getSearchThreads(), leaves.size());
+        if (threads > 1) {
+            searchParallel(searcher.searcher, query, leaves, threads, collector);
+        } else {
+            searcher.searcher.search(query, collector);
+        }
 
         // compute facets
-        facets.compute(searcher.taxonomyReader, config.facetsConfig, facetsCollector);
+        if (threads > 1) {
+            facets.compute(searcher.taxonomyReader, config.facetsConfig, facetsCollector, index.getSearchExecutor(), threads);
+        } else {
+            facets.compute(searcher.taxonomyReader, config.facetsConfig, facetsCollector);
+        }
+    }
+
+    /**
+     * Search the segments of the index on up to <code>threads</code> threads of the
+     * search executor. The threads only score and read the hits of their segments.
+     * The hits are then passed to the collector by the calling thread, one segment
+     * after the other, so the result set and facets are the same as for a sequential
+     * search.
+     */
+    private void searchParallel(final IndexSearcher searcher, final Query query, final List<AtomicReaderContext> leaves,
+                                final int threads, final LuceneHitCollector collector) throws IOException {
+        final Weight weight = searcher.createNormalizedWeight(query);
+        @SuppressWarnings("unchecked")
+        final List<SegmentHit>[] hits = new List[leaves.size()];
+        final List<Future<Void>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int slice = t;
+            tasks.add(index.getSearchExecutor().submit(() -> {
+                for (int i = slice; i < leaves.size(); i += threads) {
+                    hits[i] = collectSegment(weight, leaves.get(i), collector.docs);
+                }
+                return null;
+            }));
+        }
+        for (final Future<Void> task : tasks) {
+            ParallelTaxonomyFacetCounts.await(task);
+        }
+
+        for (int i = 0; i < hits.length; i++) {
+            collector.setNextReader(leaves.get(i));
+            for (final SegmentHit hit : hits[i]) {
+                collector.addHit(hit.doc(), hit.score(), hit.document(), hit.nodeId());
+            }
+        }
+    }
+
+    private List<SegmentHit> collectSegment(final Weight weight, final AtomicReaderContext context, final DocumentSet docs)
+            throws IOException {
+        final SegmentHitCollector collector = new SegmentHitCollector(docs);
+        collector.setNextReader(context);
+        final BulkScorer scorer = weight.bulkScorer(context, !collector.acceptsDocsOutOfOrder(), context.reader().getLiveDocs());
+        if (scorer != null) {
+            scorer.score(collector);
+        }
+        return collector.hits;
     }
 
     /**
@@ -569,6 +604,23 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                 throws IOException {
             this.facets = new FastTaxonomyFacetCounts(reader, config, collector);
         }
+
+        /**
+         * Compute facets based on the given {@link FacetsCollector}, counting the hits
+         * of different segments on different threads.
+         *
+         * @param reader the taxonomy reader
+         * @param config the facets configuration
+         * @param collector the facets collector
+         * @param executor the executor to count on
+         * @param threads the maximum number of threads to use
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        public void compute(DirectoryTaxonomyReader reader, FacetsConfig config, FacetsCollector collector,
+                            ExecutorService executor, int threads) throws IOException {
+            this.facets = new ParallelTaxonomyFacetCounts(reader, config, collector, executor, threads);
+        }
     }
 
     /**
@@ -590,6 +642,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     public NodeSet queryField(XQueryContext context, int contextId, DocumentSet docs, NodeSet contextSet,
             String field, String queryString, int axis, QueryOptions options)
             throws IOException, XPathException {
+        waitForIndex(options);
         return index.withSearcher(searcher -> {
             NodeSet resultSet = new NewArrayNodeSet();
             boolean returnAncestor = axis == NodeSet.ANCESTOR;
@@ -678,19 +731,10 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
     
     public void writeNonXML() {
-    	IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-            
-            writer.addDocument(pendingDoc);
-        } catch (IOException e) {
-            LOG.warn("An exception was caught while indexing document: {}", e.getMessage(), e);
-
-        } finally {
-            index.releaseWriter(writer);
-            pendingDoc = null;
-            cachedNodesSize = 0;
-        }
+        final Document doc = pendingDoc;
+        pendingDoc = null;
+        cachedNodesSize = 0;
+        index.write(currentDoc.getDocId(), broker.getCurrentTransaction(), writer -> writer.addDocument(doc));
     }
 
     /**
@@ -708,7 +752,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
      * @throws IOException if an I/O error occurs
      */
     public NodeImpl search(final XQueryContext context, final List<String> toBeMatchedURIs, String queryText, String[] fieldsToGet, QueryOptions options) throws XPathException, IOException {
-
+        waitForIndex(options);
         return index.withSearcher(searcher -> {
             // Get analyzer : to be retrieved from configuration
             final Analyzer searchAnalyzer = new StandardAnalyzer(LuceneIndex.LUCENE_VERSION_IN_USE);
@@ -994,47 +1038,49 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                 DocumentImpl storedDocument = docs.getDoc(docId);
                 if (storedDocument == null)
                     return;
-                final BytesRef ref = this.nodeIdValues.get(doc);
-                int units = ByteConversion.byteToShort(ref.bytes, ref.offset);
-                NodeId nodeId = index.getBrokerPool().getNodeFactory().createFromData(units, ref.bytes, ref.offset + 2);
+                NodeId nodeId = readNodeId(nodeIdValues, doc);
                 //LOG.info("doc: " + docId + "; node: " + nodeId.toString() + "; units: " + units);
+                addHit(doc, score, storedDocument, nodeId);
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
 
-                NodeProxy storedNode = new NodeProxy(null, storedDocument, nodeId);
-                if (qname != null) {
-                    storedNode.setNodeType(qname.getNameType() == ElementValue.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE);
-                }
-                // if a context set is specified, we can directly check if the
-                // matching node is a descendant of one of the nodes
-                // in the context set.
-                if (contextSet != null) {
-                    int sizeHint = contextSet.getSizeHint(storedDocument);
-                    if (returnAncestor) {
-                        NodeProxy parentNode = contextSet.get(storedNode);
-                        // NodeProxy parentNode = contextSet.parentWithChild(storedNode, false, true, NodeProxy.UNKNOWN_NODE_LEVEL);
-                        if (parentNode != null) {
-                            LuceneMatch match = createMatch(doc, score, nodeId);
-                            parentNode.addMatch(match);
-                            resultSet.add(parentNode, sizeHint);
-                            if (Expression.NO_CONTEXT_ID != contextId) {
-                                parentNode.deepCopyContext(storedNode, contextId);
-                            } else
-                                parentNode.copyContext(storedNode);
-                            chainedCollector.collect(doc);
-                        }
-                    } else {
+        private void addHit(final int doc, final float score, final DocumentImpl storedDocument, final NodeId nodeId)
+                throws IOException {
+            NodeProxy storedNode = new NodeProxy(null, storedDocument, nodeId);
+            if (qname != null) {
+                storedNode.setNodeType(qname.getNameType() == ElementValue.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE);
+            }
+            // if a context set is specified, we can directly check if the
+            // matching node is a descendant of one of the nodes
+            // in the context set.
+            if (contextSet != null) {
+                int sizeHint = contextSet.getSizeHint(storedDocument);
+                if (returnAncestor) {
+                    NodeProxy parentNode = contextSet.get(storedNode);
+                    // NodeProxy parentNode = contextSet.parentWithChild(storedNode, false, true, NodeProxy.UNKNOWN_NODE_LEVEL);
+                    if (parentNode != null) {
                         LuceneMatch match = createMatch(doc, score, nodeId);
-                        storedNode.addMatch(match);
-                        resultSet.add(storedNode, sizeHint);
+                        parentNode.addMatch(match);
+                        resultSet.add(parentNode, sizeHint);
+                        if (Expression.NO_CONTEXT_ID != contextId) {
+                            parentNode.deepCopyContext(storedNode, contextId);
+                        } else
+                            parentNode.copyContext(storedNode);
                         chainedCollector.collect(doc);
                     }
                 } else {
                     LuceneMatch match = createMatch(doc, score, nodeId);
                     storedNode.addMatch(match);
-                    resultSet.add(storedNode);
+                    resultSet.add(storedNode, sizeHint);
                     chainedCollector.collect(doc);
                 }
-            } catch (final IOException e) {
-                e.printStackTrace();
+            } else {
+                LuceneMatch match = createMatch(doc, score, nodeId);
+                storedNode.addMatch(match);
+                resultSet.add(storedNode);
+                chainedCollector.collect(doc);
             }
         }
 
@@ -1045,6 +1091,57 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         }
     }
 
+    private record SegmentHit(int doc, float score, DocumentImpl document, NodeId nodeId) {
+    }
+
+    /**
+     * Reads the hits of a single segment, so that segments can be searched in parallel.
+     * Adding the hits to the result set is left to the {@link LuceneHitCollector}.
+     */
+    private class SegmentHitCollector extends Collector {
+
+        private final DocumentSet docs;
+        private final List<SegmentHit> hits = new ArrayList<>();
+        private Scorer scorer;
+        private NumericDocValues docIdValues;
+        private BinaryDocValues nodeIdValues;
+
+        private SegmentHitCollector(final DocumentSet docs) {
+            this.docs = docs;
+        }
+
+        @Override
+        public void setScorer(final Scorer scorer) {
+            this.scorer = scorer;
+        }
+
+        @Override
+        public void setNextReader(final AtomicReaderContext atomicReaderContext) throws IOException {
+            final AtomicReader reader = atomicReaderContext.reader();
+            this.docIdValues = reader.getNumericDocValues(FIELD_DOC_ID);
+            this.nodeIdValues = reader.getBinaryDocValues(LuceneUtil.FIELD_NODE_ID);
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return false;
+        }
+
+        @Override
+        public void collect(final int doc) throws IOException {
+            final DocumentImpl storedDocument = docs.getDoc((int) docIdValues.get(doc));
+            if (storedDocument != null) {
+                hits.add(new SegmentHit(doc, scorer.score(), storedDocument, readNodeId(nodeIdValues, doc)));
+            }
+        }
+    }
+
+    private NodeId readNodeId(final BinaryDocValues nodeIdValues, final int doc) {
+        final BytesRef ref = nodeIdValues.get(doc);
+        final int units = ByteConversion.byteToShort(ref.bytes, ref.offset);
+        return index.getBrokerPool().getNodeFactory().createFromData(units, ref.bytes, ref.offset + 2);
+    }
+
     /**
      * Check index configurations for all collection in the given DocumentSet and return
      * a list of QNames, which have indexes defined on them.
@@ -1367,75 +1464,80 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             removeNodes();
         }
 
-        IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
+        // the documents are built here, as building facets and fields needs the broker,
+        // but they may be added to the index by a background writer, so no field can be
+        // shared between them
+        final int docId = currentDoc.getDocId();
+        final List<PendingDoc> pendingDocs = nodesToWrite;
+        final Document[] docs = new Document[pendingDocs.size()];
+        nodesToWrite = new ArrayList<>();
+        cachedNodesSize = 0;
+        for (int i = 0; i < docs.length; i++) {
+            final PendingDoc pending = pendingDocs.get(i);
+            final Document doc = new Document();
+
+
+            List<AbstractFieldConfig> facetConfigs = pending.idxConf.getFacetsAndFields();
+            facetConfigs.forEach(config ->
+                config.build(broker, currentDoc, pending.nodeId, doc, pending.text)
+            );
+
             // docId and nodeId are stored as doc value
-            NumericDocValuesField fDocId = new NumericDocValuesField(FIELD_DOC_ID, 0);
-            BinaryDocValuesField fNodeId = new BinaryDocValuesField(LuceneUtil.FIELD_NODE_ID, new BytesRef(8));
-            // docId also needs to be indexed
-            IntField fDocIdIdx = new IntField(FIELD_DOC_ID, 0, IntField.TYPE_NOT_STORED);
-
-            for (PendingDoc pending : nodesToWrite) {
-                final Document doc = new Document();
-
-
-                List<AbstractFieldConfig> facetConfigs = pending.idxConf.getFacetsAndFields();
-                facetConfigs.forEach(config ->
-                    config.build(broker, currentDoc, pending.nodeId, doc, pending.text)
-                );
-
-                fDocId.setLongValue(currentDoc.getDocId());
-                doc.add(fDocId);
-
-                // store the node id
-                int nodeIdLen = pending.nodeId.size();
-                byte[] data = new byte[nodeIdLen + 2];
-                ByteConversion.shortToByte((short) pending.nodeId.units(), data, 0);
-                pending.nodeId.serialize(data, 2);
-                fNodeId.setBytesValue(data);
-                doc.add(fNodeId);
-
-                // add separate index for node id
-                BinaryTokenStream bts = new BinaryTokenStream(new BytesRef(data));
-                Field fNodeIdIdx = new Field(LuceneUtil.FIELD_NODE_ID, bts, TYPE_NODE_ID);
-                doc.add(fNodeIdIdx);
-
-                if (pending.idxConf.doIndex()) {
-                    String contentField;
-                    // the text content is indexed in a field using either
-                    // the qname of the element or attribute or the field
-                    // name defined in the configuration
-                    if (pending.idxConf.isNamed())
-                        contentField = pending.idxConf.getName();
-                    else
-                        contentField = LuceneUtil.encodeQName(pending.qname, index.getBrokerPool().getSymbols());
-
-                    Field fld = new Field(contentField, pending.text.toString(), Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.YES);
-                    if (pending.boost > 0) {
-                        fld.setBoost(pending.boost);
-                    } else if (config.getBoost() > 0) {
-                        fld.setBoost(config.getBoost());
-                    }
+            doc.add(new NumericDocValuesField(FIELD_DOC_ID, docId));
+
+            // store the node id
+            int nodeIdLen = pending.nodeId.size();
+            byte[] data = new byte[nodeIdLen + 2];
+            ByteConversion.shortToByte((short) pending.nodeId.units(), data, 0);
+            pending.nodeId.serialize(data, 2);
+            doc.add(new BinaryDocValuesField(LuceneUtil.FIELD_NODE_ID, new BytesRef(data)));
+
+            // add separate index for node id
+            BinaryTokenStream bts = new BinaryTokenStream(new BytesRef(data));
+            Field fNodeIdIdx = new Field(LuceneUtil.FIELD_NODE_ID, bts, TYPE_NODE_ID);
+            doc.add(fNodeIdIdx);
+
+            if (pending.idxConf.doIndex()) {
+                String contentField;
+                // the text content is indexed in a field using either
+                // the qname of the element or attribute or the field
+                // name defined in the configuration
+                if (pending.idxConf.isNamed())
+                    contentField = pending.idxConf.getName();
+                else
+                    contentField = LuceneUtil.encodeQName(pending.qname, index.getBrokerPool().getSymbols());
 
-                    doc.add(fld);
+                Field fld = new Field(contentField, pending.text.toString(), Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.YES);
+                if (pending.boost > 0) {
+                    fld.setBoost(pending.boost);
+                } else if (config.getBoost() > 0) {
+                    fld.setBoost(config.getBoost());
                 }
 
-                fDocIdIdx.setIntValue(currentDoc.getDocId());
-                doc.add(fDocIdIdx);
+                doc.add(fld);
+            }
+
+            // docId also needs to be indexed
+            doc.add(new IntField(FIELD_DOC_ID, docId, IntField.TYPE_NOT_STORED));
+            docs[i] = doc;
+        }
 
-                if (pending.idxConf.getAnalyzer() == null) {
-                    writer.addDocument(config.facetsConfig.build(index.getTaxonomyWriter(), doc));
+        final FacetsConfig facetsConfig = config.facetsConfig;
+        index.write(docId, broker.getCurrentTransaction(), writer -> {
+            for (int i = 0; i < docs.length; i++) {
+                final Analyzer analyzer = pendingDocs.get(i).idxConf.getAnalyzer();
+                if (analyzer == null) {
+                    writer.addDocument(facetsConfig.build(index.getTaxonomyWriter(), docs[i]));
                 } else {
-                    writer.addDocument(config.facetsConfig.build(index.getTaxonomyWriter(), doc), pending.idxConf.getAnalyzer());
-		        }
-	        }
-        } catch (final IOException e) {
-            LOG.warn("An exception was caught while indexing document: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            nodesToWrite = new ArrayList<>();
-            cachedNodesSize = 0;
+                    writer.addDocument(facetsConfig.build(index.getTaxonomyWriter(), docs[i]), analyzer);
+                }
+            }
+        });
+    }
+
+    private void waitForIndex(@Nullable final QueryOptions options) {
+        if (options != null && options.waitForIndex()) {
+            index.waitForPendingWrites();
         }
     }
 
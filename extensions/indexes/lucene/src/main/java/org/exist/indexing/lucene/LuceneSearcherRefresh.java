@@ -0,0 +1,96 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+public class LuceneSearcherRefresh implements LuceneSearcherRefreshMXBean {
+    private final String instanceId;
+    private final LuceneIndex index;
+
+    public LuceneSearcherRefresh(final String instanceId, final LuceneIndex index) {
+        this.instanceId = instanceId;
+        this.index = index;
+    }
+
+    private static ObjectName getName(final String instanceId, final String indexName) throws MalformedObjectNameException {
+        return new ObjectName("org.exist.management." + instanceId + ":type=LuceneSearcherRefresh,index=" + indexName);
+    }
+
+    @Override
+    public ObjectName getName() throws MalformedObjectNameException {
+        // the range index is a Lucene index as well, so the name tells them apart
+        return getName(instanceId, index.getDirName());
+    }
+
+    @Override
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    @Override
+    public long getRefreshInterval() {
+        return index.getRefreshInterval();
+    }
+
+    @Override
+    public boolean isRefreshAfterCommit() {
+        return index.isRefreshAfterCommit();
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return index.getRefreshCount();
+    }
+
+    @Override
+    public long getLastRefreshTime() {
+        return index.getLastRefreshTime();
+    }
+
+    @Override
+    public long getMaxRefreshTime() {
+        return index.getMaxRefreshTime();
+    }
+
+    @Override
+    public long getAverageRefreshTime() {
+        final long count = index.getRefreshCount();
+        return count == 0 ? 0 : index.getTotalRefreshTime() / count;
+    }
+
+    @Override
+    public long getWriteGeneration() {
+        return index.getWriteGeneration();
+    }
+
+    @Override
+    public long getSearcherGeneration() {
+        return index.getSearcherGeneration();
+    }
+
+    @Override
+    public long getGenerationLag() {
+        return index.getWriteGeneration() - index.getSearcherGeneration();
+    }
+}
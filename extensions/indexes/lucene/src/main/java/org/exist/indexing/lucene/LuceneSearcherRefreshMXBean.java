@@ -0,0 +1,76 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.exist.management.impl.PerInstanceMBean;
+
+/**
+ * JMX MXBean interface for examining how the searcher of the Lucene index
+ * is refreshed in the background.
+ */
+public interface LuceneSearcherRefreshMXBean extends PerInstanceMBean {
+
+    /**
+     * @return the maximum time in milliseconds between refreshes, or 0 if only refreshed after commit
+     */
+    long getRefreshInterval();
+
+    /**
+     * @return true if the searcher is refreshed as soon as a transaction commits
+     */
+    boolean isRefreshAfterCommit();
+
+    /**
+     * @return the number of times the searcher was reopened
+     */
+    long getRefreshCount();
+
+    /**
+     * @return the time in milliseconds the last refresh took
+     */
+    long getLastRefreshTime();
+
+    /**
+     * @return the time in milliseconds the slowest refresh took
+     */
+    long getMaxRefreshTime();
+
+    /**
+     * @return the average time in milliseconds a refresh took
+     */
+    long getAverageRefreshTime();
+
+    /**
+     * @return the number of times changes have been written to the index
+     */
+    long getWriteGeneration();
+
+    /**
+     * @return the write generation the current searcher was opened at
+     */
+    long getSearcherGeneration();
+
+    /**
+     * @return the number of writes which are not yet visible to queries
+     */
+    long getGenerationLag();
+}
@@ -0,0 +1,130 @@
+/*
+ * eXist-db Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Authors
+ *
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.indexing.lucene;
+
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.facet.taxonomy.IntTaxonomyFacets;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Counts facets like {@link FastTaxonomyFacetCounts}, but the matching documents
+ * of different segments are counted by different threads. Each thread counts into
+ * its own array, the arrays are added up when all threads have finished.
+ */
+class ParallelTaxonomyFacetCounts extends IntTaxonomyFacets {
+
+    ParallelTaxonomyFacetCounts(final TaxonomyReader taxoReader, final FacetsConfig config, final FacetsCollector fc,
+            final ExecutorService executor, final int threads) throws IOException {
+        super(FacetsConfig.DEFAULT_INDEX_FIELD_NAME, taxoReader, config);
+        count(fc.getMatchingDocs(), executor, threads);
+    }
+
+    private void count(final List<MatchingDocs> matchingDocs, final ExecutorService executor, final int threads)
+            throws IOException {
+        final List<Future<int[]>> partials = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int slice = t;
+            partials.add(executor.submit(() -> {
+                final int[] counts = new int[values.length];
+                for (int i = slice; i < matchingDocs.size(); i += threads) {
+                    count(matchingDocs.get(i), counts);
+                }
+                return counts;
+            }));
+        }
+        for (final Future<int[]> partial : partials) {
+            final int[] counts = await(partial);
+            for (int ord = 0; ord < counts.length; ord++) {
+                values[ord] += counts[ord];
+            }
+        }
+        rollup();
+    }
+
+    private void count(final MatchingDocs hits, final int[] counts) throws IOException {
+        final BinaryDocValues dv = hits.context.reader().getBinaryDocValues(indexFieldName);
+        if (dv == null) {
+            return;
+        }
+        final DocIdSetIterator docs = hits.bits.iterator();
+        if (docs == null) {
+            return;
+        }
+        int doc;
+        while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            // ordinals are delta and vint encoded, see FastTaxonomyFacetCounts
+            final BytesRef bytesRef = dv.get(doc);
+            final byte[] bytes = bytesRef.bytes;
+            final int end = bytesRef.offset + bytesRef.length;
+            int ord = 0;
+            int offset = bytesRef.offset;
+            int prev = 0;
+            while (offset < end) {
+                final byte b = bytes[offset++];
+                if (b >= 0) {
+                    prev = ord = ((ord << 7) | b) + prev;
+                    ++counts[ord];
+                    ord = 0;
+                } else {
+                    ord = (ord << 7) | (b & 0x7F);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a task run on the search executor and return its result.
+     *
+     * @param future the task
+     * @param <T> the type of the result
+     * @return the result of the task
+     *
+     * @throws IOException if the task failed or the thread was interrupted while waiting
+     */
+    static <T> T await(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for parallel Lucene search");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -77,6 +77,7 @@ public class Query extends Function implements Optimizable {
                                            <leading-wildcard>yes|no</leading-wildcard>
                                            <filter-rewrite>yes|no</filter-rewrite>
                                            <lowercase-expanded-terms>yes|no</lowercase-expanded-terms>
+                                           <wait-for-index>yes|no</wait-for-index>
                                         </options>"""
                         )
                     )
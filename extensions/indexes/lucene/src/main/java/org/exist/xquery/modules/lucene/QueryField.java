@@ -63,6 +63,7 @@ public class QueryField extends Query implements Optimizable {
                                        <phrase-slop>number</phrase-slop>
                                        <leading-wildcard>yes|no</leading-wildcard>
                                        <filter-rewrite>yes|no</filter-rewrite>
+                                       <wait-for-index>yes|no</wait-for-index>
                                     </options>"""
                             )
                     )
@@ -54,6 +54,7 @@ public class QueryOptions {
     public static final String OPTION_LOWERCASE_EXPANDED_TERMS = "lowercase-expanded-terms";
     public static final String OPTION_FACETS = "facets";
     public static final String OPTION_QUERY_ANALYZER_ID = "query-analyzer-id";
+    public static final String OPTION_WAIT_FOR_INDEX = "wait-for-index";
 
     protected enum DefaultOperator {
         OR,
@@ -67,6 +68,7 @@ public class QueryOptions {
 
     protected boolean filterRewrite = false;
     protected boolean lowercaseExpandedTerms = false;
+    protected boolean waitForIndex = false;
     protected Optional<Map<String, FacetQuery>> facets = Optional.empty();
     protected Set<String> fields = null;
 
@@ -207,6 +209,16 @@ public class QueryOptions {
         return filterRewrite;
     }
 
+    /**
+     * If the index applies changes in the background, wait until all changes
+     * made before the query have been applied, so the query sees them.
+     *
+     * @return true if the query should wait for pending index writes
+     */
+    public boolean waitForIndex() {
+        return waitForIndex;
+    }
+
     private void set(String key, String value) throws XPathException {
         switch (key) {
             case OPTION_DEFAULT_OPERATOR:
@@ -230,6 +242,9 @@ public class QueryOptions {
             case OPTION_LOWERCASE_EXPANDED_TERMS:
                 lowercaseExpandedTerms = "yes".equalsIgnoreCase(value);
                 break;
+            case OPTION_WAIT_FOR_INDEX:
+                waitForIndex = "yes".equalsIgnoreCase(value);
+                break;
             case OPTION_QUERY_ANALYZER_ID:
                 queryAnalyzerId = value;
             default:
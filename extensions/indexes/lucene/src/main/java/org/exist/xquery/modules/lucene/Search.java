@@ -65,6 +65,7 @@ public class Search extends BasicFunction {
                                             "   <phrase-slop>number</phrase-slop>\n" +
                                             "   <leading-wildcard>yes|no</leading-wildcard>\n" +
                                             "   <filter-rewrite>yes|no</filter-rewrite>\n" +
+                                            "   <wait-for-index>yes|no</wait-for-index>\n" +
                                             "</options>")
                     },
                     new FunctionReturnSequenceType(Type.NODE, Cardinality.EXACTLY_ONE,
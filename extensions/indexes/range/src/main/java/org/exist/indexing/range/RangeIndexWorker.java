@@ -358,20 +358,17 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     public void removeCollection(Collection collection, DBBroker broker, boolean reindex) throws PermissionDeniedException {
         if (LOG.isDebugEnabled())
             LOG.debug("Removing collection {}", collection.getURI());
-        IndexWriter writer = null;
         try {
-            writer = index.getWriter();
             for (Iterator<DocumentImpl> i = collection.iterator(broker); i.hasNext(); ) {
                 DocumentImpl doc = i.next();
                 final BytesRefBuilder bytes = new BytesRefBuilder();
                 NumericUtils.intToPrefixCoded(doc.getDocId(), 0, bytes);
-                Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
-                writer.deleteDocuments(dt);
+                final Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
+                index.write(doc.getDocId(), null, writer -> writer.deleteDocuments(dt));
             }
-        } catch (IOException | PermissionDeniedException | LockException e) {
+        } catch (PermissionDeniedException | LockException e) {
             LOG.error("Error while removing lucene index: {}", e.getMessage(), e);
         } finally {
-            index.releaseWriter(writer);
             if (reindex) {
                 try {
                     index.sync();
@@ -386,19 +383,11 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
 
     protected void removeDocument(int docId) {
-        IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-            final BytesRefBuilder bytes = new BytesRefBuilder();
-            NumericUtils.intToPrefixCoded(docId, 0, bytes);
-            Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
-            writer.deleteDocuments(dt);
-        } catch (IOException e) {
-            LOG.warn("Error while removing lucene index: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            mode = ReindexMode.STORE;
-        }
+        final BytesRefBuilder bytes = new BytesRefBuilder();
+        NumericUtils.intToPrefixCoded(docId, 0, bytes);
+        final Term dt = new Term(FIELD_DOC_ID, bytes.toBytesRef());
+        index.write(docId, null, writer -> writer.deleteDocuments(dt));
+        mode = ReindexMode.STORE;
     }
 
     /**
@@ -409,27 +398,21 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     protected void removeNodes() {
         if (nodesToRemove == null)
             return;
-        IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
-
-            for (NodeId nodeId : nodesToRemove) {
-                // build id from nodeId and docId
-                int nodeIdLen = nodeId.size();
-                byte[] data = new byte[nodeIdLen + 4];
-                ByteConversion.intToByteH(currentDoc.getDocId(), data, 0);
-                nodeId.serialize(data, 4);
-
-                Term it = new Term(FIELD_ID, new BytesRef(data));
-                TermQuery iq = new TermQuery(it);
-                writer.deleteDocuments(iq);
-            }
-        } catch (IOException e) {
-            LOG.warn("Error while deleting lucene index entries: {}", e.getMessage(), e);
-        } finally {
-            nodesToRemove = null;
-            index.releaseWriter(writer);
+
+        final Query[] queries = new Query[nodesToRemove.size()];
+        int count = 0;
+        for (NodeId nodeId : nodesToRemove) {
+            // build id from nodeId and docId
+            int nodeIdLen = nodeId.size();
+            byte[] data = new byte[nodeIdLen + 4];
+            ByteConversion.intToByteH(currentDoc.getDocId(), data, 0);
+            nodeId.serialize(data, 4);
+
+            Term it = new Term(FIELD_ID, new BytesRef(data));
+            queries[count++] = new TermQuery(it);
         }
+        nodesToRemove = null;
+        index.write(currentDoc.getDocId(), null, writer -> writer.deleteDocuments(queries));
     }
 
     @Override
@@ -449,73 +432,73 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     private void write() {
         if (nodesToWrite == null || nodesToWrite.isEmpty())
             return;
-        IndexWriter writer = null;
-        try {
-            writer = index.getWriter();
+
+        // fields are not shared between documents, as they may be added to the
+        // index by a background writer
+        final int docId = currentDoc.getDocId();
+        final Document[] docs = new Document[nodesToWrite.size()];
+        final Analyzer[] analyzers = new Analyzer[docs.length];
+        int count = 0;
+        for (RangeIndexDoc pending : nodesToWrite) {
+            Document doc = new Document();
 
             // docId and nodeId are stored as doc value
-            IntDocValuesField fDocId = new IntDocValuesField(FIELD_DOC_ID, 0);
-            BinaryDocValuesField fNodeId = new BinaryDocValuesField(FIELD_NODE_ID, new BytesRef(8));
-            BinaryDocValuesField fAddress = new BinaryDocValuesField(FIELD_ADDRESS, new BytesRef(8));
-            // docId also needs to be indexed
-            IntField fDocIdIdx = new IntField(FIELD_DOC_ID, 0, IntField.TYPE_NOT_STORED);
-            for (RangeIndexDoc pending : nodesToWrite) {
-                Document doc = new Document();
-
-                fDocId.setIntValue(currentDoc.getDocId());
-                doc.add(fDocId);
-
-                // store the node id
-                int nodeIdLen = pending.getNodeId().size();
-                byte[] data = new byte[nodeIdLen + 2];
-                ByteConversion.shortToByteH((short) pending.getNodeId().units(), data, 0);
-                pending.getNodeId().serialize(data, 2);
-                fNodeId.setBytesValue(data);
-                doc.add(fNodeId);
-
-                if (pending.getCollector().hasFields() && pending.getAddress() != -1) {
-                    fAddress.setBytesValue(ByteConversion.longToByte(pending.getAddress()));
-                    doc.add(fAddress);
-                }
+            doc.add(new IntDocValuesField(FIELD_DOC_ID, docId));
 
-                // add separate index for node id
-                byte[] idData = new byte[nodeIdLen + 4];
-                ByteConversion.intToByteH(currentDoc.getDocId(), idData, 0);
-                pending.getNodeId().serialize(idData, 4);
-                BinaryTokenStream bts = new BinaryTokenStream(new BytesRef(idData));
-                Field fNodeIdIdx = new Field(FIELD_ID, bts, LuceneIndexWorker.TYPE_NODE_ID);
-                doc.add(fNodeIdIdx);
-
-                for (TextCollector.Field field : pending.getCollector().getFields()) {
-                    String contentField;
-                    if (field.isNamed())
-                        contentField = field.getName();
-                    else
-                        contentField = LuceneUtil.encodeQName(pending.getQName(), index.getBrokerPool().getSymbols());
-                    Field fld = pending.getConfig().convertToField(contentField, field.getContent().toString());
-                    if (fld != null) {
-                        doc.add(fld);
-                    }
-                }
-                fDocIdIdx.setIntValue(currentDoc.getDocId());
-                doc.add(fDocIdIdx);
+            // store the node id
+            int nodeIdLen = pending.getNodeId().size();
+            byte[] data = new byte[nodeIdLen + 2];
+            ByteConversion.shortToByteH((short) pending.getNodeId().units(), data, 0);
+            pending.getNodeId().serialize(data, 2);
+            doc.add(new BinaryDocValuesField(FIELD_NODE_ID, new BytesRef(data)));
 
-                Analyzer analyzer = pending.getConfig().getAnalyzer();
-                if (analyzer == null) {
-                    analyzer = config.getDefaultAnalyzer();
+            if (pending.getCollector().hasFields() && pending.getAddress() != -1) {
+                doc.add(new BinaryDocValuesField(FIELD_ADDRESS, new BytesRef(ByteConversion.longToByte(pending.getAddress()))));
+            }
+
+            // add separate index for node id
+            byte[] idData = new byte[nodeIdLen + 4];
+            ByteConversion.intToByteH(docId, idData, 0);
+            pending.getNodeId().serialize(idData, 4);
+            BinaryTokenStream bts = new BinaryTokenStream(new BytesRef(idData));
+            Field fNodeIdIdx = new Field(FIELD_ID, bts, LuceneIndexWorker.TYPE_NODE_ID);
+            doc.add(fNodeIdIdx);
+
+            for (TextCollector.Field field : pending.getCollector().getFields()) {
+                String contentField;
+                if (field.isNamed())
+                    contentField = field.getName();
+                else
+                    contentField = LuceneUtil.encodeQName(pending.getQName(), index.getBrokerPool().getSymbols());
+                Field fld = pending.getConfig().convertToField(contentField, field.getContent().toString());
+                if (fld != null) {
+                    doc.add(fld);
                 }
-                writer.addDocument(doc, analyzer);
             }
-        } catch (IOException e) {
-            LOG.warn("An exception was caught while indexing document: {}", e.getMessage(), e);
-        } finally {
-            index.releaseWriter(writer);
-            nodesToWrite = new ArrayList<>();
-            cachedNodesSize = 0;
+            // docId also needs to be indexed
+            doc.add(new IntField(FIELD_DOC_ID, docId, IntField.TYPE_NOT_STORED));
+
+            Analyzer analyzer = pending.getConfig().getAnalyzer();
+            if (analyzer == null) {
+                analyzer = config.getDefaultAnalyzer();
+            }
+            docs[count] = doc;
+            analyzers[count++] = analyzer;
         }
+        nodesToWrite = new ArrayList<>();
+        cachedNodesSize = 0;
+
+        index.write(docId, null, writer -> {
+            for (int i = 0; i < docs.length; i++) {
+                writer.addDocument(docs[i], analyzers[i]);
+            }
+        });
     }
 
     public NodeSet query(int contextId, DocumentSet docs, NodeSet contextSet, List<QName> qnames, AtomicValue[] keys, RangeIndex.Operator operator, int axis) throws IOException, XPathException {
+        // range lookups replace comparisons in queries, so they always have to see
+        // the changes made before the query
+        index.waitForPendingWrites();
         return index.withSearcher(searcher -> {
             List<QName> definedIndexes = getDefinedIndexes(qnames);
             NodeSet resultSet = new NewArrayNodeSet();
@@ -541,6 +524,7 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
 
     public NodeSet queryField(int contextId, DocumentSet docs, NodeSet contextSet, Sequence fields, Sequence[] keys, RangeIndex.Operator[] operators, int axis) throws IOException, XPathException {
+        index.waitForPendingWrites();
         return index.withSearcher(searcher -> {
             BooleanQuery query = new BooleanQuery();
             int j = 0;
@@ -955,6 +939,7 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
 
     public Occurrences[] scanIndexByField(String field, DocumentSet docs, String start, long max) {
+        index.waitForPendingWrites();
         try {
             return index.withReader(reader -> {
                 TreeMap<String, Occurrences> map = new TreeMap<>();
@@ -970,6 +955,7 @@ public class RangeIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     }
 
     private Occurrences[] scanIndexByQName(List<QName> qnames, DocumentSet docs, NodeSet nodes, String start, String end, long max) throws IOException {
+        index.waitForPendingWrites();
         return index.withReader(reader -> {
             TreeMap<String, Occurrences> map = new TreeMap<>();
             for (QName qname : qnames) {
@@ -48,6 +48,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class SortIndexWorker implements IndexWorker {
 
@@ -130,7 +131,7 @@ public class SortIndexWorker implements IndexWorker {
      */
     public long getIndex(final String name, final NodeProxy proxy) throws EXistException, LockException {
         final short id = getId(name);
-        try(final ManagedLock<ReentrantLock> btreeLock = lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
             final byte[] key = computeKey(id, proxy);
             return index.btree.findValue(new Value(key));
         } catch (final LockException | IOException | BTreeException e) {
@@ -250,7 +251,7 @@ public class SortIndexWorker implements IndexWorker {
         final byte[] key = new byte[1 + UTF8.encoded(name)];
         key[0] = 1;
         UTF8.encode(name, key, 1);
-        try(final ManagedLock<ReentrantLock> btreeLock = lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeSharedReadLock(index.btree.getLockName())) {
             return (short) index.btree.findValue(new Value(key));
         } catch (final BTreeException | IOException e) {
             throw new EXistException("Exception caught while reading sort index: " + e.getMessage(), e);